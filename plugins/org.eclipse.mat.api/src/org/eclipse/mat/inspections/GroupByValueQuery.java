@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2021 SAP AG.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -9,11 +9,12 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    IBM Corporation - read the objects on several threads
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
-import java.util.Iterator;
-
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.inspections.util.HeapObjectScan;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.IQuery;
 import org.eclipse.mat.query.IResult;
@@ -43,33 +44,33 @@ public class GroupByValueQuery implements IQuery
     @Argument(isMandatory = false)
     public String field;
 
+    private static class Value
+    {
+        final Object subject;
+        final long used;
+        final long retained;
+        public Value(Object subject, long used, long retained)
+        {
+            this.subject = subject;
+            this.used = used;
+            this.retained = retained;
+        }
+    }
+
     public IResult execute(IProgressListener listener) throws Exception
     {
-        Quantize quantize = Quantize.valueDistribution(Messages.GroupByValueQuery_Column_StringValue) //
+        final Quantize quantize = Quantize.valueDistribution(Messages.GroupByValueQuery_Column_StringValue) //
                         .column(Messages.GroupByValueQuery_Column_Objects, Quantize.COUNT) //
                         .column(Messages.Column_ShallowHeap, Quantize.SUM_BYTES, SortDirection.DESC) //
                         .column(Messages.GroupByValueQuery_Column_AvgRetainedSize, Quantize.AVERAGE_BYTES) //
                         .addDerivedData(RetainedSizeDerivedData.APPROXIMATE) //
                         .build();
 
-        HeapObjectsTracker hot = new HeapObjectsTracker(objects);
-
-        listener.beginTask(Messages.GroupByValueQuery_GroupingObjects, hot.totalWork());
-
-        boolean canceled = false;
-        for (Iterator<int[]> it = objects.iterator(); it.hasNext();)
+        new HeapObjectScan<Value>(snapshot, listener, Messages.GroupByValueQuery_GroupingObjects)
         {
-            int objectIds[] = it.next();
-            hot.beginBlock(objectIds, !it.hasNext());
-            for (int ii = 0; ii < objectIds.length; ii++)
+            @Override
+            protected Value extract(int objectId) throws SnapshotException
             {
-                if (listener.isCanceled())
-                {
-                    canceled = true;
-                    break;
-                }
-
-                int objectId = objectIds[ii];
                 IObject object = snapshot.getObject(objectId);
 
                 Object subject = object;
@@ -79,16 +80,15 @@ public class GroupByValueQuery implements IQuery
                 if (subject instanceof IObject)
                     subject = ((IObject) subject).getClassSpecificName();
 
-                quantize.addValue(objectId, subject, null, object.getUsedHeapSize(), object.getRetainedHeapSize());
-
-                listener.worked(hot.work());
+                return new Value(subject, object.getUsedHeapSize(), object.getRetainedHeapSize());
             }
-            if (canceled)
-                break;
-            listener.worked(hot.endBlock());
-        }
 
-        listener.done();
+            @Override
+            protected void add(int objectId, Value v) throws SnapshotException
+            {
+                quantize.addValue(objectId, v.subject, null, v.used, v.retained);
+            }
+        }.run(objects);
 
         return quantize.getResult();
     }
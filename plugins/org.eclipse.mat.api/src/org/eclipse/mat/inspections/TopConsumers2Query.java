@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson/IBM Corporation - additional web links
+ *    IBM Corporation - use the dominator summary
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
@@ -29,6 +30,7 @@ import org.eclipse.mat.collect.ArrayLong;
 import org.eclipse.mat.collect.ArrayUtils;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.internal.snapshot.DominatorSummary;
 import org.eclipse.mat.query.Bytes;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.IContextObject;
@@ -89,6 +91,7 @@ public class TopConsumers2Query implements IQuery
     public int thresholdPercent = 1;
 
     private long totalHeap;
+    private DominatorSummary summary;
     private int[] topDominators;
     private long[] topDominatorRetainedHeap;
     private long threshold;
@@ -141,22 +144,26 @@ public class TopConsumers2Query implements IQuery
         // nothing specified -> use the top-level dominators
         if (objects == null)
         {
-            topDominators = snapshot.getImmediateDominatedIds(-1);
+            summary = DominatorSummary.get(snapshot, listener);
+            topDominators = summary.getObjectIds();
             totalHeap = snapshot.getSnapshotInfo().getUsedHeapSize();
 
             topDominatorRetainedHeap = new long[topDominators.length];
             for (int ii = 0; ii < topDominators.length; ii++)
-                topDominatorRetainedHeap[ii] = snapshot.getRetainedHeapSize(topDominators[ii]);
+                topDominatorRetainedHeap[ii] = summary.getRetainedHeapSize(ii);
         }
         else
         {
-            topDominators = snapshot.getTopAncestorsInDominatorTree(objects, listener);
+            SimpleMonitor monitor = new SimpleMonitor(Messages.TopConsumers2Query_TopConsumers, listener,
+                            new int[] { 100, 100 });
+            topDominators = snapshot.getTopAncestorsInDominatorTree(objects, monitor.nextMonitor());
+            summary = DominatorSummary.create(snapshot, topDominators, monitor.nextMonitor());
             topDominatorRetainedHeap = new long[topDominators.length];
 
             totalHeap = 0;
             for (int ii = 0; ii < topDominators.length; ii++)
             {
-                topDominatorRetainedHeap[ii] = snapshot.getRetainedHeapSize(topDominators[ii]);
+                topDominatorRetainedHeap[ii] = summary.getRetainedHeapSize(ii);
                 totalHeap += topDominatorRetainedHeap[ii];
             }
         }
@@ -507,36 +514,24 @@ public class TopConsumers2Query implements IQuery
 
         for (int ii = 0; ii < topDominators.length; ii++)
         {
-            long usedHeap = snapshot.getHeapSize(topDominators[ii]);
+            long usedHeap = summary.getUsedHeapSize(ii);
             totalShallow += usedHeap;
 
-            IClass clazz = snapshot.getClassOf(topDominators[ii]);
+            int classId = summary.getClassId(ii);
 
-            ClassHistogramRecordWithObjIds classRecord = id2class.get(clazz.getObjectId());
+            ClassHistogramRecordWithObjIds classRecord = id2class.get(classId);
             if (classRecord == null)
             {
-                classRecord = new ClassHistogramRecordWithObjIds(clazz.getName(), clazz.getObjectId(), 0, 0, 0);
-                id2class.put(clazz.getObjectId(), classRecord);
+                IClass clazz = (IClass) snapshot.getObject(classId);
+                classRecord = new ClassHistogramRecordWithObjIds(clazz.getName(), classId, 0, 0, 0);
+                id2class.put(classId, classRecord);
             }
             classRecord.incNumberOfObjects();
             classRecord.incUsedHeapSize(usedHeap);
             classRecord.incRetainedHeapSize(topDominatorRetainedHeap[ii]);
             classRecord.addObjectId(topDominators[ii]);
 
-            int clId;
-            if (snapshot.isClass(topDominators[ii]))
-            {
-                IClass cl = (IClass)snapshot.getObject(topDominators[ii]);
-                clId = cl.getClassLoaderId();
-            }
-            else if (snapshot.isClassLoader(topDominators[ii]))
-            {
-                clId = topDominators[ii];
-            }
-            else
-            {
-                clId = clazz.getClassLoaderId();
-            }
+            int clId = summary.getClassLoaderId(ii);
             ClassLoaderHistogramRecord loaderRecord = id2loader.get(clId);
             if (loaderRecord == null)
             {
@@ -551,7 +546,7 @@ public class TopConsumers2Query implements IQuery
             loaderRecord.incNumberOfObjects();
             loaderRecord.incUsedHeapSize(usedHeap);
             loaderRecord.incRetainedHeapSize(topDominatorRetainedHeap[ii]);
-            if (snapshot.isClass(topDominators[ii]) || snapshot.isClassLoader(topDominators[ii]))
+            if (summary.isClass(ii) || summary.isClassLoader(ii))
             {
                 // Look for the class histogram record just for this class loader
                 ClassHistogramRecordWithObjIds chr2 = null;
@@ -566,7 +561,7 @@ public class TopConsumers2Query implements IQuery
                 if (chr2 == null)
                 {
                     // New one
-                    chr2 = new ClassHistogramRecordWithObjIds(clazz.getName(), clazz.getObjectId(), 0, 0, 0);
+                    chr2 = new ClassHistogramRecordWithObjIds(classRecord.getLabel(), classId, 0, 0, 0);
                     loaderRecord.getClassHistogramRecords().add(chr2);
                 }
                 chr2.incNumberOfObjects();
@@ -649,6 +644,7 @@ public class TopConsumers2Query implements IQuery
     {
         PackageTreeNode root = new PackageTreeNode(Messages.TopConsumers2Query_Label_all);
         PackageTreeNode current;
+        HashMapIntObject<String> names = new HashMapIntObject<String>();
 
         listener.beginTask(Messages.TopConsumers2Query_GroupingByPackage, (topDominators.length + 999) / 1000);
 
@@ -665,11 +661,13 @@ public class TopConsumers2Query implements IQuery
             current.objs.add(dominatorId);
 
             // for classes take their name instead of java.lang.Class
-            String className;
-            if (snapshot.isClass(dominatorId))
-                className = ((IClass) snapshot.getObject(dominatorId)).getName();
-            else
-                className = snapshot.getClassOf(dominatorId).getName();
+            int classId = summary.getNamedClassId(ii);
+            String className = names.get(classId);
+            if (className == null)
+            {
+                className = ((IClass) snapshot.getObject(classId)).getName();
+                names.put(classId, className);
+            }
 
             for (String subpack : new SimpleStringTokenizer(className, '.'))
             {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and others.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    Chris Grindstaff 
  *    Andrew Johnson (IBM Corporation) - help
+ *    IBM Corporation - read the arrays on several threads
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
@@ -20,6 +21,7 @@ import java.util.List;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.inspections.util.HeapObjectScan;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.IQuery;
 import org.eclipse.mat.query.IResult;
@@ -50,38 +52,39 @@ public class WasteInCharArraysQuery implements IQuery
     public IResult execute(IProgressListener listener) throws Exception
     {
         InspectionAssert.heapFormatIsNot(snapshot, "DTFJ-PHD"); //$NON-NLS-1$
-        ArrayInt result = new ArrayInt();
+        final ArrayInt result = new ArrayInt();
 
         Collection<IClass> classes = snapshot.getClassesByName("char[]", false); //$NON-NLS-1$
         if (classes != null)
+        {
+            List<int[]> objects = new ArrayList<int[]>();
             for (IClass clasz : classes)
-            {
-                int[] objectIds = clasz.getObjectIds();
+                objects.add(clasz.getObjectIds());
 
-                listener.beginTask(Messages.WasteInCharArraysQuery_CheckingCharArrays, (objectIds.length + 9) / 10);
-
-                for (int ii = 0; ii < objectIds.length; ii++)
+            new HeapObjectScan<Boolean>(snapshot, listener, Messages.WasteInCharArraysQuery_CheckingCharArrays)
+            {
+                @Override
+                protected Boolean extract(int id) throws SnapshotException
                 {
-                    if (ii % 10 == 0)
-                    {
-                        if (listener.isCanceled())
-                            throw new IProgressListener.OperationCanceledException();
-                        listener.worked(1);
-                    }
-
-                    int id = objectIds[ii];
-
                     // ignore if object is too small anyways
                     IArray array = (IArray) snapshot.getObject(id);
                     int length = array.getLength();
                     if (length < minimumWaste)
-                        continue;
+                        return null;
 
-                    if (hasWaste(id, length))
-                        result.add(id);
+                    return hasWaste(id, length) ? Boolean.TRUE : null;
+                }
 
+                @Override
+                protected void add(int id, Boolean waste)
+                {
+                    result.add(id);
                 }
-            }
+            }.run(objects);
+
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+        }
 
         return new ObjectListResult.Inbound(snapshot, result.toArray());
     }
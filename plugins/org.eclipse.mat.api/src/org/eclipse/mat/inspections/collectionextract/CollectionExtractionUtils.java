@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2021 SAP AG, IBM Corporation and others
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -56,36 +56,46 @@ public class CollectionExtractionUtils
         if (collection instanceof IObjectArray)
             return ArrayCollectionExtractor.INSTANCE;
 
-        ISnapshot snapshot = collection.getSnapshot();
-        IClass collectionClass = collection.getClazz();
+        return findCollectionExtractor(collection.getSnapshot(), collection.getClazz());
+    }
 
-        /* Cache the lookup */
-        HashMapIntObject<ICollectionExtractor>c1 = cache.get(snapshot);
-        if (c1 == null)
-        {
-            c1 = new HashMapIntObject<ICollectionExtractor>();
-            cache.put(snapshot, c1);
-        }
-        else
+    private static ICollectionExtractor findCollectionExtractor(ISnapshot snapshot, IClass collectionClass) throws SnapshotException
+    {
+        /* Cache the lookup, collection queries can call this from several threads */
+        HashMapIntObject<ICollectionExtractor>c1;
+        synchronized (cache)
         {
-            if (c1.containsKey(collectionClass.getObjectId()))
-                return c1.get(collectionClass.getObjectId());
+            c1 = cache.get(snapshot);
+            if (c1 == null)
+            {
+                c1 = new HashMapIntObject<ICollectionExtractor>();
+                cache.put(snapshot, c1);
+            }
+            else
+            {
+                if (c1.containsKey(collectionClass.getObjectId()))
+                    return c1.get(collectionClass.getObjectId());
+            }
         }
         JdkVersion version = ExtractionUtils.resolveVersion(snapshot);
 
+        ICollectionExtractor extractor = null;
         for (CollectionExtractionInfo info : CollectionExtractorProviderRegistry.instance().getCollectionExtractionInfo())
         {
             if (info.version.contains(version))
             {
                 if (collectionClass.doesExtend(info.className))
                 { 
-                    c1.put(collectionClass.getObjectId(), info.extractor);
-                    return info.extractor;
+                    extractor = info.extractor;
+                    break;
                 }
             }
         }
-        c1.put(collectionClass.getObjectId(), null);
-        return null;
+        synchronized (cache)
+        {
+            c1.put(collectionClass.getObjectId(), extractor);
+        }
+        return extractor;
     }
 
     /**
@@ -107,6 +117,33 @@ public class CollectionExtractionUtils
         return null;
     }
 
+    /**
+     * Whether an extractor might be found for an object, decided from its
+     * class without reading the object, so that queries can skip other
+     * objects cheaply.
+     * 
+     * @param snapshot
+     *            the snapshot
+     * @param objectId
+     *            the object which might represent a collection
+     * @param specificClass
+     *            a class name for which a preferred extractor will be used, or
+     *            null
+     * @return false if no collection would be extracted from the object
+     * @throws SnapshotException
+     * @since 1.17
+     */
+    public static boolean hasCollectionExtractor(ISnapshot snapshot, int objectId, String specificClass)
+                    throws SnapshotException
+    {
+        if (snapshot.isArray(objectId))
+            return true;
+        IClass collectionClass = snapshot.getClassOf(objectId);
+        if (specificClass != null && collectionClass.doesExtend(specificClass))
+            return true;
+        return findCollectionExtractor(snapshot, collectionClass) != null;
+    }
+
     /**
      * Extracts from the heap the content of objects which represent a
      * collection. The proper extractor is determined internally
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2021 SAP AG, IBM Corporation and others
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -14,14 +14,11 @@
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
-import java.util.Arrays;
-
 import org.eclipse.mat.SnapshotException;
-import org.eclipse.mat.collect.HashMapIntLong;
-import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.inspections.collectionextract.AbstractExtractedCollection;
 import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
 import org.eclipse.mat.inspections.collectionextract.ICollectionExtractor;
+import org.eclipse.mat.inspections.util.HeapObjectScan;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.internal.collectionextract.FieldSizeArrayCollectionExtractor;
 import org.eclipse.mat.query.Column;
@@ -35,12 +32,10 @@ import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subjects;
-import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.snapshot.query.RetainedSizeDerivedData;
 import org.eclipse.mat.util.IProgressListener;
-import org.eclipse.mat.util.MessageUtil;
 
 @CommandName("collections_grouped_by_size")
 @Icon("/META-INF/icons/collection_size.gif")
@@ -156,88 +151,34 @@ public class CollectionsBySizeQuery implements IQuery
             this.used = used;
         }
     }
-    private void runQuantizer(IProgressListener listener, Quantize quantize, ICollectionExtractor specificExtractor,
-                    String specificClass) throws SnapshotException
+    private void runQuantizer(IProgressListener listener, final Quantize quantize, final ICollectionExtractor specificExtractor,
+                    final String specificClass) throws SnapshotException
     {
-
-        final long LIMIT = 20;
-        HashMapIntLong exceptions = new HashMapIntLong();
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
+        new HeapObjectScan<Result>(snapshot, listener, Messages.CollectionsBySizeQuery_CollectingSizes,
+                        Messages.CollectionsBySizeQuery_IgnoringCollection)
         {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
-            {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
-            }
-            for (int objectId : sortedObjs)
+            @Override
+            protected Result extract(int objectId) throws SnapshotException
             {
-                if (listener.isCanceled())
-                    break;
-
+                if (!CollectionExtractionUtils.hasCollectionExtractor(snapshot, objectId, specificClass))
+                    return null;
                 IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
+                AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj, specificClass,
+                                specificExtractor);
+                if (coll != null && coll.hasSize())
                 {
-                    type = obj.getClazz();
-                    listener.subTask(Messages.CollectionsBySizeQuery_CollectingSizes + "\n" + type.getName()); //$NON-NLS-1$
-                }
-                try
-                {
-                    AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj, specificClass,
-                                    specificExtractor);
-                    if (coll != null && coll.hasSize())
-                    {
-                        Integer size = coll.size();
-                        if (size != null)
-                        {
-                            if (resultMap != null)
-                                resultMap.put(objectId, new Result(size, coll.getUsedHeapSize()));
-                            else
-                                quantize.addValue(objectId, size, null, coll.getUsedHeapSize());
-                        }
-                    }
-                }
-                catch (RuntimeException e)
-                {
-                    int classId = obj.getClazz().getObjectId();
-                    if (!exceptions.containsKey(classId))
-                    {
-                        exceptions.put(classId, 0);
-                    }
-                    long c =  exceptions.get(classId);
-                    exceptions.put(classId, c + 1);
-                    if (c < LIMIT)
-                    {
-                        listener.sendUserMessage(
-                                        IProgressListener.Severity.INFO,
-                                        MessageUtil.format(Messages.CollectionsBySizeQuery_IgnoringCollection,
-                                                        obj.getTechnicalName()), e);
-                    }
+                    Integer size = coll.size();
+                    if (size != null)
+                        return new Result(size, coll.getUsedHeapSize());
                 }
+                return null;
             }
-            if (resultMap != null)
+
+            @Override
+            protected void add(int objectId, Result r) throws SnapshotException
             {
-                for (int objectId : objectIds)
-                {
-                    if (resultMap.containsKey(objectId))
-                    {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.size, null, r.used);
-                    }
-                }
+                quantize.addValue(objectId, r.size, null, r.used);
             }
-            if (listener.isCanceled())
-                break;
-        }
+        }.run(objects);
     }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2021 SAP AG, IBM Corporation and others
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -14,14 +14,11 @@
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
-import java.util.Arrays;
-
 import org.eclipse.mat.SnapshotException;
-import org.eclipse.mat.collect.HashMapIntLong;
-import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
 import org.eclipse.mat.inspections.collectionextract.ExtractedMap;
 import org.eclipse.mat.inspections.collectionextract.IMapExtractor;
+import org.eclipse.mat.inspections.util.HeapObjectScan;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.internal.collectionextract.HashMapCollectionExtractor;
 import org.eclipse.mat.query.IQuery;
@@ -33,12 +30,10 @@ import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subjects;
-import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.snapshot.query.RetainedSizeDerivedData;
 import org.eclipse.mat.util.IProgressListener;
-import org.eclipse.mat.util.MessageUtil;
 
 @CommandName("map_collision_ratio")
 @Icon("/META-INF/icons/map_collision.gif")
@@ -112,94 +107,49 @@ public class MapCollisionRatioQuery implements IQuery
         builder.column(Messages.MapCollisionRatioQuery_Column_NumObjects, Quantize.COUNT);
         builder.column(Messages.Column_ShallowHeap, Quantize.SUM_BYTES);
         builder.addDerivedData(RetainedSizeDerivedData.APPROXIMATE);
-        Quantize quantize = builder.build();
-
-        IMapExtractor specificExtractor = new HashMapCollectionExtractor(size_attribute, array_attribute, null, null);
-        final long LIMIT = 20;
-        HashMapIntLong exceptions = new HashMapIntLong();
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
+        final Quantize quantize = builder.build();
+
+        final IMapExtractor specificExtractor = new HashMapCollectionExtractor(size_attribute, array_attribute, null, null);
+        new HeapObjectScan<Result>(snapshot, listener, Messages.MapCollisionRatioQuery_CalculatingCollisionRatios,
+                        Messages.MapCollisionRatioQuery_IgnoringCollection)
         {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
-            {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
-            }
-            for (int objectId : sortedObjs)
+            @Override
+            protected Result extract(int objectId) throws SnapshotException
             {
-                if (listener.isCanceled())
-                    break;
-
+                if (!CollectionExtractionUtils.hasCollectionExtractor(snapshot, objectId, collection))
+                    return null;
                 IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
-                {
-                    type = obj.getClazz();
-                    listener.subTask(Messages.MapCollisionRatioQuery_CalculatingCollisionRatios + "\n" + type.getName()); //$NON-NLS-1$
-                }
-                try
-                {
-                    ExtractedMap coll = CollectionExtractionUtils.extractMap(obj, collection, specificExtractor);
+                ExtractedMap coll = CollectionExtractionUtils.extractMap(obj, collection, specificExtractor);
 
-                    if (coll != null)
-                    {
-                        /*
-                         * @FIXME - shouldn't really count maps without a collision ratio
-                         * but current tests presume TreeSet/TreeMap have one.
-                         */
-                        if (coll.hasCollisionRatio() || true)
-                        {
-                            Double collisionRatio = coll.getCollisionRatio();
-                            if (collisionRatio == null)
-                                collisionRatio = 0.0;
-                            if (resultMap != null)
-                                resultMap.put(objectId, new Result(collisionRatio, coll.getUsedHeapSize()));
-                            else
-                                quantize.addValue(objectId, collisionRatio, null, coll.getUsedHeapSize());
-                        }
-                    }
-                }
-                catch (RuntimeException | SnapshotException e)
+                if (coll != null)
                 {
-                    int classId = obj.getClazz().getObjectId();
-                    if (!exceptions.containsKey(classId))
-                    {
-                        exceptions.put(classId, 0);
-                    }
-                    long c =  exceptions.get(classId);
-                    exceptions.put(classId, c + 1);
-                    if (c < LIMIT)
+                    /*
+                     * @FIXME - shouldn't really count maps without a collision ratio
+                     * but current tests presume TreeSet/TreeMap have one.
+                     */
+                    if (coll.hasCollisionRatio() || true)
                     {
-                        listener.sendUserMessage(
-                                        IProgressListener.Severity.INFO,
-                                        MessageUtil.format(Messages.MapCollisionRatioQuery_IgnoringCollection,
-                                                        obj.getTechnicalName()), e);
+                        Double collisionRatio = coll.getCollisionRatio();
+                        if (collisionRatio == null)
+                            collisionRatio = 0.0;
+                        return new Result(collisionRatio, coll.getUsedHeapSize());
                     }
                 }
+                return null;
             }
-            if (resultMap != null)
+
+            @Override
+            protected boolean ignore(Exception e)
             {
-                for (int objectId : objectIds)
-                {
-                    if (resultMap.containsKey(objectId))
-                    {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.ratio, null, r.used);
-                    }
-                }
+                return e instanceof RuntimeException || e instanceof SnapshotException;
             }
-            if (listener.isCanceled())
-                break;
-        }
+
+            @Override
+            protected void add(int objectId, Result r) throws SnapshotException
+            {
+                quantize.addValue(objectId, r.ratio, null, r.used);
+            }
+        }.run(objects);
 
         return quantize.getResult();
     }
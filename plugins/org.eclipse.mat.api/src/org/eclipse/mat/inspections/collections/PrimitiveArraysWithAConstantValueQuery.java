@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2021 Chris Grindstaff, James Livingston and IBM Corporation
+ * Copyright (c) 2008, 2026 Chris Grindstaff, James Livingston and IBM Corporation
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -11,14 +11,15 @@
  *    Chris Grindstaff - initial API and implementation
  *    James Livingston - expose collection utils as API
  *    Andrew Johnson/IBM Corporation - add icon
+ *    IBM Corporation - read the arrays on several threads
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
 import java.lang.reflect.Array;
-import java.util.Arrays;
 
-import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.inspections.InspectionAssert;
+import org.eclipse.mat.inspections.util.HeapObjectScan;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.Column.SortDirection;
@@ -32,7 +33,6 @@ import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subjects;
-import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IObjectArray;
 import org.eclipse.mat.snapshot.model.IPrimitiveArray;
@@ -77,42 +77,19 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
         builder.column(Messages.PrimitiveArraysWithAConstantValueQuery_Column_NumObjects, Quantize.COUNT);
         builder.column(Messages.Column_ShallowHeap, Quantize.SUM_BYTES, SortDirection.DESC);
         builder.addDerivedData(RetainedSizeDerivedData.APPROXIMATE);
-        Quantize quantize = builder.build();
+        final Quantize quantize = builder.build();
 
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
+        new HeapObjectScan<Result>(snapshot, listener, Messages.PrimitiveArraysWithAConstantValueQuery_SearchingArrayValues)
         {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
+            @Override
+            protected Result extract(int objectId) throws SnapshotException
             {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
-            }
-            for (int objectId : sortedObjs)
-            {
-                if (listener.isCanceled())
-                    break;
-
                 if (!snapshot.isArray(objectId))
-                    continue;
+                    return null;
 
                 IObject obj = snapshot.getObject(objectId);
                 if (obj instanceof IObjectArray)
-                    continue;
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
-                {
-                    type = obj.getClazz();
-                    listener.subTask(Messages.PrimitiveArraysWithAConstantValueQuery_SearchingArrayValues + "\n" + type.getName()); //$NON-NLS-1$
-                }
+                    return null;
 
                 IPrimitiveArray array = (IPrimitiveArray) obj;
 
@@ -130,7 +107,7 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
                         int j;
                         if (i == 0)
                         {
-                            value0 = Array.get(objectIds, 0);
+                            value0 = Array.get(o, 0);
                             j = 1;
                         }
                         else
@@ -155,27 +132,18 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
                     {
                         long size = snapshot.getHeapSize(objectId);
                         // Key by length and value
-                        if (resultMap != null)
-                            resultMap.put(objectId, new Result(length, value0, size));
-                        else
-                            quantize.addValue(objectId, length, value0, null, size);
+                        return new Result(length, value0, size);
                     }
                 }
+                return null;
             }
-            if (resultMap != null)
+
+            @Override
+            protected void add(int objectId, Result r) throws SnapshotException
             {
-                for (int objectId : objectIds)
-                {
-                    if (resultMap.containsKey(objectId))
-                    {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.len, r.value, null, r.used);
-                    }
-                }
+                quantize.addValue(objectId, r.len, r.value, null, r.used);
             }
-            if (listener.isCanceled())
-                break;
-        }
+        }.run(objects);
         return quantize.getResult();
     }
 }
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntLong;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * Extracts a value from each object of a query argument using several threads.
+ * The objects are read in batches of sorted object ids by worker threads, and
+ * the values are then handed back on the thread running the scan in the order
+ * of the argument, so a query gets the same result as from a simple loop.
+<pre>{@code
+new HeapObjectScan<String>(snapshot, listener, "Reading names")
+{
+    protected String extract(int objectId) throws SnapshotException
+    {
+        return snapshot.getObject(objectId).getClassSpecificName();
+    }
+
+    protected void add(int objectId, String name)
+    {
+        names.add(name);
+    }
+}.run(objects);
+}</pre>
+ * Progress is tracked with a {@link HeapObjectsTracker}. If the listener is
+ * canceled the scan stops early, and the values added so far are kept, so
+ * they are always the first values in the order of the argument.
+ *
+ * @param <R> the value extracted from each object
+ */
+public abstract class HeapObjectScan<R>
+{
+    /** The number of objects extracted by one task */
+    private static final int BATCH = 1000;
+    /** The number of ignored exceptions reported for each class */
+    private static final long LIMIT = 20;
+    /** The number of threads extracting values */
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    /** The threads shared by all the scans, which go away when idle */
+    private static final ExecutorService EXECUTOR;
+    static
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 1, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), ScanThread::new);
+        executor.allowCoreThreadTimeOut(true);
+        EXECUTOR = executor;
+    }
+
+    protected final ISnapshot snapshot;
+    private final IProgressListener listener;
+    private final String task;
+    private final String ignoring;
+
+    /**
+     * Create a scan which fails on any exception from {@link #extract(int)}.
+     * @param snapshot the snapshot
+     * @param listener for the progress
+     * @param task the task message, also shown with the current class
+     */
+    public HeapObjectScan(ISnapshot snapshot, IProgressListener listener, String task)
+    {
+        this(snapshot, listener, task, null);
+    }
+
+    /**
+     * Create a scan which skips objects where {@link #ignore(Exception)} holds
+     * for the exception from {@link #extract(int)}.
+     * @param snapshot the snapshot
+     * @param listener for the progress and the ignored exceptions
+     * @param task the task message, also shown with the current class
+     * @param ignoring the message for an ignored exception, given the object name
+     */
+    public HeapObjectScan(ISnapshot snapshot, IProgressListener listener, String task, String ignoring)
+    {
+        this.snapshot = snapshot;
+        this.listener = listener;
+        this.task = task;
+        this.ignoring = ignoring;
+    }
+
+    /**
+     * Extract the value for an object, called on a worker thread.
+     * @param objectId the object
+     * @return the value, or null if the object is skipped
+     * @throws SnapshotException
+     */
+    protected abstract R extract(int objectId) throws SnapshotException;
+
+    /**
+     * Use the value of an object, called on the thread running the scan.
+     * @param objectId the object
+     * @param result the value
+     * @throws SnapshotException
+     */
+    protected abstract void add(int objectId, R result) throws SnapshotException;
+
+    /**
+     * Whether a problem extracting the value just skips that object.
+     * By default runtime exceptions are ignored if there is a message
+     * for them.
+     * @param e the exception from {@link #extract(int)}
+     * @return true to report it and carry on, false to fail the scan
+     */
+    protected boolean ignore(Exception e)
+    {
+        return ignoring != null && e instanceof RuntimeException;
+    }
+
+    private static class ScanThread extends Thread
+    {
+        ScanThread(Runnable r)
+        {
+            super(r, "MAT-HeapObjectScan"); //$NON-NLS-1$
+            setDaemon(true);
+        }
+    }
+
+    private static class Batch
+    {
+        final int objectIds[];
+        final int from;
+        final int to;
+        final Object results[];
+        Exception errors[];
+        IClass type;
+
+        Batch(int objectIds[], int from, int to)
+        {
+            this.objectIds = objectIds;
+            this.from = from;
+            this.to = to;
+            this.results = new Object[to - from];
+        }
+    }
+
+    /**
+     * Extract and add the values for all the objects.
+     * @param objects blocks of object ids, for example a {@link IHeapObjectArgument}
+     * @throws SnapshotException
+     */
+    public void run(Iterable<int[]> objects) throws SnapshotException
+    {
+        HeapObjectsTracker hot = new HeapObjectsTracker(objects);
+        listener.beginTask(task, hot.totalWork());
+        int threads = THREADS;
+        // A scan from the extract of another scan would wait for the threads it is using
+        ExecutorService executor = threads > 1 && !(Thread.currentThread() instanceof ScanThread) ? EXECUTOR : null;
+        List<Future<Batch>> pending = new ArrayList<Future<Batch>>();
+        try
+        {
+            HashMapIntLong exceptions = new HashMapIntLong();
+            IClass type = null;
+            for (Iterator<int[]> it = objects.iterator(); it.hasNext() && !listener.isCanceled();)
+            {
+                int objectIds[] = it.next();
+                hot.beginBlock(objectIds, !it.hasNext());
+
+                // Read in id order, but add in the original order
+                HashMapIntObject<R> resultMap = null;
+                int sortedObjs[] = objectIds;
+                int prev = Integer.MIN_VALUE;
+                for (int objectId : objectIds)
+                {
+                    if (objectId < prev)
+                    {
+                        sortedObjs = objectIds.clone();
+                        Arrays.sort(sortedObjs);
+                        resultMap = new HashMapIntObject<R>();
+                        break;
+                    }
+                    prev = objectId;
+                }
+
+                int batches = (sortedObjs.length + BATCH - 1) / BATCH;
+                int submitted = 0;
+                int read = 0;
+                for (int i = 0; i < batches && !listener.isCanceled(); ++i)
+                {
+                    while (submitted < batches && submitted < i + 2 * threads)
+                    {
+                        final Batch b = new Batch(sortedObjs, submitted * BATCH,
+                                        Math.min((submitted + 1) * BATCH, sortedObjs.length));
+                        if (executor != null)
+                        {
+                            pending.add(executor.submit(() -> scan(b)));
+                        }
+                        else
+                        {
+                            FutureTask<Batch> f = new FutureTask<Batch>(() -> scan(b));
+                            f.run();
+                            pending.add(f);
+                        }
+                        ++submitted;
+                    }
+                    Batch b = get(pending.get(i));
+                    pending.set(i, null);
+                    if (b.type != null && !b.type.equals(type))
+                    {
+                        type = b.type;
+                        listener.subTask(task + "\n" + type.getName()); //$NON-NLS-1$
+                    }
+                    int work = 0;
+                    for (int j = b.from; j < b.to && !listener.isCanceled(); ++j)
+                    {
+                        int objectId = b.objectIds[j];
+                        if (b.errors != null && b.errors[j - b.from] != null)
+                        {
+                            report(objectId, b.errors[j - b.from], exceptions);
+                        }
+                        else if (b.results[j - b.from] != null)
+                        {
+                            @SuppressWarnings("unchecked")
+                            R r = (R) b.results[j - b.from];
+                            if (resultMap != null)
+                                resultMap.put(objectId, r);
+                            else
+                                add(objectId, r);
+                        }
+                        ++read;
+                        work += hot.work();
+                    }
+                    listener.worked(work);
+                }
+                cancel(pending);
+                // A block only partly read when canceled would leave gaps in the order
+                if (resultMap != null && read == sortedObjs.length)
+                {
+                    for (int objectId : objectIds)
+                    {
+                        if (resultMap.containsKey(objectId))
+                            add(objectId, resultMap.get(objectId));
+                    }
+                }
+                listener.worked(hot.endBlock());
+            }
+        }
+        finally
+        {
+            cancel(pending);
+        }
+        listener.done();
+    }
+
+    /**
+     * Stop the batches not yet used, when canceled or failed.
+     */
+    private static void cancel(List<Future<Batch>> pending)
+    {
+        for (Future<Batch> f : pending)
+        {
+            if (f != null)
+                f.cancel(true);
+        }
+        pending.clear();
+    }
+
+    private Batch scan(Batch b) throws Exception
+    {
+        b.type = snapshot.getClassOf(b.objectIds[b.from]);
+        for (int i = b.from; i < b.to; ++i)
+        {
+            if (listener.isCanceled())
+                break;
+            try
+            {
+                b.results[i - b.from] = extract(b.objectIds[i]);
+            }
+            catch (Exception e)
+            {
+                if (!ignore(e))
+                    throw e;
+                if (b.errors == null)
+                    b.errors = new Exception[b.to - b.from];
+                b.errors[i - b.from] = e;
+            }
+        }
+        return b;
+    }
+
+    private void report(int objectId, Exception e, HashMapIntLong exceptions) throws SnapshotException
+    {
+        IObject obj = snapshot.getObject(objectId);
+        int classId = obj.getClazz().getObjectId();
+        if (!exceptions.containsKey(classId))
+        {
+            exceptions.put(classId, 0);
+        }
+        long c = exceptions.get(classId);
+        exceptions.put(classId, c + 1);
+        if (c < LIMIT)
+        {
+            listener.sendUserMessage(IProgressListener.Severity.INFO,
+                            MessageUtil.format(ignoring, obj.getTechnicalName()), e);
+        }
+    }
+
+    private static Batch get(Future<Batch> f) throws SnapshotException
+    {
+        try
+        {
+            return f.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SnapshotException(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable t = e.getCause();
+            if (t instanceof SnapshotException)
+                throw (SnapshotException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new SnapshotException(t);
+        }
+    }
+}
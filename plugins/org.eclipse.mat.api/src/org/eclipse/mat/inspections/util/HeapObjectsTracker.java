@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2020,2021 IBM Corporation.
+ * Copyright (c) 2020,2026 IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -9,8 +9,9 @@
  *
  * Contributors:
  *    Andrew Johnson (IBM Corporation) - initial API and implementation
+ *    IBM Corporation - share with the parallel object scan
  *******************************************************************************/
-package org.eclipse.mat.inspections;
+package org.eclipse.mat.inspections.util;
 
 import java.util.Locale;
 
@@ -39,7 +40,7 @@ for (Iterator<int[]> it = objects.iterator(); it.hasNext();)
 listener.done();
 }</pre>
  */
-class HeapObjectsTracker
+public class HeapObjectsTracker
 {
     /** Actual total number of array entries + arrays */
     long actual;
@@ -67,7 +68,18 @@ class HeapObjectsTracker
      */
     public HeapObjectsTracker(IHeapObjectArgument objects)
     {
-        if (objects.getLabel().toUpperCase(Locale.ENGLISH).contains("SELECT ")) //$NON-NLS-1$
+        this((Iterable<int[]>)objects);
+    }
+
+    /**
+     * Construct the tracker from blocks of object ids, such as
+     * the objects of each class, or a {@link IHeapObjectArgument}.
+     * @param objects
+     */
+    public HeapObjectsTracker(Iterable<int[]> objects)
+    {
+        if (objects instanceof IHeapObjectArgument
+                        && ((IHeapObjectArgument)objects).getLabel().toUpperCase(Locale.ENGLISH).contains("SELECT ")) //$NON-NLS-1$
         {
             /*
              * This could be expensive to evaluate twice, so use the
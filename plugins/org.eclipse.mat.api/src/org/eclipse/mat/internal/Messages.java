@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2025 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -212,6 +212,7 @@ public class Messages extends NLS
     public static String DominatorQuery_Group_None;
     public static String DominatorQuery_LabelAll;
     public static String DominatorQuery_Msg_Grouping;
+    public static String DominatorSummary_Msg_Summarizing;
 
     public static String DuplicatedClassesQuery_Checking;
     public static String DuplicatedClassesQuery_ClassLoaderNotFound;
@@ -423,6 +424,8 @@ public class Messages extends NLS
     public static String HistogramRecordBeanInfo_RetainedHeapSize;
     public static String HistogramRecordBeanInfo_UsedHeapSize;
 
+    public static String ISnapshot_Error_ObjectIdTooLarge;
+
     public static String ImmediateDominatorsQuery_Column_DominatedShallowHeap;
     public static String ImmediateDominatorsQuery_ColumnDominatedObjects;
     public static String ImmediateDominatorsQuery_DominatedObjects;
@@ -552,6 +555,10 @@ public class Messages extends NLS
     public static String ParseSnapshotApp_MultipleSnapshotsDetail;
 
     public static String ParseSnapshotApp_MultipleSnapshotsDetected;
+    public static String ParseSnapshotApp_TriageBiggestObjects;
+    public static String ParseSnapshotApp_TriageClasses;
+    public static String ParseSnapshotApp_TriageClassLoaders;
+    public static String ParseSnapshotApp_TriageGCRoots;
 
     public static String PhantomReferenceStatQuery_Label_Referenced;
     public static String PhantomReferenceStatQuery_Label_Retained;
@@ -609,6 +616,7 @@ public class Messages extends NLS
 
     public static String SnapshotFactory_Error;
     public static String SnapshotFactory_ErrorMsg_FactoryCreation;
+    public static String SnapshotFactory_Error_TriageNotSupported;
 
     public static String SnapshotQuery_ErrorMsg_NoResult;
     public static String SnapshotQuery_ErrorMsg_QueryNotAvailable;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2019 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -33,10 +34,16 @@ import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
 import org.eclipse.mat.report.Spec;
 import org.eclipse.mat.report.SpecFactory;
 import org.eclipse.mat.report.TestSuite;
+import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.ClassLoaderHistogramRecord;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.HistogramRecord;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.MultipleSnapshotsException;
 import org.eclipse.mat.snapshot.MultipleSnapshotsException.Context;
 import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.snapshot.TriageResult;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.util.ConsoleProgressListener;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
@@ -109,7 +116,10 @@ public class ParseSnapshotApp implements IApplication
 
         try
         {
-            parse(file, options, reports);
+            if (Boolean.parseBoolean(options.get("triage"))) //$NON-NLS-1$
+                triage(file, options);
+            else
+                parse(file, options, reports);
         }
         catch (MultipleSnapshotsException mre)
         {
@@ -192,6 +202,52 @@ public class ParseSnapshotApp implements IApplication
         }
     }
 
+    /**
+     * Print a summary of the dump without building a snapshot.
+     */
+    private void triage(File file, Map<String, String> arguments) throws SnapshotException
+    {
+        ConsoleProgressListener listener = new ConsoleProgressListener(System.out);
+        TriageResult result;
+        try
+        {
+            result = SnapshotFactory.triage(file, arguments, listener);
+        }
+        finally
+        {
+            listener.done();
+        }
+
+        int top = arguments.containsKey("triage_top") ? Integer.parseInt(arguments.get("triage_top")) : 25; //$NON-NLS-1$ //$NON-NLS-2$
+        Histogram histogram = result.getHistogram();
+
+        System.out.println(MessageUtil.format(Messages.ParseSnapshotApp_TriageClasses, histogram.getNumberOfObjects(),
+                        histogram.getUsedHeapSize(), histogram.getClassHistogramRecords().size()));
+        printBiggest(new ArrayList<HistogramRecord>(histogram.getClassHistogramRecords()), top);
+
+        System.out.println(MessageUtil.format(Messages.ParseSnapshotApp_TriageClassLoaders,
+                        histogram.getClassLoaderHistogramRecords().size()));
+        printBiggest(new ArrayList<HistogramRecord>(histogram.getClassLoaderHistogramRecords()), top);
+
+        System.out.println(Messages.ParseSnapshotApp_TriageGCRoots);
+        for (Map.Entry<Integer, Integer> e : result.getGCRoots().entrySet())
+            System.out.println(String.format("%,15d  %s", e.getValue(), GCRootInfo.getTypeAsString(e.getKey()))); //$NON-NLS-1$
+
+        System.out.println(MessageUtil.format(Messages.ParseSnapshotApp_TriageBiggestObjects,
+                        result.getBiggestObjects().size()));
+        for (TriageResult.BigObject obj : result.getBiggestObjects())
+            System.out.println(String.format("%,20d  %s @ 0x%x", obj.getUsedHeapSize(), obj.getClassName(), //$NON-NLS-1$
+                            obj.getObjectAddress()));
+    }
+
+    private void printBiggest(List<HistogramRecord> records, int top)
+    {
+        Collections.sort(records, Collections.reverseOrder(HistogramRecord.COMPARATOR_FOR_USEDHEAPSIZE));
+        for (HistogramRecord record : records.subList(0, Math.min(top, records.size())))
+            System.out.println(String.format("%,15d %,20d  %s", record.getNumberOfObjects(), //$NON-NLS-1$
+                            record.getUsedHeapSize(), record.getLabel()));
+    }
+
     private void runReport(ISnapshot snapshot, Spec report) throws SnapshotException, IOException
     {
         TestSuite suite = new TestSuite.Builder(report) //
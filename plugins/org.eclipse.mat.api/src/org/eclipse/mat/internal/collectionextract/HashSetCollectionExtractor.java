@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG, IBM Corporation and others
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -19,7 +19,7 @@ import java.util.Map.Entry;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
-import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.inspections.collectionextract.IMapExtractor;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.IClass;
@@ -189,8 +189,8 @@ public class HashSetCollectionExtractor implements IMapExtractor
             }
         }
         int collRefs[] = collRefs1.toArray();
-        // Avoid visiting nodes twice
-        BitField seen = new BitField(snapshot.getSnapshotInfo().getNumberOfObjects());
+        // Avoid visiting nodes twice - sized by the set, not the snapshot
+        SetInt seen = new SetInt();
         // Used for alternative nodes if there is a choice
         ArrayInt extra = new ArrayInt();
         // Eliminate the LinkedHashMap header node
@@ -200,13 +200,13 @@ public class HashSetCollectionExtractor implements IMapExtractor
         {
             // Ignore classes, outbounds we have seen, and plain Objects (which
             // can't be buckets e.g. ConcurrentSkipListMap)
-            if (!snapshot.isClass(i) && !seen.get(i) && !snapshot.getClassOf(i).getName().equals("java.lang.Object")) //$NON-NLS-1$
+            if (!snapshot.isClass(i) && !seen.contains(i) && !snapshot.getClassOf(i).getName().equals("java.lang.Object")) //$NON-NLS-1$
             {
                 // Found a new outbound
                 // Look at the reachable nodes from this one, remember this
                 extra.clear();
                 extra.add(i);
-                seen.set(i);
+                seen.add(i);
                 for (int k = 0; k < extra.size(); ++k)
                 {
                     for (int j = extra.get(k); j >= 0;)
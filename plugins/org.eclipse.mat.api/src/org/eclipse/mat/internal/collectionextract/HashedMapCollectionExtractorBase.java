@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2020 SAP AG, IBM Corporation and others
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -16,7 +16,7 @@ package org.eclipse.mat.internal.collectionextract;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
-import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.Field;
@@ -110,8 +110,8 @@ public abstract class HashedMapCollectionExtractorBase extends MapCollectionExtr
         // LinkedMaps have additional chains to maintain ordering
         int count = 0;
         ISnapshot snapshot = collection.getSnapshot();
-        // Avoid visiting nodes twice
-        BitField seen = new BitField(snapshot.getSnapshotInfo().getNumberOfObjects());
+        // Avoid visiting nodes twice - sized by the map, not the snapshot
+        SetInt seen = new SetInt();
         // Used for alternative nodes if there is a choice
         ArrayInt extra = new ArrayInt();
         // Eliminate the LinkedHashMap header node
@@ -121,13 +121,13 @@ public abstract class HashedMapCollectionExtractorBase extends MapCollectionExtr
         {
             // Ignore classes, outbounds we have seen, and plain Objects (which
             // can't be buckets e.g. ConcurrentSkipListMap)
-            if (!snapshot.isClass(i) && !seen.get(i) && !snapshot.getClassOf(i).getName().equals("java.lang.Object")) //$NON-NLS-1$
+            if (!snapshot.isClass(i) && !seen.contains(i) && !snapshot.getClassOf(i).getName().equals("java.lang.Object")) //$NON-NLS-1$
             {
                 // Found a new outbound
                 // Look at the reachable nodes from this one, remember this
                 extra.clear();
                 extra.add(i);
-                seen.set(i);
+                seen.add(i);
                 for (int k = 0; k < extra.size(); ++k)
                 {
                     for (int j = extra.get(k); j >= 0;)
@@ -153,7 +153,7 @@ public abstract class HashedMapCollectionExtractorBase extends MapCollectionExtr
      * @return the next node to search, null if none found
      * @throws SnapshotException
      */
-    int resolveNextSameField(ISnapshot snapshot, int sourceId, BitField seen, ArrayInt extra) throws SnapshotException
+    int resolveNextSameField(ISnapshot snapshot, int sourceId, SetInt seen, ArrayInt extra) throws SnapshotException
     {
         int ret = -1;
         IClass c1 = snapshot.getClassOf(sourceId);
@@ -162,9 +162,8 @@ public abstract class HashedMapCollectionExtractorBase extends MapCollectionExtr
             if (!snapshot.isArray(i) && !snapshot.isClass(i))
             {
                 IClass c2 = snapshot.getClassOf(i);
-                if (c1.equals(c2) && !seen.get(i))
+                if (c1.equals(c2) && seen.add(i))
                 {
-                    seen.set(i);
                     if (ret == -1)
                     {
                         ret = i;
@@ -0,0 +1,481 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.internal.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.inspections.util.HeapObjectScan;
+import org.eclipse.mat.internal.MATPlugin;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * The top level of the dominator tree grouped by class.
+ * For each object immediately dominated by the root this holds the class,
+ * the class loader and the sizes used by the grouped dominator trees and
+ * the top consumers report, and for each class the totals of its objects.
+ * The summary for the whole snapshot is calculated once, with the objects
+ * read in parallel, and then kept in a file next to the other index files,
+ * so the grouped views do not have to read all the top level objects again
+ * each time.
+ */
+public class DominatorSummary
+{
+    /** Marks the version of the index file */
+    private static final int VERSION = 0x4d415401;
+    /** The name of the index file after the prefix */
+    private static final String INDEX = "domsum.index"; //$NON-NLS-1$
+    /** The name of the dominator tree index file after the prefix */
+    private static final String DOMINATED = "domOut.index"; //$NON-NLS-1$
+
+    private static Map<ISnapshot, Entry> cache = new WeakHashMap<ISnapshot, Entry>();
+
+    /**
+     * The summary of a snapshot, with the lock held while it is read or
+     * calculated so that it is only calculated once.
+     */
+    private static class Entry
+    {
+        final ReentrantLock lock = new ReentrantLock();
+        DominatorSummary summary;
+    }
+
+    /**
+     * The totals for the top level objects of one class.
+     */
+    public static class ClassSummary
+    {
+        private final int classId;
+        private int numberOfObjects;
+        private long usedHeapSize;
+        private long retainedHeapSize;
+        private long dominated;
+
+        private ClassSummary(int classId)
+        {
+            this.classId = classId;
+        }
+
+        public int getClassId()
+        {
+            return classId;
+        }
+
+        public int getNumberOfObjects()
+        {
+            return numberOfObjects;
+        }
+
+        public long getUsedHeapSize()
+        {
+            return usedHeapSize;
+        }
+
+        public long getRetainedHeapSize()
+        {
+            return retainedHeapSize;
+        }
+
+        /**
+         * @return the number of objects immediately dominated by the objects
+         *         of the class, or -1 if not known
+         */
+        public long getNumberOfDominated()
+        {
+            return dominated;
+        }
+    }
+
+    private final int[] objectIds;
+    private final int[] classIds;
+    private final int[] classLoaderIds;
+    private final int[] namedClassIds;
+    private final long[] usedHeapSizes;
+    private final long[] retainedHeapSizes;
+    private final HashMapIntObject<ClassSummary> classes = new HashMapIntObject<ClassSummary>();
+
+    private DominatorSummary(int[] objectIds)
+    {
+        this.objectIds = objectIds;
+        this.classIds = new int[objectIds.length];
+        this.classLoaderIds = new int[objectIds.length];
+        this.namedClassIds = new int[objectIds.length];
+        this.usedHeapSizes = new long[objectIds.length];
+        this.retainedHeapSizes = new long[objectIds.length];
+    }
+
+    /**
+     * The summary of the objects immediately dominated by the root,
+     * read from the index file or else calculated and saved.
+     * @param snapshot the snapshot with a dominator tree
+     * @param listener for the progress of the calculation
+     * @return the summary
+     * @throws SnapshotException
+     */
+    public static DominatorSummary get(ISnapshot snapshot, IProgressListener listener) throws SnapshotException
+    {
+        Entry entry;
+        synchronized (cache)
+        {
+            entry = cache.get(snapshot);
+            if (entry == null)
+                cache.put(snapshot, entry = new Entry());
+        }
+
+        lock(entry.lock, listener);
+        try
+        {
+            if (entry.summary == null)
+            {
+                File file = new File(snapshot.getSnapshotInfo().getPrefix() + INDEX);
+                DominatorSummary summary = read(snapshot, file);
+                if (summary == null)
+                {
+                    summary = calculate(snapshot, snapshot.getImmediateDominatedIds(-1), true, listener);
+                    if (listener.isCanceled())
+                        throw new IProgressListener.OperationCanceledException();
+                    write(summary, snapshot, file);
+                }
+                entry.summary = summary;
+            }
+            return entry.summary;
+        }
+        finally
+        {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Wait while another thread reads or calculates the summary.
+     */
+    private static void lock(ReentrantLock lock, IProgressListener listener)
+    {
+        try
+        {
+            while (!lock.tryLock(100, TimeUnit.MILLISECONDS))
+            {
+                if (listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IProgressListener.OperationCanceledException();
+        }
+    }
+
+    /**
+     * The summary of some objects, not saved.
+     * @param snapshot the snapshot
+     * @param objectIds the objects, for example top ancestors in the dominator tree
+     * @param listener for the progress
+     * @return the summary, without the number of dominated objects
+     * @throws SnapshotException
+     */
+    public static DominatorSummary create(ISnapshot snapshot, int[] objectIds, IProgressListener listener)
+                    throws SnapshotException
+    {
+        DominatorSummary summary = calculate(snapshot, objectIds, false, listener);
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+        return summary;
+    }
+
+    private static DominatorSummary calculate(ISnapshot snapshot, final int[] objectIds, final boolean dominated,
+                    IProgressListener listener) throws SnapshotException
+    {
+        final DominatorSummary summary = new DominatorSummary(objectIds);
+        new HeapObjectScan<long[]>(snapshot, listener, Messages.DominatorSummary_Msg_Summarizing)
+        {
+            int index;
+
+            @Override
+            protected long[] extract(int objectId) throws SnapshotException
+            {
+                IClass clazz = snapshot.getClassOf(objectId);
+                int namedClassId = clazz.getObjectId();
+                int classLoaderId;
+                if (snapshot.isClass(objectId))
+                {
+                    // for classes take their own name and loader
+                    namedClassId = objectId;
+                    classLoaderId = ((IClass) snapshot.getObject(objectId)).getClassLoaderId();
+                }
+                else if (snapshot.isClassLoader(objectId))
+                {
+                    classLoaderId = objectId;
+                }
+                else
+                {
+                    classLoaderId = clazz.getClassLoaderId();
+                }
+                return new long[] { clazz.getObjectId(), classLoaderId, namedClassId,
+                                snapshot.getHeapSize(objectId), snapshot.getRetainedHeapSize(objectId),
+                                dominated ? snapshot.getImmediateDominatedIds(objectId).length : -1 };
+            }
+
+            @Override
+            protected void add(int objectId, long[] v)
+            {
+                // called in the order of the objects
+                int ii = index++;
+                summary.classIds[ii] = (int) v[0];
+                summary.classLoaderIds[ii] = (int) v[1];
+                summary.namedClassIds[ii] = (int) v[2];
+                summary.usedHeapSizes[ii] = v[3];
+                summary.retainedHeapSizes[ii] = v[4];
+                ClassSummary cs = summary.classes.get(summary.classIds[ii]);
+                if (cs == null)
+                {
+                    cs = new ClassSummary(summary.classIds[ii]);
+                    cs.dominated = dominated ? 0 : -1;
+                    summary.classes.put(cs.classId, cs);
+                }
+                cs.numberOfObjects++;
+                cs.usedHeapSize += v[3];
+                cs.retainedHeapSize += v[4];
+                if (dominated)
+                    cs.dominated += v[5];
+            }
+        }.run(Collections.singletonList(objectIds));
+        return summary;
+    }
+
+    private static DominatorSummary read(ISnapshot snapshot, File file)
+    {
+        // The dominator tree might have been calculated again
+        File dominatedFile = new File(snapshot.getSnapshotInfo().getPrefix() + DOMINATED);
+        if (!file.canRead() || file.lastModified() < dominatedFile.lastModified())
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != VERSION || in.readInt() != snapshot.getSnapshotInfo().getNumberOfObjects())
+                return null;
+
+            int[] objectIds = new int[in.readInt()];
+            for (int ii = 0; ii < objectIds.length; ii++)
+                objectIds[ii] = in.readInt();
+            DominatorSummary summary = new DominatorSummary(objectIds);
+            for (int ii = 0; ii < objectIds.length; ii++)
+            {
+                summary.classIds[ii] = in.readInt();
+                summary.classLoaderIds[ii] = in.readInt();
+                summary.namedClassIds[ii] = in.readInt();
+                summary.usedHeapSizes[ii] = in.readLong();
+                summary.retainedHeapSizes[ii] = in.readLong();
+            }
+
+            int size = in.readInt();
+            for (int ii = 0; ii < size; ii++)
+            {
+                ClassSummary cs = new ClassSummary(in.readInt());
+                cs.numberOfObjects = in.readInt();
+                cs.usedHeapSize = in.readLong();
+                cs.retainedHeapSize = in.readLong();
+                cs.dominated = in.readLong();
+                summary.classes.put(cs.classId, cs);
+            }
+            return summary;
+        }
+        catch (IOException e)
+        {
+            // calculate it again
+            return null;
+        }
+    }
+
+    /**
+     * Save the summary, first to a temporary file so that another snapshot of the
+     * same dump never reads a partly written file.
+     */
+    private static void write(DominatorSummary summary, ISnapshot snapshot, File file)
+    {
+        File temp = null;
+        try
+        {
+            temp = File.createTempFile(file.getName(), null, file.getAbsoluteFile().getParentFile());
+            writeTo(summary, snapshot, temp);
+            try
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e)
+        {
+            // the summary is still kept in memory
+            MATPlugin.log(e);
+        }
+        finally
+        {
+            if (temp != null)
+                temp.delete();
+        }
+    }
+
+    private static void writeTo(DominatorSummary summary, ISnapshot snapshot, File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.getSnapshotInfo().getNumberOfObjects());
+            out.writeInt(summary.objectIds.length);
+            for (int objectId : summary.objectIds)
+                out.writeInt(objectId);
+            for (int ii = 0; ii < summary.objectIds.length; ii++)
+            {
+                out.writeInt(summary.classIds[ii]);
+                out.writeInt(summary.classLoaderIds[ii]);
+                out.writeInt(summary.namedClassIds[ii]);
+                out.writeLong(summary.usedHeapSizes[ii]);
+                out.writeLong(summary.retainedHeapSizes[ii]);
+            }
+
+            out.writeInt(summary.classes.size());
+            for (Iterator<ClassSummary> it = summary.classes.values(); it.hasNext();)
+            {
+                ClassSummary cs = it.next();
+                out.writeInt(cs.classId);
+                out.writeInt(cs.numberOfObjects);
+                out.writeLong(cs.usedHeapSize);
+                out.writeLong(cs.retainedHeapSize);
+                out.writeLong(cs.dominated);
+            }
+        }
+    }
+
+    /**
+     * @return the number of objects
+     */
+    public int size()
+    {
+        return objectIds.length;
+    }
+
+    /**
+     * @return the objects, in the order of the dominator tree
+     */
+    public int[] getObjectIds()
+    {
+        return objectIds;
+    }
+
+    /**
+     * @param index the position of the object
+     * @return the object
+     */
+    public int getObjectId(int index)
+    {
+        return objectIds[index];
+    }
+
+    /**
+     * @param index the position of the object
+     * @return the class of the object
+     */
+    public int getClassId(int index)
+    {
+        return classIds[index];
+    }
+
+    /**
+     * @param index the position of the object
+     * @return the class loader of the object, or for a class the loader of
+     *         the class, or for a class loader the loader itself
+     */
+    public int getClassLoaderId(int index)
+    {
+        return classLoaderIds[index];
+    }
+
+    /**
+     * @param index the position of the object
+     * @return the class of the object, or for a class the class itself
+     */
+    public int getNamedClassId(int index)
+    {
+        return namedClassIds[index];
+    }
+
+    /**
+     * @param index the position of the object
+     * @return true if the object is a class
+     */
+    public boolean isClass(int index)
+    {
+        return namedClassIds[index] == objectIds[index];
+    }
+
+    /**
+     * @param index the position of the object
+     * @return true if the object is a class loader
+     */
+    public boolean isClassLoader(int index)
+    {
+        return classLoaderIds[index] == objectIds[index] && !isClass(index);
+    }
+
+    /**
+     * @param index the position of the object
+     * @return the shallow size of the object
+     */
+    public long getUsedHeapSize(int index)
+    {
+        return usedHeapSizes[index];
+    }
+
+    /**
+     * @param index the position of the object
+     * @return the retained size of the object
+     */
+    public long getRetainedHeapSize(int index)
+    {
+        return retainedHeapSizes[index];
+    }
+
+    /**
+     * @param classId the class
+     * @return the totals for the objects of the class, or null if there are none
+     */
+    public ClassSummary getClassSummary(int classId)
+    {
+        return classes.get(classId);
+    }
+}
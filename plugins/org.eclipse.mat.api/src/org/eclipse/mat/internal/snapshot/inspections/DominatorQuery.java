@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - add attributes for direct links
+ *    IBM Corporation - top level from the dominator summary
  *******************************************************************************/
 package org.eclipse.mat.internal.snapshot.inspections;
 
@@ -30,6 +31,8 @@ import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.internal.snapshot.DominatorSummary;
+import org.eclipse.mat.internal.snapshot.DominatorSummary.ClassSummary;
 import org.eclipse.mat.query.Bytes;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.Column.SortDirection;
@@ -53,6 +56,7 @@ import org.eclipse.mat.snapshot.model.IObjectArray;
 import org.eclipse.mat.snapshot.model.NamedReference;
 import org.eclipse.mat.snapshot.query.Icons;
 import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.SimpleMonitor;
 import org.eclipse.mat.util.VoidProgressListener;
 
 @CommandName("dominator_tree")
@@ -145,7 +149,7 @@ public class DominatorQuery implements IQuery
             List<ClassNode> elements;
 
             if (roots.length == 1 && roots[0] == -1)
-                elements = ClassTree.prepare(snapshot, roots, listener);
+                elements = ClassTree.prepare(snapshot, listener);
             else
                 elements = ClassTree.prepareSet(snapshot, roots, listener);
 
@@ -256,6 +260,9 @@ public class DominatorQuery implements IQuery
 
     private static class ClassNode extends GroupedNode
     {
+        /** objects dominated by the objects of the node, -1 if not known */
+        long dominated = -1;
+
         private ClassNode(int objectId)
         {
             super(objectId);
@@ -583,6 +590,44 @@ public class DominatorQuery implements IQuery
 
     private static class ClassTree extends Tree implements IIconProvider
     {
+        public static List<ClassNode> prepare(ISnapshot snapshot, IProgressListener listener)
+        {
+            try
+            {
+                // the totals of the classes are already known
+                DominatorSummary summary = DominatorSummary.get(snapshot, listener);
+                HashMapIntObject<ClassNode> class2node = new HashMapIntObject<ClassNode>();
+
+                for (int ii = 0; ii < summary.size(); ii++)
+                {
+                    int classId = summary.getClassId(ii);
+                    ClassNode node = class2node.get(classId);
+
+                    if (node == null)
+                    {
+                        ClassSummary classSummary = summary.getClassSummary(classId);
+                        node = new ClassNode(classId);
+                        node.label = ((IClass) snapshot.getObject(classId)).getName();
+                        node.shallowHeap = new Bytes(classSummary.getUsedHeapSize());
+                        node.retainedHeap = new Bytes(classSummary.getRetainedHeapSize());
+                        node.dominated = classSummary.getNumberOfDominated();
+                        class2node.put(node.objectId, node);
+                    }
+
+                    node.objects.add(summary.getObjectId(ii));
+
+                    if (listener.isCanceled())
+                        throw new IProgressListener.OperationCanceledException();
+                }
+
+                return Arrays.asList(class2node.getAllValues(new ClassNode[0]));
+            }
+            catch (SnapshotException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+
         public static List<ClassNode> prepare(ISnapshot snapshot, int[] objectIds, IProgressListener listener)
         {
             try
@@ -685,8 +730,8 @@ public class DominatorQuery implements IQuery
 
         public boolean hasChildren(Object element)
         {
-            // too expensive to check up-front
-            return true;
+            // only known up-front for the top level
+            return ((ClassNode) element).dominated != 0;
         }
 
         public List<?> getChildren(Object parent)
@@ -769,18 +814,7 @@ public class DominatorQuery implements IQuery
                     clId = snapshot.getClassOf(dominatedId).getClassLoaderId();
                 }
 
-                GroupedNode node = classLoader2node.get(clId);
-                if (node == null)
-                {
-                    node = new GroupedNode(clId);
-                    IObject cl = snapshot.getObject(clId);
-                    node.label = cl.getClassSpecificName();
-                    if (node.label == null)
-                        node.label = cl.getTechnicalName();
-
-                    classLoader2node.put(clId, node);
-                }
-
+                GroupedNode node = classLoaderNode(snapshot, classLoader2node, clId);
                 node.objects.add(dominatedId);
                 node.shallowHeap = node.shallowHeap.add(snapshot.getHeapSize(dominatedId));
                 node.retainedHeap = node.retainedHeap.add(snapshot.getRetainedHeapSize(dominatedId));
@@ -794,7 +828,39 @@ public class DominatorQuery implements IQuery
 
         static List<?> prepare(ISnapshot snapshot, IProgressListener listener) throws SnapshotException
         {
-            return prepareSet(snapshot, snapshot.getImmediateDominatedIds(-1), listener);
+            // the loaders and sizes are already known
+            DominatorSummary summary = DominatorSummary.get(snapshot, listener);
+            HashMapIntObject<GroupedNode> classLoader2node = new HashMapIntObject<GroupedNode>();
+
+            for (int ii = 0; ii < summary.size(); ii++)
+            {
+                GroupedNode node = classLoaderNode(snapshot, classLoader2node, summary.getClassLoaderId(ii));
+                node.objects.add(summary.getObjectId(ii));
+                node.shallowHeap = node.shallowHeap.add(summary.getUsedHeapSize(ii));
+                node.retainedHeap = node.retainedHeap.add(summary.getRetainedHeapSize(ii));
+
+                if (ii % 100 == 0 && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+            }
+
+            return Arrays.asList(classLoader2node.getAllValues());
+        }
+
+        private static GroupedNode classLoaderNode(ISnapshot snapshot, HashMapIntObject<GroupedNode> classLoader2node,
+                        int clId) throws SnapshotException
+        {
+            GroupedNode node = classLoader2node.get(clId);
+            if (node == null)
+            {
+                node = new GroupedNode(clId);
+                IObject cl = snapshot.getObject(clId);
+                node.label = cl.getClassSpecificName();
+                if (node.label == null)
+                    node.label = cl.getTechnicalName();
+
+                classLoader2node.put(clId, node);
+            }
+            return node;
         }
 
         private List<?> classLoader;
@@ -976,14 +1042,43 @@ public class DominatorQuery implements IQuery
     {
         public static PackageNode prepare(ISnapshot snapshot, IProgressListener listener) throws SnapshotException
         {
-            return prepareSet(snapshot, snapshot.getImmediateDominatedIds(-1), listener);
+            // the names and sizes are already known
+            SimpleMonitor monitor = new SimpleMonitor(Messages.DominatorQuery_Msg_Grouping, listener, new int[] { 100, 10 });
+            DominatorSummary summary = DominatorSummary.get(snapshot, monitor.nextMonitor());
+            PackageNode root = new PackageNode(Messages.DominatorQuery_LabelAll);
+            HashMapIntObject<String> names = new HashMapIntObject<String>();
+
+            IProgressListener grouping = monitor.nextMonitor();
+            grouping.beginTask(Messages.DominatorQuery_Msg_Grouping, (summary.size() + 99) / 100);
+            for (int ii = 0; ii < summary.size(); ii++)
+            {
+                if (listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+
+                int classId = summary.getNamedClassId(ii);
+                String className = names.get(classId);
+                if (className == null)
+                {
+                    className = ((IClass) snapshot.getObject(classId)).getName();
+                    names.put(classId, className);
+                }
+
+                add(root, summary.getObjectId(ii), className, summary.getUsedHeapSize(ii),
+                                summary.getRetainedHeapSize(ii));
+
+                if ((ii + 1) % 100 == 0)
+                    grouping.worked(1);
+            }
+
+            grouping.done();
+            listener.done();
+            return root;
         }
 
         public static PackageNode prepareSet(ISnapshot snapshot, int[] roots, IProgressListener listener)
                         throws SnapshotException
         {
             PackageNode root = new PackageNode(Messages.DominatorQuery_LabelAll);
-            PackageNode current;
 
             listener.beginTask(Messages.DominatorQuery_Msg_Grouping, (roots.length + 99) / 100);
             int index = 0;
@@ -995,40 +1090,44 @@ public class DominatorQuery implements IQuery
                 long retainedHeap = snapshot.getRetainedHeapSize(dominatorId);
                 long shallowHeap = snapshot.getHeapSize(dominatorId);
 
-                current = root;
-
                 // for classes take their name instead of java.lang.Class
                 IClass objClass = snapshot.isClass(dominatorId) ? (IClass) snapshot.getObject(dominatorId) : snapshot
                                 .getClassOf(dominatorId);
 
-                String className = objClass.getName();
+                add(root, dominatorId, objClass.getName(), shallowHeap, retainedHeap);
 
-                StringTokenizer tokenizer = new StringTokenizer(className, "."); //$NON-NLS-1$
+                if (++index % 100 == 0)
+                    listener.worked(1);
+            }
 
-                while (tokenizer.hasMoreTokens())
-                {
-                    String subpack = tokenizer.nextToken();
-                    PackageNode childNode = current.subPackages.get(subpack);
+            listener.done();
+            return root;
+        }
 
-                    if (childNode == null)
-                    {
-                        childNode = new PackageNode(subpack);
-                        current.subPackages.put(subpack, childNode);
-                    }
+        private static void add(PackageNode root, int dominatorId, String className, long shallowHeap,
+                        long retainedHeap)
+        {
+            PackageNode current = root;
+
+            StringTokenizer tokenizer = new StringTokenizer(className, "."); //$NON-NLS-1$
 
-                    childNode.objects.add(dominatorId);
-                    childNode.retainedHeap = childNode.retainedHeap.add(retainedHeap);
-                    childNode.shallowHeap = childNode.shallowHeap.add(shallowHeap);
+            while (tokenizer.hasMoreTokens())
+            {
+                String subpack = tokenizer.nextToken();
+                PackageNode childNode = current.subPackages.get(subpack);
 
-                    current = childNode;
+                if (childNode == null)
+                {
+                    childNode = new PackageNode(subpack);
+                    current.subPackages.put(subpack, childNode);
                 }
 
-                if (++index % 100 == 0)
-                    listener.worked(1);
-            }
+                childNode.objects.add(dominatorId);
+                childNode.retainedHeap = childNode.retainedHeap.add(retainedHeap);
+                childNode.shallowHeap = childNode.shallowHeap.add(shallowHeap);
 
-            listener.done();
-            return root;
+                current = childNode;
+            }
         }
 
         private PackageNode invisibleRoot;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2025 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -19,11 +19,13 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IThreadStack;
 import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
 
 /**
  * Interface for snapshots. It is the central API for handling HPROF snapshots.
@@ -671,6 +673,160 @@ public interface ISnapshot
      */
     public int mapAddressToId(long objectAddress) throws SnapshotException;
 
+    /**
+     * Get object abstracting the real Java Object from the heap dump identified
+     * by the given id, which for snapshots with 2^31 objects or more
+     * may not fit in an int.
+     * <p>
+     * Performance: as for {@link #getObject(int)}.
+     * 
+     * @param objectId
+     *            id of object you want a convenient object abstraction for
+     * @return object abstracting the real Java Object from the heap dump
+     *         identified by the given id
+     * @throws SnapshotException if there is a problem, such as perhaps an invalid objectId
+     * @since 1.17
+     */
+    default IObject getObject(long objectId) throws SnapshotException
+    {
+        return getObject(intId(objectId));
+    }
+
+    /**
+     * Get object abstracting the real Java Class this object was an instance
+     * of, for an object id which may not fit in an int.
+     * <p>
+     * Performance: as for {@link #getClassOf(int)}.
+     * 
+     * @param objectId
+     *            id of object you want the convenient class abstraction for
+     * @return object abstracting the real Java Class this object was an
+     *         instance of in the heap dump identified by the given id
+     * @throws SnapshotException if there is an unexpected problem
+     * @since 1.17
+     */
+    default IClass getClassOf(long objectId) throws SnapshotException
+    {
+        return getClassOf(intId(objectId));
+    }
+
+    /**
+     * Get heap size for just the given object, for an object id which may not
+     * fit in an int.
+     * <p>
+     * Performance: as for {@link #getHeapSize(int)}.
+     * 
+     * @param objectId
+     *            id of object for which you want the heap size for
+     * @return heap size for the given object.
+     * @throws SnapshotException on an unexpected problem
+     * @since 1.17
+     */
+    default long getHeapSize(long objectId) throws SnapshotException
+    {
+        return getHeapSize(intId(objectId));
+    }
+
+    /**
+     * Get retained heap size for the given object, for an object id which may
+     * not fit in an int.
+     * <p>
+     * Performance: as for {@link #getRetainedHeapSize(int)}.
+     * 
+     * @param objectId
+     *            id of object for which you want the retained heap size for
+     * @return retained heap size for the given object or 0 if no dominator tree
+     *         was calculated
+     * @throws SnapshotException on an unexpected problem
+     * @since 1.17
+     */
+    default long getRetainedHeapSize(long objectId) throws SnapshotException
+    {
+        return getRetainedHeapSize(intId(objectId));
+    }
+
+    /**
+     * Get the shallow heap sizes of several objects at once.
+     * <p>
+     * Performance: faster than calling {@link #getHeapSize(int)} for each
+     * object when the ids are in ascending order, as the indexes can then
+     * be read a page at a time.
+     * 
+     * @param objectIds
+     *            ids of the objects for which you want the heap sizes
+     * @param result
+     *            receives the heap size of each object
+     * @throws SnapshotException on an unexpected problem
+     * @since 1.17
+     */
+    default void getHeapSizes(int[] objectIds, long[] result) throws SnapshotException
+    {
+        for (int i = 0; i < objectIds.length; i++)
+            result[i] = getHeapSize(objectIds[i]);
+    }
+
+    /**
+     * Get the retained heap sizes of several objects at once.
+     * <p>
+     * Performance: faster than calling {@link #getRetainedHeapSize(int)} for
+     * each object when the ids are in ascending order, as the index can then
+     * be read a page at a time.
+     * 
+     * @param objectIds
+     *            ids of the objects for which you want the retained heap sizes
+     * @param result
+     *            receives the retained heap size of each object, or 0 if no
+     *            dominator tree was calculated
+     * @throws SnapshotException on an unexpected problem
+     * @since 1.17
+     */
+    default void getRetainedHeapSizes(int[] objectIds, long[] result) throws SnapshotException
+    {
+        for (int i = 0; i < objectIds.length; i++)
+            result[i] = getRetainedHeapSize(objectIds[i]);
+    }
+
+    /**
+     * Map object id to object address, for an object id which may not fit in
+     * an int.
+     * <p>
+     * Performance: as for {@link #mapIdToAddress(int)}.
+     * 
+     * @param objectId
+     *            id of object you want the address for
+     * @return object address
+     * @throws SnapshotException if the object id is invalid
+     * @since 1.17
+     */
+    default long mapIdToAddress(long objectId) throws SnapshotException
+    {
+        return mapIdToAddress(intId(objectId));
+    }
+
+    /**
+     * Map object address to object id, for snapshots with 2^31 objects or more
+     * where the id may not fit in an int.
+     * <p>
+     * Performance: as for {@link #mapAddressToId(long)}.
+     * 
+     * @param objectAddress
+     *            address of object you want the id for
+     * @return object id
+     * @throws SnapshotException if the object address is not found.
+     * @since 1.17
+     */
+    default long mapAddressToLongId(long objectAddress) throws SnapshotException
+    {
+        return mapAddressToId(objectAddress);
+    }
+
+    private static int intId(long objectId) throws SnapshotException
+    {
+        if (objectId != (int) objectId)
+            throw new SnapshotException(MessageUtil.format(Messages.ISnapshot_Error_ObjectIdTooLarge, objectId));
+        return (int) objectId;
+    }
+
     /**
      * Dispose the whole snapshot.
      * <p>
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2018 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -29,6 +29,7 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.internal.MATPlugin;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
 
 /**
  * {@link ISnapshot} factory
@@ -77,6 +78,24 @@ public final class SnapshotFactory
          * @return a list of snapshot types
          */
         List<SnapshotFormat> getSupportedFormats();
+
+        /**
+         * Summarize a dump in a single pass, without building a snapshot.
+         * The default implementation does not support triage.
+         * @param file the dump file
+         * @param arguments extra arguments, for example to choose the dump in a file with several
+         * @param listener to show progress and errors
+         * @return the summary
+         * @throws SnapshotException if the dump cannot be read, or no parser
+         * is able to summarize it
+         * @since 1.17
+         */
+        default TriageResult triage(File file, Map<String, String> arguments, IProgressListener listener)
+                        throws SnapshotException
+        {
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactory_Error_TriageNotSupported,
+                            file.getName()));
+        }
     }
 
     private static Implementation factory;
@@ -149,6 +168,37 @@ public final class SnapshotFactory
         return factory.openSnapshot(file, arguments, listener);
     }
 
+    /**
+     * Summarize a heap dump with a single pass over the file, without building
+     * the indexes of a snapshot. This is much quicker than
+     * {@link #openSnapshot(File, Map, IProgressListener)} and needs memory
+     * depending on the number of classes rather than the number of objects,
+     * but only gives a class histogram, the class loader totals and the
+     * biggest objects.
+     * <p>
+     * The argument <code>triage_top</code> gives the number of biggest objects
+     * to find, and <code>snapshot_identifier</code> chooses the dump if the file
+     * has several.
+     *
+     * @param file
+     *            the dump
+     * @param arguments
+     *            parsing arguments
+     * @param listener
+     *            progress listener informing about the current state of
+     *            execution
+     * @return the summary of the dump
+     * @throws SnapshotException
+     *             if the dump cannot be read or the parser does not support
+     *             triage
+     * @since 1.17
+     */
+    public static TriageResult triage(File file, Map<String, String> arguments, IProgressListener listener)
+                    throws SnapshotException
+    {
+        return factory.triage(file, arguments, listener);
+    }
+
     /**
      * Dispose the whole snapshot.
      * <p>
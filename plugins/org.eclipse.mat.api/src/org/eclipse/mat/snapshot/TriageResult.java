@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Summary of a heap dump found by a single pass over the dump, without
+ * building the indexes of a snapshot. The memory needed depends on the number
+ * of classes, not the number of objects, so this gives a quick first look at a
+ * dump too big to parse.
+ * <p>
+ * Unreachable objects are not discarded and no retained sizes are known.
+ * The GC roots are counted, but no objects are marked as reachable from them.
+ *
+ * @see SnapshotFactory#triage(File, Map, IProgressListener)
+ * @since 1.17
+ * @noinstantiate
+ */
+public class TriageResult
+{
+    /**
+     * One of the biggest objects in the dump.
+     */
+    public static class BigObject
+    {
+        private long objectAddress;
+        private String className;
+        private long usedHeapSize;
+
+        /**
+         * Describe a big object
+         * @param objectAddress the address of the object
+         * @param className the name of the class of the object
+         * @param usedHeapSize the shallow size of the object
+         */
+        public BigObject(long objectAddress, String className, long usedHeapSize)
+        {
+            this.objectAddress = objectAddress;
+            this.className = className;
+            this.usedHeapSize = usedHeapSize;
+        }
+
+        /**
+         * Get the address of the object
+         * @return the address
+         */
+        public long getObjectAddress()
+        {
+            return objectAddress;
+        }
+
+        /**
+         * Get the class name of the object
+         * @return the class name
+         */
+        public String getClassName()
+        {
+            return className;
+        }
+
+        /**
+         * Get the shallow size of the object
+         * @return the size in bytes
+         */
+        public long getUsedHeapSize()
+        {
+            return usedHeapSize;
+        }
+    }
+
+    private Histogram histogram;
+    private List<BigObject> biggestObjects;
+    private Map<Integer, Integer> gcRoots;
+
+    /**
+     * Create the summary of a dump
+     * @param histogram the class histogram, also holding the class loader totals.
+     * There are no object ids, so the records have a class id of -1.
+     * @param biggestObjects the biggest objects, biggest first
+     * @param gcRoots the number of objects which are GC roots of each type
+     */
+    public TriageResult(Histogram histogram, List<BigObject> biggestObjects, Map<Integer, Integer> gcRoots)
+    {
+        this.histogram = histogram;
+        this.biggestObjects = biggestObjects;
+        this.gcRoots = gcRoots;
+    }
+
+    /**
+     * Get the class histogram.
+     * The class loader totals are the class loader records of the histogram.
+     * @return the histogram
+     */
+    public Histogram getHistogram()
+    {
+        return histogram;
+    }
+
+    /**
+     * Get the biggest objects
+     * @return the biggest objects, biggest first
+     */
+    public List<BigObject> getBiggestObjects()
+    {
+        return biggestObjects;
+    }
+
+    /**
+     * Get the number of GC roots of each type.
+     * As in a snapshot, an object is counted once for each type of root it is,
+     * however often the dump reports it, and the Java locals and other roots
+     * found through a thread are not counted as they belong to the thread.
+     * Unlike a snapshot, roots for addresses which have no object in the dump
+     * are also counted.
+     * @return the number of objects, keyed by the {@link GCRootInfo.Type}
+     */
+    public Map<Integer, Integer> getGCRoots()
+    {
+        return gcRoots;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2018 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -14,13 +14,16 @@ package org.eclipse.mat.snapshot.query;
 
 import java.text.FieldPosition;
 import java.text.ParsePosition;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.HashMapObjectLong;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.Bytes;
@@ -181,6 +184,56 @@ public class RetainedSizeDerivedData extends ContextDerivedData
             }
         }
 
+        /**
+         * Look up the retained sizes of the rows for single objects all at
+         * once, so the index is read a page at a time.
+         */
+        @Override
+        public void prepare(DerivedOperation operation, List<?> rows, IProgressListener listener)
+                        throws SnapshotException
+        {
+            List<Object> found = new ArrayList<Object>();
+            ArrayInt objectIds = new ArrayInt();
+            for (Object row : rows)
+            {
+                if (!isSingleObject(row) || lookup(row) != null)
+                    continue;
+                IContextObject contextObject = provider.getContext(row);
+                int objectId = -1;
+                if (contextObject instanceof IContextObjectSet)
+                {
+                    int ids[] = ((IContextObjectSet) contextObject).getObjectIds();
+                    if (ids != null && ids.length == 1)
+                        objectId = ids[0];
+                }
+                else if (contextObject != null)
+                {
+                    objectId = contextObject.getObjectId();
+                }
+                // Problems are reported by calculate()
+                if (objectId < 0)
+                    continue;
+                found.add(row);
+                objectIds.add(objectId);
+                if (listener.isCanceled())
+                    return;
+            }
+
+            long sizes[] = new long[objectIds.size()];
+            snapshot.getRetainedHeapSizes(objectIds.toArray(), sizes);
+            for (int i = 0; i < sizes.length; i++)
+                valuesput(found.get(i), sizes[i]);
+        }
+
+        /**
+         * Whether the row could be a single object, rather than a row which
+         * holds its own retained size.
+         */
+        protected boolean isSingleObject(Object row)
+        {
+            return true;
+        }
+
         public void calculate(DerivedOperation operation, Object row, IProgressListener listener)
                         throws SnapshotException
         {
@@ -325,6 +378,12 @@ public class RetainedSizeDerivedData extends ContextDerivedData
             }
         }
 
+        @Override
+        protected boolean isSingleObject(Object row)
+        {
+            return !(row instanceof ClassHistogramRecord || row instanceof ClassLoaderHistogramRecord);
+        }
+
         @Override
         public Object lookup(Object row)
         {
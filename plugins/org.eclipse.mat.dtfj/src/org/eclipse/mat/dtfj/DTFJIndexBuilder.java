@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009,2025 IBM Corporation.
+ * Copyright (c) 2009,2026 IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -39,6 +39,7 @@ import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -49,6 +50,14 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.CoreException;
@@ -94,6 +103,8 @@ import org.eclipse.mat.snapshot.model.ObjectReference;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.IProgressListener.Severity;
 import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.SynchronizedProgressListener;
+import org.eclipse.mat.util.VoidProgressListener;
 
 import com.ibm.dtfj.image.CorruptData;
 import com.ibm.dtfj.image.CorruptDataException;
@@ -162,6 +173,13 @@ public class DTFJIndexBuilder implements IIndexBuilder
     static final String RUNTIME_ID_KEY = "$runtimeId"; //$NON-NLS-1$
     /** How many elements in an object array to examine at once */
     private static final int ARRAY_PIECE_SIZE = 100000;
+    /**
+     * How many threads to use to find the outbound references of heap objects,
+     * 1 for a single thread. Defaults to the number of processors.
+     */
+    private static final String SCAN_THREADS_PROPERTY = "org.eclipse.mat.dtfj.scanThreads"; //$NON-NLS-1$
+    /** How many heap objects a worker thread examines at once */
+    private static final int SCAN_BATCH_SIZE = 1000;
     /** How many bytes to scan in a native stack frame when looking for GC roots */
     private static final int NATIVE_STACK_FRAME_SIZE = 2048;
     /** How many bytes to scan in a Java stack frame when looking for GC roots */
@@ -728,37 +746,45 @@ public class DTFJIndexBuilder implements IIndexBuilder
     }
 
     /* Message counts to reduce duplicated messages */
-    private int msgNgetRefsMissing = errorCount;
-    private int msgNgetRefsExtra = errorCount;
-    private int msgNarrayRefsNPE = errorCount;
-    private int msgNgetRefsUnavailable = errorCount;
-    private int msgNgetRefsCorrupt = errorCount;
-    private int msgNbigSegs = errorCount;
-    private int msgNinvalidArray = errorCount;
-    private int msgNinvalidObj = errorCount;
-    private int msgNbrokenEquals = errorCount;
-    private int msgNbrokenInterfaceSuper = errorCount;
-    private int msgNmissingLoaderMsg = errorCount;
-    private int msgNcorruptCount = errorCount;
-    private int msgNrootsWarning = errorCount;
-    private int msgNguessFinalizable = errorCount;
-    private int msgNgetRefsAllMissing = errorCount;
-    private int msgNgetSuperclass = errorCount;
-    private int msgNnullThreadObject = errorCount;
-    private int msgNbadThreadInfo = errorCount;
-    private int msgNunexpectedModifiers = errorCount;
-    private int msgNcorruptSection = errorCount;
-    private int msgNclassForObject = errorCount;
-    private int msgNcomponentClass = errorCount;
-    private int msgNtypeForClassObject = errorCount;
-    private int msgNobjectSize = errorCount;
-    private int msgNoutboundReferences = errorCount;
-    private int msgNnoSuperClassForArray = errorCount;
-    private int msgNproblemReadingJavaStackFrame = errorCount;
-    private int msgNskipHeapObject = errorCount;
-    private int msgNthreadBlocking = errorCount;
-    private int msgNunexpectedSource = errorCount;
-    private int msgNcorruptCount1 = errorCount;
+    private final List<MessageLimit> messageLimits = new ArrayList<MessageLimit>();
+    private final MessageLimit msgNgetRefsMissing = messageLimit();
+    private final MessageLimit msgNgetRefsExtra = messageLimit();
+    private final MessageLimit msgNarrayRefsNPE = messageLimit();
+    private final MessageLimit msgNgetRefsUnavailable = messageLimit();
+    private final MessageLimit msgNgetRefsCorrupt = messageLimit();
+    private final MessageLimit msgNbigSegs = messageLimit();
+    private final MessageLimit msgNinvalidArray = messageLimit();
+    private final MessageLimit msgNinvalidObj = messageLimit();
+    private final MessageLimit msgNbrokenEquals = messageLimit();
+    private final MessageLimit msgNbrokenInterfaceSuper = messageLimit();
+    private final MessageLimit msgNmissingLoaderMsg = messageLimit();
+    private final MessageLimit msgNcorruptCount = messageLimit();
+    private final MessageLimit msgNrootsWarning = messageLimit();
+    private final MessageLimit msgNguessFinalizable = messageLimit();
+    private final MessageLimit msgNgetRefsAllMissing = messageLimit();
+    private final MessageLimit msgNgetSuperclass = messageLimit();
+    private final MessageLimit msgNnullThreadObject = messageLimit();
+    private final MessageLimit msgNbadThreadInfo = messageLimit();
+    private final MessageLimit msgNunexpectedModifiers = messageLimit();
+    private final MessageLimit msgNcorruptSection = messageLimit();
+    private final MessageLimit msgNclassForObject = messageLimit();
+    private final MessageLimit msgNcomponentClass = messageLimit();
+    private final MessageLimit msgNtypeForClassObject = messageLimit();
+    private final MessageLimit msgNobjectSize = messageLimit();
+    private final MessageLimit msgNoutboundReferences = messageLimit();
+    private final MessageLimit msgNnoSuperClassForArray = messageLimit();
+    private final MessageLimit msgNproblemReadingJavaStackFrame = messageLimit();
+    private final MessageLimit msgNskipHeapObject = messageLimit();
+    private final MessageLimit msgNthreadBlocking = messageLimit();
+    private final MessageLimit msgNunexpectedSource = messageLimit();
+    private final MessageLimit msgNcorruptCount1 = messageLimit();
+
+    private MessageLimit messageLimit()
+    {
+        MessageLimit limit = new MessageLimit(errorCount);
+        messageLimits.add(limit);
+        return limit;
+    }
 
     /*
      * (non-Javadoc)
@@ -1451,14 +1477,14 @@ public class DTFJIndexBuilder implements IIndexBuilder
                         {
                             if (jl != null)
                             {
-                                if (msgNproblemReadingJavaStackFrame-- > 0)
+                                if (msgNproblemReadingJavaStackFrame.report())
                                     listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                                     Messages.DTFJIndexBuilder_ProblemReadingJavaStackFrameLocation, frameId,
                                                     jl, format(threadAddress)), e);
                             }
                             else
                             {
-                                if (msgNproblemReadingJavaStackFrame-- > 0)
+                                if (msgNproblemReadingJavaStackFrame.report())
                                     listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                                     Messages.DTFJIndexBuilder_ProblemReadingJavaStackFrame, frameId,
                                                     format(threadAddress)), e);
@@ -1728,7 +1754,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             }
             catch (CorruptDataException e)
             {
-                if (msgNcorruptCount-- > 0)
+                if (msgNcorruptCount.report())
                     listener
                                     .sendUserMessage(Severity.WARNING,
                                                     Messages.DTFJIndexBuilder_ProblemFindingJavaLangClass, e);
@@ -2236,6 +2262,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         if (debugInfo) debugPrint("Phase: Process all objects"); //$NON-NLS-1$
 
         int objProgress2 = 0;
+        HeapObjectScanner scanner = new HeapObjectScanner(bootLoaderAddress, jlc, refd, listener);
         // Find all the objects
         for (Iterator<?> i = dtfjInfo.getJavaRuntime().getHeaps(); i.hasNext();)
         {
@@ -2268,7 +2295,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                  */
                 if (missingObjects.containsKey(jo.getID().getAddress()))
                     continue;
-                processHeapObject(jo, jo.getID().getAddress(), pointerSize, bootLoaderAddress, loaders, jlc, refd, listener);
+                processHeapObject(jo, jo.getID().getAddress(), pointerSize, bootLoaderAddress, loaders, jlc, scanner, listener);
             }
         }
         // Objects not on the heap
@@ -2277,8 +2304,9 @@ public class DTFJIndexBuilder implements IIndexBuilder
             HashMapLongObject.Entry<JavaObject> entry = it.next();
             long objAddr = entry.getKey();
             JavaObject jo = entry.getValue();
-            processHeapObject(jo, objAddr, pointerSize, bootLoaderAddress, loaders, jlc, refd, listener);
+            processHeapObject(jo, objAddr, pointerSize, bootLoaderAddress, loaders, jlc, scanner, listener);
         }
+        scanner.finish();
 
         // Boot Class Loader
         if (bootLoaderObject == null)
@@ -2414,7 +2442,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                             ++finalizables;
                             addRoot(gcRoot, addr, addr, GCRootInfo.Type.FINALIZABLE);
                             refd.set(i);
-                            if (msgNguessFinalizable-- > 0)
+                            if (msgNguessFinalizable.report())
                                 listener.sendUserMessage(Severity.INFO, MessageFormat.format(
                                                 Messages.DTFJIndexBuilder_ObjectIsFinalizable, clsInfo, format(addr)),
                                                 null);
@@ -2613,37 +2641,37 @@ public class DTFJIndexBuilder implements IIndexBuilder
         // printed
         int skippedMessages = 0;
         skippedMessages += Math.max(0, 0);
-        skippedMessages += Math.max(0, -msgNgetRefsMissing);
-        skippedMessages += Math.max(0, -msgNgetRefsExtra);
-        skippedMessages += Math.max(0, -msgNarrayRefsNPE);
-        skippedMessages += Math.max(0, -msgNgetRefsUnavailable);
-        skippedMessages += Math.max(0, -msgNgetRefsCorrupt);
-        skippedMessages += Math.max(0, -msgNbigSegs);
-        skippedMessages += Math.max(0, -msgNinvalidArray);
-        skippedMessages += Math.max(0, -msgNinvalidObj);
-        skippedMessages += Math.max(0, -msgNbrokenEquals);
-        skippedMessages += Math.max(0, -msgNbrokenInterfaceSuper);
-        skippedMessages += Math.max(0, -msgNmissingLoaderMsg);
-        skippedMessages += Math.max(0, -msgNcorruptCount);
-        skippedMessages += Math.max(0, -msgNrootsWarning);
-        skippedMessages += Math.max(0, -msgNguessFinalizable);
-        skippedMessages += Math.max(0, -msgNgetRefsAllMissing);
-        skippedMessages += Math.max(0, -msgNgetSuperclass);
-        skippedMessages += Math.max(0, -msgNnullThreadObject);
-        skippedMessages += Math.max(0, -msgNbadThreadInfo);
-        skippedMessages += Math.max(0, -msgNunexpectedModifiers);
-        skippedMessages += Math.max(0, -msgNcorruptSection);
-        skippedMessages += Math.max(0, -msgNclassForObject);
-        skippedMessages += Math.max(0, -msgNcomponentClass);
-        skippedMessages += Math.max(0, -msgNtypeForClassObject);
-        skippedMessages += Math.max(0, -msgNobjectSize);
-        skippedMessages += Math.max(0, -msgNoutboundReferences);
-        skippedMessages += Math.max(0, -msgNnoSuperClassForArray);
-        skippedMessages += Math.max(0, -msgNproblemReadingJavaStackFrame);
-        skippedMessages += Math.max(0, -msgNskipHeapObject);
-        skippedMessages += Math.max(0, -msgNthreadBlocking);
-        skippedMessages += Math.max(0, -msgNunexpectedSource);
-        skippedMessages += Math.max(0, -msgNcorruptCount1);
+        skippedMessages += msgNgetRefsMissing.skipped();
+        skippedMessages += msgNgetRefsExtra.skipped();
+        skippedMessages += msgNarrayRefsNPE.skipped();
+        skippedMessages += msgNgetRefsUnavailable.skipped();
+        skippedMessages += msgNgetRefsCorrupt.skipped();
+        skippedMessages += msgNbigSegs.skipped();
+        skippedMessages += msgNinvalidArray.skipped();
+        skippedMessages += msgNinvalidObj.skipped();
+        skippedMessages += msgNbrokenEquals.skipped();
+        skippedMessages += msgNbrokenInterfaceSuper.skipped();
+        skippedMessages += msgNmissingLoaderMsg.skipped();
+        skippedMessages += msgNcorruptCount.skipped();
+        skippedMessages += msgNrootsWarning.skipped();
+        skippedMessages += msgNguessFinalizable.skipped();
+        skippedMessages += msgNgetRefsAllMissing.skipped();
+        skippedMessages += msgNgetSuperclass.skipped();
+        skippedMessages += msgNnullThreadObject.skipped();
+        skippedMessages += msgNbadThreadInfo.skipped();
+        skippedMessages += msgNunexpectedModifiers.skipped();
+        skippedMessages += msgNcorruptSection.skipped();
+        skippedMessages += msgNclassForObject.skipped();
+        skippedMessages += msgNcomponentClass.skipped();
+        skippedMessages += msgNtypeForClassObject.skipped();
+        skippedMessages += msgNobjectSize.skipped();
+        skippedMessages += msgNoutboundReferences.skipped();
+        skippedMessages += msgNnoSuperClassForArray.skipped();
+        skippedMessages += msgNproblemReadingJavaStackFrame.skipped();
+        skippedMessages += msgNskipHeapObject.skipped();
+        skippedMessages += msgNthreadBlocking.skipped();
+        skippedMessages += msgNunexpectedSource.skipped();
+        skippedMessages += msgNcorruptCount1.skipped();
         if (skippedMessages > 0)
         {
             listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
@@ -3389,7 +3417,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                         jniEnvAddress = 0;
                         e1 = e;
                     }
-                    if (msgNnullThreadObject-- > 0)
+                    if (msgNnullThreadObject.report())
                         listener.sendUserMessage(Severity.INFO, MessageFormat.format(
                                         Messages.DTFJIndexBuilder_ThreadObjectNotFoundSoIgnoring, name,
                                         format(jniEnvAddress)), e1);
@@ -3409,7 +3437,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             }
             catch (CorruptDataException e)
             {
-                if (msgNbadThreadInfo-- > 0)
+                if (msgNbadThreadInfo.report())
                     listener.sendUserMessage(Severity.WARNING,
                                     Messages.DTFJIndexBuilder_ProblemReadingThreadInformation, e);
             }
@@ -3589,7 +3617,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                         // - getHeapRoots returns null
                         if (jf.getHeapRoots() == null)
                         {
-                            if (msgNrootsWarning-- > 0)
+                            if (msgNrootsWarning.report())
                                 listener.sendUserMessage(Severity_WARNING,
                                                 Messages.DTFJIndexBuilder_DTFJgetHeapRootsFromStackFrameReturnsNull,
                                                 null);
@@ -3954,7 +3982,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         }
         catch (CorruptDataException e)
         {
-            if (msgNclassForObject-- > 0) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
+            if (msgNclassForObject.report()) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                             Messages.DTFJIndexBuilder_ProblemFindingClassesForObject, format(objAddress)), e);
         }
     }
@@ -3994,7 +4022,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             }
             catch (CorruptDataException e)
             {
-                if (msgNcomponentClass-- > 0)
+                if (msgNcomponentClass.report())
                     listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                     Messages.DTFJIndexBuilder_ProblemFindingComponentClass,
                                     format(getClassAddress(cls, listener))), e);
@@ -4016,13 +4044,13 @@ public class DTFJIndexBuilder implements IIndexBuilder
      * @param bootLoaderAddress
      * @param loaders
      * @param jlc
-     * @param refd
+     * @param scanner finds and records the outbound references
      * @param listener
      * @throws IOException
      */
     private void processHeapObject(JavaObject jo, long objAddr, int pointerSize,
                     long bootLoaderAddress, HashMap<JavaObject, JavaClassLoader> loaders, ClassImpl jlc,
-                    BitField refd, IProgressListener listener)
+                    HeapObjectScanner scanner, IProgressListener listener)
                     throws IOException
     {
         objAddr = fixBootLoaderAddress(bootLoaderAddress, objAddr);
@@ -4030,7 +4058,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
 
         if (objId < 0)
         {
-            if (msgNskipHeapObject-- > 0) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(Messages.DTFJIndexBuilder_SkippingObject,
+            if (msgNskipHeapObject.report()) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(Messages.DTFJIndexBuilder_SkippingObject,
                             format(objAddr)), null);
             // Continue so as to account for skipped object
         }
@@ -4253,7 +4281,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         }
         catch (CorruptDataException e)
         {
-            if (msgNobjectSize-- > 0) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
+            if (msgNobjectSize.report()) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                             Messages.DTFJIndexBuilder_ProblemGettingObjectSize, format(objAddr)), e);
             // Try to cope with bad sizes - at least register an instance of
             // this class
@@ -4283,6 +4311,25 @@ public class DTFJIndexBuilder implements IIndexBuilder
             addLoaderClasses(objId, aa);
         }
 
+        scanner.scan(new HeapObjectRefs(jo, objId, objAddr, type, aa));
+    }
+
+    /**
+     * Add the references read from DTFJ for a heap object.
+     * Called from the worker threads of {@link HeapObjectScanner}, so only
+     * reads the builder state apart from the {@link MessageLimit} counts.
+     * 
+     * @param o the object and the references found so far
+     * @param bootLoaderAddress
+     * @param jlc
+     * @param listener
+     */
+    private void findHeapObjectRefs(HeapObjectRefs o, long bootLoaderAddress, ClassImpl jlc, IProgressListener listener)
+    {
+        JavaObject jo = o.jo;
+        JavaClass type = o.type;
+        long objAddr = o.objAddr;
+        ArrayLong aa = o.refs;
         if (type != null)
         {
             try
@@ -4301,7 +4348,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             }
             catch (CorruptDataException e)
             {
-                if (msgNoutboundReferences-- > 0) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
+                if (msgNoutboundReferences.report()) listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                 Messages.DTFJIndexBuilder_ProblemGettingOutboundReferences, format(objAddr)), e);
             }
         }
@@ -4321,9 +4368,316 @@ public class DTFJIndexBuilder implements IIndexBuilder
 
         // The GC roots associated with a thread are outbound references for the
         // thread, not global roots
-        addThreadRefs(objId, aa);
-        addRefs(refd, objId, aa);
-        outRefs.log(indexToAddress, objId, aa);
+        addThreadRefs(o.objId, aa);
+    }
+
+    /**
+     * A heap object waiting for its outbound references to be found.
+     */
+    private static final class HeapObjectRefs
+    {
+        final JavaObject jo;
+        final int objId;
+        final long objAddr;
+        /** null if the fields or elements are not to be read */
+        final JavaClass type;
+        /** the references found so far, the class first */
+        final ArrayLong refs;
+
+        HeapObjectRefs(JavaObject jo, int objId, long objAddr, JavaClass type, ArrayLong refs)
+        {
+            this.jo = jo;
+            this.objId = objId;
+            this.objAddr = objAddr;
+            this.type = type;
+            this.refs = refs;
+        }
+    }
+
+    /**
+     * Finds the outbound references of heap objects and writes them to the
+     * outbound index. Reading the fields and array elements through DTFJ is the
+     * slow part of parsing, so it is shared out in batches between worker threads
+     * when more than one thread is configured.
+     * <p>
+     * Not every DTFJ implementation can be read from several threads, so the
+     * first batch is read both on the calling thread and by the workers and the
+     * results compared. If they differ, or a worker later fails, the remaining
+     * objects are scanned on the calling thread.
+     */
+    private final class HeapObjectScanner
+    {
+        private final long bootLoaderAddress;
+        private final ClassImpl jlc;
+        private final BitField refd;
+        private final IProgressListener listener;
+        private final IProgressListener workerListener;
+        private final int threads;
+        private ExecutorService pool;
+        private boolean probed;
+        private List<HeapObjectRefs> batch = new ArrayList<HeapObjectRefs>();
+        private final LinkedList<List<HeapObjectRefs>> submitted = new LinkedList<List<HeapObjectRefs>>();
+        private final LinkedList<Future<?>> running = new LinkedList<Future<?>>();
+
+        HeapObjectScanner(long bootLoaderAddress, ClassImpl jlc, BitField refd, IProgressListener listener)
+        {
+            this.bootLoaderAddress = bootLoaderAddress;
+            this.jlc = jlc;
+            this.refd = refd;
+            this.listener = listener;
+            this.workerListener = new SynchronizedProgressListener(listener);
+            // The debug output is only useful in order
+            this.threads = debugInfo ? 1
+                            : Math.max(1, Integer.getInteger(SCAN_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+            if (threads > 1)
+            {
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+                                {
+                                    private int count;
+
+                                    public synchronized Thread newThread(Runnable r)
+                                    {
+                                        Thread t = new Thread(r, "DTFJ heap scan " + (++count)); //$NON-NLS-1$
+                                        t.setDaemon(true);
+                                        return t;
+                                    }
+                                });
+                // Do not keep the threads if parsing is abandoned
+                executor.allowCoreThreadTimeOut(true);
+                pool = executor;
+            }
+        }
+
+        void scan(HeapObjectRefs o) throws IOException
+        {
+            if (pool == null)
+            {
+                findHeapObjectRefs(o, bootLoaderAddress, jlc, listener);
+                record(o);
+                return;
+            }
+            batch.add(o);
+            if (batch.size() >= SCAN_BATCH_SIZE)
+                submit();
+        }
+
+        /**
+         * Waits for all the objects to be scanned.
+         */
+        void finish() throws IOException
+        {
+            if (pool != null)
+            {
+                submit();
+                while (!running.isEmpty())
+                    complete();
+            }
+            if (pool != null)
+            {
+                pool.shutdown();
+                pool = null;
+            }
+            for (HeapObjectRefs o : batch)
+            {
+                findHeapObjectRefs(o, bootLoaderAddress, jlc, listener);
+                record(o);
+            }
+            batch.clear();
+        }
+
+        private void submit() throws IOException
+        {
+            if (batch.isEmpty())
+                return;
+            if (!probed)
+            {
+                // probe records the batch
+                probed = true;
+                boolean same = probe(batch);
+                batch.clear();
+                if (!same)
+                    fallBack(null);
+                return;
+            }
+            final List<HeapObjectRefs> work = batch;
+            batch = new ArrayList<HeapObjectRefs>(SCAN_BATCH_SIZE);
+            submitted.add(work);
+            running.add(pool.submit(new Callable<Void>() {
+                public Void call() throws IOException
+                {
+                    for (HeapObjectRefs o : work)
+                    {
+                        findHeapObjectRefs(o, bootLoaderAddress, jlc, workerListener);
+                        record(o);
+                    }
+                    return null;
+                }
+            }));
+            // Limit the objects held waiting to be scanned
+            while (pool != null && running.size() > 2 * threads)
+                complete();
+        }
+
+        /**
+         * Wait for the oldest batch.
+         */
+        private void complete() throws IOException
+        {
+            Future<?> f = running.removeFirst();
+            List<HeapObjectRefs> work = submitted.removeFirst();
+            try
+            {
+                f.get();
+            }
+            catch (InterruptedException e)
+            {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IProgressListener.OperationCanceledException();
+            }
+            catch (ExecutionException e)
+            {
+                Throwable t = e.getCause();
+                if (t instanceof IProgressListener.OperationCanceledException)
+                    throw (IProgressListener.OperationCanceledException) t;
+                if (t instanceof IOException)
+                    throw (IOException) t;
+                if (t instanceof Error)
+                    throw (Error) t;
+                // Rescan the failed batch and the rest on this thread
+                fallBack(t);
+                batch.addAll(0, work);
+            }
+        }
+
+        /**
+         * Stop using the workers, and queue all the batches not yet done to be
+         * scanned on the calling thread. Recording a batch again is harmless,
+         * the later outbound references replace the earlier ones.
+         */
+        private void fallBack(Throwable t) throws IOException
+        {
+            pool.shutdown();
+            pool = null;
+            listener.sendUserMessage(Severity.INFO, Messages.DTFJIndexBuilder_ParallelObjectScanFallback, t);
+            List<HeapObjectRefs> rest = new ArrayList<HeapObjectRefs>();
+            while (!running.isEmpty())
+            {
+                Future<?> f = running.removeFirst();
+                List<HeapObjectRefs> work = submitted.removeFirst();
+                try
+                {
+                    f.get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IProgressListener.OperationCanceledException();
+                }
+                catch (ExecutionException e)
+                {
+                    rest.addAll(work);
+                }
+            }
+            rest.addAll(batch);
+            batch = rest;
+        }
+
+        /**
+         * Read the references of the first batch of objects on this thread and
+         * using the workers, and record the references from this thread.
+         * 
+         * @return true if the workers found the same references
+         */
+        private boolean probe(List<HeapObjectRefs> objects) throws IOException
+        {
+            final List<HeapObjectRefs> copies = new ArrayList<HeapObjectRefs>(objects.size());
+            for (HeapObjectRefs o : objects)
+                copies.add(new HeapObjectRefs(o.jo, o.objId, o.objAddr, o.type, new ArrayLong(o.refs)));
+
+            // the trial read by the workers should not use up the message counts
+            int counts[] = new int[messageLimits.size()];
+            for (int i = 0; i < counts.length; ++i)
+                counts[i] = messageLimits.get(i).get();
+
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(threads);
+            final IProgressListener silent = new VoidProgressListener();
+            for (int t = 0; t < threads; ++t)
+            {
+                final int first = t;
+                tasks.add(new Callable<Void>() {
+                    public Void call()
+                    {
+                        for (int i = first; i < copies.size(); i += threads)
+                            findHeapObjectRefs(copies.get(i), bootLoaderAddress, jlc, silent);
+                        return null;
+                    }
+                });
+            }
+            List<Future<Void>> results;
+            try
+            {
+                results = pool.invokeAll(tasks);
+            }
+            catch (InterruptedException e)
+            {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IProgressListener.OperationCanceledException();
+            }
+
+            boolean same = true;
+            for (Future<Void> f : results)
+            {
+                try
+                {
+                    f.get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IProgressListener.OperationCanceledException();
+                }
+                catch (ExecutionException e)
+                {
+                    same = false;
+                }
+            }
+
+            for (int i = 0; i < counts.length; ++i)
+                messageLimits.get(i).set(counts[i]);
+
+            for (int i = 0; i < objects.size(); ++i)
+            {
+                HeapObjectRefs o = objects.get(i);
+                findHeapObjectRefs(o, bootLoaderAddress, jlc, listener);
+                if (same)
+                {
+                    ArrayLong a1 = new ArrayLong(o.refs);
+                    ArrayLong a2 = new ArrayLong(copies.get(i).refs);
+                    a1.sort();
+                    a2.sort();
+                    same = Arrays.equals(a1.toArray(), a2.toArray());
+                }
+                record(o);
+            }
+            if (same)
+                listener.sendUserMessage(Severity.INFO, MessageFormat.format(Messages.DTFJIndexBuilder_ParallelObjectScan, threads), null);
+            return same;
+        }
+
+        /**
+         * Remember the referenced objects and write the outbound references.
+         */
+        private void record(HeapObjectRefs o) throws IOException
+        {
+            synchronized (refd)
+            {
+                addRefs(refd, o.objId, o.refs);
+            }
+            outRefs.log(indexToAddress, o.objId, o.refs);
+        }
     }
 
     /**
@@ -4606,7 +4960,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                     {
                         sig = "()"; //$NON-NLS-1$
                     }
-                    if (msgNproblemReadingJavaStackFrame-- > 0)
+                    if (msgNproblemReadingJavaStackFrame.report())
                         listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                         Messages.DTFJIndexBuilder_ProblemReadingJavaStackFramesMethod, frameId,
                                         format(address), searchSize, modifiers, className, methodName, sig,
@@ -4615,7 +4969,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                 catch (DataUnavailable e2)
                 {
                     // Location will have been set up
-                    if (msgNproblemReadingJavaStackFrame-- > 0)
+                    if (msgNproblemReadingJavaStackFrame.report())
                         listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                         Messages.DTFJIndexBuilder_ProblemReadingJavaStackFramesLocation, frameId,
                                         format(address), searchSize, jl, format(threadAddress)), e);
@@ -4624,14 +4978,14 @@ public class DTFJIndexBuilder implements IIndexBuilder
                 {
                     if (jl != null)
                     {
-                        if (msgNproblemReadingJavaStackFrame-- > 0)
+                        if (msgNproblemReadingJavaStackFrame.report())
                             listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                             Messages.DTFJIndexBuilder_ProblemReadingJavaStackFramesLocation, frameId,
                                             format(address), searchSize, jl, format(threadAddress)), e);
                     }
                     else
                     {
-                        if (msgNproblemReadingJavaStackFrame-- > 0)
+                        if (msgNproblemReadingJavaStackFrame.report())
                             listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                             Messages.DTFJIndexBuilder_ProblemReadingJavaStackFrames, frameId, format(address),
                                             searchSize, format(threadAddress)), e);
@@ -4770,7 +5124,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         }
         catch (DTFJException e)
         {
-            if (msgNthreadBlocking-- > 0)
+            if (msgNthreadBlocking.report())
                 listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                             Messages.DTFJIndexBuilder_ProblemReadingJavaThreadInformationFor, th), e);
         }
@@ -5334,7 +5688,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         }
         int tgt = targetId;
         int src = indexToAddress.reverse(source);
-        if (src < 0 && msgNunexpectedSource-- > 0)
+        if (src < 0 && msgNunexpectedSource.report())
         {
             listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                             Messages.DTFJIndexBuilder_UnableToFindSourceID, format(target), format(source), r
@@ -5721,7 +6075,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         final int expectedMods = (Modifier.ABSTRACT | Modifier.FINAL | Modifier.NATIVE | Modifier.PRIVATE
                         | Modifier.PROTECTED | Modifier.PUBLIC | Modifier.STATIC | Modifier.STRICT | Modifier.SYNCHRONIZED);
         int unexpectedMods = mods & ~expectedMods;
-        if ((e1 != null || unexpectedMods != 0) && msgNunexpectedModifiers-- >= 0)
+        if ((e1 != null || unexpectedMods != 0) && msgNunexpectedModifiers.report())
         {
             String m1 = Modifier.toString(unexpectedMods);
             String methName = ""; //$NON-NLS-1$
@@ -6494,7 +6848,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             {
                 // Null Pointer exception from array classes because
                 // of null class loader
-                if (msgNarrayRefsNPE-- > 0)
+                if (msgNarrayRefsNPE.report())
                     listener.sendUserMessage(Severity.ERROR, MessageFormat.format(
                                     Messages.DTFJIndexBuilder_ExceptionGettingOutboundReferences, desc, name,
                                     format(objAddr)), e);
@@ -6628,7 +6982,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                     missingRefs = true;
                     int newObjId = indexToAddress.reverse(l);
                     String clsInfo = objDesc(newObjId);
-                    if (msgNgetRefsMissing-- > 0)
+                    if (msgNgetRefsMissing.report())
                         listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                         Messages.DTFJIndexBuilder_DTFJGetReferencesMissingID, newObjId, format(l),
                                         clsInfo, desc, name, objId, format(objAddr)), null);
@@ -6658,7 +7012,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                     int newObjId = indexToAddress.reverse(l);
                     String clsInfo = objDesc(newObjId);
                     // extra superclass references for objects
-                    if (msgNgetRefsExtra-- > 0)
+                    if (msgNgetRefsExtra.report())
                         listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                         Messages.DTFJIndexBuilder_DTFJGetReferencesExtraID, newObjId, format(l), 
                                         ee.getValue(), clsInfo, desc, name, objId, format(objAddr)), null);
@@ -6679,7 +7033,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             if (objset.size() == 0 || !hasDTFJRefs)
             {
                 // Sov has problems with objects of type [B, [C etc.
-                if (!aa.isEmpty() && msgNgetRefsAllMissing-- > 0)
+                if (!aa.isEmpty() && msgNgetRefsAllMissing.report())
                     listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                     Messages.DTFJIndexBuilder_DTFJGetReferencesMissingAllReferences, name, objId,
                                     format(objAddr)), null);
@@ -6836,14 +7190,14 @@ public class DTFJIndexBuilder implements IIndexBuilder
             }
             catch (DataUnavailable e)
             {
-                if (msgNgetRefsUnavailable-- > 0)
+                if (msgNgetRefsUnavailable.report())
                     listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                     Messages.DTFJIndexBuilder_UnableToGetOutboundReference, jr.getDescription(), desc,
                                     name, format(objAddr)), e);
             }
             catch (CorruptDataException e)
             {
-                if (msgNgetRefsCorrupt-- > 0)
+                if (msgNgetRefsCorrupt.report())
                     listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                     Messages.DTFJIndexBuilder_UnableToGetOutboundReference, jr.getDescription(), desc,
                                     name, format(objAddr)), e);
@@ -6935,22 +7289,26 @@ public class DTFJIndexBuilder implements IIndexBuilder
             else
             {
                 // This may be is a class which DTFJ built
-                Long addr = dummyClassAddress.get(type);
-                if (addr != null)
+                // Can be called from the heap object scanner threads
+                synchronized (dummyClassAddress)
                 {
-                    // Return the address we have already used
-                    return addr;
-                }
-                else
-                {
-                    // Build a unique dummy address
-                    long clsAddr = nextClassAddress;
-                    dummyClassAddress.put(type, clsAddr);
-                    nextClassAddress += 8;
-                    String clsName = getClassName(type, listener);
-                    listener.sendUserMessage(Severity.INFO, MessageFormat.format(
-                                    Messages.DTFJIndexBuilder_ClassHasNoAddress, clsName, format(clsAddr)), e1);
-                    return clsAddr;
+                    Long addr = dummyClassAddress.get(type);
+                    if (addr != null)
+                    {
+                        // Return the address we have already used
+                        return addr;
+                    }
+                    else
+                    {
+                        // Build a unique dummy address
+                        long clsAddr = nextClassAddress;
+                        dummyClassAddress.put(type, clsAddr);
+                        nextClassAddress += 8;
+                        String clsName = getClassName(type, listener);
+                        listener.sendUserMessage(Severity.INFO, MessageFormat.format(
+                                        Messages.DTFJIndexBuilder_ClassHasNoAddress, clsName, format(clsAddr)), e1);
+                        return clsAddr;
+                    }
                 }
             }
         }
@@ -7275,7 +7633,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             {
                 methSig = e.toString();
             }
-            if (msgNbigSegs-- > 0)
+            if (msgNbigSegs.report())
             {
                 String mods = getModifiers(jm, listener);
                 listener.sendUserMessage(Severity.INFO, MessageFormat.format(message, format(is.getBaseAddress()
@@ -7474,7 +7832,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                             int elementRef = m2.reverse(elementObjAddress);
                             if (elementRef < 0)
                             {
-                                if (msgNinvalidArray-- > 0)
+                                if (msgNinvalidArray.report())
                                 {
                                     String name;
                                     Exception e1 = null;
@@ -7656,10 +8014,10 @@ public class DTFJIndexBuilder implements IIndexBuilder
             for (Iterator<?> ii = jc.getDeclaredFields(); ii.hasNext();)
             {
                 Object next3 = ii.next();
-                if (isCorruptData(next3, msgNcorruptCount1 > 0 ? listener : null, 
-                       Messages.DTFJIndexBuilder_CorruptDataReadingDeclaredFields, jc))
+                if (next3 instanceof CorruptData)
                 {
-                    --msgNcorruptCount1;
+                    if (msgNcorruptCount1.report())
+                        isCorruptData(next3, listener, Messages.DTFJIndexBuilder_CorruptDataReadingDeclaredFields, jc);
                     continue;
                 }
                 JavaField jf = (JavaField) next3;
@@ -7714,7 +8072,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                                     int fieldRef = m2.reverse(fieldObjAddress);
                                     if (fieldRef < 0)
                                     {
-                                        if (msgNinvalidObj-- > 0)
+                                        if (msgNinvalidObj.report())
                                         {
                                             String name;
                                             Exception e1 = null;
@@ -8042,7 +8400,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
             {
                 // Corrupt - fails for dump.xml
                 long objAddr = joc.getID().getAddress();
-                if (msgNtypeForClassObject-- > 0)
+                if (msgNtypeForClassObject.report())
                     listener.sendUserMessage(Severity.ERROR, MessageFormat.format(
                                     Messages.DTFJIndexBuilder_UnableToFindTypeOfObject, format(objAddr),
                                     format(claddr), name), e);
@@ -8270,7 +8628,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         {
             Object next = it.next();
             // Too many CorruptData items from AIX 1.4.2 dumps
-            if (next instanceof CorruptData && msgNcorruptSection-- <= 0)
+            if (next instanceof CorruptData && !msgNcorruptSection.report())
                 continue;
             if (isCorruptData(next, listener, Messages.DTFJIndexBuilder_CorruptDataReadingBytecodeSections, jc, m))
                 continue;
@@ -8940,7 +9298,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                         {
                             // ImageAddressSpace.equals broken -
                             // returns false
-                            if (listener != null && msgNbrokenEquals-- > 0)
+                            if (listener != null && msgNbrokenEquals.report())
                                 listener.sendUserMessage(Severity_INFO, MessageFormat.format(
                                                 Messages.DTFJIndexBuilder_ImageAddressSpaceEqualsBroken,
                                                 supAddressSpace, clsAddressSpace, System.identityHashCode(supAddr),
@@ -8959,7 +9317,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
                     // superclass
                     for (sup = j2.getObject().getJavaClass(); sup.getSuperclass() != null; sup = sup.getSuperclass())
                     {}
-                    if (listener != null && msgNnoSuperClassForArray-- > 0)
+                    if (listener != null && msgNnoSuperClassForArray.report())
                         listener.sendUserMessage(Severity_INFO, MessageFormat.format(
                                         Messages.DTFJIndexBuilder_NoSuperclassForArray, j2.getName(), sup.getName()),
                                         null);
@@ -8972,11 +9330,11 @@ public class DTFJIndexBuilder implements IIndexBuilder
                 // or interfaces
                 // PHD or javacore don't have modifiers, so don't try
                 // getModifiers more than a few times if getModifiers never succeeds.
-                if ((msgNgetSuperclass > 0 || modifiersFound > 0)
+                if ((msgNgetSuperclass.available() || modifiersFound > 0)
                                 && Modifier.isInterface(j2.getModifiers()))
                 {
                     ++modifiersFound;
-                    if (listener != null && msgNbrokenInterfaceSuper-- > 0)
+                    if (listener != null && msgNbrokenInterfaceSuper.report())
                         listener.sendUserMessage(Severity_INFO, MessageFormat.format(
                                         Messages.DTFJIndexBuilder_InterfaceShouldNotHaveASuperclass, j2.getName(), sup
                                                         .getName()), null);
@@ -9001,7 +9359,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         {
             long addr = getClassAddress(j2, listener);
             String name = getClassName(j2, listener);
-            if (listener != null && msgNgetSuperclass-- > 0)
+            if (listener != null && msgNgetSuperclass.report())
                 listener.sendUserMessage(Severity.WARNING, MessageFormat.format(
                                 Messages.DTFJIndexBuilder_ProblemGettingSuperclass, name, format(addr)), e);
             return sup; // Just for Javacore
@@ -9025,7 +9383,7 @@ public class DTFJIndexBuilder implements IIndexBuilder
         // Use the loader of the component type instead
         for (JavaClass j3 = j2; (load = j3.getClassLoader()) == null && j3.isArray(); j3 = j3.getComponentType())
         {
-            if (msgNmissingLoaderMsg-- > 0)
+            if (msgNmissingLoaderMsg.report())
                 listener.sendUserMessage(Severity_INFO, MessageFormat.format(Messages.DTFJIndexBuilder_NoClassLoader,
                                 j3.getName(), j3.getComponentType().getName()), null);
         }
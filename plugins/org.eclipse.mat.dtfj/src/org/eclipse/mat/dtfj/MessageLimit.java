@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.dtfj;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the messages of one kind, so that only the first few are reported.
+ * The heap objects are scanned on several threads, so the count is atomic.
+ */
+/* package */final class MessageLimit
+{
+    private final AtomicInteger remaining;
+
+    /**
+     * @param limit the number of messages to report
+     */
+    MessageLimit(int limit)
+    {
+        remaining = new AtomicInteger(limit);
+    }
+
+    /**
+     * Count a message.
+     * @return true if the message should be reported
+     */
+    boolean report()
+    {
+        return remaining.getAndDecrement() > 0;
+    }
+
+    /**
+     * @return true if no message has yet been suppressed
+     */
+    boolean available()
+    {
+        return remaining.get() > 0;
+    }
+
+    /**
+     * @return the number of messages counted but not reported
+     */
+    int skipped()
+    {
+        return Math.max(0, -remaining.get());
+    }
+
+    /**
+     * @return the count, to be restored after a trial read
+     */
+    int get()
+    {
+        return remaining.get();
+    }
+
+    /**
+     * Restore the count, undoing the messages counted since it was read.
+     * @param count from {@link #get()}
+     */
+    void set(int count)
+    {
+        remaining.set(count);
+    }
+}
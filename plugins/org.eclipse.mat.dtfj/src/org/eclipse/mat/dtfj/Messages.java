@@ -150,6 +150,8 @@ public class Messages extends NLS
     public static String DTFJIndexBuilder_ObjDescObjType;
     public static String DTFJIndexBuilder_ObjDescObjTypeAddress;
     public static String DTFJIndexBuilder_ObjectIsFinalizable;
+    public static String DTFJIndexBuilder_ParallelObjectScan;
+    public static String DTFJIndexBuilder_ParallelObjectScanFallback;
     public static String DTFJIndexBuilder_Pass1;
     public static String DTFJIndexBuilder_Pass2;
     public static String DTFJIndexBuilder_PossibleProblemReadingJavaStackFrames;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019 Netflix and IBM Corporation.
+ * Copyright (c) 2019, 2026 Netflix and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -17,8 +17,11 @@ import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
 
+import org.eclipse.mat.util.IProgressListener;
+
 public class BufferingRafPositionInputStream implements IPositionInputStream, Closeable, AutoCloseable
 {
     private final RandomAccessFile raf;
@@ -27,6 +30,12 @@ public class BufferingRafPositionInputStream implements IPositionInputStream, Cl
     private final int readLength;
     private int bufferPosition = 0;
     private int bufferLength = 0;
+    /** How long to wait for a growing file, 0 if not following */
+    private long followTimeout = 0;
+    /** To stop waiting for a growing file */
+    private IProgressListener followListener;
+    /** How often to look for a growing file */
+    private static final long FOLLOW_POLL = 200;
 
     public BufferingRafPositionInputStream(final File file, final String prefix, final long offset,
                                            final int readLength, long estlen) throws IOException
@@ -62,6 +71,64 @@ public class BufferingRafPositionInputStream implements IPositionInputStream, Cl
         raf.close();
     }
 
+    /**
+     * Follow a file which is still being written or copied.
+     * Reads at the end of the file wait for the file to grow
+     * rather than returning end of file, until the file has not grown for the timeout.
+     * Compressed files cannot be followed.
+     * @param timeout milliseconds to wait for more data, or 0 to stop following
+     * @param listener checked while waiting, so the wait can be canceled
+     * @return true if the file can be followed
+     */
+    public boolean follow(long timeout, IProgressListener listener)
+    {
+        if (raf.getClass() != RandomAccessFile.class)
+            return false;
+        followTimeout = timeout;
+        followListener = listener;
+        return true;
+    }
+
+    /**
+     * Read from the file, waiting for more data if following a growing file.
+     */
+    private int readRaf(byte[] b, int off, int len) throws IOException
+    {
+        int read = raf.read(b, off, len);
+        if (read > 0 || followTimeout <= 0)
+            return read;
+        long length = raf.length();
+        long deadline = System.currentTimeMillis() + followTimeout;
+        while (System.currentTimeMillis() < deadline)
+        {
+            try
+            {
+                Thread.sleep(FOLLOW_POLL);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (followListener != null && followListener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            long newLength = raf.length();
+            if (newLength > length)
+            {
+                // Grown, so restart the timeout
+                length = newLength;
+                deadline = System.currentTimeMillis() + followTimeout;
+                if (length > channelPosition)
+                {
+                    read = raf.read(b, off, len);
+                    if (read > 0)
+                        return read;
+                }
+            }
+        }
+        return read;
+    }
+
     public int read() throws IOException
     {
         if (!ensureAvailable(1))
@@ -78,7 +145,7 @@ public class BufferingRafPositionInputStream implements IPositionInputStream, Cl
             {
                 bufferPosition = 0;
                 bufferLength = 0;
-                int read = raf.read(buffer, 0, readLength);
+                int read = readRaf(buffer, 0, readLength);
                 // Check for short return
                 if (read <= 0)
                 {
@@ -215,7 +282,7 @@ public class BufferingRafPositionInputStream implements IPositionInputStream, Cl
             bufferPosition = 0;
             bufferLength = toKeep;
 
-            int amountRead = raf.read(buffer, bufferLength, readLength - bufferLength);
+            int amountRead = readRaf(buffer, bufferLength, readLength - bufferLength);
             if (amountRead <= 0)
                 break;
             bufferLength += amountRead;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2020,2023 SAP SE and IBM Corporation.
+ * Copyright (c) 2020,2026 SAP SE and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP SE (Ralf Schmelter) - Initial implementation
  *    Andrew Johnson - minor fixes
+ *    IBM Corporation - parallel compression of chunks
  *******************************************************************************/
 package org.eclipse.mat.hprof;
 
@@ -26,11 +27,13 @@ import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -38,6 +41,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
@@ -509,8 +516,10 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
     {
         Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
         CRC32 crc = new CRC32();
+        /** The default chunk size for multi-member gzip files */
+        public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
         /** Chunk size for multi-member gzip files, 0 means no chunks */
-        int chunkSize = 1024 * 1024;
+        int chunkSize = DEFAULT_CHUNK_SIZE;
         String comment = HPROF_BLOCKSIZE + chunkSize;
         boolean writtenComment = false;
         boolean writeHeader = true;
@@ -520,6 +529,11 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
         int left;
         DeflaterOutputStream dos;
         String fn;
+        /** Compresses the chunks in parallel, null when compressing on this thread */
+        MemberWriter members;
+        /** The uncompressed data of the next chunk for parallel compression */
+        byte[] chunk;
+        int count;
 
         /**
          * Create a chunked (multi-member) GZIP output stream. 
@@ -541,6 +555,28 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
         {
             this(os, originalFile);
             this.chunkSize = chunkSize;
+            this.comment = HPROF_BLOCKSIZE + chunkSize;
+        }
+
+        /**
+         * Create a chunked (multi-member) GZIP output stream which compresses
+         * the chunks in parallel. The output is the same as from a single thread,
+         * with the chunks deflated by worker threads and written in order.
+         * @param os The stream into which to put the compressed data.
+         * @param originalFile The original file, for a name and time-stamp in the header, 
+         * or null for no name and the current time.
+         * @param chunkSize the chunk size, or 0 for no multiple members.
+         * @param threads the number of threads compressing chunks, 1 to compress on the calling thread.
+         */
+        public ChunkedGZIPOutputStream(OutputStream os, File originalFile, int chunkSize, int threads)
+        {
+            this(os, originalFile, chunkSize);
+            // A single member cannot be split between threads
+            if (threads > 1 && chunkSize != 0)
+            {
+                members = new MemberWriter(threads);
+                chunk = new byte[chunkSize];
+            }
         }
 
         /**
@@ -600,6 +636,13 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
         @Override
         public void write(int b) throws IOException
         {
+            if (members != null)
+            {
+                chunk[count++] = (byte)b;
+                if (count >= chunkSize)
+                    submitChunk();
+                return;
+            }
             if (writeHeader)
             {
                 header();
@@ -615,6 +658,20 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
         @Override
         public void write(byte b[], int offset, int len) throws IOException
         {
+            if (members != null)
+            {
+                while (len > 0)
+                {
+                    int len1 = Math.min(len, chunkSize - count);
+                    System.arraycopy(b, offset, chunk, count, len1);
+                    count += len1;
+                    offset += len1;
+                    len -= len1;
+                    if (count >= chunkSize)
+                        submitChunk();
+                }
+                return;
+            }
             while (len > 0)
             {
                 if (writeHeader)
@@ -633,12 +690,25 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
         {
             def.reset();
             crc.reset();
+            out.write(memberHeader());
+            dos = new DeflaterOutputStream(out, def, 65536);
+            left = chunkSize;
+            writeHeader = false;
+        }
+        /**
+         * The header of the next member, with the name and comment
+         * for the first member.
+         */
+        private byte[] memberHeader()
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CRC32 crc = new CRC32();
 
             // GZipOutputStream does not supports adding a comment, so we have to create
             // the gzip format by hand.
             if (writtenComment)
             {
-                out.write(defaultHeader);
+                out.write(defaultHeader, 0, defaultHeader.length);
                 crc.update(defaultHeader);
             }
             else
@@ -658,7 +728,7 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
                 {
                     // RFC 1952 requires ISO 8859-1 (LATIN-1)
                     byte[] fnBytes = fn.getBytes(StandardCharsets.ISO_8859_1);
-                    out.write(fnBytes);
+                    out.write(fnBytes, 0, fnBytes.length);
                     crc.update(fnBytes);
                     out.write(0); // Zero terminate file name
                     crc.update(0);
@@ -667,7 +737,7 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
                 {
                     // RFC 1952 requires ISO 8859-1 (LATIN-1)
                     byte[] commentBytes = comment.getBytes(StandardCharsets.ISO_8859_1);
-                    out.write(commentBytes);
+                    out.write(commentBytes, 0, commentBytes.length);
                     crc.update(commentBytes);
                     out.write(0); // Zero terminate comment
                     crc.update(0);
@@ -679,15 +749,28 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
                 out.write((int)(crc.getValue() & 0xff));
                 out.write((int)(crc.getValue() >> 8 & 0xff));
             }
-            crc.reset();
-            dos = new DeflaterOutputStream(out, def, 65536);
-            left = chunkSize;
-            writeHeader = false;
+            return out.toByteArray();
+        }
+        /**
+         * Hands the current chunk to a worker thread as the next member.
+         */
+        private void submitChunk() throws IOException
+        {
+            members.submit(memberHeader(), chunk, count, out);
+            chunk = new byte[chunkSize];
+            count = 0;
         }
         @Override
         public void flush() throws IOException
         {
-            if (!writeHeader)
+            if (members != null)
+            {
+                // As for a single thread, a flush ends the member
+                if (count > 0)
+                    submitChunk();
+                members.drain(out);
+            }
+            else if (!writeHeader)
             {
                 dos.finish();
                 int crcVal = (int) crc.getValue();
@@ -700,6 +783,23 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
         @Override
         public void close() throws IOException
         {
+            if (members != null)
+            {
+                try
+                {
+                    // for zero length files we still want to generate a gzip
+                    if (count > 0 || !writtenComment)
+                        submitChunk();
+                    members.drain(out);
+                }
+                finally
+                {
+                    members.close();
+                    def.end();
+                    super.close();
+                }
+                return;
+            }
             try
             {
                 // for zero length files we still want to generate a gzip
@@ -717,8 +817,114 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
         }
     }
 
+    /**
+     * Deflates the members of a chunked gzip file on worker threads,
+     * and writes them out in order on the calling thread.
+     * Only a few members are held in memory waiting to be written.
+     */
+    private static final class MemberWriter
+    {
+        private final ExecutorService executor;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+        private final int maxPending;
+
+        MemberWriter(int threads)
+        {
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "MAT-GZIP"); //$NON-NLS-1$
+                t.setDaemon(true);
+                return t;
+            });
+            maxPending = 2 * threads;
+        }
+
+        /**
+         * Compress the next member.
+         * @param header the gzip header for the member
+         * @param data the uncompressed data, no longer used by the caller
+         * @param len the length of the data
+         * @param out where to write completed members if too many are waiting
+         * @throws IOException on error compressing or writing
+         */
+        void submit(byte[] header, byte[] data, int len, OutputStream out) throws IOException
+        {
+            pending.add(executor.submit(() -> member(header, data, len)));
+            while (pending.size() > maxPending)
+                writeNext(out);
+        }
+
+        /**
+         * Write out all the submitted members.
+         * @param out the compressed output
+         * @throws IOException on error compressing or writing
+         */
+        void drain(OutputStream out) throws IOException
+        {
+            while (!pending.isEmpty())
+                writeNext(out);
+        }
+
+        private void writeNext(OutputStream out) throws IOException
+        {
+            Future<byte[]> f = pending.remove();
+            try
+            {
+                out.write(f.get());
+            }
+            catch (InterruptedException e)
+            {
+                throw (InterruptedIOException)new InterruptedIOException().initCause(e);
+            }
+            catch (ExecutionException e)
+            {
+                Throwable t = e.getCause();
+                if (t instanceof IOException)
+                    throw (IOException)t;
+                if (t instanceof RuntimeException)
+                    throw (RuntimeException)t;
+                if (t instanceof Error)
+                    throw (Error)t;
+                throw new IOException(t);
+            }
+        }
+
+        void close()
+        {
+            for (Future<byte[]> f : pending)
+                f.cancel(true);
+            pending.clear();
+            executor.shutdownNow();
+        }
+
+        /**
+         * A complete gzip member, header, deflated data and trailer.
+         */
+        private static byte[] member(byte[] header, byte[] data, int len) throws IOException
+        {
+            Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try
+            {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(header.length + len / 2 + 64);
+                bos.write(header, 0, header.length);
+                DeflaterOutputStream dos = new DeflaterOutputStream(bos, def, 65536);
+                dos.write(data, 0, len);
+                dos.finish();
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, len);
+                writeInt((int) crc.getValue(), bos);
+                writeInt(len, bos);
+                return bos.toByteArray();
+            }
+            finally
+            {
+                def.end();
+            }
+        }
+    }
+
     /**
      * Compressed a file to a chunked gzipped file.
+     * The chunks are compressed in parallel.
      *
      * @param toCompress The file to gzip.
      * @param compressed The gzipped file.
@@ -728,7 +934,8 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
     {
         try (InputStream is = new BufferedInputStream(new FileInputStream(toCompress), 64 * 1024);
              FileOutputStream fos = new FileOutputStream(compressed);
-             OutputStream os = new ChunkedGZIPOutputStream(new BufferedOutputStream(fos, 64 * 1024), toCompress))
+             OutputStream os = new ChunkedGZIPOutputStream(new BufferedOutputStream(fos, 64 * 1024), toCompress,
+                             ChunkedGZIPOutputStream.DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors()))
         {
             FileUtils.copy(is, os);
         }
@@ -755,53 +962,43 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
     /**
      * Compressed a file to a chunked gzipped file.
      * Note that there is no header CRC.
+     * The chunks are compressed in parallel.
      * @param toCompress The file to gzip.
      * @param compressed The gzipped file.
      * @throws IOException On error.
      */
     public static void compressFileChunked2(File toCompress, File compressed) throws IOException
     {
-        Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
-        CRC32 crc = new CRC32();
         boolean finished = false;
-        int chunkSize = 1024 * 1024;
+        int chunkSize = ChunkedGZIPOutputStream.DEFAULT_CHUNK_SIZE;
         String comment = HPROF_BLOCKSIZE + chunkSize;
-        boolean writtenComment = false;
-        byte[] readBuf = new byte[chunkSize];
         byte[] defaultHeader = new byte[] {
            (byte) 0x1f, (byte) 0x8b, (byte) 8, 0, 0, 0, 0, 0, 0, 0
         };
 
+        // GZipOutputStream does not supports adding a comment, so we have to create
+        // the gzip format by hand.
+        ByteArrayOutputStream firstHeader = new ByteArrayOutputStream();
+        firstHeader.write(defaultHeader, 0, 3);
+        firstHeader.write(16); // We have a comment.
+        firstHeader.write(defaultHeader, 4, 6);
+        byte[] commentBytes = comment.getBytes(StandardCharsets.US_ASCII);
+        firstHeader.write(commentBytes, 0, commentBytes.length);
+        firstHeader.write(0); // Zero terminate comment
+        byte[] header = firstHeader.toByteArray();
+
+        MemberWriter members = new MemberWriter(Runtime.getRuntime().availableProcessors());
         try (InputStream is = new BufferedInputStream(new FileInputStream(toCompress), 64 * 1024);
              OutputStream os = new BufferedOutputStream(new FileOutputStream(compressed), 64 * 1024))
         {
             while (!finished)
             {
-                def.reset();
-                crc.reset();
-
-                // GZipOutputStream does not supports adding a comment, so we have to create
-                // the gzip format by hand.
-                if (writtenComment)
-                {
-                    os.write(defaultHeader);
-                }
-                else
-                {
-                    os.write(defaultHeader, 0, 3);
-                    os.write(16); // We have a comment.
-                    os.write(defaultHeader, 4, 6);
-                    os.write(comment.getBytes(StandardCharsets.US_ASCII));
-                    os.write(0); // Zero terminate comment
-                    writtenComment = true;
-                }
-
-                int left = chunkSize;
-                DeflaterOutputStream dos = new DeflaterOutputStream(os, def, 65536);
+                byte[] readBuf = new byte[chunkSize];
+                int len = 0;
 
-                while (left > 0)
+                while (len < chunkSize)
                 {
-                    int read = is.read(readBuf, 0, left);
+                    int read = is.read(readBuf, len, chunkSize - len);
 
                     if (read <= 0)
                     {
@@ -809,21 +1006,17 @@ public class ChunkedGZIPRandomAccessFile extends RandomAccessFile
                         break;
                     }
 
-                    dos.write(readBuf, 0, read);
-                    crc.update(readBuf, 0, read);
-                    left -= read;
+                    len += read;
                 }
 
-                dos.finish();
-
-                int crcVal = (int) crc.getValue();
-                writeInt(crcVal, os);
-                writeInt(chunkSize - left, os);
+                members.submit(header, readBuf, len, os);
+                header = defaultHeader;
             }
+            members.drain(os);
         }
         finally
         {
-            def.finish();
+            members.close();
         }
     }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2023 IBM Corporation
+ * Copyright (c) 2018, 2026 IBM Corporation
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    Andrew Johnson/IBM Corporation - initial API and implementation
+ *    IBM Corporation - generate object records in parallel
  *******************************************************************************/
 
 /**
@@ -33,10 +34,12 @@ import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -55,6 +58,10 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -161,6 +168,10 @@ public class ExportHprof implements IQuery
     /** How big a heap dump segment can grow before it needs to be split */
     public long segsize = 0xffffffffL;
 
+    @Argument(isMandatory = false)
+    /** Threads generating the object records, 1 to generate them all on the calling thread */
+    public int threads = Runtime.getRuntime().availableProcessors();
+
     /** Strings to HPROF ID */
     HashMap<String, Integer> stringToID = new HashMap<String, Integer>();
     int nextStringID = 1;
@@ -373,7 +384,10 @@ public class ExportHprof implements IQuery
         {
             if (chunked)
             {
-                outstream = new ChunkedGZIPRandomAccessFile.ChunkedGZIPOutputStream(outstream, output);
+                // The chunks are independent so can be compressed in parallel
+                outstream = new ChunkedGZIPRandomAccessFile.ChunkedGZIPOutputStream(outstream, output,
+                                ChunkedGZIPRandomAccessFile.ChunkedGZIPOutputStream.DEFAULT_CHUNK_SIZE,
+                                Runtime.getRuntime().availableProcessors());
             }
             else
             {
@@ -450,51 +464,58 @@ public class ExportHprof implements IQuery
             /*
              * Possibly multiple segments needed for objects
              */
-            int maxObjects = Integer.MAX_VALUE;
-            int st = 0;
-            do
+            if (threads > 1)
             {
-                ++segnum;
-
-                // Segment length measurer
-                os2 = new DataOutputStream3(new NullStream());
-                // Object measurer
-                DataOutputStream3 os3 = new DataOutputStream3(new NullStream());
-                long m1 = os2.size();
-                listener.subTask(MessageUtil.format(Messages.ExportHprof_PrepareObjects, segnum));
-                boolean saveSkip = skipData;
-                skipData = true;
-                int end = dumpObjects(os2, os3, st, maxObjects, true, listener);
-                skipData = saveSkip;
-                long m2 = os2.size();
-                long s2 = m2 - m1;
-                os3.close();
-
-                long sizel = s2;
-
-                long segStart = os.size();
-                if (sizel > 0xffffffffL || sizel > segsize)
+                dumpObjectsParallel(os, segnum, startTime, ct2, listener);
+            }
+            else
+            {
+                int maxObjects = Integer.MAX_VALUE;
+                int st = 0;
+                do
                 {
-                    // Too big, but carry on
-                    listener.sendUserMessage(IProgressListener.Severity.WARNING,
-                                    MessageUtil.format(Messages.ExportHprof_SegmentTooLong, segnum, Long.toHexString(segStart), sizel), null);
-                }
-
-                os.writeByte(Constants.Record.HEAP_DUMP_SEGMENT);
-                os.writeInt((int) (System.currentTimeMillis() - startTime));
-                os.writeInt((int)sizel);
+                    ++segnum;
+
+                    // Segment length measurer
+                    os2 = new DataOutputStream3(new NullStream());
+                    // Object measurer
+                    DataOutputStream3 os3 = new DataOutputStream3(new NullStream());
+                    long m1 = os2.size();
+                    listener.subTask(MessageUtil.format(Messages.ExportHprof_PrepareObjects, segnum));
+                    boolean saveSkip = skipData;
+                    skipData = true;
+                    int end = dumpObjects(os2, os3, st, maxObjects, true, listener);
+                    skipData = saveSkip;
+                    long m2 = os2.size();
+                    long s2 = m2 - m1;
+                    os3.close();
+
+                    long sizel = s2;
+
+                    long segStart = os.size();
+                    if (sizel > 0xffffffffL || sizel > segsize)
+                    {
+                        // Too big, but carry on
+                        listener.sendUserMessage(IProgressListener.Severity.WARNING,
+                                        MessageUtil.format(Messages.ExportHprof_SegmentTooLong, segnum, Long.toHexString(segStart), sizel), null);
+                    }
 
-                long checkmark1 = os.size();
-                listener.subTask(MessageUtil.format(Messages.ExportHprof_DumpObjects, segnum));
-                st = dumpObjects(os, os2, st, end, false, listener);
-                long checkmark2 = os.size();
-                long size2 = checkmark2 - checkmark1;
-                if (size2 != sizel)
-                {
-                    listener.sendUserMessage(IProgressListener.Severity.WARNING,
-                                    MessageUtil.format(Messages.ExportHprof_SegmentSizeMismatch, segnum, sizel, size2, Long.toHexString(segStart)), null);
-                }
-            } while (st > 0 && st < maxObjects);
+                    os.writeByte(Constants.Record.HEAP_DUMP_SEGMENT);
+                    os.writeInt((int) (System.currentTimeMillis() - startTime));
+                    os.writeInt((int)sizel);
+
+                    long checkmark1 = os.size();
+                    listener.subTask(MessageUtil.format(Messages.ExportHprof_DumpObjects, segnum));
+                    st = dumpObjects(os, os2, st, end, false, listener);
+                    long checkmark2 = os.size();
+                    long size2 = checkmark2 - checkmark1;
+                    if (size2 != sizel)
+                    {
+                        listener.sendUserMessage(IProgressListener.Severity.WARNING,
+                                        MessageUtil.format(Messages.ExportHprof_SegmentSizeMismatch, segnum, sizel, size2, Long.toHexString(segStart)), null);
+                    }
+                } while (st > 0 && st < maxObjects);
+            }
 
             os.writeByte(Constants.Record.HEAP_DUMP_END);
             os.writeInt((int) (System.currentTimeMillis() - startTime));
@@ -1449,6 +1470,364 @@ public class ExportHprof implements IQuery
         return i;
     }
 
+    /**
+     * Some consecutive objects in the order they are dumped.
+     */
+    private static final class ObjectBlock
+    {
+        /** The object ids, or null for the object ids from..to */
+        final int objs[];
+        final int from;
+        final int to;
+        /** The size of the records for the objects */
+        long size;
+        /** The size of the heap dump segment starting with this block, or -1 if none starts here */
+        long segment = -1;
+
+        ObjectBlock(int objs[], int from, int to, long size)
+        {
+            this.objs = objs;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+        }
+
+        int objectId(int k)
+        {
+            return objs != null ? objs[k] : k;
+        }
+    }
+
+    /**
+     * The records for a block of objects, generated by a worker thread.
+     */
+    private static final class ObjectRecords
+    {
+        byte data[];
+        long size;
+        int objects;
+        int classloaders;
+        long bytes;
+    }
+
+    /** Blocks generating records bigger than this are generated on the calling thread to save memory */
+    private static final long MAX_BUFFERED_RECORDS = 32 * 1024 * 1024;
+
+    /**
+     * Dump all the objects into heap dump segments, with worker threads generating
+     * the records for blocks of objects and the calling thread writing them in order.
+     * The output is the same as when the calling thread generates all the records.
+     * @param os the main out stream
+     * @param segnum the number of the last heap dump segment written
+     * @param startTime the time of the dump
+     * @param work the number of items of progress work for each pass over the objects
+     * @param listener to report progress
+     * @throws IOException
+     * @throws SnapshotException
+     */
+    private void dumpObjectsParallel(DataOutputStream3 os, int segnum, long startTime, int work, IProgressListener listener)
+                    throws IOException, SnapshotException
+    {
+        List<ObjectBlock> blocks = new ArrayList<ObjectBlock>();
+        long count = 0;
+        final int step = 10000;
+        if (objects != null)
+        {
+            for (int objs[] : objects)
+            {
+                for (int j = 0; j < objs.length; j += step)
+                    blocks.add(new ObjectBlock(objs, j, Math.min(j + step, objs.length), 0));
+                count += objs.length;
+            }
+        }
+        else
+        {
+            int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+            for (int j = 0; j < n; j += step)
+                blocks.add(new ObjectBlock(null, j, Math.min(j + step, n), 0));
+            count = n;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "MAT-ExportHprof"); //$NON-NLS-1$
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<ObjectRecords>> pending = new ArrayList<Future<ObjectRecords>>(blocks.size());
+        try
+        {
+            // Find the size of the records for each block
+            listener.subTask(MessageUtil.format(Messages.ExportHprof_PrepareObjects, segnum + 1));
+            long done = 0;
+            int submitted = 0;
+            for (int i = 0; i < blocks.size(); ++i)
+            {
+                while (submitted < blocks.size() && submitted < i + 2 * threads)
+                {
+                    final ObjectBlock b = blocks.get(submitted++);
+                    pending.add(executor.submit(() -> records(b, true)));
+                }
+                ObjectBlock b = blocks.get(i);
+                ObjectRecords r = records(pending.get(i));
+                pending.set(i, null);
+                b.size = r.size;
+                addTotals(r);
+                done = progress(b, done, count, work, listener);
+            }
+
+            List<ObjectBlock> pieces = segments(blocks);
+
+            // Generate and write the records
+            pending = new ArrayList<Future<ObjectRecords>>(pieces.size());
+            submitted = 0;
+            done = 0;
+            long segStart = 0;
+            long checkmark1 = 0;
+            long sizel = 0;
+            for (int i = 0; i < pieces.size(); ++i)
+            {
+                while (submitted < pieces.size() && submitted < i + 2 * threads)
+                {
+                    final ObjectBlock b = pieces.get(submitted++);
+                    // null if too big to hold in memory
+                    pending.add(b.size <= MAX_BUFFERED_RECORDS ? executor.submit(() -> records(b, false)) : null);
+                }
+                ObjectBlock b = pieces.get(i);
+                if (b.segment >= 0)
+                {
+                    if (i > 0)
+                        checkSegment(os, segnum, sizel, checkmark1, segStart, listener);
+                    ++segnum;
+                    sizel = b.segment;
+                    segStart = os.size();
+                    if (sizel > 0xffffffffL || sizel > segsize)
+                    {
+                        // Too big, but carry on
+                        listener.sendUserMessage(IProgressListener.Severity.WARNING,
+                                        MessageUtil.format(Messages.ExportHprof_SegmentTooLong, segnum, Long.toHexString(segStart), sizel), null);
+                    }
+
+                    os.writeByte(Constants.Record.HEAP_DUMP_SEGMENT);
+                    os.writeInt((int) (System.currentTimeMillis() - startTime));
+                    os.writeInt((int)sizel);
+
+                    checkmark1 = os.size();
+                    listener.subTask(MessageUtil.format(Messages.ExportHprof_DumpObjects, segnum));
+                }
+                if (pending.get(i) != null)
+                {
+                    ObjectRecords r = records(pending.get(i));
+                    pending.set(i, null);
+                    os.write(r.data);
+                    addTotals(r);
+                }
+                else
+                {
+                    // Too big to hold in memory, so write directly
+                    ExportHprof w = worker();
+                    DataOutputStream3 os2 = new DataOutputStream3(new NullStream());
+                    for (int k = b.from; k < b.to; ++k)
+                    {
+                        if (w.dumpObject(os, os2, snapshot.getObject(b.objectId(k)), false))
+                            ++totalObjects;
+                    }
+                    totalClassloaders += w.totalClassloaders;
+                    totalBytes += w.totalBytes;
+                }
+                done = progress(b, done, count, work, listener);
+            }
+            checkSegment(os, segnum, sizel, checkmark1, segStart, listener);
+        }
+        finally
+        {
+            for (Future<ObjectRecords> f : pending)
+            {
+                if (f != null)
+                    f.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Split the blocks of objects into heap dump segments, no bigger than the
+     * maximum size unless a segment holds just one object.
+     * @param blocks the blocks of objects, with the sizes of the records
+     * @return the blocks, split where a segment ends
+     * @throws IOException
+     * @throws SnapshotException
+     */
+    private List<ObjectBlock> segments(List<ObjectBlock> blocks) throws IOException, SnapshotException
+    {
+        List<ObjectBlock> pieces = new ArrayList<ObjectBlock>();
+        int first = 0;
+        long cur = 0;
+        // Whether the segment has objects, so the next one might not fit
+        boolean started = false;
+        for (ObjectBlock b : blocks)
+        {
+            if (cur + b.size <= segsize)
+            {
+                pieces.add(b);
+                cur += b.size;
+                started = true;
+                continue;
+            }
+            // Find which objects fit
+            long rec[] = recordSizes(b);
+            int from = b.from;
+            long part = 0;
+            for (int k = b.from; k < b.to; ++k)
+            {
+                long r = rec[k - b.from];
+                // Same test as for a single thread, the first object in a segment always fits
+                if (r > 0 && (started || k > from) && cur + part + r > segsize)
+                {
+                    if (k > from)
+                        pieces.add(new ObjectBlock(b.objs, from, k, part));
+                    pieces.get(first).segment = cur + part;
+                    first = pieces.size();
+                    cur = 0;
+                    part = 0;
+                    from = k;
+                    started = false;
+                }
+                part += r;
+            }
+            pieces.add(new ObjectBlock(b.objs, from, b.to, part));
+            cur += part;
+            started = true;
+        }
+        if (pieces.isEmpty())
+            pieces.add(new ObjectBlock(null, 0, 0, 0));
+        pieces.get(first).segment = cur;
+        return pieces;
+    }
+
+    /**
+     * The size of the record for each object in a block.
+     */
+    private long[] recordSizes(ObjectBlock b) throws IOException, SnapshotException
+    {
+        ExportHprof w = worker();
+        w.skipData = true;
+        DataOutputStream3 os = new DataOutputStream3(new NullStream());
+        DataOutputStream3 os2 = new DataOutputStream3(new NullStream());
+        long rec[] = new long[b.to - b.from];
+        for (int k = b.from; k < b.to; ++k)
+        {
+            long m1 = os.size();
+            w.dumpObject(os, os2, snapshot.getObject(b.objectId(k)), false);
+            rec[k - b.from] = os.size() - m1;
+        }
+        return rec;
+    }
+
+    /**
+     * Generate the records for a block of objects.
+     * Called by the worker threads.
+     * @param b the objects
+     * @param skip just find the size of the records
+     * @return the records and the totals
+     */
+    private ObjectRecords records(ObjectBlock b, boolean skip) throws IOException, SnapshotException
+    {
+        ExportHprof w = worker();
+        w.skipData = skip;
+        ByteArrayOutputStream bos = skip ? null : new ByteArrayOutputStream((int) b.size);
+        DataOutputStream3 os = new DataOutputStream3(skip ? new NullStream() : bos);
+        DataOutputStream3 os2 = new DataOutputStream3(new NullStream());
+        for (int k = b.from; k < b.to; ++k)
+        {
+            if (w.dumpObject(os, os2, snapshot.getObject(b.objectId(k)), false))
+                ++w.totalObjects;
+        }
+        os.close();
+        ObjectRecords r = new ObjectRecords();
+        r.data = skip ? null : bos.toByteArray();
+        r.size = os.size();
+        r.objects = w.totalObjects;
+        r.classloaders = w.totalClassloaders;
+        r.bytes = w.totalBytes;
+        return r;
+    }
+
+    /**
+     * Wait for a worker thread to generate some records.
+     */
+    private static ObjectRecords records(Future<ObjectRecords> f) throws IOException, SnapshotException
+    {
+        try
+        {
+            return f.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw (InterruptedIOException)new InterruptedIOException().initCause(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable t = e.getCause();
+            if (t instanceof IOException)
+                throw (IOException)t;
+            if (t instanceof SnapshotException)
+                throw (SnapshotException)t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException)t;
+            if (t instanceof Error)
+                throw (Error)t;
+            throw new SnapshotException(t);
+        }
+    }
+
+    /**
+     * A copy of this export for generating object records on another thread,
+     * with its own totals and data skipping flag.
+     */
+    private ExportHprof worker()
+    {
+        ExportHprof w = new ExportHprof();
+        w.snapshot = snapshot;
+        w.redact = redact;
+        w.remap = remap;
+        w.classesAsInstances = classesAsInstances;
+        w.segsize = segsize;
+        w.idsize = idsize;
+        w.classloaders = classloaders;
+        return w;
+    }
+
+    private void addTotals(ObjectRecords r)
+    {
+        totalObjects += r.objects;
+        totalClassloaders += r.classloaders;
+        totalBytes += r.bytes;
+    }
+
+    private void checkSegment(DataOutputStream3 os, int segnum, long sizel, long checkmark1, long segStart, IProgressListener listener)
+    {
+        long size2 = os.size() - checkmark1;
+        if (size2 != sizel)
+        {
+            listener.sendUserMessage(IProgressListener.Severity.WARNING,
+                            MessageUtil.format(Messages.ExportHprof_SegmentSizeMismatch, segnum, sizel, size2, Long.toHexString(segStart)), null);
+        }
+    }
+
+    /**
+     * Report the progress of a pass over the objects.
+     * @return the number of objects done
+     */
+    private long progress(ObjectBlock b, long done, long count, int work, IProgressListener listener)
+    {
+        long done2 = done + b.to - b.from;
+        if (count > 0)
+            listener.worked((int) (WORK_OBJECT * work * done2 / count - WORK_OBJECT * work * done / count));
+        if (listener.isCanceled())
+            throw new OperationCanceledException();
+        return done2;
+    }
+
     private void progress(int numberOfObjects, int j, IProgressListener listener)
     {
         // 1 : 1,1,1
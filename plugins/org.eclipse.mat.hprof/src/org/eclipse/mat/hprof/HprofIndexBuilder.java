@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,8 @@ import org.eclipse.mat.parser.IIndexBuilder;
 import org.eclipse.mat.parser.IPreliminaryIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
 import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.TriageResult;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SimpleMonitor;
@@ -69,16 +71,8 @@ public class HprofIndexBuilder implements IIndexBuilder
         mon.beginTask(MessageUtil.format(Messages.HprofIndexBuilder_Scanning, new Object[] { file.getAbsolutePath() }),
                         pass1Work);
         Pass1Parser pass1 = new Pass1Parser(handler, mon, strictnessPreference);
-        Serializable id = preliminary.getSnapshotInfo().getProperty("$runtimeId"); //$NON-NLS-1$
-        String dumpNrToRead;
-        if (id instanceof String)
-        {
-            dumpNrToRead = (String)id;
-        }
-        else
-        {
-            dumpNrToRead = pass1.determineDumpNumber();
-        }
+        String dumpNrToRead = dumpNumber(preliminary.getSnapshotInfo(), pass1);
+        follow(preliminary.getSnapshotInfo(), pass1);
         pass1.read(file, prefix, dumpNrToRead, estimatedLength);
 
         if (listener.isCanceled())
@@ -130,6 +124,56 @@ public class HprofIndexBuilder implements IIndexBuilder
         id2position = handler.fillIn(preliminary, listener);
     }
 
+    /**
+     * Just pass1 with a handler which only keeps totals per class.
+     */
+    @Override
+    public TriageResult triage(XSnapshotInfo snapshotInfo, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
+        HprofPreferences.HprofStrictness strictnessPreference = HprofPreferences.getCurrentStrictness();
+
+        SimpleMonitor monitor = new SimpleMonitor(MessageUtil.format(Messages.HprofIndexBuilder_Parsing,
+                        new Object[] { file.getAbsolutePath() }), listener, new int[] { 1000 });
+
+        HprofTriageHandler handler = new HprofTriageHandler();
+        handler.beforePass1(snapshotInfo);
+        long estimatedLength = CompressedRandomAccessFile.estimatedLength(file);
+        int pass1Work = (int) (CompressedRandomAccessFile.estimateWork(file) / 1000);
+
+        SimpleMonitor.Listener mon = (SimpleMonitor.Listener) monitor.nextMonitor();
+        mon.beginTask(MessageUtil.format(Messages.HprofIndexBuilder_Scanning, new Object[] { file.getAbsolutePath() }),
+                        pass1Work);
+        Pass1Parser pass1 = new Pass1Parser(handler, mon, strictnessPreference);
+        follow(snapshotInfo, pass1);
+        pass1.read(file, prefix, dumpNumber(snapshotInfo, pass1), estimatedLength);
+
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        mon.done();
+
+        return handler.result();
+    }
+
+    private String dumpNumber(XSnapshotInfo snapshotInfo, Pass1Parser pass1)
+    {
+        Serializable id = snapshotInfo.getProperty("$runtimeId"); //$NON-NLS-1$
+        if (id instanceof String)
+            return (String) id;
+        return pass1.determineDumpNumber();
+    }
+
+    /**
+     * Whether to read a dump which is still being written or copied.
+     */
+    private void follow(XSnapshotInfo snapshotInfo, Pass1Parser pass1)
+    {
+        Serializable timeout = snapshotInfo.getProperty("follow_timeout"); //$NON-NLS-1$
+        if (timeout instanceof Integer && (Integer) timeout > 0)
+            pass1.setFollowTimeout((Integer) timeout * 1000L);
+    }
+
     public void clean(final int[] purgedMapping, IProgressListener listener) throws IOException
     {
 
@@ -181,15 +225,49 @@ public class HprofIndexBuilder implements IIndexBuilder
     {
         private final IOne2LongIndex id2position;
         private final int[] purgedMapping;
+        private final int[] order;
         private int nextIndex = -1;
+        private int position;
 
         private IndexIterator(IOne2LongIndex id2position, int[] purgedMapping)
         {
             this.id2position = id2position;
             this.purgedMapping = purgedMapping;
+            this.order = order(purgedMapping);
             findNext();
         }
 
+        /**
+         * The old ids in the order of the new ids, if the objects have been
+         * reordered rather than just having the discarded objects removed.
+         * @param purgedMapping old id to new id, -1 for discarded objects
+         * @return the old ids, or null if the new ids are in the order of the old ids
+         */
+        private static int[] order(int[] purgedMapping)
+        {
+            int count = 0;
+            int last = -1;
+            boolean ordered = true;
+            for (int newId : purgedMapping)
+            {
+                if (newId >= 0)
+                {
+                    ordered &= newId > last;
+                    last = newId;
+                    ++count;
+                }
+            }
+            if (ordered)
+                return null;
+            int[] order = new int[count];
+            for (int ii = 0; ii < purgedMapping.length; ++ii)
+            {
+                if (purgedMapping[ii] >= 0)
+                    order[purgedMapping[ii]] = ii;
+            }
+            return order;
+        }
+
         public boolean hasNext()
         {
             return nextIndex < purgedMapping.length;
@@ -204,6 +282,11 @@ public class HprofIndexBuilder implements IIndexBuilder
 
         protected void findNext()
         {
+            if (order != null)
+            {
+                nextIndex = position < order.length ? order[position++] : purgedMapping.length;
+                return;
+            }
             nextIndex++;
             while (nextIndex < purgedMapping.length && purgedMapping[nextIndex] < 0)
                 nextIndex++;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -598,14 +598,11 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
     {
         if (!clazz.isArrayType())
         {
-            if (clazz.getSuperClassAddress() != 0)
-            {
-                ClassImpl superClass = classesByAddress.get(clazz.getSuperClassAddress());
-                // Base the size of a stack frame on the number of locals, set in pass1.
-                if (superClass.getName().equals("<method>")) //$NON-NLS-1$
-                    return (int) clazz.getHeapSizePerInstance();
-            }
-            return alignUpToX(calculateSizeRecursive(clazz), objectAlign);
+            // Base the size of a stack frame on the number of locals, set in pass1.
+            if (ObjectSizes.isStackFrame(clazz, classesByAddress))
+                return (int) clazz.getHeapSizePerInstance();
+            // Missing superclasses have been replaced by fake classes
+            return ObjectSizes.alignUpToX(ObjectSizes.instanceSize(clazz, classesByAddress, pointerSize, refSize), objectAlign);
         }
         else
         {
@@ -615,47 +612,9 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
         }
     }
 
-	private int calculateSizeRecursive(ClassImpl clazz)
-	{
-		if (clazz.getSuperClassAddress() == 0)
-		{
-			return pointerSize + refSize;
-		}
-		ClassImpl superClass = classesByAddress.get(clazz.getSuperClassAddress());
-		int ownFieldsSize = 0;
-		for (FieldDescriptor field : clazz.getFieldDescriptors())
-			ownFieldsSize += sizeOf(field);
-
-		return alignUpToX(ownFieldsSize + calculateSizeRecursive(superClass), refSize);
-	}
-
     private int calculateClassSize(ClassImpl clazz)
     {
-        int staticFieldsSize = 0;
-        for (Field field : clazz.getStaticFields())
-            staticFieldsSize += sizeOf(field);
-        return alignUpToX(staticFieldsSize, objectAlign);
-    }
-
-    private int sizeOf(FieldDescriptor field)
-    {
-        int type = field.getType();
-        if (type == IObject.Type.OBJECT)
-            return refSize;
-
-        return IPrimitiveArray.ELEMENT_SIZE[type];
-    }
-
-    private int alignUpToX(int n, int x)
-    {
-        int r = n % x;
-        return r == 0 ? n : n + x - r;
-    }
-
-    private long alignUpToX(long n, int x)
-    {
-        long r = n % x;
-        return r == 0 ? n : n + x - r;
+        return ObjectSizes.alignUpToX(ObjectSizes.staticsSize(clazz, refSize), objectAlign);
     }
 
     public IOne2LongIndex fillIn(IPreliminaryIndex index, IProgressListener listener) throws IOException
@@ -1291,13 +1250,13 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
 
     public long getObjectArrayHeapSize(ClassImpl arrayType, int size)
     {
-        long usedHeapSize = alignUpToX(pointerSize + refSize + 4 + size * arrayType.getHeapSizePerInstance(), objectAlign);
+        long usedHeapSize = ObjectSizes.alignUpToX(ObjectSizes.objectArrayHeader(pointerSize, refSize) + size * arrayType.getHeapSizePerInstance(), objectAlign);
         return usedHeapSize;
     }
 
     public long getPrimitiveArrayHeapSize(byte elementType, int size)
     {
-        long usedHeapSize = alignUpToX(alignUpToX(pointerSize + refSize + 4, refSize) + size * (long)PrimitiveArrayImpl.ELEMENT_SIZE[(int) elementType], objectAlign);
+        long usedHeapSize = ObjectSizes.alignUpToX(ObjectSizes.primitiveArrayHeader(pointerSize, refSize) + size * (long)PrimitiveArrayImpl.ELEMENT_SIZE[(int) elementType], objectAlign);
         return usedHeapSize;
     }
 
@@ -0,0 +1,636 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.hprof;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.eclipse.mat.collect.HashMapLongObject;
+import org.eclipse.mat.collect.SetLong;
+import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.IPreliminaryIndex;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
+import org.eclipse.mat.parser.model.ClassImpl;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.ClassLoaderHistogramRecord;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.TriageResult;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * Summarizes a dump from the records reported by {@link Pass1Parser}, without
+ * building any indexes. Only the classes and per-class totals are kept, so the
+ * memory needed depends on the number of classes, not the number of objects.
+ * The object sizes are calculated with {@link ObjectSizes}, as by
+ * {@link HprofParserHandlerImpl}, once the whole dump has been read, as the object alignment and the class
+ * definitions are only known then.
+ * <p>
+ * Only {@link Pass1Parser} is run, so the methods for the second pass and for
+ * arrays of unknown length are never called and do nothing.
+ */
+/* package */class HprofTriageHandler implements IHprofParserHandler
+{
+    /** Number of biggest objects to find unless set by the triage_top option */
+    private static final int DEFAULT_TOP = 25;
+    private static final int MIN_ALIGN = 8;
+    private static final int MAX_ALIGN = 256;
+
+    /**
+     * Objects of one class. Array lengths are also counted modulo the maximum
+     * alignment, so that the padding of each array can be found for the
+     * alignment finally chosen.
+     */
+    private static class Counts
+    {
+        long numberOfObjects;
+        int payload;
+        long elements;
+        long lengths[];
+
+        void addArray(int length)
+        {
+            numberOfObjects++;
+            elements += length;
+            if (lengths == null)
+                lengths = new long[MAX_ALIGN];
+            lengths[length & (MAX_ALIGN - 1)]++;
+        }
+    }
+
+    /**
+     * Possibly one of the biggest objects, ordered by the size known while
+     * reading the dump.
+     */
+    private static class Candidate
+    {
+        long address;
+        long classIdOrElementType;
+        boolean isObjectArray;
+        boolean isPrimitiveArray;
+        int lengthOrPayload;
+        long estimate;
+    }
+
+    private static class Total
+    {
+        String label;
+        long classLoaderAddress;
+        long numberOfObjects;
+        long usedHeapSize;
+
+        Total(String label, long classLoaderAddress)
+        {
+            this.label = label;
+            this.classLoaderAddress = classLoaderAddress;
+        }
+    }
+
+    private XSnapshotInfo info;
+    private int pointerSize;
+    private int refSize;
+    private int top = DEFAULT_TOP;
+
+    private HashMapLongObject<ClassImpl> classesByAddress = new HashMapLongObject<ClassImpl>();
+    private Map<String, List<ClassImpl>> classesByName = new HashMap<String, List<ClassImpl>>();
+    private HashMapLongObject<Counts> instances = new HashMapLongObject<Counts>();
+    private HashMapLongObject<Counts> objectArrays = new HashMapLongObject<Counts>();
+    private Counts primitiveArrays[] = new Counts[IPrimitiveArray.TYPE.length];
+    private SetLong classLoaders = new SetLong();
+    private HashMapLongObject<Long> classLoaderTypes = new HashMapLongObject<Long>();
+    private PriorityQueue<Candidate> biggest = new PriorityQueue<Candidate>(Comparator.comparingLong(c -> c.estimate));
+    // The addresses of the GC roots of each type, as there are far fewer roots than objects
+    private Map<Integer, SetLong> gcRoots = new TreeMap<Integer, SetLong>();
+
+    // The alignment between objects, as the GCD of the differences from the first address
+    private long firstAddress;
+    private long align;
+
+    // //////////////////////////////////////////////////////////////
+    // lifecycle
+    // //////////////////////////////////////////////////////////////
+
+    public void beforePass1(XSnapshotInfo snapshotInfo) throws IOException
+    {
+        this.info = snapshotInfo;
+        if (info.getProperty("triage_top") instanceof Integer) //$NON-NLS-1$
+            top = (Integer) info.getProperty("triage_top"); //$NON-NLS-1$
+    }
+
+    public void beforePass2(IProgressListener monitor)
+    {
+        // Triage stops after the first pass
+    }
+
+    public IOne2LongIndex fillIn(IPreliminaryIndex index, IProgressListener listener)
+    {
+        // No index is built, see result()
+        return null;
+    }
+
+    public void cancel()
+    {}
+
+    /**
+     * Build the summary once the whole dump has been read.
+     * @return the histogram, class loader totals and biggest objects
+     */
+    public TriageResult result()
+    {
+        int objectAlign = objectAlign();
+        HashMapLongObject<Total> totals = new HashMapLongObject<Total>();
+        List<Total> others = new ArrayList<Total>();
+
+        for (Iterator<HashMapLongObject.Entry<Counts>> it = instances.entries(); it.hasNext();)
+        {
+            HashMapLongObject.Entry<Counts> e = it.next();
+            Total total = total(totals, e.getKey());
+            total.numberOfObjects += e.getValue().numberOfObjects;
+            total.usedHeapSize += e.getValue().numberOfObjects
+                            * instanceSize(classesByAddress.get(e.getKey()), e.getValue().payload, objectAlign);
+        }
+
+        for (Iterator<HashMapLongObject.Entry<Counts>> it = objectArrays.entries(); it.hasNext();)
+        {
+            HashMapLongObject.Entry<Counts> e = it.next();
+            Total total = total(totals, e.getKey());
+            total.numberOfObjects += e.getValue().numberOfObjects;
+            total.usedHeapSize += arraysSize(e.getValue(), objectArrayHeader(), refSize, objectAlign);
+        }
+
+        for (int type = 0; type < primitiveArrays.length; ++type)
+        {
+            Counts counts = primitiveArrays[type];
+            if (counts == null)
+                continue;
+            IClass cls = lookupPrimitiveArrayClassByType((byte) type);
+            Total total;
+            if (cls != null)
+            {
+                total = total(totals, cls.getObjectAddress());
+            }
+            else
+            {
+                total = new Total(IPrimitiveArray.TYPE[type], 0);
+                others.add(total);
+            }
+            total.numberOfObjects += counts.numberOfObjects;
+            total.usedHeapSize += arraysSize(counts, primitiveArrayHeader(), IPrimitiveArray.ELEMENT_SIZE[type],
+                            objectAlign);
+        }
+
+        // The class objects themselves
+        ClassImpl javaLangClass = (ClassImpl) lookupClassByName(IClass.JAVA_LANG_CLASS, false);
+        boolean classFields = HprofPreferences.useAdditionalClassReferences();
+        for (Iterator<ClassImpl> it = classesByAddress.values(); it.hasNext();)
+        {
+            ClassImpl clazz = it.next();
+            ClassImpl type = clazz.getClazz() != null ? clazz.getClazz() : javaLangClass;
+            if (type == null)
+                continue;
+            long size = alignUpToX(ObjectSizes.staticsSize(clazz, refSize), objectAlign);
+            if (classFields && clazz.getClazz() == null)
+                size += instanceSize(javaLangClass, 0, objectAlign);
+            Total total = total(totals, type.getObjectAddress());
+            total.numberOfObjects++;
+            total.usedHeapSize += size;
+        }
+
+        // The dummy object for the system class loader
+        ClassImpl classLoaderClass = (ClassImpl) lookupClassByName(IClass.JAVA_LANG_CLASSLOADER, false);
+        if (classLoaderClass != null)
+        {
+            Total total = total(totals, classLoaderClass.getObjectAddress());
+            total.numberOfObjects++;
+            total.usedHeapSize += instanceSize(classLoaderClass, 0, objectAlign);
+        }
+
+        for (Iterator<Total> it = totals.values(); it.hasNext();)
+            others.add(it.next());
+
+        // Aggregate by class loader
+        ArrayList<ClassHistogramRecord> classRecords = new ArrayList<ClassHistogramRecord>(others.size());
+        HashMapLongObject<ArrayList<ClassHistogramRecord>> byLoader = new HashMapLongObject<ArrayList<ClassHistogramRecord>>();
+        long numberOfObjects = 0;
+        long usedHeapSize = 0;
+        for (Total total : others)
+        {
+            ClassHistogramRecord record = new ClassHistogramRecord(total.label, -1, total.numberOfObjects,
+                            total.usedHeapSize, 0);
+            classRecords.add(record);
+            ArrayList<ClassHistogramRecord> loaderRecords = byLoader.get(total.classLoaderAddress);
+            if (loaderRecords == null)
+                byLoader.put(total.classLoaderAddress, loaderRecords = new ArrayList<ClassHistogramRecord>());
+            loaderRecords.add(record);
+            numberOfObjects += total.numberOfObjects;
+            usedHeapSize += total.usedHeapSize;
+        }
+
+        ArrayList<ClassLoaderHistogramRecord> loaderRecords = new ArrayList<ClassLoaderHistogramRecord>(byLoader.size());
+        for (Iterator<HashMapLongObject.Entry<ArrayList<ClassHistogramRecord>>> it = byLoader.entries(); it.hasNext();)
+        {
+            HashMapLongObject.Entry<ArrayList<ClassHistogramRecord>> e = it.next();
+            long loaderObjects = 0;
+            long loaderSize = 0;
+            for (ClassHistogramRecord record : e.getValue())
+            {
+                loaderObjects += record.getNumberOfObjects();
+                loaderSize += record.getUsedHeapSize();
+            }
+            loaderRecords.add(new ClassLoaderHistogramRecord(classLoaderLabel(e.getKey()), -1, e.getValue(),
+                            loaderObjects, loaderSize, 0));
+        }
+
+        Histogram histogram = new Histogram(MessageUtil.format(Messages.HprofTriageHandler_Histogram,
+                        new File(info.getPath()).getName()), classRecords, loaderRecords, numberOfObjects,
+                        usedHeapSize, 0);
+
+        // The biggest objects with their final sizes
+        List<TriageResult.BigObject> biggestObjects = new ArrayList<TriageResult.BigObject>(biggest.size());
+        for (Candidate c : biggest)
+        {
+            String className;
+            long size;
+            if (c.isPrimitiveArray)
+            {
+                int type = (int) c.classIdOrElementType;
+                className = IPrimitiveArray.TYPE[type];
+                size = alignUpToX(primitiveArrayHeader() + (long) c.lengthOrPayload
+                                * IPrimitiveArray.ELEMENT_SIZE[type], objectAlign);
+            }
+            else
+            {
+                ClassImpl cls = classesByAddress.get(c.classIdOrElementType);
+                className = className(cls, c.classIdOrElementType);
+                if (c.isObjectArray)
+                    size = alignUpToX(objectArrayHeader() + (long) c.lengthOrPayload * refSize, objectAlign);
+                else
+                    size = instanceSize(cls, c.lengthOrPayload, objectAlign);
+            }
+            biggestObjects.add(new TriageResult.BigObject(c.address, className, size));
+        }
+        Collections.sort(biggestObjects,
+                        Comparator.comparingLong(TriageResult.BigObject::getUsedHeapSize).reversed());
+
+        return new TriageResult(histogram, biggestObjects, gcRootCounts());
+    }
+
+    /**
+     * Count the GC roots of each type, marking the system classes as roots if
+     * the dump does not, as HprofParserHandlerImpl does.
+     */
+    private Map<Integer, Integer> gcRootCounts()
+    {
+        if (!gcRoots.containsKey(GCRootInfo.Type.SYSTEM_CLASS))
+        {
+            SetLong systemClasses = new SetLong();
+            for (Iterator<ClassImpl> it = classesByAddress.values(); it.hasNext();)
+            {
+                ClassImpl clazz = it.next();
+                if (clazz.getClassLoaderAddress() == 0 && !clazz.isArrayType() && !isGCRoot(clazz.getObjectAddress()))
+                    systemClasses.add(clazz.getObjectAddress());
+            }
+            if (!systemClasses.isEmpty())
+                gcRoots.put(GCRootInfo.Type.SYSTEM_CLASS, systemClasses);
+        }
+
+        Map<Integer, Integer> answer = new TreeMap<Integer, Integer>();
+        for (Map.Entry<Integer, SetLong> e : gcRoots.entrySet())
+            answer.put(e.getKey(), e.getValue().size());
+        return answer;
+    }
+
+    private boolean isGCRoot(long address)
+    {
+        for (SetLong roots : gcRoots.values())
+        {
+            if (roots.contains(address))
+                return true;
+        }
+        return false;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // report parsed entities
+    // //////////////////////////////////////////////////////////////
+
+    public void addProperty(String name, String value) throws IOException
+    {
+        if (IHprofParserHandler.IDENTIFIER_SIZE.equals(name))
+        {
+            int idSize = Integer.parseInt(value);
+            info.setIdentifierSize(idSize);
+            pointerSize = idSize;
+            refSize = idSize;
+        }
+        else if (IHprofParserHandler.REFERENCE_SIZE.equals(name))
+        {
+            refSize = Integer.parseInt(value);
+        }
+    }
+
+    public void addGCRoot(long id, long referrer, int rootType)
+    {
+        // As in a full parse, the roots found through a thread belong to the thread
+        if (referrer != 0)
+            return;
+        SetLong roots = gcRoots.get(rootType);
+        if (roots == null)
+            gcRoots.put(rootType, roots = new SetLong());
+        roots.add(id);
+    }
+
+    public void addClass(ClassImpl clazz, long filePosition, int idSize, int instsize) throws IOException
+    {
+        reportAddress(clazz.getObjectAddress());
+        classesByAddress.put(clazz.getObjectAddress(), clazz);
+
+        List<ClassImpl> list = classesByName.get(clazz.getName());
+        if (list == null)
+            classesByName.put(clazz.getName(), list = new ArrayList<ClassImpl>());
+        list.add(clazz);
+
+        classLoaders.add(clazz.getClassLoaderAddress());
+    }
+
+    public void addObject(HeapObject object)
+    {
+        // Only called by Pass2Parser
+    }
+
+    public void reportInstanceWithClass(long id, long filePosition, long classID, int size)
+    {
+        reportAddress(id);
+        Counts counts = counts(instances, classID);
+        counts.numberOfObjects++;
+        counts.payload = size;
+        // Class dumps are normally before the instances, so class loaders can be recognized
+        if (classLoaders.contains(id))
+            classLoaderTypes.put(id, classID);
+        offer(id, classID, false, false, size, pointerSize + refSize + size);
+    }
+
+    public void reportInstanceOfObjectArray(long id, long filePosition, long arrayClassID)
+    {
+        // Pass1Parser always gives the length
+    }
+
+    public void reportInstanceOfObjectArray(long id, long filePosition, long arrayClassID, int length)
+    {
+        reportAddress(id);
+        counts(objectArrays, arrayClassID).addArray(length);
+        offer(id, arrayClassID, true, false, length, objectArrayHeader() + (long) length * refSize);
+    }
+
+    public void reportInstanceOfPrimitiveArray(long id, long filePosition, int arrayType)
+    {
+        // Pass1Parser always gives the length
+    }
+
+    public void reportInstanceOfPrimitiveArray(long id, long filePosition, int arrayType, int length)
+    {
+        reportAddress(id);
+        Counts counts = primitiveArrays[arrayType];
+        if (counts == null)
+            primitiveArrays[arrayType] = counts = new Counts();
+        counts.addArray(length);
+        offer(id, arrayType, false, true, length,
+                        primitiveArrayHeader() + (long) length * IPrimitiveArray.ELEMENT_SIZE[arrayType]);
+    }
+
+    private Counts counts(HashMapLongObject<Counts> map, long classID)
+    {
+        Counts counts = map.get(classID);
+        if (counts == null)
+            map.put(classID, counts = new Counts());
+        return counts;
+    }
+
+    private void offer(long address, long classIdOrElementType, boolean isObjectArray, boolean isPrimitiveArray,
+                    int lengthOrPayload, long estimate)
+    {
+        if (biggest.size() >= top)
+        {
+            if (top == 0 || biggest.peek().estimate >= estimate)
+                return;
+            biggest.poll();
+        }
+        Candidate c = new Candidate();
+        c.address = address;
+        c.classIdOrElementType = classIdOrElementType;
+        c.isObjectArray = isObjectArray;
+        c.isPrimitiveArray = isPrimitiveArray;
+        c.lengthOrPayload = lengthOrPayload;
+        c.estimate = estimate;
+        biggest.add(c);
+    }
+
+    private void reportAddress(long address)
+    {
+        if (address == 0)
+            return;
+        if (firstAddress == 0)
+        {
+            firstAddress = address;
+            return;
+        }
+        // No need to look further once at the minimum alignment
+        if (align != 0 && align <= MIN_ALIGN)
+            return;
+        long mx = Math.abs(address - firstAddress);
+        long mn = align;
+        while (mn != 0)
+        {
+            long d = mx % mn;
+            mx = mn;
+            mn = d;
+        }
+        align = mx;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // sizes
+    // //////////////////////////////////////////////////////////////
+
+    private int objectAlign()
+    {
+        return Math.max((int) Math.min(align, MAX_ALIGN), MIN_ALIGN);
+    }
+
+    private int objectArrayHeader()
+    {
+        return ObjectSizes.objectArrayHeader(pointerSize, refSize);
+    }
+
+    private int primitiveArrayHeader()
+    {
+        return ObjectSizes.primitiveArrayHeader(pointerSize, refSize);
+    }
+
+    /**
+     * Total size of the arrays of one type. The padding is exact when the
+     * alignment divides the maximum alignment, as it does for the usual
+     * power of two alignments.
+     */
+    private long arraysSize(Counts counts, int header, int elementSize, int objectAlign)
+    {
+        long total = counts.numberOfObjects * header + counts.elements * elementSize;
+        for (int i = 0; i < MAX_ALIGN; ++i)
+        {
+            if (counts.lengths[i] == 0)
+                continue;
+            long r = (header + (long) i * elementSize) % objectAlign;
+            if (r != 0)
+                total += counts.lengths[i] * (objectAlign - r);
+        }
+        return total;
+    }
+
+    private long instanceSize(ClassImpl clazz, int payload, int objectAlign)
+    {
+        if (clazz != null)
+        {
+            if (ObjectSizes.isStackFrame(clazz, classesByAddress))
+                return clazz.getHeapSizePerInstance();
+            int size = ObjectSizes.instanceSize(clazz, classesByAddress, pointerSize, refSize);
+            if (size >= 0)
+                return alignUpToX(size, objectAlign);
+        }
+        // Missing class or superclass, so use the fields found in the instance
+        return alignUpToX(alignUpToX(pointerSize + refSize + payload, refSize), objectAlign);
+    }
+
+    private int alignUpToX(int n, int x)
+    {
+        return ObjectSizes.alignUpToX(n, x);
+    }
+
+    private long alignUpToX(long n, int x)
+    {
+        return ObjectSizes.alignUpToX(n, x);
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // labels
+    // //////////////////////////////////////////////////////////////
+
+    private Total total(HashMapLongObject<Total> totals, long classAddress)
+    {
+        Total total = totals.get(classAddress);
+        if (total == null)
+        {
+            ClassImpl clazz = classesByAddress.get(classAddress);
+            total = new Total(className(clazz, classAddress), clazz != null ? clazz.getClassLoaderAddress() : 0);
+            totals.put(classAddress, total);
+        }
+        return total;
+    }
+
+    private String className(ClassImpl clazz, long classAddress)
+    {
+        if (clazz != null)
+            return clazz.getName();
+        return "unknown-class-0x" + Long.toHexString(classAddress); //$NON-NLS-1$
+    }
+
+    private String classLoaderLabel(long address)
+    {
+        if (address == 0)
+            return Messages.HprofTriageHandler_SystemClassLoader;
+        Long type = classLoaderTypes.get(address);
+        ClassImpl cls = type != null ? classesByAddress.get(type) : null;
+        String className = cls != null ? cls.getName() : IClass.JAVA_LANG_CLASSLOADER;
+        return className + " @ 0x" + Long.toHexString(address); //$NON-NLS-1$
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // lookup heap infos
+    // //////////////////////////////////////////////////////////////
+
+    public int getIdentifierSize()
+    {
+        return info.getIdentifierSize();
+    }
+
+    public ClassImpl lookupClass(long classId)
+    {
+        return classesByAddress.get(classId);
+    }
+
+    public IClass lookupClassByName(String name, boolean failOnMultipleInstances)
+    {
+        List<ClassImpl> list = classesByName.get(name);
+        if (list == null)
+            return null;
+        if (failOnMultipleInstances && list.size() != 1)
+            throw new RuntimeException(MessageUtil.format(
+                            Messages.HprofParserHandlerImpl_Error_MultipleClassInstancesExist, name));
+        return list.get(0);
+    }
+
+    public IClass lookupClassByIndex(int objIndex)
+    {
+        return null;
+    }
+
+    public IClass lookupPrimitiveArrayClassByType(byte elementType)
+    {
+        return lookupClassByName(IPrimitiveArray.TYPE[elementType], false);
+    }
+
+    public List<IClass> resolveClassHierarchy(long classId)
+    {
+        List<IClass> answer = new ArrayList<IClass>();
+        ClassImpl clazz = classesByAddress.get(classId);
+        while (clazz != null)
+        {
+            answer.add(clazz);
+            clazz = clazz.hasSuperClass() ? classesByAddress.get(clazz.getSuperClassAddress()) : null;
+        }
+        return answer;
+    }
+
+    public int mapAddressToId(long address)
+    {
+        return -1;
+    }
+
+    public XSnapshotInfo getSnapshotInfo()
+    {
+        return info;
+    }
+
+    public long getObjectArrayHeapSize(ClassImpl arrayType, int size)
+    {
+        return alignUpToX(objectArrayHeader() + (long) size * refSize, objectAlign());
+    }
+
+    public long getPrimitiveArrayHeapSize(byte elementType, int size)
+    {
+        return alignUpToX(primitiveArrayHeader() + (long) size * IPrimitiveArray.ELEMENT_SIZE[elementType],
+                        objectAlign());
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2021 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -134,6 +134,24 @@ public interface IHprofParserHandler
 
     void reportInstanceOfPrimitiveArray(long id, long filePosition, int arrayType);
 
+    /**
+     * Report an object array, also giving its length.
+     * @since 1.17
+     */
+    default void reportInstanceOfObjectArray(long id, long filePosition, long arrayClassID, int length)
+    {
+        reportInstanceOfObjectArray(id, filePosition, arrayClassID);
+    }
+
+    /**
+     * Report a primitive array, also giving its length.
+     * @since 1.17
+     */
+    default void reportInstanceOfPrimitiveArray(long id, long filePosition, int arrayType, int length)
+    {
+        reportInstanceOfPrimitiveArray(id, filePosition, arrayType);
+    }
+
     // //////////////////////////////////////////////////////////////
     // lookup heap infos
     // //////////////////////////////////////////////////////////////
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2023 SAP AG and others.
+ * Copyright (c) 2010, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -65,6 +65,8 @@ public class Messages extends NLS
     public static String HprofRandomAccessParser_Error_IllegalDumpSegment;
     public static String HprofRandomAccessParser_Error_MissingClass;
     public static String HprofRandomAccessParser_Error_MissingFakeClass;
+    public static String HprofTriageHandler_Histogram;
+    public static String HprofTriageHandler_SystemClassLoader;
     public static String IPositionInputStream_mark;
     public static String IPositionInputStream_reset;
     public static String IPositionInputStream_seek;
@@ -90,6 +92,8 @@ public class Messages extends NLS
     public static String Pass1Parser_Info_WroteThreadsTo;
     public static String Pass1Parser_Error_WritingThreadsInformation;
     public static String Pass1Parser_ExceptionReadingSubrecord;
+    public static String Pass1Parser_Following;
+    public static String Pass1Parser_FollowNotSupported;
     public static String Pass1Parser_UnexpectedEndPosition;
     public static String Pass1Parser_UnexpectedRecord;
     public static String Pass1Parser_UnloadClassNotFound;
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.hprof;
+
+import org.eclipse.mat.collect.HashMapLongObject;
+import org.eclipse.mat.parser.model.ClassImpl;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+
+/**
+ * The layout of objects in an HPROF heap, as used by
+ * {@link HprofParserHandlerImpl} when building a snapshot and by
+ * {@link HprofTriageHandler} when summarizing a dump, so both give the same
+ * sizes.
+ */
+/* package */final class ObjectSizes
+{
+    private ObjectSizes()
+    {}
+
+    /**
+     * Whether the class is a stack frame pseudo-class, whose instance size is
+     * based on the number of locals, set in pass 1.
+     */
+    static boolean isStackFrame(ClassImpl clazz, HashMapLongObject<ClassImpl> classesByAddress)
+    {
+        if (clazz.getSuperClassAddress() == 0)
+            return false;
+        ClassImpl superClass = classesByAddress.get(clazz.getSuperClassAddress());
+        return superClass != null && superClass.getName().equals("<method>"); //$NON-NLS-1$
+    }
+
+    /**
+     * The size of an instance, with the header and the fields of the class and
+     * its superclasses, before the alignment between objects.
+     * @return the size, or -1 if a superclass is missing
+     */
+    static int instanceSize(ClassImpl clazz, HashMapLongObject<ClassImpl> classesByAddress, int pointerSize,
+                    int refSize)
+    {
+        if (clazz.getSuperClassAddress() == 0)
+            return pointerSize + refSize;
+        ClassImpl superClass = classesByAddress.get(clazz.getSuperClassAddress());
+        if (superClass == null)
+            return -1;
+        int superSize = instanceSize(superClass, classesByAddress, pointerSize, refSize);
+        if (superSize < 0)
+            return -1;
+        int ownFieldsSize = 0;
+        for (FieldDescriptor field : clazz.getFieldDescriptors())
+            ownFieldsSize += sizeOf(field, refSize);
+        return alignUpToX(ownFieldsSize + superSize, refSize);
+    }
+
+    /**
+     * The size of the static fields of a class, before the alignment between
+     * objects.
+     */
+    static int staticsSize(ClassImpl clazz, int refSize)
+    {
+        int staticFieldsSize = 0;
+        for (Field field : clazz.getStaticFields())
+            staticFieldsSize += sizeOf(field, refSize);
+        return staticFieldsSize;
+    }
+
+    static int sizeOf(FieldDescriptor field, int refSize)
+    {
+        int type = field.getType();
+        if (type == IObject.Type.OBJECT)
+            return refSize;
+
+        return IPrimitiveArray.ELEMENT_SIZE[type];
+    }
+
+    static int objectArrayHeader(int pointerSize, int refSize)
+    {
+        return pointerSize + refSize + 4;
+    }
+
+    static int primitiveArrayHeader(int pointerSize, int refSize)
+    {
+        return alignUpToX(pointerSize + refSize + 4, refSize);
+    }
+
+    static int alignUpToX(int n, int x)
+    {
+        int r = n % x;
+        return r == 0 ? n : n + x - r;
+    }
+
+    static long alignUpToX(long n, int x)
+    {
+        long r = n % x;
+        return r == 0 ? n : n + x - r;
+    }
+}
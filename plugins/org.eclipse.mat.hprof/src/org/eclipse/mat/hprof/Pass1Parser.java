@@ -81,6 +81,8 @@ public class Pass1Parser extends AbstractParser
     private long stackFrameClassBase = 0x100;
     /** Alignment of stack frame classes frames - should not be stricter than rest of heap */
     private long stackFrameClassAlign = 0x100;
+    /** Milliseconds to wait for a growing file, 0 for a complete file */
+    private long followTimeout;
 
     public Pass1Parser(IHprofParserHandler handler, SimpleMonitor.Listener monitor,
                     HprofPreferences.HprofStrictness strictnessPreference)
@@ -91,11 +93,33 @@ public class Pass1Parser extends AbstractParser
         this.biggestArrays = new int[Runtime.getRuntime().availableProcessors()];
     }
 
+    /**
+     * Parse a file which is still being written or copied.
+     * Records are read as they arrive, and the parse finishes at the end of the
+     * selected dump, or when the file has stopped growing for the timeout.
+     * @param timeout milliseconds to wait for the file to grow, 0 for a complete file
+     */
+    /* package */ void setFollowTimeout(long timeout)
+    {
+        followTimeout = timeout;
+    }
+
     public void read(File file, String prefix, String dumpNrToRead, long estimatedLength) throws SnapshotException, IOException
     {
         // See http://java.net/downloads/heap-snapshot/hprof-binary-format.html
         // or https://hg.openjdk.org/jdk8/jdk8/jdk/raw-file/tip/src/share/demo/jvmti/hprof/manual.html
         in = new BufferingRafPositionInputStream(file, prefix, 0, 8*1024, 0);
+        boolean following = false;
+        if (followTimeout > 0)
+        {
+            following = in.follow(followTimeout, monitor);
+            if (following)
+                monitor.sendUserMessage(Severity.INFO, MessageUtil.format(Messages.Pass1Parser_Following,
+                                file.getName(), followTimeout / 1000.0), null);
+            else
+                monitor.sendUserMessage(Severity.WARNING, MessageUtil.format(Messages.Pass1Parser_FollowNotSupported,
+                                file.getName()), null);
+        }
 
         int currentDumpNr = 0;
         List<MultipleSnapshotsException.Context> ctxs = new ArrayList<MultipleSnapshotsException.Context>();
@@ -153,7 +177,12 @@ public class Pass1Parser extends AbstractParser
                 if (verbose)
                     System.out.println("Read record type " + record + ", length " + length + " at position 0x" + Long.toHexString(curPos)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-                if (curPos + 9 >= fileSize && fileSize > fileSize0 && curPos + 9 + length >= 0x100000000L)
+                /*
+                 * A growing file says nothing about the record length, so skip the checks.
+                 * The reads wait for the data, and a truncated file is found
+                 * when the file stops growing.
+                 */
+                if (!following && curPos + 9 >= fileSize && fileSize > fileSize0 && curPos + 9 + length >= 0x100000000L)
                 {
                     /*
                      * Gzip has uncertain stream length though the lower 32-bits are correct,
@@ -164,13 +193,14 @@ public class Pass1Parser extends AbstractParser
                         fileSize += 0x100000000L;
                     }
                 }
-                length = updateLengthIfNecessary(fileSize, curPos, record, length, monitor);
+                if (!following)
+                    length = updateLengthIfNecessary(fileSize, curPos, record, length, monitor);
 
                 if (length < 0)
                     throw new SnapshotException(MessageUtil.format(Messages.Pass1Parser_Error_IllegalRecordLength,
                                     length, Long.toHexString(in.position() - 4), Integer.toHexString(record), Long.toHexString(curPos)));
 
-                if (curPos + 9 + length > fileSize)
+                if (!following && curPos + 9 + length > fileSize)
                 {
                     switch (strictnessPreference)
                     {
@@ -215,7 +245,8 @@ public class Pass1Parser extends AbstractParser
                     case Constants.Record.HEAP_DUMP:
                     case Constants.Record.HEAP_DUMP_SEGMENT:
                         long dumpTime = date + (timeWrap + timeOffset) / 1000;
-                        if (dumpMatches(currentDumpNr, dumpNrToRead))
+                        boolean readingDump = dumpMatches(currentDumpNr, dumpNrToRead);
+                        if (readingDump)
                         {
                             if (!foundDump)
                             {
@@ -240,12 +271,27 @@ public class Pass1Parser extends AbstractParser
                         }
 
                         if (record == Constants.Record.HEAP_DUMP)
+                        {
                             currentDumpNr++;
+                            if (following && readingDump)
+                            {
+                                // The dump has arrived, so do not wait for any more of the file
+                                curPos = in.position();
+                                break recordLoop;
+                            }
+                        }
 
                         break;
                     case Constants.Record.HEAP_DUMP_END:
+                        boolean endOfDump = foundDump && dumpMatches(currentDumpNr, dumpNrToRead);
                         currentDumpNr++;
                         checkSkipBytes(length);
+                        if (following && endOfDump)
+                        {
+                            // The dump has arrived, so do not wait for any more of the file
+                            curPos = in.position();
+                            break recordLoop;
+                        }
                         break;
                     case Constants.Record.ALLOC_SITES:
                     case Constants.Record.HEAP_SUMMARY:
@@ -312,7 +358,8 @@ public class Pass1Parser extends AbstractParser
                             null);
         }
 
-        if (serNum2stackTrace.size() > 0)
+        // Triage leaves no files behind, so the threads file is not written
+        if (serNum2stackTrace.size() > 0 && !(handler instanceof HprofTriageHandler))
             dumpThreads();
 
     }
@@ -840,7 +887,7 @@ public class Pass1Parser extends AbstractParser
             Arrays.sort(biggestArrays);
         }
 
-        handler.reportInstanceOfObjectArray(address,  segmentStartPos, arrayClassObjectID);
+        handler.reportInstanceOfObjectArray(address, segmentStartPos, arrayClassObjectID, size);
     }
 
     private void readPrimitiveArrayDump(long segmentStartPos) throws SnapshotException, IOException
@@ -857,7 +904,7 @@ public class Pass1Parser extends AbstractParser
         int elementSize = IPrimitiveArray.ELEMENT_SIZE[elementType];
         checkSkipBytes((long) elementSize * size);
 
-        handler.reportInstanceOfPrimitiveArray(address, segmentStartPos, elementType);
+        handler.reportInstanceOfPrimitiveArray(address, segmentStartPos, elementType, size);
     }
 
     private String getStringConstant(long address)
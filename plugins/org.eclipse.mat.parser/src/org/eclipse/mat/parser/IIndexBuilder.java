@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2022 SAP AG and others.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,8 @@ import java.io.File;
 import java.io.IOException;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.TriageResult;
 import org.eclipse.mat.util.IProgressListener;
 
 /**
@@ -44,6 +46,10 @@ public interface IIndexBuilder
     /**
      * Memory Analyzer has discarded unreachable objects, so the parser may need to know
      * the discarded objects.
+     * The new ids are usually in the same order as the old ids, but if the objects
+     * have been reordered for locality (the <code>reorder_objects</code> option)
+     * then they are not, so any index the parser keeps by object id needs to be
+     * rewritten in the order of the new ids.
      * @param purgedMapping mapping from old id to new id, -1 indicates object has been discarded
      * @param listener for progress and error reporting
      * @throws IOException for example, problem writing a new index
@@ -54,4 +60,19 @@ public interface IIndexBuilder
      * called in case of error to delete any files / close any file handles
      */
     void cancel();
+
+    /**
+     * Summarize the dump with a single pass, without building any indexes.
+     * @param snapshotInfo the path, prefix and options such as the dump to read
+     * @param listener for progress and error reporting
+     * @return the summary, or null if the parser does not support triage
+     * @throws SnapshotException major problem parsing the dump
+     * @throws IOException for example, problem reading the dump file or wrong file type
+     * @since 1.17
+     */
+    default TriageResult triage(XSnapshotInfo snapshotInfo, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
+        return null;
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2022 SAP AG and others.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ package org.eclipse.mat.parser.index;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.function.IntConsumer;
 
 import org.eclipse.mat.SnapshotException;
 
@@ -43,6 +44,22 @@ public interface IIndexReader
          */
         int[] getAll(int index[]);
 
+        /**
+         * Look up the items for ids in ascending order, without allocating
+         * a new array.
+         * Implementations can walk the index a page at a time, decoding each
+         * page once, and can read the next page needed while the current one
+         * is being used.
+         * @param index the ids to look up, in ascending order
+         * @param result receives the item for each id; may be the index array itself
+         * @since 1.17
+         */
+        default void getAll(int[] index, int[] result)
+        {
+            for (int ii = 0; ii < index.length; ii++)
+                result[ii] = get(index[ii]);
+        }
+
         /**
          * Look up all the items from the index from index to index + length - 1
          * and return the result in the index for each on
@@ -51,6 +68,19 @@ public interface IIndexReader
          * @return an array of the result items
          */
         int[] getNext(int index, int length);
+
+        /**
+         * Look up an int in an index which may hold 2^31 entries or more.
+         * @param index the long key
+         * @return the int value
+         * @since 1.17
+         */
+        default int get(long index)
+        {
+            if (index != (int) index)
+                throw new IndexOutOfBoundsException(Long.toString(index));
+            return get((int) index);
+        }
     }
 
     /**
@@ -65,6 +95,32 @@ public interface IIndexReader
          * @return size in bytes
          */
         long getSize(int index);
+
+        /**
+         * Look up the size of an object in an index which may hold 2^31 entries or more.
+         * @param index the object ID
+         * @return size in bytes
+         * @since 1.17
+         */
+        default long getSize(long index)
+        {
+            if (index != (int) index)
+                throw new IndexOutOfBoundsException(Long.toString(index));
+            return getSize((int) index);
+        }
+
+        /**
+         * Look up the sizes of objects with ids in ascending order.
+         * As {@link #getAll(int[], int[])}, but expanding the sizes.
+         * @param index the object IDs, in ascending order
+         * @param result receives the size in bytes of each object
+         * @since 1.17
+         */
+        default void getAllSizes(int[] index, long[] result)
+        {
+            for (int ii = 0; ii < index.length; ii++)
+                result[ii] = getSize(index[ii]);
+        }
     }
 
     /**
@@ -95,6 +151,63 @@ public interface IIndexReader
          * @return an array of longs corresponding to the input
          */
         long[] getNext(int index, int length);
+
+        /**
+         * Look up the longs for keys in ascending order.
+         * Implementations can walk the index a page at a time, decoding each
+         * page once, and can read the next page needed while the current one
+         * is being used.
+         * @param index the keys to look up, in ascending order
+         * @param result receives the long for each key
+         * @since 1.17
+         */
+        default void getAll(int[] index, long[] result)
+        {
+            for (int ii = 0; ii < index.length; ii++)
+                result[ii] = get(index[ii]);
+        }
+
+        /**
+         * Look up a long in an index which may hold 2^31 entries or more.
+         * @param index the long key
+         * @return the long
+         * @since 1.17
+         */
+        default long get(long index)
+        {
+            if (index != (int) index)
+                throw new IndexOutOfBoundsException(Long.toString(index));
+            return get((int) index);
+        }
+
+        /**
+         * Find the key corresponding to the long in the index value,
+         * for indexes which may hold 2^31 entries or more.
+         * The reverse of {@link IIndexReader.IOne2LongIndex#get(long)}
+         * @param value the value to look up
+         * @return the corresponding key in the index, or a negative number if not found
+         * @since 1.17
+         */
+        default long reverseLong(long value)
+        {
+            return reverse(value);
+        }
+
+        /**
+         * Find the ints corresponding to several values at once, as
+         * {@link #reverse(long)} does for each. As the values are sorted
+         * an implementation can resolve them all in one pass through the index
+         * rather than with a separate search for each.
+         * @param values the values to look up, in ascending order
+         * @param length the number of values to look up
+         * @param result receives the key for each value, negative if not found
+         * @since 1.17
+         */
+        default void reverseSorted(long[] values, int length, int[] result)
+        {
+            for (int ii = 0; ii < length; ii++)
+                result[ii] = reverse(values[ii]);
+        }
     }
 
     /**
@@ -109,6 +222,37 @@ public interface IIndexReader
          * @return an array holding the object IDs
          */
         int[] get(int index);
+
+        /**
+         * Get the object IDs corresponding to the input object ID into a buffer,
+         * so that traversals can reuse one array for all the objects they visit.
+         * If the buffer is too small then nothing is stored, and the caller
+         * should retry with a buffer at least as long as the returned count.
+         * @param index the object ID
+         * @param buffer to receive the object IDs, starting at the beginning
+         * @return the number of object IDs
+         * @since 1.17
+         */
+        default int get(int index, int[] buffer)
+        {
+            int[] answer = get(index);
+            if (answer.length <= buffer.length)
+                System.arraycopy(answer, 0, buffer, 0, answer.length);
+            return answer.length;
+        }
+
+        /**
+         * Pass each object ID corresponding to the input object ID to a consumer,
+         * in the order {@link #get(int)} returns them, without allocating an array.
+         * @param index the object ID
+         * @param consumer receives each object ID
+         * @since 1.17
+         */
+        default void forEach(int index, IntConsumer consumer)
+        {
+            for (int v : get(index))
+                consumer.accept(v);
+        }
     }
 
     /**
@@ -133,6 +277,17 @@ public interface IIndexReader
      */
     int size();
 
+    /**
+     * Size of an index which may hold 2^31 entries or more,
+     * for which {@link #size()} would fail.
+     * @return number of entries
+     * @since 1.17
+     */
+    default long longSize()
+    {
+        return size();
+    }
+
     /**
      * Clear the caches. Used when the indexes are not current in use
      * and the memory needs to be reclaimed such as when building the dominator tree. 
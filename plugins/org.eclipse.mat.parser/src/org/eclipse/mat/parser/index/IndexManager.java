@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 SAP AG and others.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -52,7 +52,14 @@ public class IndexManager
          * Retained size cache for a class loader: loader+all classes+all instances. 
          * @since 1.2
          */
-        I2RETAINED("i2sv2", RetainedSizeCache.class); //$NON-NLS-1$
+        I2RETAINED("i2sv2", RetainedSizeCache.class), //$NON-NLS-1$
+        /**
+         * Address order: the object ids in order of their addresses.
+         * Only present when the object ids have been reordered, rather than
+         * given in order of address, so that addresses can still be looked up.
+         * @since 1.17
+         */
+        ADDRESS_ORDER("addrOrder", IndexReader.IntIndexReader.class); //$NON-NLS-1$
         /*
          * Other indexes:
          * i2s
@@ -126,6 +133,21 @@ public class IndexManager
      * @noreference This field is not intended to be referenced by clients.
      */
     public RetainedSizeCache i2sv2;
+    /**
+     * The object ids in order of address, if the ids are not in address order
+     * @since 1.17
+     */
+    public IIndexReader.IOne2OneIndex addrOrder;
+
+    /**
+     * The object address index searched via {@link #addrOrder}
+     */
+    private AddressOrderIndex o2addressOrdered;
+
+    /**
+     * Where the pages read by the index readers are charged
+     */
+    private ResourceManager.Usage usage;
 
     /**
      * Add index reader corresponding to the index to the index manager
@@ -137,6 +159,8 @@ public class IndexManager
         try
         {
             this.getClass().getField(index.filename).set(this, reader);
+            if (usage != null)
+                IndexReader.setUsage(reader, usage);
         }
         catch (RuntimeException e)
         {
@@ -270,7 +294,96 @@ public class IndexManager
      */
     public IIndexReader.IOne2LongIndex o2address()
     {
-        return idx;
+        IIndexReader.IOne2OneIndex order = addrOrder;
+        if (order == null)
+            return idx;
+        AddressOrderIndex answer = o2addressOrdered;
+        if (answer == null || answer.idx != idx || answer.order != order)
+            o2addressOrdered = answer = new AddressOrderIndex(idx, order);
+        return answer;
+    }
+
+    /**
+     * Object id to address when the ids are not in address order.
+     * The lookup of an address searches the ids held in address order.
+     */
+    private static class AddressOrderIndex implements IIndexReader.IOne2LongIndex
+    {
+        final IIndexReader.IOne2LongIndex idx;
+        final IIndexReader.IOne2OneIndex order;
+
+        AddressOrderIndex(IIndexReader.IOne2LongIndex idx, IIndexReader.IOne2OneIndex order)
+        {
+            this.idx = idx;
+            this.order = order;
+        }
+
+        public long get(int index)
+        {
+            return idx.get(index);
+        }
+
+        public long get(long index)
+        {
+            return idx.get(index);
+        }
+
+        public long[] getNext(int index, int length)
+        {
+            return idx.getNext(index, length);
+        }
+
+        public void getAll(int[] index, long[] result)
+        {
+            idx.getAll(index, result);
+        }
+
+        public int reverse(long value)
+        {
+            int low = 0;
+            int high = order.size() - 1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                int id = order.get(mid);
+                long midVal = idx.get(id);
+                if (midVal < value)
+                    low = mid + 1;
+                else if (midVal > value)
+                    high = mid - 1;
+                else
+                    return id;
+            }
+            return -(low + 1);
+        }
+
+        public int size()
+        {
+            return idx.size();
+        }
+
+        public long longSize()
+        {
+            return idx.longSize();
+        }
+
+        public void unload() throws IOException
+        {
+            idx.unload();
+            order.unload();
+        }
+
+        public void close() throws IOException
+        {
+            idx.close();
+            order.close();
+        }
+
+        public void delete()
+        {
+            idx.delete();
+            order.delete();
+        }
     }
 
     /**
@@ -309,6 +422,54 @@ public class IndexManager
         return domIn;
     }
 
+    /**
+     * Charge the pages read by all the index readers, including those
+     * added later, to the resources used by a snapshot.
+     * @param usage the resources of the snapshot
+     * @since 1.17
+     */
+    public void setResourceUsage(final ResourceManager.Usage usage)
+    {
+        this.usage = usage;
+        try
+        {
+            new Visitor()
+            {
+                @Override
+                void visit(Index index, IIndexReader reader) throws IOException
+                {
+                    if (reader != null)
+                        IndexReader.setUsage(reader, usage);
+                }
+            }.doIt();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Releases the pages cached by the index readers, which are read again
+     * from the files when needed. The retained size cache is kept.
+     * @throws IOException if there is a problem with the files
+     * @since 1.17
+     */
+    public void unload() throws IOException
+    {
+        new Visitor()
+        {
+            @Override
+            void visit(Index index, IIndexReader reader) throws IOException
+            {
+                if (reader == null || reader instanceof RetainedSizeCache)
+                    return;
+
+                reader.unload();
+            }
+        }.doIt();
+    }
+
     /**
      * Closes all the index reader files
      * @throws IOException if there is a problem closing the files
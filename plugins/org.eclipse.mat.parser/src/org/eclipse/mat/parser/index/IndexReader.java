@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2024 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,8 @@ import java.io.Serializable;
 import java.lang.ref.SoftReference;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,6 +33,7 @@ import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.parser.index.IndexWriter.ArrayIntLongCompressed;
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.io.SimpleBufferedRandomAccessInputStream;
+import org.eclipse.mat.util.MessageUtil;
 
 /**
  * Implementations to read index files.
@@ -43,6 +46,42 @@ public abstract class IndexReader
     public static final boolean DEBUG = false;
     private static final Logger logger = Logger.getLogger(IndexReader.class.getName());
 
+    /**
+     * Charge the pages read by an index reader to the resources used by a snapshot.
+     * @param reader the reader
+     * @param usage the resources of the snapshot
+     */
+    static void setUsage(IIndexReader reader, ResourceManager.Usage usage)
+    {
+        if (reader instanceof IntIndexReader)
+        {
+            ((IntIndexReader) reader).usage = usage;
+        }
+        else if (reader instanceof LongIndexReader)
+        {
+            ((LongIndexReader) reader).usage = usage;
+        }
+        else if (reader instanceof SizeIndexReader)
+        {
+            setUsage(((SizeIndexReader) reader).idx, usage);
+        }
+        else if (reader instanceof IntIndex1NReader)
+        {
+            IntIndex1NReader r = (IntIndex1NReader) reader;
+            setUsage(r.header, usage);
+            if (r.body != null)
+                setUsage(r.body, usage);
+            if (r.delta != null)
+                r.delta.usage = usage;
+        }
+        else if (reader instanceof LongIndex1NReader)
+        {
+            LongIndex1NReader r = (LongIndex1NReader) reader;
+            setUsage(r.header, usage);
+            setUsage(r.body, usage);
+        }
+    }
+
     /**
      * An int to int index reader.
      * 
@@ -87,6 +126,8 @@ public abstract class IndexReader
         long[] pageStart;
         /** Thread-safe page cache */
         final ConcurrentHashMap<Integer,SoftReference<ArrayIntCompressed>> pages2 = new ConcurrentHashMap<Integer,SoftReference<ArrayIntCompressed>>();
+        /** Where the pages read are charged, if anywhere */
+        ResourceManager.Usage usage;
 
         IntIndexReader(File indexFile, IndexWriter.Pages<SoftReference<ArrayIntCompressed>> pages, long size,
                         int pageSize, long[] pageStart)
@@ -171,7 +212,7 @@ public abstract class IndexReader
 
         public void unload()
         {
-            pages2.clear();
+            ResourceManager.unload(pages2);
             super.unload();
         }
 
@@ -237,9 +278,20 @@ public abstract class IndexReader
                 array = new ArrayIntCompressed(buffer);
 
                 // no need for putIfAbsent because we only do this inside sync block
-                pages2.put(page, new SoftReference<>(array));
-                return array;
+                pages2.put(page, usage != null ? usage.hold(array, toRead) : new SoftReference<>(array));
             }
+            if (usage != null)
+                usage.pageRead();
+            return array;
+        }
+
+        @Override
+        Future<?> prefetch(int page)
+        {
+            SoftReference<ArrayIntCompressed> ref = pages2.get(page);
+            if (ref != null && ref.get() != null)
+                return null;
+            return ResourceManager.getInstance().getIOExecutor().submit(() -> getPage(page));
         }
 
         public void delete()
@@ -277,10 +329,10 @@ public abstract class IndexReader
         {
             super(in, start, length);
         }
-        public PositionIndexReader(File indexFile, IndexWriter.Pages<SoftReference<ArrayIntCompressed>> pages, int size,
+        public PositionIndexReader(File indexFile, IndexWriter.Pages<SoftReference<ArrayIntCompressed>> pages, long size,
                         int pageSize, long[] pageStart)
         {
-            super(indexFile, pages, (long)size, pageSize, pageStart);
+            super(indexFile, pages, size, pageSize, pageStart);
         }
 
         @Override
@@ -302,12 +354,19 @@ public abstract class IndexReader
             }
             else 
             {
+                // read outside the lock, as reading might release other snapshots
+                if (array == null)
+                    array = super.getPage(page);
                 synchronized (LOCK)
                 {
-                    if (array == null)
-                        array = super.getPage(page);
+                    ref = pages2.get(page);
+                    ArrayIntCompressed array2 = ref == null ? null : ref.get();
+                    if (array2 instanceof ArrayIntLongCompressed)
+                        return (ArrayIntLongCompressed) array2;
                     ArrayIntLongCompressed ret = new ArrayIntLongCompressed(array);
-                    pages2.put(page, new SoftReference<ArrayIntCompressed>(ret));
+                    ResourceManager.release(pages2.put(page, usage != null
+                                    ? usage.hold(ret, pageStart[page + 1] - pageStart[page])
+                                    : new SoftReference<ArrayIntCompressed>(ret)));
                     return ret;
                 }
             }
@@ -321,7 +380,7 @@ public abstract class IndexReader
      */
     public static class SizeIndexReader implements IIndexReader.IOne2SizeIndex
     {
-        private IIndexReader.IOne2OneIndex idx;
+        IIndexReader.IOne2OneIndex idx;
 
         /**
          * Constructor used when reopening a dump
@@ -352,6 +411,16 @@ public abstract class IndexReader
             return IndexWriter.SizeIndexCollectorUncompressed.expand(get(index));
         }
 
+        /**
+         * Expand the compressed size, for indexes which may hold 2^31 entries or more.
+         * @param index the index of the object
+         * @return the actual size in bytes
+         */
+        public long getSize(long index)
+        {
+            return IndexWriter.SizeIndexCollectorUncompressed.expand(get(index));
+        }
+
         /**
          * Get the (compressed) size.
          * Delegate to the int index.
@@ -363,6 +432,17 @@ public abstract class IndexReader
             return idx.get(index);
         }
 
+        /**
+         * Get the (compressed) size.
+         * Delegate to the int index.
+         * @param index the index of the object
+         * @return the encoded compressed size
+         */
+        public int get(long index)
+        {
+            return idx.get(index);
+        }
+
         /**
          * Delegate to the int index.
          * Gets the encoded sizes for a list of object IDs
@@ -372,6 +452,33 @@ public abstract class IndexReader
             return idx.getAll(index);
         }
 
+        /**
+         * Delegate to the int index.
+         * Gets the encoded sizes for a sorted list of object IDs
+         * @param index the object IDs, in ascending order
+         * @param result receives the compressed sizes
+         * @since 1.17
+         */
+        public void getAll(int[] index, int[] result)
+        {
+            idx.getAll(index, result);
+        }
+
+        /**
+         * Gets the sizes for a sorted list of object IDs,
+         * reading the int index in bulk then expanding each size.
+         * @param index the object IDs, in ascending order
+         * @param result receives the actual sizes in bytes
+         * @since 1.17
+         */
+        public void getAllSizes(int[] index, long[] result)
+        {
+            int[] sizes = new int[index.length];
+            idx.getAll(index, sizes);
+            for (int ii = 0; ii < sizes.length; ii++)
+                result[ii] = IndexWriter.SizeIndexCollectorUncompressed.expand(sizes[ii]);
+        }
+
         /**
          * Delegate to the int index.
          * Gets the encoded sizes for a consecutive list of object IDs
@@ -409,6 +516,15 @@ public abstract class IndexReader
             return idx.size();
         }
 
+        /**
+         * Delegate to the int index.
+         * @return the number of entries
+         */
+        public long longSize()
+        {
+            return idx.longSize();
+        }
+
         /**
          * Delegate to the int index.
          */
@@ -423,7 +539,10 @@ public abstract class IndexReader
         File indexFile;
         SimpleBufferedRandomAccessInputStream in;
         IntIndexReader header;
+        /** The body as pages of packed ints */
         IntIndexReader body;
+        /** The body with delta encoding, instead of the packed ints */
+        DeltaIntReader delta;
 
         public IntIndex1NReader(File indexFile) throws IOException
         {
@@ -436,14 +555,25 @@ public abstract class IndexReader
                 long indexLength = indexFile.length();
                 in.seek(indexLength - 8);
                 long divider = in.readLong();
+                int encoding = (int) (divider >>> IndexWriter.ENCODING_SHIFT);
+                divider &= (1L << IndexWriter.ENCODING_SHIFT) - 1;
 
                 this.header = new PositionIndexReader(in, divider, indexLength - divider - 8);
-                this.body = new IntIndexReader(in, 0, divider);
-
-                this.body.LOCK = this.header.LOCK;
-
+                switch (encoding)
+                {
+                    case IndexWriter.ENCODING_PACKED:
+                        this.body = new IntIndexReader(in, 0, divider);
+                        this.body.LOCK = this.header.LOCK;
+                        break;
+                    case IndexWriter.ENCODING_DELTA:
+                        this.delta = new DeltaIntReader(in, divider);
+                        break;
+                    default:
+                        throw new IOException(MessageUtil.format(Messages.IndexReader_Error_UnknownEncoding,
+                                        encoding, indexFile));
+                }
             }
-            catch (RuntimeException e)
+            catch (RuntimeException | IOException e)
             {
                 close();
                 throw e;
@@ -461,15 +591,73 @@ public abstract class IndexReader
             open();
         }
 
+        IntIndex1NReader(File indexFile, IIndexReader.IOne2OneIndex header, DeltaIntReader delta)
+        {
+            this.indexFile = indexFile;
+            this.header = ((IntIndexReader) header);
+            this.delta = delta;
+
+            open();
+        }
+
         public int[] get(int index)
         {
             long p = header.getPos(index);
+            if (delta != null)
+                return p == 0 ? new int[0] : delta.get(index, p - 1, end(index, p) - 1);
 
             int length = body.get(p);
 
             return body.getNext(p + 1, length);
         }
 
+        @Override
+        public int get(int index, int[] buffer)
+        {
+            long p = header.getPos(index);
+            if (delta != null)
+                return p == 0 ? 0 : delta.get(index, p - 1, end(index, p) - 1, buffer);
+
+            int length = body.get(p);
+
+            if (length <= buffer.length)
+                body.getNext(p + 1, length, buffer);
+            return length;
+        }
+
+        @Override
+        public void forEach(int index, IntConsumer consumer)
+        {
+            long p = header.getPos(index);
+            if (delta != null)
+            {
+                if (p != 0)
+                    delta.forEach(index, p - 1, end(index, p) - 1, consumer);
+                return;
+            }
+
+            int length = body.get(p);
+
+            body.forEachNext(p + 1, length, consumer);
+        }
+
+        /**
+         * The end of the entries of index, which start at p0, encoded as p+1,
+         * for the sorted or the delta encoded index.
+         * That is the next position which is not before p0.
+         */
+        long end(int index, long p0)
+        {
+            int size = header.size();
+            for (index++; index < size; index++)
+            {
+                long p1 = header.getPos(index);
+                if (p1 >= p0)
+                    return p1;
+            }
+            return (delta != null ? delta.length : body.size) + 1;
+        }
+
         protected synchronized void open()
         {
             try
@@ -484,6 +672,9 @@ public abstract class IndexReader
 
                     if (this.body != null)
                         this.body.in = in;
+
+                    if (this.delta != null)
+                        this.delta.in = in;
                 }
             }
             catch (IOException e)
@@ -498,6 +689,8 @@ public abstract class IndexReader
                 header.unload();
             if (body != null)
                 body.unload();
+            if (delta != null)
+                delta.unload();
 
             if (in != null)
             {
@@ -516,6 +709,8 @@ public abstract class IndexReader
                         this.header.in = null;
                     if (this.body != null)
                         this.body.in = null;
+                    if (this.delta != null)
+                        this.delta.in = null;
                 }
             }
         }
@@ -523,7 +718,10 @@ public abstract class IndexReader
         public void unload() throws IOException
         {
             header.unload();
-            body.unload();
+            if (body != null)
+                body.unload();
+            if (delta != null)
+                delta.unload();
         }
 
         public int size()
@@ -564,6 +762,11 @@ public abstract class IndexReader
             super(indexFile, header, body);
         }
 
+        IntIndex1NSortedReader(File indexFile, IOne2OneIndex header, DeltaIntReader delta)
+        {
+            super(indexFile, header, delta);
+        }
+
         /**
          * The header holds positions encoded as p+1 into the body
          * There is no length field - the length is up to the next one,
@@ -575,36 +778,231 @@ public abstract class IndexReader
          * Reading item 1 gets from [6,14)
          * Reading item 2 gets from [1,14)
          * Reading item 3 gets an empty array
+         * <p>
+         * The header of the delta encoding is the same, but the positions
+         * are of bytes rather than ints.
          */
         public int[] get(int index)
         {
-            long p0;
-            long p1;
+            if (delta != null)
+                return super.get(index);
+            long p0 = header.getPos(index);
+            if (p0 == 0)
+                return new int[0];
+
+            return body.getNext(p0 - 1, (int)(end(index, p0) - p0));
+        }
+
+        @Override
+        public int get(int index, int[] buffer)
+        {
+            if (delta != null)
+                return super.get(index, buffer);
+            long p0 = header.getPos(index);
+            if (p0 == 0)
+                return 0;
+
+            int length = (int)(end(index, p0) - p0);
+            if (length <= buffer.length)
+                body.getNext(p0 - 1, length, buffer);
+            return length;
+        }
 
-            if (index + 1 < header.size())
+        @Override
+        public void forEach(int index, IntConsumer consumer)
+        {
+            if (delta != null)
             {
-                p0 = header.getPos(index++);
-                p1 = header.getPos(index);
-                if (p0 == 0)
-                    return new int[0];
+                super.forEach(index, consumer);
+                return;
+            }
+            long p0 = header.getPos(index);
+            if (p0 == 0)
+                return;
+
+            body.forEachNext(p0 - 1, (int)(end(index, p0) - p0), consumer);
+        }
 
-                for (index++; p1 < p0 && index < header.size(); index++)
-                    p1 = header.getPos(index);
+    }
 
-                if (p1 < p0)
-                    p1 = body.size + 1;
+    /**
+     * Reads the body of a 1:N index written by {@link IndexWriter.DeltaIntStreamer}.
+     * The body is read in pages which are kept while there is enough memory.
+     * An entry can continue onto the next page.
+     */
+    /* package */static class DeltaIntReader
+    {
+        /** Bytes in each page */
+        static final int PAGE_SIZE = 1 << 20;
+        /** The lock to protect the cache from concurrent reads of the same page */
+        final Object LOCK = new Object();
+        SimpleBufferedRandomAccessInputStream in;
+        /** Bytes in the body */
+        final long length;
+        /** Thread-safe page cache */
+        final ConcurrentHashMap<Integer, SoftReference<byte[]>> pages = new ConcurrentHashMap<Integer, SoftReference<byte[]>>();
+        /** Where the pages read are charged, if anywhere */
+        ResourceManager.Usage usage;
+
+        DeltaIntReader(SimpleBufferedRandomAccessInputStream in, long length)
+        {
+            this.in = in;
+            this.length = length;
+        }
+
+        /**
+         * Decode an entry.
+         * @param index the index of the entry
+         * @param start the position of the entry in the body
+         * @param end the position of the next entry
+         * @return the values
+         */
+        int[] get(int index, long start, long end)
+        {
+            int[] answer = new int[new Cursor(index, start, end).count()];
+            Cursor c = new Cursor(index, start, end);
+            for (int ii = 0; ii < answer.length; ii++)
+                answer[ii] = c.next();
+            return answer;
+        }
+
+        int get(int index, long start, long end, int[] buffer)
+        {
+            Cursor c = new Cursor(index, start, end);
+            int count = 0;
+            while (c.hasNext())
+            {
+                if (count < buffer.length)
+                    buffer[count] = c.next();
+                else
+                    c.skip();
+                ++count;
             }
-            else
+            return count;
+        }
+
+        void forEach(int index, long start, long end, IntConsumer consumer)
+        {
+            Cursor c = new Cursor(index, start, end);
+            while (c.hasNext())
+                consumer.accept(c.next());
+        }
+
+        void unload()
+        {
+            ResourceManager.unload(pages);
+        }
+
+        private byte[] getPage(int page)
+        {
+            SoftReference<byte[]> ref = pages.get(page);
+            byte[] bytes = ref == null ? null : ref.get();
+            if (bytes != null)
+                return bytes;
+
+            long start = (long) page * PAGE_SIZE;
+            int toRead = (int) Math.min(PAGE_SIZE, length - start);
+            try
+            {
+                bytes = in.readDirect(start, toRead);
+            }
+            catch (IOException e)
             {
-                p0 = header.getPos(index);
-                if (p0 == 0)
-                    return new int[0];
-                p1 = body.size + 1;
+                throw new RuntimeException(e);
             }
 
-            return body.getNext(p0 - 1, (int)(p1 - p0));
+            synchronized (LOCK)
+            {
+                // if another thread finished a concurrent read, use it
+                // so we do not hold onto two of the same page unnecessarily
+                ref = pages.get(page);
+                byte[] bytes2 = ref == null ? null : ref.get();
+                if (bytes2 != null)
+                    return bytes2;
+                pages.put(page, usage != null ? usage.hold(bytes, toRead) : new SoftReference<byte[]>(bytes));
+            }
+            if (usage != null)
+                usage.pageRead();
+            return bytes;
         }
 
+        /**
+         * Decodes the values of an entry in turn.
+         */
+        private final class Cursor
+        {
+            final int index;
+            int page;
+            byte[] bytes;
+            int offset;
+            /** Bytes left in the entry */
+            long left;
+            /** Values decoded so far */
+            int count;
+            long previous;
+
+            Cursor(int index, long start, long end)
+            {
+                this.index = index;
+                page = (int) (start / PAGE_SIZE);
+                offset = (int) (start % PAGE_SIZE);
+                bytes = getPage(page);
+                left = end - start;
+            }
+
+            boolean hasNext()
+            {
+                return left > 0;
+            }
+
+            /**
+             * The number of values, without decoding them.
+             * Each value ends with a byte without the top bit set.
+             */
+            int count()
+            {
+                int n = 0;
+                while (left > 0)
+                {
+                    if (nextByte() >= 0)
+                        ++n;
+                }
+                return n;
+            }
+
+            int next()
+            {
+                long v = 0;
+                for (int shift = 0;; shift += 7)
+                {
+                    byte b = nextByte();
+                    v |= (long) (b & 0x7f) << shift;
+                    if (b >= 0)
+                        break;
+                }
+                if (count++ == 1)
+                    previous = index;
+                previous += (v >>> 1) ^ -(v & 1);
+                return (int) previous;
+            }
+
+            void skip()
+            {
+                while (nextByte() < 0)
+                {}
+            }
+
+            private byte nextByte()
+            {
+                if (offset == bytes.length)
+                {
+                    bytes = getPage(++page);
+                    offset = 0;
+                }
+                --left;
+                return bytes[offset++];
+            }
+        }
     }
 
     static class InboundReader extends IntIndex1NSortedReader implements IIndexReader.IOne2ManyObjectsIndex
@@ -667,6 +1065,9 @@ public abstract class IndexReader
      * page size (4)
      * total size (4)
      * </pre>
+     * 
+     * As for {@link IntIndexReader}, a negative total size is the number of
+     * entries on the last page of an index with 2^31 entries or more.
      */
     public static class LongIndexReader extends IndexWriter.LongIndex implements IIndexReader.IOne2LongIndex
     {
@@ -683,10 +1084,18 @@ public abstract class IndexReader
         ConcurrentHashMap<Integer,Long>binarySearchCache2 = new ConcurrentHashMap<Integer,Long>((1 << DEPTH)* 4 / 3);
         /** Thread-safe page cache */
         final ConcurrentHashMap<Integer,SoftReference<ArrayLongCompressed>> pages2 = new ConcurrentHashMap<Integer,SoftReference<ArrayLongCompressed>>();
+        /** Where the pages read are charged, if anywhere */
+        ResourceManager.Usage usage;
 
-        @SuppressWarnings("unchecked")
         public LongIndexReader(File indexFile, HashMapIntObject<Object> pages, int size, int pageSize, long[] pageStart)
                         throws IOException
+        {
+            this(indexFile, pages, (long)size, pageSize, pageStart);
+        }
+
+        @SuppressWarnings("unchecked")
+        LongIndexReader(File indexFile, HashMapIntObject<Object> pages, long size, int pageSize, long[] pageStart)
+                        throws IOException
         {
             this.size = size;
             this.pageSize = pageSize;
@@ -715,14 +1124,27 @@ public abstract class IndexReader
         protected LongIndexReader(SimpleBufferedRandomAccessInputStream in, long start, long length) throws IOException
         {
             this.in = in;
-            this.in.seek(start + length - 8);
+            this.in.seek(start + length - 16);
 
+            long lastOffset = this.in.readLong();
             int pageSize = this.in.readInt();
             int size = this.in.readInt();
 
-            init(size, pageSize);
+            int pages;
+            if (size >= 0)
+            {
+                init(size, pageSize);
 
-            int pages = (size / pageSize) + (size % pageSize > 0 ? 2 : 1);
+                pages = (size / pageSize) + (size % pageSize > 0 ? 2 : 1);
+            }
+            else
+            {
+                // large dump format, find number of pages using offsets
+                pages = (int)((start + length - 8 - lastOffset) / 8);
+                // then find the total size from pages and entries in last page
+                long sizeL = (pages - 2L) * pageSize - size;
+                init(sizeL, pageSize);
+            }
 
             pageStart = new long[pages];
 
@@ -774,7 +1196,7 @@ public abstract class IndexReader
         public int reverse(long value)
         {
             int low = 0;
-            int high = size - 1;
+            int high = size() - 1;
 
             int depth = 0;
             int page = -1;
@@ -828,7 +1250,7 @@ public abstract class IndexReader
         public synchronized void unload()
         {
             binarySearchCache2 = new ConcurrentHashMap<Integer,Long>((1 << DEPTH) * 4 / 3);
-            pages2.clear();
+            ResourceManager.unload(pages2);
             super.unload();
         }
 
@@ -873,9 +1295,20 @@ public abstract class IndexReader
                 array = new ArrayLongCompressed(buffer);
 
                 // no need for putIfAbsent because we only do this inside sync block
-                pages2.put(page, new SoftReference<>(array));
-                return array;
+                pages2.put(page, usage != null ? usage.hold(array, toRead) : new SoftReference<>(array));
             }
+            if (usage != null)
+                usage.pageRead();
+            return array;
+        }
+
+        @Override
+        Future<?> prefetch(int page)
+        {
+            SoftReference<ArrayLongCompressed> ref = pages2.get(page);
+            if (ref != null && ref.get() != null)
+                return null;
+            return ResourceManager.getInstance().getIOExecutor().submit(() -> getPage(page));
         }
 
         public void delete()
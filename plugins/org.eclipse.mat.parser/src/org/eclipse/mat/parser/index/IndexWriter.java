@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2024 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,7 @@ import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -83,6 +84,12 @@ public abstract class IndexWriter
     private static final long MAX_OLD_HEADER_VALUE = 0xffffffffL >>> TESTSCALE;
     /** Switch point for inbound key to using longs */
     private static final long INBOUND_MAX_KEY1 = Integer.MAX_VALUE >>> TESTSCALE;
+    /** The encoding of the body of a 1:N index is in the top byte of the divider at the end of the file */
+    static final int ENCODING_SHIFT = 56;
+    /** Body of a 1:N index as pages of packed ints, as in files written before the encoding was marked */
+    static final int ENCODING_PACKED = 0;
+    /** Body of a 1:N index as a count then differences between the values, see {@link DeltaIntStreamer} */
+    static final int ENCODING_DELTA = 1;
 
     private static final Logger logger = Logger.getLogger(RetainedSizeCache.class.getName());
 
@@ -473,7 +480,7 @@ public abstract class IndexWriter
             return get0(index);
         }
 
-        int get(long index)
+        public int get(long index)
         {
             if (index == (int)index)
             {
@@ -561,23 +568,94 @@ public abstract class IndexWriter
             return answer;
         }
 
+        /**
+         * Reads consecutive entries into the start of a buffer, like
+         * {@link #getNext(long, int)} but without allocating an array.
+         */
+        void getNext(long index, int length, int[] buffer)
+        {
+            if (length == 0)
+                return;
+            int page = page(index);
+            int pageIndex = offset(index);
+
+            ArrayIntCompressed array = getPage(page);
+            for (int ii = 0; ii < length; ii++)
+            {
+                buffer[ii] = array.get(pageIndex++);
+                if (pageIndex >= pageSize && ii + 1 < length)
+                {
+                    array = getPage(++page);
+                    pageIndex = 0;
+                }
+            }
+        }
+
+        /**
+         * Passes consecutive entries to a consumer, straight from the
+         * compressed pages.
+         */
+        void forEachNext(long index, int length, IntConsumer consumer)
+        {
+            if (length == 0)
+                return;
+            int page = page(index);
+            int pageIndex = offset(index);
+
+            ArrayIntCompressed array = getPage(page);
+            for (int ii = 0; ii < length; ii++)
+            {
+                consumer.accept(array.get(pageIndex++));
+                if (pageIndex >= pageSize && ii + 1 < length)
+                {
+                    array = getPage(++page);
+                    pageIndex = 0;
+                }
+            }
+        }
+
         public int[] getAll(int index[])
         {
             int[] answer = new int[index.length];
+            // the ids might not be sorted, so do not read ahead
+            getAll(index, answer, false);
+            return answer;
+        }
 
+        /**
+         * Looks up ids in ascending order, decoding each page once and
+         * reading the next page needed in the background.
+         */
+        public void getAll(int[] index, int[] result)
+        {
+            getAll(index, result, true);
+        }
+
+        private void getAll(int[] index, int[] result, boolean readAhead)
+        {
             int page = -1;
             ArrayIntCompressed array = null;
+            int nextPage = -1;
+            Future<?> next = null;
 
-            for (int ii = 0; ii < answer.length; ii++)
+            for (int ii = 0; ii < index.length; ii++)
             {
                 int p = page(index[ii]);
                 if (p != page)
+                {
+                    if (p == nextPage)
+                        await(next);
                     array = getPage(page = p);
+                    if (readAhead)
+                    {
+                        int jj = firstAtLeast(index, ii + 1, (long) (p + 1) * pageSize);
+                        nextPage = jj < index.length ? page(index[jj]) : -1;
+                        next = nextPage >= 0 ? prefetch(nextPage) : null;
+                    }
+                }
 
-                answer[ii] = array.get(offset(index[ii]));
+                result[ii] = array.get(offset(index[ii]));
             }
-
-            return answer;
         }
 
         public void set(int index, int value)
@@ -588,6 +666,16 @@ public abstract class IndexWriter
 
         protected abstract ArrayIntCompressed getPage(int page);
 
+        /**
+         * Start reading a page which will be needed soon.
+         * @param page the page number
+         * @return a future to wait for the read, or null if nothing was started
+         */
+        Future<?> prefetch(int page)
+        {
+            return null;
+        }
+
         public synchronized void unload()
         {
             this.pages = new Pages<V>(page(size) + 1);
@@ -600,6 +688,11 @@ public abstract class IndexWriter
             return (int)Math.min(Integer.MAX_VALUE, size);
         }
 
+        public long longSize()
+        {
+            return size;
+        }
+
         public IteratorInt iterator()
         {
             return new IntIndexIterator(this);
@@ -1069,8 +1162,12 @@ public abstract class IndexWriter
         DataOutputStream out;
         IntIndexStreamer body;
 
-        List<SetTask> allTasks = new ArrayList<>();
-        long countTaskValues = 0;
+        /**
+         * The buffer of each thread, so threads do not contend to add to a shared one.
+         * Held here rather than in a ThreadLocal so that {@link #flush()} can drop them all,
+         * not leaving them reachable from the pool threads which added to them.
+         */
+        private final Map<Thread, TaskBuffer> taskBuffers = new ConcurrentHashMap<>();
 
         /**
          * Construct a writer of the required size.
@@ -1113,36 +1210,103 @@ public abstract class IndexWriter
          */
         public void log(IIndexReader.IOne2LongIndex identifier, int index, ArrayLong references) throws IOException
         {
-            // remove duplicates and convert to identifiers
-            // keep pseudo reference as first one
-
+            // remove duplicates, the addresses are converted to identifiers
+            // for a batch of objects at once
             long pseudo = references.firstElement();
+            long[] addresses = sortUnique(references);
 
+            TaskBuffer buffer = taskBuffer();
+            if (buffer.identifier != identifier)
+            {
+                resolve(buffer);
+                buffer.identifier = identifier;
+            }
+            buffer.pending.add(new PendingTask(index, pseudo, addresses));
+            buffer.countValues += addresses.length;
+            if (buffer.countValues >= TASK_BUFFER_MAX_MEMORY)
+                publish(buffer);
+        }
+
+        static long[] sortUnique(ArrayLong references)
+        {
             references.sort();
 
-            int[] objectIds = new int[references.size()];
-            int length = 1;
+            long[] addresses = new long[references.size()];
+            int length = 0;
+            for (int ii = 0; ii < addresses.length; ii++)
+            {
+                long current = references.get(ii);
+                if (length == 0 || addresses[length - 1] != current)
+                    addresses[length++] = current;
+            }
+            return length < addresses.length ? Arrays.copyOf(addresses, length) : addresses;
+        }
 
-            long current = 0, last = references.firstElement() - 1;
-            for (int ii = 0; ii < objectIds.length; ii++)
+        /**
+         * Converts the addresses of the references to object ids, keeping the
+         * pseudo reference as the first one and dropping the addresses which
+         * are not objects.
+         * @param addressIds the object id of each address, negative if not found
+         */
+        static int[] toObjectIds(long pseudo, long[] addresses, int[] addressIds)
+        {
+            int[] objectIds = new int[addresses.length];
+            int length = 1;
+            for (int ii = 0; ii < addresses.length; ii++)
             {
-                current = references.get(ii);
-                if (last != current)
+                int objectId = addressIds[ii];
+                if (objectId >= 0)
                 {
-                    int objectId = identifier.reverse(current);
+                    int jj = (addresses[ii] == pseudo) ? 0 : length++;
+                    objectIds[jj] = objectId;
+                }
+            }
+            return length < objectIds.length ? Arrays.copyOf(objectIds, length) : objectIds;
+        }
 
-                    if (objectId >= 0)
-                    {
-                        int jj = (current == pseudo) ? 0 : length++;
-                        objectIds[jj] = objectId;
-                    }
+        private TaskBuffer taskBuffer()
+        {
+            return taskBuffers.computeIfAbsent(Thread.currentThread(), t -> new TaskBuffer());
+        }
 
-                }
+        /**
+         * Converts the references of the pending objects of a buffer to
+         * object ids. All their addresses are sorted together so the identifier
+         * index is searched in one pass, and then each object looks up its
+         * addresses in the sorted batch.
+         */
+        private void resolve(TaskBuffer buffer)
+        {
+            if (buffer.pending.isEmpty())
+                return;
 
-                last = current;
+            int total = 0;
+            for (PendingTask t : buffer.pending)
+                total += t.addresses.length;
+            long[] batch = new long[total];
+            int length = 0;
+            for (PendingTask t : buffer.pending)
+            {
+                System.arraycopy(t.addresses, 0, batch, length, t.addresses.length);
+                length += t.addresses.length;
             }
+            Arrays.sort(batch);
+            int unique = 0;
+            for (int ii = 0; ii < length; ii++)
+                if (unique == 0 || batch[unique - 1] != batch[ii])
+                    batch[unique++] = batch[ii];
+            int[] batchIds = new int[unique];
+            buffer.identifier.reverseSorted(batch, unique, batchIds);
 
-            this.set(index, objectIds, 0, length);
+            for (PendingTask t : buffer.pending)
+            {
+                int[] addressIds = new int[t.addresses.length];
+                for (int ii = 0; ii < addressIds.length; ii++)
+                    addressIds[ii] = batchIds[Arrays.binarySearch(batch, 0, unique, t.addresses[ii])];
+                int[] objectIds = toObjectIds(t.pseudo, t.addresses, addressIds);
+                buffer.tasks.add(new SetTask(t.index, objectIds, 0, objectIds.length));
+            }
+            buffer.pending.clear();
         }
 
         /**
@@ -1174,23 +1338,19 @@ public abstract class IndexWriter
 
         protected void set(int index, int[] values, int offset, int length) throws IOException
         {
-            List<SetTask> tasks = null;
-            SetTask newTask = new SetTask(index, values, offset, length);
-            synchronized(allTasks)
-            {
-                allTasks.add(newTask);
-                countTaskValues += values.length;
-                if (countTaskValues >= TASK_BUFFER_MAX_MEMORY) {
-                    tasks = new ArrayList<>(allTasks);
-                    allTasks.clear();
-                    countTaskValues = 0;
-                }
-            }
+            TaskBuffer buffer = taskBuffer();
+            buffer.tasks.add(new SetTask(index, values, offset, length));
+            buffer.countValues += values.length;
+            if (buffer.countValues >= TASK_BUFFER_MAX_MEMORY)
+                publish(buffer);
+        }
 
-            if (tasks != null)
-            {
-                publishTasks(tasks);
-            }
+        private void publish(TaskBuffer buffer) throws IOException
+        {
+            resolve(buffer);
+            publishTasks(buffer.tasks);
+            buffer.tasks.clear();
+            buffer.countValues = 0;
         }
 
         void publishTasks(final List<SetTask> tasks) throws IOException
@@ -1212,16 +1372,12 @@ public abstract class IndexWriter
          */
         public IIndexReader.IOne2ManyIndex flush() throws IOException
         {
-            List<SetTask> tasks;
-            synchronized (allTasks) {
-                tasks = new ArrayList<>(allTasks);
-                allTasks.clear();
-                countTaskValues = 0;
-            }
+            // the threads adding to the buffers have finished
+            for (TaskBuffer buffer : taskBuffers.values())
+                publish(buffer);
+            taskBuffers.clear();
 
-            publishTasks(tasks);
-
-            long divider = body.closeStream();
+            long divider = closeBody();
 
             IIndexReader.IOne2OneIndex headerIndex = null;
             boolean usesHeader2 = false;
@@ -1257,11 +1413,33 @@ public abstract class IndexWriter
                 headerIndex = new IntIndexStreamer().writeTo(out, divider, header);
             }
 
-            out.writeLong(divider);
+            out.writeLong(divider | (long) encoding() << ENCODING_SHIFT);
 
             out.close();
             out = null;
 
+            return createReader(headerIndex);
+        }
+
+        /**
+         * Finishes writing the body.
+         * @return the length of the body, which is where the header starts
+         */
+        long closeBody() throws IOException
+        {
+            return body.closeStream();
+        }
+
+        /**
+         * How the body is encoded, marked at the end of the file for the readers.
+         */
+        int encoding()
+        {
+            return ENCODING_PACKED;
+        }
+
+        IIndexReader.IOne2ManyIndex createReader(IIndexReader.IOne2OneIndex headerIndex) throws IOException
+        {
             return createReader(headerIndex, body.getReader(null));
         }
 
@@ -1328,6 +1506,31 @@ public abstract class IndexWriter
                 this.length = length;
             }
         }
+
+        /**
+         * The sorted, unique addresses referenced by an object, waiting to be
+         * converted to object ids with the rest of the batch.
+         */
+        private static class PendingTask {
+            final int index;
+            final long pseudo;
+            final long[] addresses;
+            PendingTask(int index, long pseudo, long[] addresses) {
+                this.index = index;
+                this.pseudo = pseudo;
+                this.addresses = addresses;
+            }
+        }
+
+        /**
+         * The tasks of one thread, which are written out together.
+         */
+        private static class TaskBuffer {
+            final List<SetTask> tasks = new ArrayList<>();
+            final List<PendingTask> pending = new ArrayList<>();
+            IIndexReader.IOne2LongIndex identifier;
+            long countValues;
+        }
     }
 
     /**
@@ -1335,6 +1538,9 @@ public abstract class IndexWriter
      */
     public static class IntArray1NSortedWriter extends IntArray1NWriter
     {
+        /** Writes the body instead of the pages of packed ints, if delta encoded */
+        DeltaIntStreamer delta;
+
         /**
          * Construct a IntArray1NSortedWriter of the required size.
          * @param size number of entries
@@ -1342,18 +1548,78 @@ public abstract class IndexWriter
          * @throws IOException if there is a problem with file
          */
         public IntArray1NSortedWriter(int size, File indexFile) throws IOException
+        {
+            this(size, indexFile, false);
+        }
+
+        /**
+         * Construct a IntArray1NSortedWriter of the required size, choosing the encoding.
+         * Delta encoding suits entries which are sorted lists of object IDs,
+         * such as outbound references, as the differences between the IDs
+         * are generally much smaller than the IDs.
+         * @param size number of entries
+         * @param indexFile the output file
+         * @param deltaEncoded true to store the differences between the values as variable length integers,
+         * false to store pages of ints packed to the bits needed by the biggest value
+         * @throws IOException if there is a problem with file
+         * @since 1.17
+         */
+        public IntArray1NSortedWriter(int size, File indexFile, boolean deltaEncoded) throws IOException
         {
             super(size, indexFile);
+            if (deltaEncoded)
+                delta = new DeltaIntStreamer(out);
+        }
+
+        @Override
+        public void log(IIndexReader.IOne2LongIndex identifier, int index, ArrayLong references) throws IOException
+        {
+            // written in order, so convert the addresses straight away
+            long pseudo = references.firstElement();
+            long[] addresses = sortUnique(references);
+            int[] addressIds = new int[addresses.length];
+            identifier.reverseSorted(addresses, addresses.length, addressIds);
+            int[] objectIds = toObjectIds(pseudo, addresses, addressIds);
+            set(index, objectIds, 0, objectIds.length);
         }
 
         protected void set(int index, int[] values, int offset, int length) throws IOException
         {
+            if (delta != null)
+            {
+                // The entry ends where the next starts, 0 in the header means no entry
+                if (length > 0)
+                    setHeader(index, delta.add(index, values, offset, length) + 1);
+                return;
+            }
+
             long bodyPos = body.size + 1;
             setHeader(index, bodyPos);
 
             body.addAll(values, offset, length);
         }
 
+        @Override
+        long closeBody() throws IOException
+        {
+            return delta != null ? delta.size : super.closeBody();
+        }
+
+        @Override
+        int encoding()
+        {
+            return delta != null ? ENCODING_DELTA : ENCODING_PACKED;
+        }
+
+        @Override
+        IIndexReader.IOne2ManyIndex createReader(IIndexReader.IOne2OneIndex headerIndex) throws IOException
+        {
+            if (delta != null)
+                return new IndexReader.IntIndex1NSortedReader(this.indexFile, headerIndex,
+                                new IndexReader.DeltaIntReader(null, delta.size));
+            return super.createReader(headerIndex);
+        }
+
         protected IIndexReader.IOne2ManyIndex createReader(IIndexReader.IOne2OneIndex headerIndex,
                         IIndexReader.IOne2OneIndex bodyIndex) throws IOException
         {
@@ -1362,6 +1628,72 @@ public abstract class IndexWriter
 
     }
 
+    /**
+     * Writes the entries of a 1:N index as the differences between successive values.
+     * The first value, such as the class of an object, is relative to zero,
+     * the second relative to the index of the entry, as objects mostly refer to objects
+     * allocated nearby, and the rest relative to the previous value.
+     * The differences are zig-zag encoded so that small negative differences
+     * are also small numbers, then written as variable length integers of 7 bits per byte.
+     * The entries of a sorted list of object IDs then mostly take one or two bytes,
+     * whereas packed pages take the bits needed for the biggest object ID.
+     * <p>
+     * There is no count, as the entry ends where the next one in the header starts.
+     */
+    static class DeltaIntStreamer
+    {
+        final DataOutputStream out;
+        /** Bytes written so far */
+        long size;
+        /** Holds the encoded bytes until written out together */
+        final byte[] buffer = new byte[8192];
+
+        DeltaIntStreamer(DataOutputStream out)
+        {
+            this.out = out;
+        }
+
+        /**
+         * Write an entry.
+         * @return the position of the entry in the body
+         */
+        long add(int index, int[] values, int offset, int length) throws IOException
+        {
+            long start = size;
+            int pos = 0;
+            long previous = 0;
+            for (int i = offset; i < offset + length; ++i)
+            {
+                if (i == offset + 1)
+                    previous = index;
+                // Room for the longest value
+                if (pos > buffer.length - 5)
+                {
+                    out.write(buffer, 0, pos);
+                    size += pos;
+                    pos = 0;
+                }
+                long diff = values[i] - previous;
+                pos = write((diff << 1) ^ (diff >> 63), pos);
+                previous = values[i];
+            }
+            out.write(buffer, 0, pos);
+            size += pos;
+            return start;
+        }
+
+        private int write(long v, int pos)
+        {
+            while ((v & ~0x7fL) != 0)
+            {
+                buffer[pos++] = (byte) (v | 0x80);
+                v >>>= 7;
+            }
+            buffer[pos++] = (byte) v;
+            return pos;
+        }
+    }
+
     /**
      * A writer for inbound references.
      * The object and the inbound reference are stored in a
@@ -2041,7 +2373,7 @@ public abstract class IndexWriter
         private static final int DEPTH = 10;
 
         int pageSize;
-        int size;
+        long size;
         // pages are either IntArrayCompressed or
         // SoftReference<IntArrayCompressed>
         HashMapIntObject<Object> pages;
@@ -2062,12 +2394,25 @@ public abstract class IndexWriter
             this.pages = new HashMapIntObject<Object>(size / pageSize + 1);
         }
 
+        void init(long size, int pageSize)
+        {
+            this.size = size;
+            this.pageSize = pageSize;
+            this.pages = new HashMapIntObject<Object>((int)(size / pageSize) + 1);
+        }
+
         public long get(int index)
         {
             ArrayLongCompressed array = getPage(index / pageSize);
             return array.get(index % pageSize);
         }
 
+        public long get(long index)
+        {
+            ArrayLongCompressed array = getPage((int)(index / pageSize));
+            return array.get((int)(index % pageSize));
+        }
+
         public long[] getNext(int index, int length)
         {
             long answer[] = new long[length];
@@ -2088,10 +2433,38 @@ public abstract class IndexWriter
             return answer;
         }
 
+        /**
+         * Looks up keys in ascending order, decoding each page once and
+         * reading the next page needed in the background.
+         */
+        public void getAll(int[] index, long[] result)
+        {
+            int page = -1;
+            ArrayLongCompressed array = null;
+            int nextPage = -1;
+            Future<?> next = null;
+
+            for (int ii = 0; ii < index.length; ii++)
+            {
+                int p = index[ii] / pageSize;
+                if (p != page)
+                {
+                    if (p == nextPage)
+                        await(next);
+                    array = getPage(page = p);
+                    int jj = firstAtLeast(index, ii + 1, (long) (p + 1) * pageSize);
+                    nextPage = jj < index.length ? index[jj] / pageSize : -1;
+                    next = nextPage >= 0 ? prefetch(nextPage) : null;
+                }
+
+                result[ii] = array.get(index[ii] % pageSize);
+            }
+        }
+
         public int reverse(long value)
         {
             int low = 0;
-            int high = size - 1;
+            int high = size() - 1;
 
             int depth = 0;
             int page = -1;
@@ -2140,6 +2513,94 @@ public abstract class IndexWriter
             return -(low + 1); // key not found.
         }
 
+        /**
+         * Resolves sorted values in one pass, galloping forward from the
+         * previous value so that nearby values cost only a few reads of the
+         * page already in use.
+         */
+        public void reverseSorted(long[] values, int length, int[] result)
+        {
+            int size = size();
+            Cursor cursor = new Cursor();
+            // every entry before low is less than the values still to find
+            int low = 0;
+            for (int ii = 0; ii < length; ii++)
+            {
+                long value = values[ii];
+
+                // find an entry at least as big as the value, doubling the step each time
+                int high = low;
+                int step = 1;
+                while (high < size && cursor.get(high) < value)
+                {
+                    low = high + 1;
+                    high = (int) Math.min((long) high + step, size);
+                    step <<= 1;
+                }
+
+                // then the first entry at least as big as the value
+                while (low < high)
+                {
+                    int mid = (low + high) >>> 1;
+                    if (cursor.get(mid) < value)
+                        low = mid + 1;
+                    else
+                        high = mid;
+                }
+
+                result[ii] = low < size && cursor.get(low) == value ? low : -(low + 1);
+            }
+        }
+
+        /**
+         * Reads entries, keeping hold of the current page.
+         */
+        private final class Cursor
+        {
+            int page = -1;
+            ArrayLongCompressed array;
+
+            long get(int index)
+            {
+                int p = index / pageSize;
+                if (p != page)
+                    array = getPage(page = p);
+                return array.get(index % pageSize);
+            }
+        }
+
+        public long reverseLong(long value)
+        {
+            // the cached search of the smaller indexes
+            if (size <= Integer.MAX_VALUE)
+                return reverse(value);
+
+            long low = 0;
+            long high = size - 1;
+
+            int page = -1;
+            ArrayLongCompressed array = null;
+
+            while (low <= high)
+            {
+                long mid = (low + high) >>> 1;
+
+                int p = (int)(mid / pageSize);
+                if (p != page)
+                    array = getPage(page = p);
+
+                long midVal = array.get((int)(mid % pageSize));
+
+                if (midVal < value)
+                    low = mid + 1;
+                else if (midVal > value)
+                    high = mid - 1;
+                else
+                    return mid; // key found
+            }
+            return -(low + 1); // key not found.
+        }
+
         public void set(int index, long value)
         {
             ArrayLongCompressed array = getPage(index / pageSize);
@@ -2148,13 +2609,30 @@ public abstract class IndexWriter
 
         protected abstract ArrayLongCompressed getPage(int page);
 
+        /**
+         * Start reading a page which will be needed soon.
+         * @param page the page number
+         * @return a future to wait for the read, or null if nothing was started
+         */
+        Future<?> prefetch(int page)
+        {
+            return null;
+        }
+
         public synchronized void unload()
         {
-            pages = new HashMapIntObject<Object>(size / pageSize + 1);
+            pages = new HashMapIntObject<Object>((int)(size / pageSize) + 1);
             binarySearchCache = new HashMapIntLong(1 << DEPTH);
         }
 
         public int size()
+        {
+            if (size > Integer.MAX_VALUE)
+                throw new IllegalStateException();
+            return (int)size;
+        }
+
+        public long longSize()
         {
             return size;
         }
@@ -2168,7 +2646,7 @@ public abstract class IndexWriter
     static class LongIndexIterator implements IteratorLong
     {
         LongIndex longArray;
-        int nextIndex = 0;
+        long nextIndex = 0;
 
         public LongIndexIterator(LongIndex longArray)
         {
@@ -2182,7 +2660,7 @@ public abstract class IndexWriter
 
         public boolean hasNext()
         {
-            return nextIndex < longArray.size();
+            return nextIndex < longArray.longSize();
         }
     }
 
@@ -2464,7 +2942,9 @@ public abstract class IndexWriter
                 out.writeLong(pageStart.get(jj));
 
             out.writeInt(pageSize);
-            out.writeInt(size);
+            // Encoded size is the negative number of entries in the last page
+            int s = size <= FORMAT1_MAX_SIZE ? (int)size : -(int)((size + pageSize - 1) % pageSize + 1);
+            out.writeInt(s);
 
             this.page = null;
 
@@ -2814,6 +3294,47 @@ public abstract class IndexWriter
         return lead == 0x0 ? mostSignificantBit((int) x) : 32 + mostSignificantBit((int) lead);
     }
 
+    /**
+     * The position of the first of the sorted ids from a position
+     * which is at least the key.
+     */
+    static int firstAtLeast(int[] index, int from, long key)
+    {
+        int low = from;
+        int high = index.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (index[mid] < key)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Wait for a page being read ahead. A failed read is ignored
+     * as the page is read again when it is used, reporting the problem then.
+     */
+    static void await(Future<?> read)
+    {
+        if (read == null)
+            return;
+        try
+        {
+            read.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            // $JL-EXC$
+        }
+    }
+
     static ExecutorService singleThreadedExecutor(String name)
     {
         final int poolSize = 1;
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.index;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares memory and reader threads between all the open snapshots.
+ * <p>
+ * The index pages held by the snapshots are charged against one budget.
+ * A page is charged while it is held, so until the snapshot unloads it or
+ * the garbage collector clears it.
+ * When reading a page takes the total over the budget, the caches of the
+ * other snapshots are released, least recently used first, until the total
+ * is back under the budget. The pages of the snapshot being used are
+ * left for the garbage collector to clear as they are only softly held,
+ * so a snapshot on its own reads its pages without any locking.
+ * The object caches of the snapshots share a total number of entries.
+ * <p>
+ * The budget is a quarter of the maximum heap, or the number of megabytes
+ * given by the system property <code>mat.indexPageBudget</code>.
+ * @since 1.17
+ */
+public final class ResourceManager
+{
+    /** Entries in the object caches of all the snapshots */
+    private static final int OBJECT_BUDGET = 4000;
+    /** Most entries in the object cache of one snapshot */
+    private static final int MAX_OBJECTS = 1000;
+    /** Fewest entries in the object cache of one snapshot */
+    private static final int MIN_OBJECTS = 100;
+
+    private static final ResourceManager INSTANCE = new ResourceManager(defaultBudget());
+
+    private final long budget;
+    /** Copied on change, so the bytes held can be added up without locking */
+    private final List<Usage> usages = new CopyOnWriteArrayList<Usage>();
+    /** The pages cleared by the garbage collector */
+    private final ReferenceQueue<Object> cleared = new ReferenceQueue<Object>();
+    private final ExecutorService io;
+
+    /**
+     * A snapshot whose caches can be changed to share the resources.
+     */
+    public interface Owner
+    {
+        /**
+         * Make room for other snapshots by dropping the index pages and objects
+         * held by this snapshot.
+         */
+        void releaseCaches();
+
+        /**
+         * Change the number of objects to cache.
+         * @param size the number of entries in the object cache
+         */
+        void setObjectCacheSize(int size);
+    }
+
+    /**
+     * A page held by a snapshot, which is charged until it is released.
+     */
+    private static final class Page<T> extends SoftReference<T>
+    {
+        private final Usage usage;
+        private final AtomicLong bytes;
+
+        Page(T page, Usage usage, long bytes)
+        {
+            super(page, usage.manager.cleared);
+            this.usage = usage;
+            this.bytes = new AtomicLong(bytes);
+        }
+
+        void release()
+        {
+            // only once, whether unloaded or cleared by the garbage collector
+            long held = bytes.getAndSet(0);
+            if (held != 0)
+                usage.pageBytes.addAndGet(-held);
+        }
+    }
+
+    /**
+     * The resources used by one snapshot.
+     */
+    public static final class Usage
+    {
+        private final ResourceManager manager;
+        private final String name;
+        private final WeakReference<Owner> snapshot;
+        private final AtomicLong pageBytes = new AtomicLong();
+        private final AtomicLong pagesRead = new AtomicLong();
+        private final AtomicLong releases = new AtomicLong();
+        private volatile long lastUsed;
+        private volatile int objectCacheSize;
+
+        private Usage(ResourceManager manager, String name, Owner snapshot)
+        {
+            this.manager = manager;
+            this.name = name;
+            this.snapshot = new WeakReference<Owner>(snapshot);
+            this.lastUsed = System.nanoTime();
+        }
+
+        /**
+         * Hold a page read from an index file, charging it until it is
+         * released by {@link ResourceManager#unload(Map)} or
+         * {@link ResourceManager#release(Reference)} or cleared by the
+         * garbage collector.
+         * Call {@link #pageRead()} once the page is in the cache.
+         * @param page the decoded page
+         * @param bytes the size of the page
+         * @param <T> the type of the page
+         * @return the reference to keep in the cache
+         */
+        public <T> SoftReference<T> hold(T page, long bytes)
+        {
+            pageBytes.addAndGet(bytes);
+            return new Page<T>(page, this, bytes);
+        }
+
+        /**
+         * Note that a page has been read, releasing the caches of other
+         * snapshots if the pages held are over the budget.
+         * Call this without holding any locks of the index readers, as other
+         * snapshots might be unloaded.
+         */
+        public void pageRead()
+        {
+            pagesRead.incrementAndGet();
+            lastUsed = System.nanoTime();
+            manager.charge(this);
+        }
+
+        /**
+         * @return the path of the snapshot
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return bytes of index pages held
+         */
+        public long getPageBytes()
+        {
+            manager.expunge();
+            return pageBytes.get();
+        }
+
+        /**
+         * @return index pages read since the snapshot was opened
+         */
+        public long getPagesRead()
+        {
+            return pagesRead.get();
+        }
+
+        /**
+         * @return how many times the caches were released to make room for other snapshots
+         */
+        public long getReleases()
+        {
+            return releases.get();
+        }
+
+        /**
+         * @return the number of entries allowed in the object cache
+         */
+        public int getObjectCacheSize()
+        {
+            return objectCacheSize;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + " pages read " + getPagesRead() + " bytes held " + getPageBytes() //$NON-NLS-1$ //$NON-NLS-2$
+                            + " releases " + getReleases() + " object cache " + getObjectCacheSize(); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    private static long defaultBudget()
+    {
+        long megabytes = Long.getLong("mat.indexPageBudget", 0L); //$NON-NLS-1$
+        if (megabytes > 0)
+            return megabytes << 20;
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    /**
+     * A manager separate from the shared one, for example for tests.
+     * @param budget the bytes of index pages the snapshots can hold between them
+     */
+    public ResourceManager(long budget)
+    {
+        this.budget = budget;
+        final int poolSize = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 1, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), r -> {
+                            Thread t = new Thread(r, "MAT-IndexReader"); //$NON-NLS-1$
+                            t.setDaemon(true);
+                            return t;
+                        });
+        executor.allowCoreThreadTimeOut(true);
+        this.io = executor;
+    }
+
+    /**
+     * @return the manager shared by all the snapshots
+     */
+    public static ResourceManager getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * The threads for reading index files ahead of use, shared by all the snapshots.
+     * The threads are daemons and go away when idle.
+     * @return the executor
+     */
+    public ExecutorService getIOExecutor()
+    {
+        return io;
+    }
+
+    /**
+     * @return the bytes of index pages the snapshots can hold between them
+     */
+    public long getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * @return bytes of index pages held by all the snapshots
+     */
+    public long getUsed()
+    {
+        expunge();
+        return held();
+    }
+
+    private long held()
+    {
+        long total = 0;
+        for (Usage u : usages)
+            total += u.pageBytes.get();
+        return total;
+    }
+
+    /**
+     * Stop charging the pages cleared by the garbage collector.
+     */
+    private void expunge()
+    {
+        Reference<?> ref;
+        while ((ref = cleared.poll()) != null)
+            ((Page<?>) ref).release();
+    }
+
+    /**
+     * Remove all the pages from a cache, no longer charging them.
+     * @param pages the cache of an index reader
+     */
+    public static void unload(Map<?, ? extends Reference<?>> pages)
+    {
+        for (Object key : pages.keySet())
+            release(pages.remove(key));
+    }
+
+    /**
+     * Stop charging a page which is no longer in the cache.
+     * @param ref the reference from {@link Usage#hold(Object, long)}, or any other reference or null, which are ignored
+     */
+    public static void release(Reference<?> ref)
+    {
+        if (ref instanceof Page<?>)
+            ((Page<?>) ref).release();
+    }
+
+    /**
+     * Start tracking the resources of a snapshot.
+     * The snapshot is only weakly held, so is not kept if it is not disposed.
+     * @param name the path of the snapshot
+     * @param snapshot the snapshot
+     * @return the usage to charge the snapshot's index pages to
+     */
+    public Usage register(String name, Owner snapshot)
+    {
+        Usage usage = new Usage(this, name, snapshot);
+        synchronized (this)
+        {
+            purge();
+            usages.add(usage);
+        }
+        resizeObjectCaches();
+        return usage;
+    }
+
+    /**
+     * Stop tracking a snapshot, as it is disposed.
+     * @param usage the usage returned by {@link #register(String, Owner)}
+     */
+    public void unregister(Usage usage)
+    {
+        synchronized (this)
+        {
+            if (!usages.remove(usage))
+                return;
+        }
+        resizeObjectCaches();
+    }
+
+    /**
+     * @return the usage of each open snapshot
+     */
+    public synchronized List<Usage> getUsages()
+    {
+        purge();
+        return new ArrayList<Usage>(usages);
+    }
+
+    /**
+     * Forget snapshots which were not disposed but have been garbage collected.
+     */
+    private void purge()
+    {
+        usages.removeIf(u -> u.snapshot.get() == null);
+    }
+
+    /**
+     * Share the object cache entries between the snapshots.
+     */
+    private void resizeObjectCaches()
+    {
+        List<Usage> all = getUsages();
+        int size = Math.max(MIN_OBJECTS, Math.min(MAX_OBJECTS, OBJECT_BUDGET / Math.max(1, all.size())));
+        for (Usage u : all)
+        {
+            Owner snapshot = u.snapshot.get();
+            if (snapshot != null && u.objectCacheSize != size)
+            {
+                u.objectCacheSize = size;
+                snapshot.setObjectCacheSize(size);
+            }
+        }
+    }
+
+    private void charge(Usage usage)
+    {
+        expunge();
+        long total = held();
+        // nothing to release if no other snapshot holds any pages
+        if (total <= budget || total == usage.pageBytes.get())
+            return;
+
+        // choose under the lock, but release outside it as releasing takes the readers' locks
+        List<Usage> victims = new ArrayList<Usage>();
+        synchronized (this)
+        {
+            purge();
+            List<Usage> others = new ArrayList<Usage>(usages);
+            others.remove(usage);
+            others.sort(Comparator.comparingLong((Usage u) -> u.lastUsed));
+            long target = budget - budget / 4;
+            for (Usage u : others)
+            {
+                if (total <= target)
+                    break;
+                long held = u.pageBytes.get();
+                if (held == 0)
+                    continue;
+                total -= held;
+                victims.add(u);
+            }
+        }
+        for (Usage u : victims)
+        {
+            Owner snapshot = u.snapshot.get();
+            if (snapshot != null)
+            {
+                u.releases.incrementAndGet();
+                snapshot.releaseCaches();
+            }
+        }
+    }
+}
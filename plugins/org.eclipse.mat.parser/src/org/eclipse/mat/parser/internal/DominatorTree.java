@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ package org.eclipse.mat.parser.internal;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayUtils;
@@ -58,7 +59,8 @@ public class DominatorTree
         private int[] semi;
 
         private static int ROOT_VALUE = -1;
-        private static int[] ROOT_VALUE_ARR = new int[] { ROOT_VALUE };
+        /** reused to read the inbound references */
+        private int[] predecessors = new int[1024];
 
         public Calculator(SnapshotImpl snapshot, IProgressListener listener) throws SnapshotException
         {
@@ -130,9 +132,10 @@ public class DominatorTree
             for (int i = n; i >= 2; i--)
             {
                 int w = vertex[i];
-                for (int v : getPredecessors(w))
+                int count = getPredecessors(w);
+                for (int ii = 0; ii < count; ii++)
                 {
-                    v += 2;
+                    int v = predecessors[ii] + 2;
                     if (v < 0)
                         continue;
                     int u = eval(v);
@@ -240,29 +243,34 @@ public class DominatorTree
 
             // a stack for each parameter - stack code is inlined for
             // performance
-            // currentElementStack - for v, successorsStack - for the successors
-            // array,
-            // currentSuccessorStack - for the index in the array
+            // currentElementStack - for v, successorsEndStack - for the end of
+            // the successors of v in the successor pool,
+            // currentSuccessorStack - for the position of the next successor
+            // in the pool
             int capacity = 2047; // capacity for the arrays - allows resize up to 2047<<20
             int size = 0; // one size for all arrays
             int[] currentElementStack = new int[capacity];
             int[] currentSuccessorStack = new int[capacity];
-            Object[] successorsStack = new Object[capacity];
+            int[] successorsEndStack = new int[capacity];
+
+            // the successors of all the elements on the stack, one after the
+            // other, read without allocating an array for each element
+            SuccessorPool pool = new SuccessorPool();
+            for (int successor : gcRootsArray)
+                pool.accept(successor);
 
             int v = root;
-            int[] successors = gcRootsArray;
             int currentSuccessor = 0;
 
             // push the initial values
             currentElementStack[size] = root;
-            successorsStack[size] = successors;
+            successorsEndStack[size] = pool.size;
             currentSuccessorStack[size] = currentSuccessor;
             size++;
 
             while (size > 0)
             {
                 v = currentElementStack[size - 1];
-                successors = (int[]) successorsStack[size - 1];
                 currentSuccessor = currentSuccessorStack[size - 1];
 
                 if (semi[v] == 0)
@@ -274,9 +282,9 @@ public class DominatorTree
                     anchestor[v] = 0;
                 }
 
-                if (currentSuccessor < successors.length)
+                if (currentSuccessor < successorsEndStack[size - 1])
                 {
-                    int w = successors[currentSuccessor++] + 2;
+                    int w = pool.data[currentSuccessor++] + 2;
                     currentSuccessorStack[size - 1] = currentSuccessor; // update
                     // the top
                     // value
@@ -285,7 +293,8 @@ public class DominatorTree
                     if (semi[w] == 0)
                     {
                         parent[w] = v;
-                        successors = outboundIndex.get(w - 2); // get the
+                        int successorsStart = pool.size;
+                        outboundIndex.forEach(w - 2, pool); // get the
                         // successors of w
 
                         /* start push() */
@@ -303,17 +312,17 @@ public class DominatorTree
                             System.arraycopy(currentSuccessorStack, 0, newArr, 0, capacity);
                             currentSuccessorStack = newArr;
 
-                            // resize successorsStack
-                            Object[] newSuccessorsArr = new Object[newCapacity];
-                            System.arraycopy(successorsStack, 0, newSuccessorsArr, 0, capacity);
-                            successorsStack = newSuccessorsArr;
+                            // resize successorsEndStack
+                            newArr = new int[newCapacity];
+                            System.arraycopy(successorsEndStack, 0, newArr, 0, capacity);
+                            successorsEndStack = newArr;
 
                             capacity = newCapacity;
 
                         }
                         currentElementStack[size] = w;
-                        successorsStack[size] = successors;
-                        currentSuccessorStack[size] = 0;
+                        successorsEndStack[size] = pool.size;
+                        currentSuccessorStack[size] = successorsStart;
                         size++;
                         /* end push() */
 
@@ -328,8 +337,10 @@ public class DominatorTree
                 }
                 else
                 {
-                    // this one acts as a pop() for all tree stacks
+                    // this one acts as a pop() for all tree stacks,
+                    // the successors of v start where those of its parent end
                     size--;
+                    pool.size = size > 0 ? successorsEndStack[size - 1] : 0;
                 }
             }
 
@@ -337,18 +348,42 @@ public class DominatorTree
 
         }
 
-        // gets retained set idx and returns the real indexes
-        private int[] getPredecessors(int v)
+        // gets retained set idx and puts the real indexes into predecessors,
+        // returns the number of them
+        private int getPredecessors(int v)
         {
             v -= 2;
             // for the GC roots return the artificial root
             if (gcRootsSet.get(v))
             {
-                return ROOT_VALUE_ARR;
+                predecessors[0] = ROOT_VALUE;
+                return 1;
             }
             else
             {
-                return inboundIndex.get(v);
+                int count = inboundIndex.get(v, predecessors);
+                if (count > predecessors.length)
+                {
+                    predecessors = new int[count];
+                    inboundIndex.get(v, predecessors);
+                }
+                return count;
+            }
+        }
+
+        /**
+         * A growable stack of ints, filled straight from the outbound index.
+         */
+        private static final class SuccessorPool implements IntConsumer
+        {
+            int[] data = new int[1024];
+            int size;
+
+            public void accept(int value)
+            {
+                if (size == data.length)
+                    data = Arrays.copyOf(data, data.length << 1);
+                data[size++] = value;
             }
         }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2025 SAP AG and others.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -51,6 +52,7 @@ import org.eclipse.mat.parser.index.IndexWriter.LongIndexStreamer;
 import org.eclipse.mat.parser.internal.snapshot.IObjectMarker;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarkerFactory;
+import org.eclipse.mat.parser.internal.util.IntStack;
 import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.parser.model.XGCRootInfo;
 import org.eclipse.mat.snapshot.UnreachableObjectsHistogram;
@@ -195,6 +197,9 @@ import org.eclipse.mat.util.SilentProgressListener;
                 }
             }
 
+            // optionally renumber the objects for locality of reference
+            final int[] order = reorder(idx, reachable, map, newNoOfObjects, listener);
+
             ArrayList<Callable<CleanupWrapper>> tasks = new ArrayList<Callable<CleanupWrapper>>();
 
             for(int i = 0; i < oldNoOfObjects; i += PARALLEL_CHUNK_SIZE) {
@@ -279,26 +284,43 @@ import org.eclipse.mat.util.SilentProgressListener;
             File indexFile = Index.IDENTIFIER.getFile(idx.snapshotInfo.getPrefix());
             listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, indexFile.getAbsolutePath()));
             idxManager.setReader(Index.IDENTIFIER, new LongIndexStreamer().writeTo(indexFile, new IteratorLong() {
-                int i = 0;
+                NewObjectIterator it = new NewObjectIterator(map, order);
                 @Override
                 public boolean hasNext()
                 {
-                    while (i < map.length && map[i] == -1)
-                        ++i;
-                    return i < map.length;
+                    return it.hasNext();
                 }
 
                 @Override
                 public long next()
                 {
-                    if (hasNext())
-                        return identifiers.get(i++);
-                    throw new NoSuchElementException();
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    long answer = identifiers.get(it.nextIndex);
+                    it.findNext();
+                    return answer;
                 }
             }));
             identifiers.close();
             identifiers.delete();
 
+            if (order != null)
+            {
+                // The ids are no longer in address order, so the lookup of an
+                // address needs the ids in address order
+                indexFile = Index.ADDRESS_ORDER.getFile(idx.snapshotInfo.getPrefix());
+                listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, indexFile.getAbsolutePath()));
+                idxManager.setReader(Index.ADDRESS_ORDER, new IntIndexStreamer().writeTo(indexFile,
+                                new NewObjectIntIterator(map, null)
+                                {
+                                    @Override
+                                    int doGetNextInt(int index)
+                                    {
+                                        return map[nextIndex];
+                                    }
+                                }));
+            }
+
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
             listener.worked(1); // 6
@@ -310,7 +332,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             indexFile = Index.O2CLASS.getFile(idx.snapshotInfo.getPrefix());
             listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, indexFile.getAbsolutePath()));
             idxManager.setReader(Index.O2CLASS, new IntIndexStreamer().writeTo(indexFile,
-                            new NewObjectIntIterator()
+                            new NewObjectIntIterator(map, order)
                             {
                                 @Override
                                 int doGetNextInt(int index)
@@ -319,12 +341,6 @@ import org.eclipse.mat.util.SilentProgressListener;
                                     // return
                                     // map[object2classId.get(nextIndex)];
                                 }
-
-                                @Override
-                                int[] getMap()
-                                {
-                                    return map;
-                                }
                             }));
 
             object2classId.close();
@@ -345,7 +361,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             final BitField arrayObjects = new BitField(newNoOfObjects);
             // arrayObjects
             IOne2OneIndex newIdx = new IntIndexStreamer().writeTo(indexFile,
-                            new NewObjectIntIterator()
+                            new NewObjectIntIterator(map, order)
                             {
                                 IOne2SizeIndex a2size = preA2size;
                                 int newIndex = 0;
@@ -360,12 +376,6 @@ import org.eclipse.mat.util.SilentProgressListener;
                                     newIndex++;
                                     return size;
                                 }
-
-                                @Override
-                                int[] getMap()
-                                {
-                                    return map;
-                                }
                             });
 
             idxManager.setReader(Index.A2SIZE, new SizeIndexReader(newIdx)); 
@@ -383,15 +393,17 @@ import org.eclipse.mat.util.SilentProgressListener;
 
             listener.subTask(Messages.GarbageCleaner_ReIndexingOutboundIndex);
 
+            // The outbound references are mostly to nearby objects, so delta encoding suits them
             IndexWriter.IntArray1NSortedWriter w_out = new IndexWriter.IntArray1NSortedWriter(newNoOfObjects,
-                            IndexManager.Index.OUTBOUND.getFile(idx.snapshotInfo.getPrefix()));
+                            IndexManager.Index.OUTBOUND.getFile(idx.snapshotInfo.getPrefix()), true);
             IndexWriter.InboundWriter w_in = new IndexWriter.InboundWriter(newNoOfObjects, IndexManager.Index.INBOUND
                             .getFile(idx.snapshotInfo.getPrefix()));
 
-            for (int ii = 0; ii < oldNoOfObjects; ii++)
+            // in order of the new ids, so the bodies of the indexes are in that order too
+            for (NewObjectIterator it = new NewObjectIterator(map, order); it.hasNext(); it.findNext())
             {
+                int ii = it.nextIndex;
                 int k = map[ii];
-				if (k < 0) continue;
 
 				int[] a = preOutbound.get(ii);
 				int[] tl = new int[a.length];
@@ -499,19 +511,135 @@ import org.eclipse.mat.util.SilentProgressListener;
         return answer;
     }
 
-    private static abstract class NewObjectIterator
+    /**
+     * Renumber the live objects in the order a traversal from the GC roots
+     * reaches them, so that an object and the objects it refers to have nearby
+     * ids and later traversals of the snapshot touch fewer pages of the indexes.
+     * Depth first keeps each object near the objects it refers to and their
+     * descendants, breadth first keeps objects at the same distance from the roots together.
+     * @param idx the preliminary index, with the old ids
+     * @param reachable the objects to keep
+     * @param map filled in with the new id for each old id, -1 for discarded objects
+     * @param newNoOfObjects the number of objects to keep
+     * @param listener for progress and to report a bad option
+     * @return the old ids in the order of the new ids, or null if the ids stay in address order
+     */
+    private static int[] reorder(PreliminaryIndexImpl idx, boolean[] reachable, int[] map, int newNoOfObjects,
+                    IProgressListener listener)
+    {
+        Serializable mode = idx.getSnapshotInfo().getProperty("reorder_objects"); //$NON-NLS-1$
+        if (mode == null)
+            return null;
+        boolean depthFirst;
+        if ("dfs".equals(mode)) //$NON-NLS-1$
+            depthFirst = true;
+        else if ("bfs".equals(mode)) //$NON-NLS-1$
+            depthFirst = false;
+        else
+        {
+            listener.sendUserMessage(Severity.WARNING,
+                            MessageUtil.format(Messages.GarbageCleaner_UnknownReorder, mode), null);
+            return null;
+        }
+        listener.subTask(Messages.GarbageCleaner_ReorderingObjects);
+
+        IOne2ManyIndex preOutbound = idx.outbound;
+        // including any unreachable objects now kept as roots
+        int[] roots = idx.gcRoots.getAllKeys();
+        Arrays.sort(roots);
+        int[] order = new int[newNoOfObjects];
+        Arrays.fill(map, -1);
+        int next = 0;
+        IntStack stack = new IntStack();
+        for (int root : roots)
+        {
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            if (!reachable[root] || map[root] >= 0)
+                continue;
+            map[root] = next;
+            order[next++] = root;
+            if (!depthFirst)
+                continue;
+            stack.push(root);
+            while (stack.size() > 0)
+            {
+                int first = next;
+                next = discover(stack.pop(), preOutbound, reachable, map, order, next);
+                // descend into the first of the newly found objects next
+                for (int jj = next - 1; jj >= first; --jj)
+                    stack.push(order[jj]);
+            }
+        }
+        if (!depthFirst)
+        {
+            // the new order is the queue
+            for (int head = 0; head < next; ++head)
+            {
+                if ((head & 0xfffff) == 0 && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                next = discover(order[head], preOutbound, reachable, map, order, next);
+            }
+        }
+        // should not be any, but keep them in address order after the rest
+        for (int ii = 0; ii < map.length; ++ii)
+        {
+            if (reachable[ii] && map[ii] < 0)
+            {
+                map[ii] = next;
+                order[next++] = ii;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Give the next new ids to the objects referred to by an object which
+     * do not have a new id yet.
+     * @return the next new id to use
+     */
+    private static int discover(int ii, IOne2ManyIndex outbound, boolean[] reachable, int[] map, int[] order, int next)
+    {
+        for (int ref : outbound.get(ii))
+        {
+            if (reachable[ref] && map[ref] < 0)
+            {
+                map[ref] = next;
+                order[next++] = ref;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Iterates through the old ids of the objects which are kept,
+     * in the order of their new ids.
+     */
+    private static class NewObjectIterator
     {
         int nextIndex = -1;
         int[] $map;
+        int[] $order;
+        int position;
 
-        public NewObjectIterator()
+        /**
+         * @param map old id to new id, -1 for discarded objects
+         * @param order the old ids in order of the new ids, null if that is the order of the old ids
+         */
+        public NewObjectIterator(int[] map, int[] order)
         {
-            $map = getMap();
+            $map = map;
+            $order = order;
             findNext();
         }
 
         protected void findNext()
         {
+            if ($order != null)
+            {
+                nextIndex = position < $order.length ? $order[position++] : $map.length;
+                return;
+            }
             nextIndex++;
             while (nextIndex < $map.length && $map[nextIndex] < 0)
                 nextIndex++;
@@ -521,12 +649,15 @@ import org.eclipse.mat.util.SilentProgressListener;
         {
             return nextIndex < $map.length;
         }
-
-        abstract int[] getMap();
     }
 
     private static abstract class NewObjectIntIterator extends NewObjectIterator implements IteratorInt
     {
+        public NewObjectIntIterator(int[] map, int[] order)
+        {
+            super(map, order);
+        }
+
         public int next()
         {
             int answer = doGetNextInt(nextIndex);
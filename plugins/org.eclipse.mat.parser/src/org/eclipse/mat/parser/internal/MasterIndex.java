@@ -0,0 +1,811 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.parser.model.ClassImpl;
+import org.eclipse.mat.parser.model.XGCRootInfo;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.ObjectReference;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The binary master index of a parsed snapshot, the <code>&lt;prefix&gt;index</code> file.
+ * <p>
+ * The file starts with a header holding the offsets of its sections, so
+ * each section can be read on its own, when it is needed:
+ * <ul>
+ * <li>the parser and the {@link XSnapshotInfo}</li>
+ * <li>a string pool with the names of classes and fields and the class loader labels</li>
+ * <li>the class table</li>
+ * <li>the GC roots and the GC roots per thread, as fixed size records</li>
+ * <li>the class loader labels</li>
+ * <li>the array objects, as a bit set</li>
+ * </ul>
+ * The snapshot info can hold any serializable property, so it is still stored
+ * with Java serialization, but it is small. Everything else is plain data.
+ * <p>
+ * Earlier versions of Memory Analyzer wrote the whole file with Java
+ * serialization, which is still read by {@link SnapshotImpl#readFromFile}.
+ */
+/* package */final class MasterIndex
+{
+    /** "MAT2", not the start of a Java serialization stream */
+    private static final int MAGIC = 0x4D415432;
+    private static final int VERSION = 1;
+
+    private static final int INFO = 0;
+    private static final int STRINGS = 1;
+    private static final int CLASSES = 2;
+    private static final int ROOTS = 3;
+    private static final int THREAD_ROOTS = 4;
+    private static final int LOADER_LABELS = 5;
+    private static final int ARRAY_OBJECTS = 6;
+    private static final int SECTIONS = 7;
+
+    private static final int HEADER_SIZE = 8 + 8 * SECTIONS;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* The fewest bytes for an entry of each table, to check the counts */
+    private static final int CLASS_SIZE = 77;
+    private static final int STATIC_FIELD_SIZE = 9;
+    private static final int FIELD_SIZE = 8;
+    private static final int ROOTS_SIZE = 8;
+    private static final int ROOT_INFO_SIZE = 28;
+    private static final int THREAD_SIZE = 8;
+    private static final int LOADER_LABEL_SIZE = 8;
+
+    private final File file;
+    private final long length;
+    private final long[] offsets;
+    private String[] strings;
+
+    /**
+     * Whether the file is a binary master index, rather than one written with
+     * Java serialization.
+     */
+    /* package */static boolean isMasterIndex(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file)))
+        {
+            return file.length() >= HEADER_SIZE && in.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Reads the header of a binary master index.
+     */
+    /* package */MasterIndex(File file) throws IOException
+    {
+        this.file = file;
+        this.length = file.length();
+        this.offsets = new long[SECTIONS];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException(MessageUtil.format(Messages.SnapshotImpl_Error_UnknownVersion, file));
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException(MessageUtil.format(Messages.SnapshotImpl_Error_UnknownVersion, version));
+            for (int ii = 0; ii < SECTIONS; ii++)
+            {
+                offsets[ii] = in.readLong();
+                if (offsets[ii] < HEADER_SIZE || offsets[ii] > length)
+                    throw corrupt();
+            }
+        }
+    }
+
+    private IOException corrupt()
+    {
+        return new IOException(MessageUtil.format(Messages.MasterIndex_Error_Corrupt, file));
+    }
+
+    /**
+     * Counts the bytes read, so the counts read can be checked against the
+     * rest of the file.
+     */
+    private static final class PositionInputStream extends FilterInputStream
+    {
+        long position;
+
+        PositionInputStream(InputStream in, long position)
+        {
+            super(in);
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b >= 0)
+                position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * A section of the file, which knows how much of the file is left.
+     */
+    private final class SectionInputStream extends DataInputStream
+    {
+        private final PositionInputStream counter;
+
+        SectionInputStream(PositionInputStream counter)
+        {
+            super(counter);
+            this.counter = counter;
+        }
+
+        long remaining()
+        {
+            return length - counter.position;
+        }
+    }
+
+    /**
+     * Reads the size of an array or table. The entries must fit in the rest of
+     * the file, so a corrupt file gives an exception rather than running out
+     * of memory.
+     *
+     * @param entrySize the fewest bytes each entry takes in the file
+     */
+    private int readCount(SectionInputStream in, int entrySize) throws IOException
+    {
+        int count = in.readInt();
+        if (count < 0 || (long) count * entrySize > in.remaining())
+            throw corrupt();
+        return count;
+    }
+
+    private SectionInputStream openSection(int section) throws IOException
+    {
+        FileInputStream fis = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = fis.getChannel();
+            channel.position(offsets[section]);
+            return new SectionInputStream(new PositionInputStream(
+                            new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), offsets[section]));
+        }
+        catch (IOException e)
+        {
+            fis.close();
+            throw e;
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // reading
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * The unique identifier of the parser which created the snapshot.
+     */
+    /* package */String readParserId() throws IOException
+    {
+        try (SectionInputStream in = openSection(INFO))
+        {
+            return in.readUTF();
+        }
+    }
+
+    /* package */XSnapshotInfo readSnapshotInfo() throws IOException
+    {
+        try (SectionInputStream in = openSection(INFO))
+        {
+            in.readUTF();
+            byte[] serialized = new byte[readCount(in, 1)];
+            in.readFully(serialized);
+            try (ObjectInputStream oin = SnapshotImpl.createObjectInputStream(new ByteArrayInputStream(serialized)))
+            {
+                return (XSnapshotInfo) oin.readObject();
+            }
+            catch (ClassNotFoundException | ClassCastException e)
+            {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private synchronized String[] strings() throws IOException
+    {
+        if (strings == null)
+        {
+            try (SectionInputStream in = openSection(STRINGS))
+            {
+                String[] s = new String[readCount(in, 4)];
+                for (int ii = 0; ii < s.length; ii++)
+                    s[ii] = readChars(in);
+                strings = s;
+            }
+        }
+        return strings;
+    }
+
+    private String readChars(SectionInputStream in) throws IOException
+    {
+        char[] chars = new char[readCount(in, 2)];
+        for (int ii = 0; ii < chars.length; ii++)
+            chars[ii] = in.readChar();
+        return new String(chars);
+    }
+
+    private String string(String[] strings, int index) throws IOException
+    {
+        if (index >= strings.length)
+            throw corrupt();
+        return index < 0 ? null : strings[index];
+    }
+
+    /* package */HashMapIntObject<ClassImpl> readClasses() throws IOException
+    {
+        String[] strings = strings();
+        try (SectionInputStream in = openSection(CLASSES))
+        {
+            int count = readCount(in, CLASS_SIZE);
+            HashMapIntObject<ClassImpl> classCache = new HashMapIntObject<ClassImpl>(count);
+            int[] classInstanceIds = new int[count];
+            int[][] subclassIds = new int[count][];
+            ClassImpl[] classes = new ClassImpl[count];
+
+            for (int ii = 0; ii < count; ii++)
+            {
+                long address = in.readLong();
+                int objectId = in.readInt();
+                classInstanceIds[ii] = in.readInt();
+                String name = string(strings, in.readInt());
+                long superClassAddress = in.readLong();
+                int superClassId = in.readInt();
+                long classLoaderAddress = in.readLong();
+                int classLoaderId = in.readInt();
+                long usedHeapSize = in.readInt();
+                long instanceSize = in.readInt();
+                int instanceCount = in.readInt();
+                long totalSize = in.readLong();
+
+                Field[] staticFields = new Field[readCount(in, STATIC_FIELD_SIZE)];
+                for (int jj = 0; jj < staticFields.length; jj++)
+                {
+                    String fieldName = string(strings, in.readInt());
+                    int type = in.readInt();
+                    staticFields[jj] = new Field(fieldName, type, readValue(in));
+                }
+                FieldDescriptor[] fields = new FieldDescriptor[readCount(in, FIELD_SIZE)];
+                for (int jj = 0; jj < fields.length; jj++)
+                {
+                    String fieldName = string(strings, in.readInt());
+                    fields[jj] = new FieldDescriptor(fieldName, in.readInt());
+                }
+
+                ClassImpl clazz = new ClassImpl(address, name, superClassAddress, classLoaderAddress, staticFields, fields);
+                clazz.setObjectId(objectId);
+                clazz.setSuperClassIndex(superClassId);
+                clazz.setClassLoaderIndex(classLoaderId);
+                clazz.setUsedHeapSize(usedHeapSize);
+                clazz.setHeapSizePerInstance(instanceSize);
+                clazz.setInstances(instanceCount, totalSize);
+                clazz.setCacheEntry(readCacheEntry(in));
+
+                int[] subclasses = new int[readCount(in, 4)];
+                for (int jj = 0; jj < subclasses.length; jj++)
+                    subclasses[jj] = in.readInt();
+                subclassIds[ii] = subclasses;
+
+                classes[ii] = clazz;
+                classCache.put(objectId, clazz);
+            }
+
+            // Classes refer to each other, so link them once all are read
+            for (int ii = 0; ii < count; ii++)
+            {
+                if (classInstanceIds[ii] >= 0)
+                    classes[ii].setClassInstance(classCache.get(classInstanceIds[ii]));
+                for (int subclassId : subclassIds[ii])
+                    classes[ii].addSubClass(classCache.get(subclassId));
+            }
+            return classCache;
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException
+    {
+        byte tag = in.readByte();
+        switch (tag)
+        {
+            case 0:
+                return null;
+            case 'L':
+                return new ObjectReference(null, in.readLong());
+            case 'Z':
+                return in.readBoolean();
+            case 'B':
+                return in.readByte();
+            case 'C':
+                return in.readChar();
+            case 'S':
+                return in.readShort();
+            case 'I':
+                return in.readInt();
+            case 'J':
+                return in.readLong();
+            case 'F':
+                return in.readFloat();
+            case 'D':
+                return in.readDouble();
+            default:
+                throw new IOException(MessageUtil.format(Messages.SnapshotImpl_Error_UnknownVersion, tag));
+        }
+    }
+
+    private Serializable readCacheEntry(SectionInputStream in) throws IOException
+    {
+        byte tag = in.readByte();
+        if (tag == 0)
+            return null;
+        int length = readCount(in, tag == 'I' ? 4 : 8);
+        if (tag == 'I')
+        {
+            int[] entry = new int[length];
+            for (int ii = 0; ii < length; ii++)
+                entry[ii] = in.readInt();
+            return entry;
+        }
+        else
+        {
+            long[] entry = new long[length];
+            for (int ii = 0; ii < length; ii++)
+                entry[ii] = in.readLong();
+            return entry;
+        }
+    }
+
+    /* package */HashMapIntObject<XGCRootInfo[]> readRoots() throws IOException
+    {
+        try (SectionInputStream in = openSection(ROOTS))
+        {
+            return readRoots(in);
+        }
+    }
+
+    /* package */HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> readRootsPerThread() throws IOException
+    {
+        try (SectionInputStream in = openSection(THREAD_ROOTS))
+        {
+            int threads = in.readInt();
+            if (threads < 0)
+                return null;
+            if ((long) threads * THREAD_SIZE > in.remaining())
+                throw corrupt();
+            HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread = new HashMapIntObject<HashMapIntObject<XGCRootInfo[]>>(
+                            threads);
+            for (int ii = 0; ii < threads; ii++)
+            {
+                int threadId = in.readInt();
+                rootsPerThread.put(threadId, readRoots(in));
+            }
+            return rootsPerThread;
+        }
+    }
+
+    private HashMapIntObject<XGCRootInfo[]> readRoots(SectionInputStream in) throws IOException
+    {
+        int count = readCount(in, ROOTS_SIZE);
+        HashMapIntObject<XGCRootInfo[]> roots = new HashMapIntObject<XGCRootInfo[]>(count);
+        for (int ii = 0; ii < count; ii++)
+        {
+            int objectId = in.readInt();
+            XGCRootInfo[] infos = new XGCRootInfo[readCount(in, ROOT_INFO_SIZE)];
+            for (int jj = 0; jj < infos.length; jj++)
+            {
+                int rootObjectId = in.readInt();
+                long objectAddress = in.readLong();
+                int contextId = in.readInt();
+                long contextAddress = in.readLong();
+                int type = in.readInt();
+                XGCRootInfo info = new XGCRootInfo(objectAddress, contextAddress, type);
+                info.setObjectId(rootObjectId);
+                info.setContextId(contextId);
+                infos[jj] = info;
+            }
+            roots.put(objectId, infos);
+        }
+        return roots;
+    }
+
+    /* package */HashMapIntObject<String> readLoaderLabels() throws IOException
+    {
+        String[] strings = strings();
+        try (SectionInputStream in = openSection(LOADER_LABELS))
+        {
+            int count = readCount(in, LOADER_LABEL_SIZE);
+            HashMapIntObject<String> loaderLabels = new HashMapIntObject<String>(count);
+            for (int ii = 0; ii < count; ii++)
+            {
+                int objectId = in.readInt();
+                loaderLabels.put(objectId, string(strings, in.readInt()));
+            }
+            return loaderLabels;
+        }
+    }
+
+    /* package */BitField readArrayObjects() throws IOException
+    {
+        try (SectionInputStream in = openSection(ARRAY_OBJECTS))
+        {
+            int size = in.readInt();
+            if (size < 0 || size / 8 > in.remaining())
+                throw corrupt();
+            BitField arrayObjects = new BitField(size);
+            for (int ii = 0; ii < size; ii += 32)
+            {
+                int word = in.readInt();
+                while (word != 0)
+                {
+                    int bit = Integer.numberOfTrailingZeros(word);
+                    arrayObjects.set(ii + bit);
+                    word &= word - 1;
+                }
+            }
+            return arrayObjects;
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // writing
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Some content of the snapshot cannot be stored as plain data, so the
+     * master index has to be written with Java serialization instead.
+     */
+    private static class UnsupportedContentException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Writes the master index of a freshly parsed snapshot.
+     *
+     * @return false if the snapshot holds data which cannot be stored in this
+     *         format, for example unusual static field values; the file is
+     *         then incomplete and has to be written the old way.
+     */
+    /* package */static boolean write(File file, String objectReaderUniqueIdentifier, XSnapshotInfo snapshotInfo,
+                    HashMapIntObject<ClassImpl> classCache, HashMapIntObject<XGCRootInfo[]> roots,
+                    HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread,
+                    HashMapIntObject<String> loaderLabels, BitField arrayObjects) throws IOException
+    {
+        try (FileOutputStream fos = new FileOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE)))
+        {
+            FileChannel channel = fos.getChannel();
+            long[] offsets = new long[SECTIONS];
+            Map<String, Integer> pool = new HashMap<String, Integer>();
+            List<String> strings = new ArrayList<String>();
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (int ii = 0; ii < SECTIONS; ii++)
+                out.writeLong(0);
+
+            offsets[INFO] = position(out, channel);
+            out.writeUTF(objectReaderUniqueIdentifier);
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (ObjectOutputStream oout = new ObjectOutputStream(serialized))
+            {
+                oout.writeObject(snapshotInfo);
+            }
+            out.writeInt(serialized.size());
+            serialized.writeTo(out);
+
+            offsets[CLASSES] = position(out, channel);
+            writeClasses(out, classCache, pool, strings);
+
+            offsets[ROOTS] = position(out, channel);
+            writeRoots(out, roots);
+
+            offsets[THREAD_ROOTS] = position(out, channel);
+            if (rootsPerThread == null)
+            {
+                out.writeInt(-1);
+            }
+            else
+            {
+                out.writeInt(rootsPerThread.size());
+                for (IteratorInt it = rootsPerThread.keys(); it.hasNext();)
+                {
+                    int threadId = it.next();
+                    out.writeInt(threadId);
+                    writeRoots(out, rootsPerThread.get(threadId));
+                }
+            }
+
+            offsets[LOADER_LABELS] = position(out, channel);
+            out.writeInt(loaderLabels.size());
+            for (IteratorInt it = loaderLabels.keys(); it.hasNext();)
+            {
+                int objectId = it.next();
+                out.writeInt(objectId);
+                out.writeInt(stringIndex(loaderLabels.get(objectId), pool, strings));
+            }
+
+            offsets[ARRAY_OBJECTS] = position(out, channel);
+            int size = snapshotInfo.getNumberOfObjects();
+            out.writeInt(size);
+            for (int ii = 0; ii < size; ii += 32)
+            {
+                int word = 0;
+                for (int bit = 0; bit < 32 && ii + bit < size; bit++)
+                {
+                    if (arrayObjects.get(ii + bit))
+                        word |= 1 << bit;
+                }
+                out.writeInt(word);
+            }
+
+            offsets[STRINGS] = position(out, channel);
+            out.writeInt(strings.size());
+            for (String s : strings)
+            {
+                out.writeInt(s.length());
+                out.writeChars(s);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(8 * SECTIONS);
+            for (long offset : offsets)
+                header.putLong(offset);
+            header.flip();
+            long position = 8;
+            while (header.hasRemaining())
+                position += channel.write(header, position);
+            return true;
+        }
+        catch (UnsupportedContentException e)
+        {
+            return false;
+        }
+    }
+
+    private static long position(DataOutputStream out, FileChannel channel) throws IOException
+    {
+        out.flush();
+        return channel.position();
+    }
+
+    private static int stringIndex(String s, Map<String, Integer> pool, List<String> strings)
+    {
+        if (s == null)
+            return -1;
+        Integer index = pool.get(s);
+        if (index == null)
+        {
+            index = strings.size();
+            strings.add(s);
+            pool.put(s, index);
+        }
+        return index;
+    }
+
+    private static void writeClasses(DataOutputStream out, HashMapIntObject<ClassImpl> classCache,
+                    Map<String, Integer> pool, List<String> strings) throws IOException
+    {
+        out.writeInt(classCache.size());
+        for (Iterator<ClassImpl> it = classCache.values(); it.hasNext();)
+        {
+            ClassImpl clazz = it.next();
+            if (clazz.getClass() != ClassImpl.class)
+                throw new UnsupportedContentException();
+
+            ClassImpl classInstance = clazz.getClazz();
+            if (classInstance != null && classCache.get(classInstance.getObjectId()) != classInstance)
+                throw new UnsupportedContentException();
+
+            out.writeLong(clazz.getObjectAddress());
+            out.writeInt(clazz.getObjectId());
+            out.writeInt(classInstance != null ? classInstance.getObjectId() : -1);
+            out.writeInt(stringIndex(clazz.getName(), pool, strings));
+            out.writeLong(clazz.getSuperClassAddress());
+            out.writeInt(clazz.getSuperClassId());
+            out.writeLong(clazz.getClassLoaderAddress());
+            out.writeInt(clazz.getClassLoaderId());
+            out.writeInt((int) clazz.getUsedHeapSize());
+            out.writeInt((int) clazz.getHeapSizePerInstance());
+            out.writeInt(clazz.getNumberOfObjects());
+            out.writeLong(clazz.getTotalSize());
+
+            List<Field> staticFields = clazz.getStaticFields();
+            out.writeInt(staticFields.size());
+            for (Field field : staticFields)
+            {
+                out.writeInt(stringIndex(field.getName(), pool, strings));
+                out.writeInt(field.getType());
+                writeValue(out, field.getValue());
+            }
+            List<FieldDescriptor> fields = clazz.getFieldDescriptors();
+            out.writeInt(fields.size());
+            for (FieldDescriptor field : fields)
+            {
+                if (field.getClass() != FieldDescriptor.class)
+                    throw new UnsupportedContentException();
+                out.writeInt(stringIndex(field.getName(), pool, strings));
+                out.writeInt(field.getType());
+            }
+
+            writeCacheEntry(out, clazz.getCacheEntry());
+
+            List<IClass> subclasses = clazz.getSubclasses();
+            out.writeInt(subclasses.size());
+            for (IClass subclass : subclasses)
+            {
+                if (classCache.get(subclass.getObjectId()) != subclass)
+                    throw new UnsupportedContentException();
+                out.writeInt(subclass.getObjectId());
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(0);
+        }
+        else if (value instanceof ObjectReference)
+        {
+            out.writeByte('L');
+            out.writeLong(((ObjectReference) value).getObjectAddress());
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Byte)
+        {
+            out.writeByte('B');
+            out.writeByte((Byte) value);
+        }
+        else if (value instanceof Character)
+        {
+            out.writeByte('C');
+            out.writeChar((Character) value);
+        }
+        else if (value instanceof Short)
+        {
+            out.writeByte('S');
+            out.writeShort((Short) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte('I');
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte('J');
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte('F');
+            out.writeFloat((Float) value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte('D');
+            out.writeDouble((Double) value);
+        }
+        else
+        {
+            throw new UnsupportedContentException();
+        }
+    }
+
+    private static void writeCacheEntry(DataOutputStream out, Serializable entry) throws IOException
+    {
+        if (entry == null)
+        {
+            out.writeByte(0);
+        }
+        else if (entry instanceof int[])
+        {
+            int[] values = (int[]) entry;
+            out.writeByte('I');
+            out.writeInt(values.length);
+            for (int v : values)
+                out.writeInt(v);
+        }
+        else if (entry instanceof long[])
+        {
+            long[] values = (long[]) entry;
+            out.writeByte('J');
+            out.writeInt(values.length);
+            for (long v : values)
+                out.writeLong(v);
+        }
+        else
+        {
+            throw new UnsupportedContentException();
+        }
+    }
+
+    private static void writeRoots(DataOutputStream out, HashMapIntObject<XGCRootInfo[]> roots) throws IOException
+    {
+        out.writeInt(roots.size());
+        for (IteratorInt it = roots.keys(); it.hasNext();)
+        {
+            int objectId = it.next();
+            XGCRootInfo[] infos = roots.get(objectId);
+            out.writeInt(objectId);
+            out.writeInt(infos.length);
+            for (XGCRootInfo info : infos)
+            {
+                out.writeInt(info.getObjectId());
+                out.writeLong(info.getObjectAddress());
+                out.writeInt(info.getContextId());
+                out.writeLong(info.getContextAddress());
+                out.writeInt(info.getType());
+            }
+        }
+    }
+}
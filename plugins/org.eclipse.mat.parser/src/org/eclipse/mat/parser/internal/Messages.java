@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2025 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2009, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ public class Messages extends NLS
     private static final String BUNDLE_NAME = "org.eclipse.mat.parser.internal.messages"; //$NON-NLS-1$
     public static String AbstractObjectImpl_Error_FieldContainsIllegalReference;
     public static String AbstractObjectImpl_Error_FieldIsNotReference;
+    public static String Aggregate_Error_OnlyInSelectList;
     public static String BitOutputStream_Error_ArrayFull;
     public static String ClassHistogramRecordBuilder_Error_IllegalUseOfHistogramBuilder;
     public static String DominatorTree_CalculateRetainedSizes;
@@ -37,17 +38,21 @@ public class Messages extends NLS
     public static String GarbageCleaner_ReIndexingOutboundIndex;
     public static String GarbageCleaner_RemovedUnreachableObjects;
     public static String GarbageCleaner_RemovingUnreachableObjects;
+    public static String GarbageCleaner_ReorderingObjects;
     public static String GarbageCleaner_SearchingForUnreachableObjects;
+    public static String GarbageCleaner_UnknownReorder;
     public static String GarbageCleaner_UnreachablesSetting;
     public static String GarbageCleaner_Writing;
     public static String HistogramBuilder_Error_FailedToStoreInHistogram;
     public static String IndexReader_Error_IndexIsEmbedded;
     public static String IndexReader_Error_PageReadOverflow;
+    public static String IndexReader_Error_UnknownEncoding;
     public static String IndexWriter_Error_ArrayLength;
     public static String IndexWriter_Error_ObjectArrayLength;
     public static String IndexWriter_NotImplemented;
     public static String IndexWriter_StoredError;
     public static String IndexWriter_StoredException;
+    public static String MasterIndex_Error_Corrupt;
     public static String MethodCallExpression_Error_MethodNotFound;
     public static String MethodCallExpression_Error_MethodProhibited;
     public static String MultiplePathsFromGCRootsComputerImpl_FindingPaths;
@@ -63,6 +68,7 @@ public class Messages extends NLS
     public static String SnapshotFactoryImpl_Error_NoParserRegistered;
     public static String SnapshotFactoryImpl_Error_OpeningHeapDump;
     public static String SnapshotFactoryImpl_Error_ReparsingHeapDump;
+    public static String SnapshotFactoryImpl_Error_TriageNotSupported;
     public static String SnapshotFactoryImpl_ErrorOpeningHeapDump;
     public static String SnapshotFactoryImpl_FinishOpeningDump;
     public static String SnapshotFactoryImpl_GCRootContextIDDoesNotMatchAddress;
@@ -92,7 +98,9 @@ public class Messages extends NLS
     public static String SnapshotFactoryImpl_ValidatingGCRoots;
     public static String SnapshotFactoryImpl_ValidatingIndices;
     public static String SnapshotImpl_BuildingHistogram;
+    public static String SnapshotImpl_CalculatingDominatorTreeInBackground;
     public static String SnapshotImpl_CalculatingRetainedHeapSizeForClasses;
+    public static String SnapshotImpl_DominatorTreeThread;
     public static String SnapshotImpl_Error_DomTreeNotAvailable;
     public static String SnapshotImpl_Error_ObjectNotFound;
     public static String SnapshotImpl_Error_ParserNotFound;
@@ -106,6 +114,7 @@ public class Messages extends NLS
     public static String SnapshotImpl_ReopeningParsedHeapDumpFile;
     public static String SnapshotImpl_RetainedSetProgressName;
     public static String SnapshotImpl_RetrievingDominators;
+    public static String SnapshotImpl_WaitingForDominatorTree;
     public static String ObjectArrayImpl_forArray;
     public static String ObjectMarker_MarkingObjects;
     public static String ObjectMarker_ErrorMarkingObjects;
@@ -122,9 +131,12 @@ public class Messages extends NLS
     public static String OQLQueryImpl_Error_CannotCalculateRetainedSet;
     public static String OQLQueryImpl_Error_ClassCastExceptionOccured;
     public static String OQLQueryImpl_Error_ElementIsNotClass;
+    public static String OQLQueryImpl_Error_GroupByNotSupported;
     public static String OQLQueryImpl_Error_InvalidClassNamePattern;
     public static String OQLQueryImpl_Error_MissingSnapshot;
     public static String OQLQueryImpl_Error_MustReturnObjectList;
+    public static String OQLQueryImpl_Error_NotGroupedSelectItem;
+    public static String OQLQueryImpl_Error_NotSelectedOrderItem;
     public static String OQLQueryImpl_Error_QueryCannotBeConverted;
     public static String OQLQueryImpl_Error_QueryMustHaveIdenticalSelectItems;
     public static String OQLQueryImpl_Error_QueryMustReturnObjects;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2025 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -62,11 +62,13 @@ import org.eclipse.mat.snapshot.IOQLQuery;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.snapshot.SnapshotFormat;
+import org.eclipse.mat.snapshot.TriageResult;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.IProgressListener.Severity;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SimpleMonitor;
+import org.eclipse.mat.util.VoidProgressListener;
 import org.eclipse.mat.util.WrappedLoggingProgressListener;
 
 public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
@@ -111,92 +113,8 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                 }
             }
 
-            String name = file.getName();
-
-            /*
-             * Perhaps there are extensions with dots, e.g. .phd.gz or
-             * .hprof.gz, so this code ensures the whole extension is removed.
-             */
-            IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
-            IContentType javaheapdump = contentTypeManager.getContentType("org.eclipse.mat.JavaHeapDump"); //$NON-NLS-1$
             List<IContentType> listtypes = new ArrayList<IContentType>();
-            if (javaheapdump != null)
-            {
-                String n1 = name;
-                IContentType types[];
-                try (FileInputStream fis = new FileInputStream(file))
-                {
-                    types = contentTypeManager.findContentTypesFor(fis, file.getPath());
-                    if (types.length == 0)
-                    {
-                        try (FileInputStream fis2 = new FileInputStream(file))
-                        {
-                            types = contentTypeManager.findContentTypesFor(fis2, null);
-                        }
-                    }
-                }
-                catch (IOException e)
-                {
-                    // Ignore, try using file name alone
-                    types = contentTypeManager.findContentTypesFor(file.getPath());
-                }
-                for (IContentType tp : types)
-                {
-                    if (tp.isKindOf(javaheapdump))
-                    {
-                        // See if this content description is based on the file
-                        // contents
-                        IContentDescription cd1, cd2;
-                        try (FileInputStream fis = new FileInputStream(file))
-                        {
-                            // Succeeds if based on context
-                            cd1 = tp.getDescriptionFor(fis, IContentDescription.ALL);
-                        }
-                        catch (IOException e)
-                        {
-                            cd1 = null;
-                        }
-                        try (InputStream sr = new ByteArrayInputStream(new byte[10]))
-                        {
-                            // Succeeds if generic type without content checking
-                            cd2 = tp.getDescriptionFor(sr, IContentDescription.ALL);
-                        }
-                        catch (IOException e)
-                        {
-                            cd2 = null;
-                        }
-                        if (cd1 != null && cd2 == null)
-                        {
-                            listtypes.add(tp);
-                            for (String ext : tp.getFileSpecs(IContentType.FILE_EXTENSION_SPEC))
-                            {
-                                // Does extension itself contains a dot, and
-                                // matches this file ?
-                                if (ext.indexOf('.') >= 0 && name.endsWith("." + ext)) //$NON-NLS-1$
-                                {
-                                    // It has a dot, so remove
-                                    n1 = name.substring(0, name.length() - ext.length());
-                                    // This looks a good content type as matches
-                                    // with long extension.
-                                    // So put it first.
-                                    listtypes.remove(tp);
-                                    listtypes.add(0, tp);
-                                }
-                            }
-                        }
-                    }
-                }
-                name = n1;
-            }
-
-            int p = name.lastIndexOf('.');
-            name = p >= 0 ? name.substring(0, p + 1) : name + ".";//$NON-NLS-1$
-            String prefix = new File(file.getParentFile(), name).getAbsolutePath();
-            String snapshot_identifier = args.get("snapshot_identifier"); //$NON-NLS-1$
-            if (snapshot_identifier != null)
-            {
-                prefix += snapshot_identifier + "."; //$NON-NLS-1$
-            }
+            String prefix = prefix(file, args, listtypes);
 
             wrappedListener.setFile(new File(prefix + "log.index"));
 
@@ -234,18 +152,32 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
             {
                 File lockFile = new File(prefix + "lock.index"); //$NON-NLS-1$
                 /*
-                 * For autocloseable, the closeable object will be closed when
-                 * parsing is done. This will release the lock and delete the
-                 * lock file.
+                 * The closeable object will be closed when parsing is done.
+                 * This will release the lock and delete the lock file. After
+                 * an early open the dominator tree is still being written, so
+                 * the background calculation closes it instead.
                  */
-                try (Closeable ac = lockParse(file, lockFile, wrappedListener))
+                Closeable ac = lockParse(file, lockFile, wrappedListener);
+                boolean handedOver = false;
+                try
                 {
                     deleteIndexFiles(file, prefix, lockFile, wrappedListener);
-                    answer = parse(file, prefix, args, listtypes, wrappedListener);
+                    answer = parse(file, prefix, args, listtypes, wrappedListener, ac);
+                    handedOver = answer != null && Boolean.parseBoolean(args.get("early_open")); //$NON-NLS-1$
                 }
-                catch (IOException e)
+                finally
                 {
-                    throw new SnapshotException(e);
+                    if (!handedOver)
+                    {
+                        try
+                        {
+                            ac.close();
+                        }
+                        catch (IOException e)
+                        {
+                            throw new SnapshotException(e);
+                        }
+                    }
                 }
             }
 
@@ -275,6 +207,105 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
         }
     }
 
+    /**
+     * Find the prefix used to name the index files for a dump, and the content types
+     * of the dump.
+     * @param file the dump
+     * @param args parsing arguments, which may identify a snapshot in the dump
+     * @param listtypes updated with the heap dump content types, in preference order
+     * @return the prefix
+     */
+    private String prefix(File file, Map<String, String> args, List<IContentType> listtypes)
+    {
+        String name = file.getName();
+
+        /*
+         * Perhaps there are extensions with dots, e.g. .phd.gz or
+         * .hprof.gz, so this code ensures the whole extension is removed.
+         */
+        IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
+        IContentType javaheapdump = contentTypeManager.getContentType("org.eclipse.mat.JavaHeapDump"); //$NON-NLS-1$
+        if (javaheapdump != null)
+        {
+            String n1 = name;
+            IContentType types[];
+            try (FileInputStream fis = new FileInputStream(file))
+            {
+                types = contentTypeManager.findContentTypesFor(fis, file.getPath());
+                if (types.length == 0)
+                {
+                    try (FileInputStream fis2 = new FileInputStream(file))
+                    {
+                        types = contentTypeManager.findContentTypesFor(fis2, null);
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                // Ignore, try using file name alone
+                types = contentTypeManager.findContentTypesFor(file.getPath());
+            }
+            for (IContentType tp : types)
+            {
+                if (tp.isKindOf(javaheapdump))
+                {
+                    // See if this content description is based on the file
+                    // contents
+                    IContentDescription cd1, cd2;
+                    try (FileInputStream fis = new FileInputStream(file))
+                    {
+                        // Succeeds if based on context
+                        cd1 = tp.getDescriptionFor(fis, IContentDescription.ALL);
+                    }
+                    catch (IOException e)
+                    {
+                        cd1 = null;
+                    }
+                    try (InputStream sr = new ByteArrayInputStream(new byte[10]))
+                    {
+                        // Succeeds if generic type without content checking
+                        cd2 = tp.getDescriptionFor(sr, IContentDescription.ALL);
+                    }
+                    catch (IOException e)
+                    {
+                        cd2 = null;
+                    }
+                    if (cd1 != null && cd2 == null)
+                    {
+                        listtypes.add(tp);
+                        for (String ext : tp.getFileSpecs(IContentType.FILE_EXTENSION_SPEC))
+                        {
+                            // Does extension itself contains a dot, and
+                            // matches this file ?
+                            if (ext.indexOf('.') >= 0 && name.endsWith("." + ext)) //$NON-NLS-1$
+                            {
+                                // It has a dot, so remove
+                                n1 = name.substring(0, name.length() - ext.length());
+                                // This looks a good content type as matches
+                                // with long extension.
+                                // So put it first.
+                                listtypes.remove(tp);
+                                listtypes.add(0, tp);
+                            }
+                        }
+                    }
+                }
+            }
+            name = n1;
+        }
+
+        int p = name.lastIndexOf('.');
+        name = p >= 0 ? name.substring(0, p + 1) : name + ".";//$NON-NLS-1$
+        String prefix = new File(file.getParentFile(), name).getAbsolutePath();
+        String snapshot_identifier = args.get("snapshot_identifier"); //$NON-NLS-1$
+        if (snapshot_identifier != null)
+        {
+            prefix += snapshot_identifier + "."; //$NON-NLS-1$
+        }
+
+        return prefix;
+    }
+
     /**
      * Create a lock to stop concurrent parsing.
      * @param file The dump - used for a message in the lock file
@@ -396,6 +427,68 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
         return new OQLQueryImpl(queryString);
     }
 
+    public TriageResult triage(File file, Map<String, String> args, IProgressListener listener) throws SnapshotException
+    {
+        List<IContentType> listtypes = new ArrayList<IContentType>();
+        String prefix = prefix(file, args, listtypes);
+
+        List<IOException> errors = new ArrayList<IOException>();
+        boolean found = false;
+
+        for (Parser parser : parsers(file, listtypes))
+        {
+            IIndexBuilder indexBuilder = parser.create(IIndexBuilder.class, ParserRegistry.INDEX_BUILDER);
+
+            if (indexBuilder == null)
+                continue;
+            found = true;
+
+            try
+            {
+                indexBuilder.init(file, prefix);
+
+                XSnapshotInfo snapshotInfo = new XSnapshotInfo();
+                snapshotInfo.setPath(file.getAbsolutePath());
+                snapshotInfo.setPrefix(prefix);
+                snapshotInfo.setProperty("$heapFormat", parser.getId());//$NON-NLS-1$
+                String snapshot_identifier = args.get("snapshot_identifier"); //$NON-NLS-1$
+                if (snapshot_identifier != null)
+                {
+                    snapshotInfo.setProperty("$runtimeId", snapshot_identifier);//$NON-NLS-1$
+                }
+                if (args.containsKey("triage_top")) //$NON-NLS-1$
+                {
+                    snapshotInfo.setProperty("triage_top", Integer.parseInt(args.get("triage_top"))); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                if (args.containsKey("follow_timeout")) //$NON-NLS-1$
+                {
+                    snapshotInfo.setProperty("follow_timeout", Integer.parseInt(args.get("follow_timeout"))); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+
+                TriageResult result = indexBuilder.triage(snapshotInfo, listener);
+                if (result != null)
+                {
+                    listener.done();
+                    return result;
+                }
+            }
+            catch (IOException ioe)
+            {
+                errors.add(ioe);
+                listener.done();
+            }
+            catch (Exception e)
+            {
+                throw SnapshotException.rethrow(e);
+            }
+        }
+
+        if (found && errors.isEmpty())
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_TriageNotSupported, file
+                            .getName()));
+        throw openingError(file, errors);
+    }
+
     public List<SnapshotFormat> getSupportedFormats()
     {
         List<SnapshotFormat> answer = new ArrayList<SnapshotFormat>();
@@ -428,7 +521,7 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
         }
     }
 
-    private final ISnapshot parse(File file, String prefix, Map<String, String> args, List<IContentType>listtypes, IProgressListener listener) throws SnapshotException
+    private List<ParserRegistry.Parser> parsers(File file, List<IContentType>listtypes)
     {
         ParserRegistry registry = ParserPlugin.getDefault().getParserRegistry();
 
@@ -448,10 +541,15 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
             }
             addAllNew(parsers, parsersfn);
         }
+        return parsers;
+    }
 
+    private final ISnapshot parse(File file, String prefix, Map<String, String> args, List<IContentType>listtypes,
+                    WrappedLoggingProgressListener listener, Closeable lock) throws SnapshotException
+    {
         List<IOException> errors = new ArrayList<IOException>();
 
-        for (Parser parser : parsers)
+        for (Parser parser : parsers(file, listtypes))
         {
             IIndexBuilder indexBuilder = parser.create(IIndexBuilder.class, ParserRegistry.INDEX_BUILDER);
 
@@ -480,6 +578,14 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                     if (args.containsKey("discard_seed")) //$NON-NLS-1$
                         snapshotInfo.setProperty("discard_seed", Integer.parseInt(args.get("discard_seed"))); //$NON-NLS-1$ //$NON-NLS-2$
                 }
+                if (args.containsKey("follow_timeout")) //$NON-NLS-1$
+                {
+                    snapshotInfo.setProperty("follow_timeout", Integer.parseInt(args.get("follow_timeout"))); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                if (args.containsKey("reorder_objects")) //$NON-NLS-1$
+                {
+                    snapshotInfo.setProperty("reorder_objects", args.get("reorder_objects")); //$NON-NLS-1$ //$NON-NLS-2$
+                }
 
                 String snapshot_identifier = args.get("snapshot_identifier"); //$NON-NLS-1$
                 if (snapshot_identifier != null)
@@ -512,8 +618,19 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                 boolean done = false;
                 try
                 {
-                    snapshot.calculateDominatorTree(monitor.nextMonitor());
-                    snapshot.calculateMinRetainedHeapSizeForClasses(monitor.nextMonitor());
+                    if (Boolean.parseBoolean(args.get("early_open"))) //$NON-NLS-1$
+                    {
+                        // Return now and build the dominator tree meanwhile,
+                        // logging through the same writer and keeping the lock
+                        WrappedLoggingProgressListener background = new WrappedLoggingProgressListener(
+                                        new VoidProgressListener(), listener);
+                        snapshot.calculateDominatorTreeInBackground(background, lock);
+                    }
+                    else
+                    {
+                        snapshot.calculateDominatorTree(monitor.nextMonitor());
+                        snapshot.calculateMinRetainedHeapSizeForClasses(monitor.nextMonitor());
+                    }
                     done = true;
                 }
                 finally
@@ -546,6 +663,11 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
             }
         }
 
+        throw openingError(file, errors);
+    }
+
+    private SnapshotException openingError(File file, List<IOException> errors)
+    {
         if (errors.size() > 1)
         {
             MultiStatus status = new MultiStatus(ParserPlugin.PLUGIN_ID, 0,
@@ -555,17 +677,17 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
             // Create a CoreException so that all the errors will be logged
             CoreException ce = new CoreException(status);
 
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
+            return new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
                             .getName()), ce);
         }
         else if (errors.size() == 1)
         {
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
+            return new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file
                             .getName()), errors.get(0));
         }
         else
         {
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_NoParserRegistered, file
+            return new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_NoParserRegistered, file
                             .getName()));
         }
     }
@@ -16,10 +16,12 @@ package org.eclipse.mat.parser.internal;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -36,6 +38,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
@@ -51,6 +58,7 @@ import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2SizeIndex;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexManager.Index;
+import org.eclipse.mat.parser.index.ResourceManager;
 import org.eclipse.mat.parser.internal.snapshot.HistogramBuilder;
 import org.eclipse.mat.parser.internal.snapshot.IObjectMarker;
 import org.eclipse.mat.parser.internal.snapshot.MultiplePathsFromGCRootsComputerImpl;
@@ -98,7 +106,7 @@ import org.eclipse.mat.util.VoidProgressListener;
 /**
  * The implementation of the {@link ISnapshot} representing the entire heap dump.
  */
-public final class SnapshotImpl implements ISnapshot
+public final class SnapshotImpl implements ISnapshot, ResourceManager.Owner
 {
 
     // //////////////////////////////////////////////////////////////
@@ -107,6 +115,9 @@ public final class SnapshotImpl implements ISnapshot
 
     private static final String VERSION = "MAT_01";//$NON-NLS-1$
 
+    /** Number of sorted ids to look up in the indexes at a time */
+    private static final int BULK_SIZE = 65536;
+
     /**
      * Read the snapshot from an already indexed dump.
      * @param file the dump file
@@ -116,98 +127,94 @@ public final class SnapshotImpl implements ISnapshot
      * @throws SnapshotException problem reading index files
      * @throws IOException file I/O problem
      */
-    @SuppressWarnings("unchecked")
     public static SnapshotImpl readFromFile(File file, String prefix, IProgressListener listener)
                     throws SnapshotException, IOException
     {
         listener.beginTask(Messages.SnapshotImpl_ReopeningParsedHeapDumpFile, 9);
 
         File indexFile = new File(prefix + "index"); //$NON-NLS-1$
+        try
+        {
+            if (MasterIndex.isMasterIndex(indexFile))
+                return readFromMasterIndex(file, indexFile, prefix, listener);
+            else
+                return readFromSerializedIndex(file, indexFile, prefix, listener);
+        }
+        finally
+        {
+            listener.done();
+        }
+    }
+
+    /**
+     * Read the binary master index.
+     */
+    private static SnapshotImpl readFromMasterIndex(File file, File indexFile, String prefix, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
+        MasterIndex masterIndex = new MasterIndex(indexFile);
+        listener.worked(1);
+
+        Parser parser = lookupParser(masterIndex.readParserId());
+        listener.worked(1);
+        IObjectReader heapObjectReader = createObjectReader(parser, file);
+
+        XSnapshotInfo snapshotInfo;
+        HashMapIntObject<ClassImpl> classCache;
+        HashMapIntObject<XGCRootInfo[]> roots;
+        HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread;
+        HashMapIntObject<String> loaderLabels;
+        BitField arrayObjects;
+        try
+        {
+            snapshotInfo = masterIndex.readSnapshotInfo();
+            snapshotInfo.setProperty("$heapFormat", parser.getId()); //$NON-NLS-1$
+            snapshotInfo.setProperty("$reopened", true); //$NON-NLS-1$
+            classCache = masterIndex.readClasses();
+
+            listener.worked(1);
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            roots = masterIndex.readRoots();
+            rootsPerThread = masterIndex.readRootsPerThread();
+            loaderLabels = masterIndex.readLoaderLabels();
+            arrayObjects = masterIndex.readArrayObjects();
+            listener.worked(3);
+        }
+        catch (IProgressListener.OperationCanceledException e)
+        {
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            // A corrupt file, so the dump is parsed again
+            throw new IOException(e.getMessage(), e);
+        }
+
+        return open(file, indexFile, prefix, snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread,
+                        loaderLabels, arrayObjects, listener);
+    }
+
+    /**
+     * Read a master index written with Java serialization by earlier versions.
+     */
+    @SuppressWarnings("unchecked")
+    private static SnapshotImpl readFromSerializedIndex(File file, File indexFile, String prefix, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
         try (FileInputStream fis = new FileInputStream(indexFile);
-            /**
-             * Classes deserialized:
-             * org.eclipse.mat.parser.model.XSnapshotInfo
-             * org.eclipse.mat.parser.model.AbstractObjectImpl
-             * org.eclipse.mat.parser.model.XGCRootInfo
-             * org.eclipse.mat.parser.model.ClassImpl
-             * [Lorg.eclipse.mat.parser.model.XGCRootInfo
-             * org.eclipse.mat.parser.model.XGCRootInfo
-             *
-             * org.eclipse.mat.snapshot.SnapshotInfo
-             * org.eclipse.mat.snapshot.UnreachableObjectsHistogram
-             *
-             * org.eclipse.mat.snapshot.model.GCRootInfo
-             * org.eclipse.mat.snapshot.model.FieldDescriptor
-             * org.eclipse.mat.snapshot.model.Field
-             * [Lorg.eclipse.mat.snapshot.model.FieldDescriptor
-             * [Lorg.eclipse.mat.snapshot.model.Field
-             * org.eclipse.mat.snapshot.model.ObjectReference
-             *
-             * org.eclipse.mat.collect.HashMapIntObject
-             * org.eclipse.mat.collect.BitField
-             *
-             * java.util.ArrayList:
-             * java.util.Date
-             * java.util.HashMap
-             *
-             * java.lang.Boolean
-             * java.lang.Long
-             * java.lang.Number
-             * java.lang.Byte
-             * java.lang.Short
-             * java.lang.Character
-             * java.lang.Double
-             * java.lang.Float
-             * [I
-             *
-             */
-            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(fis)) {
-                @Override
-                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
-                    // similar to system property jdk.serialFilter
-                    String match="java.lang.*;java.util.*;org.eclipse.mat.parser.model.*;org.eclipse.mat.snapshot.*;org.eclipse.mat.snapshot.model.*;org.eclipse.mat.collect.*;!*"; //$NON-NLS-1$
-                    String nm = desc.getName();
-                    if (!nm.startsWith("[")) //$NON-NLS-1$
-                    {
-                        for (String pt : match.split(";")) //$NON-NLS-1$
-                        {
-                            boolean not = pt.startsWith("!"); //$NON-NLS-1$
-                            if (not)
-                                pt = pt.substring(1);
-                            boolean m;
-                            if (pt.endsWith(".**")) //$NON-NLS-1$
-                                m = nm.startsWith(pt.substring(0, pt.length() - 2));
-                            else if (pt.endsWith(".*")) //$NON-NLS-1$
-                                m = nm.startsWith(pt.substring(0, pt.length() - 1))
-                                                && !nm.substring(pt.length() - 1).contains("."); //$NON-NLS-1$
-                            else if (pt.endsWith("*")) //$NON-NLS-1$
-                                m = nm.startsWith(pt.substring(0, pt.length() - 1));
-                            else
-                                m = nm.equals(pt);
-                            if (not && m)
-                                throw new InvalidClassException(nm, match);
-                            if (m)
-                                break;
-                        }
-                    }
-                    return super.resolveClass(desc);
-                }
-            };)
-         {
+            ObjectInputStream in = createObjectInputStream(new BufferedInputStream(fis)))
+        {
             listener.worked(1);
 
             String version = in.readUTF();
             if (!VERSION.equals(version))
                 throw new IOException(MessageUtil.format(Messages.SnapshotImpl_Error_UnknownVersion, version));
 
-            String objectReaderUniqueIdentifier = in.readUTF();
-            Parser parser = ParserPlugin.getDefault().getParserRegistry().lookupParser(objectReaderUniqueIdentifier);
-            if (parser == null)
-                throw new IOException(Messages.SnapshotImpl_Error_ParserNotFound + objectReaderUniqueIdentifier);
+            Parser parser = lookupParser(in.readUTF());
             listener.worked(1);
-            IObjectReader heapObjectReader = parser.create(IObjectReader.class, ParserRegistry.OBJECT_READER);
-            if (heapObjectReader == null)
-                throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file));
+            IObjectReader heapObjectReader = createObjectReader(parser, file);
 
             XSnapshotInfo snapshotInfo = (XSnapshotInfo) in.readObject();
             snapshotInfo.setProperty("$heapFormat", parser.getId()); //$NON-NLS-1$
@@ -229,45 +236,8 @@ public final class SnapshotImpl implements ISnapshot
             BitField arrayObjects = (BitField) in.readObject();
             listener.worked(3);
 
-            snapshotInfo.setPrefix(prefix);
-            // Allow a dump to be opened via the index file
-            if (file.equals(indexFile))
-            {
-                // Previous location of the heap dump
-                file = new File(snapshotInfo.getPath());
-                if (!file.exists())
-                {
-                    // Perhaps files were moved, so try in same directory as index
-                    file = new File(indexFile.getParentFile(), file.getName());
-                    snapshotInfo.setPath(file.getAbsolutePath());
-                }
-            }
-            else
-            {
-                snapshotInfo.setPath(file.getAbsolutePath());
-            }
-
-            IndexManager indexManager = new IndexManager();
-            boolean done = false;
-            try
-            {
-                indexManager.init(prefix);
-
-                SnapshotImpl ret = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread, loaderLabels,
-                                arrayObjects, indexManager);
-                listener.worked(3);
-                done = true;
-
-                return ret;
-            }
-            finally
-            {
-                if (!done)
-                {
-                    // Close files on error to allow delete
-                    indexManager.close();
-                }
-            }
+            return open(file, indexFile, prefix, snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread,
+                            loaderLabels, arrayObjects, listener);
         }
         catch (ClassNotFoundException e)
         {
@@ -281,9 +251,149 @@ public final class SnapshotImpl implements ISnapshot
             ioe.initCause(e);
             throw ioe;
         }
+    }
+
+    /**
+     * A stream to read the master index, or parts of it, which only creates
+     * the classes expected in the index.
+     */
+    /* package */static ObjectInputStream createObjectInputStream(InputStream is) throws IOException
+    {
+        /**
+         * Classes deserialized:
+         * org.eclipse.mat.parser.model.XSnapshotInfo
+         * org.eclipse.mat.parser.model.AbstractObjectImpl
+         * org.eclipse.mat.parser.model.XGCRootInfo
+         * org.eclipse.mat.parser.model.ClassImpl
+         * [Lorg.eclipse.mat.parser.model.XGCRootInfo
+         * org.eclipse.mat.parser.model.XGCRootInfo
+         *
+         * org.eclipse.mat.snapshot.SnapshotInfo
+         * org.eclipse.mat.snapshot.UnreachableObjectsHistogram
+         *
+         * org.eclipse.mat.snapshot.model.GCRootInfo
+         * org.eclipse.mat.snapshot.model.FieldDescriptor
+         * org.eclipse.mat.snapshot.model.Field
+         * [Lorg.eclipse.mat.snapshot.model.FieldDescriptor
+         * [Lorg.eclipse.mat.snapshot.model.Field
+         * org.eclipse.mat.snapshot.model.ObjectReference
+         *
+         * org.eclipse.mat.collect.HashMapIntObject
+         * org.eclipse.mat.collect.BitField
+         *
+         * java.util.ArrayList:
+         * java.util.Date
+         * java.util.HashMap
+         *
+         * java.lang.Boolean
+         * java.lang.Long
+         * java.lang.Number
+         * java.lang.Byte
+         * java.lang.Short
+         * java.lang.Character
+         * java.lang.Double
+         * java.lang.Float
+         * [I
+         *
+         */
+        return new ObjectInputStream(is) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                // similar to system property jdk.serialFilter
+                String match="java.lang.*;java.util.*;org.eclipse.mat.parser.model.*;org.eclipse.mat.snapshot.*;org.eclipse.mat.snapshot.model.*;org.eclipse.mat.collect.*;!*"; //$NON-NLS-1$
+                String nm = desc.getName();
+                if (!nm.startsWith("[")) //$NON-NLS-1$
+                {
+                    for (String pt : match.split(";")) //$NON-NLS-1$
+                    {
+                        boolean not = pt.startsWith("!"); //$NON-NLS-1$
+                        if (not)
+                            pt = pt.substring(1);
+                        boolean m;
+                        if (pt.endsWith(".**")) //$NON-NLS-1$
+                            m = nm.startsWith(pt.substring(0, pt.length() - 2));
+                        else if (pt.endsWith(".*")) //$NON-NLS-1$
+                            m = nm.startsWith(pt.substring(0, pt.length() - 1))
+                                            && !nm.substring(pt.length() - 1).contains("."); //$NON-NLS-1$
+                        else if (pt.endsWith("*")) //$NON-NLS-1$
+                            m = nm.startsWith(pt.substring(0, pt.length() - 1));
+                        else
+                            m = nm.equals(pt);
+                        if (not && m)
+                            throw new InvalidClassException(nm, match);
+                        if (m)
+                            break;
+                    }
+                }
+                return super.resolveClass(desc);
+            }
+        };
+    }
+
+    private static Parser lookupParser(String objectReaderUniqueIdentifier) throws IOException
+    {
+        Parser parser = ParserPlugin.getDefault().getParserRegistry().lookupParser(objectReaderUniqueIdentifier);
+        if (parser == null)
+            throw new IOException(Messages.SnapshotImpl_Error_ParserNotFound + objectReaderUniqueIdentifier);
+        return parser;
+    }
+
+    private static IObjectReader createObjectReader(Parser parser, File file) throws SnapshotException
+    {
+        IObjectReader heapObjectReader = parser.create(IObjectReader.class, ParserRegistry.OBJECT_READER);
+        if (heapObjectReader == null)
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file));
+        return heapObjectReader;
+    }
+
+    private static SnapshotImpl open(File file, File indexFile, String prefix, //
+                    XSnapshotInfo snapshotInfo, //
+                    IObjectReader heapObjectReader, //
+                    HashMapIntObject<ClassImpl> classCache, //
+                    HashMapIntObject<XGCRootInfo[]> roots, //
+                    HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread, //
+                    HashMapIntObject<String> loaderLabels, //
+                    BitField arrayObjects, //
+                    IProgressListener listener) throws SnapshotException, IOException
+    {
+        snapshotInfo.setPrefix(prefix);
+        // Allow a dump to be opened via the index file
+        if (file.equals(indexFile))
+        {
+            // Previous location of the heap dump
+            file = new File(snapshotInfo.getPath());
+            if (!file.exists())
+            {
+                // Perhaps files were moved, so try in same directory as index
+                file = new File(indexFile.getParentFile(), file.getName());
+                snapshotInfo.setPath(file.getAbsolutePath());
+            }
+        }
+        else
+        {
+            snapshotInfo.setPath(file.getAbsolutePath());
+        }
+
+        IndexManager indexManager = new IndexManager();
+        boolean done = false;
+        try
+        {
+            indexManager.init(prefix);
+
+            SnapshotImpl ret = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread, loaderLabels,
+                            arrayObjects, indexManager);
+            listener.worked(3);
+            done = true;
+
+            return ret;
+        }
         finally
         {
-            listener.done();
+            if (!done)
+            {
+                // Close files on error to allow delete
+                indexManager.close();
+            }
         }
     }
 
@@ -317,8 +427,23 @@ public final class SnapshotImpl implements ISnapshot
 
         answer.calculateLoaderLabels();
 
+        File indexFile = new File(snapshotInfo.getPrefix() + "index");//$NON-NLS-1$
+        try
+        {
+            if (MasterIndex.write(indexFile, objectReaderUniqueIdentifier, answer.snapshotInfo, answer.classCache,
+                            answer.roots, answer.rootsPerThread, answer.loaderLabels, answer.arrayObjects))
+                return answer;
+        }
+        catch (IOException e)
+        {
+            // Throw a snapshot exception so that
+            // we don't retry with a different parser.
+            throw new SnapshotException(e);
+        }
+
+        // Some data can only be stored with Java serialization
         try (
-            FileOutputStream fos = new FileOutputStream(snapshotInfo.getPrefix() + "index");//$NON-NLS-1$
+            FileOutputStream fos = new FileOutputStream(indexFile);
             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fos));)
         {
             out.writeUTF(VERSION);
@@ -366,9 +491,16 @@ public final class SnapshotImpl implements ISnapshot
 
     // runtime data
     private IObjectReader heapObjectReader;
-    private boolean dominatorTreeCalculated;
+    private volatile boolean dominatorTreeCalculated;
+    /** the dominator tree and retained sizes being calculated after an early open */
+    private volatile FutureTask<Void> backgroundCalculation;
+    private volatile Thread backgroundThread;
+    private IProgressListener backgroundListener;
     private Map<String, List<IClass>> classCacheByName;
     private ObjectCache<IObject> objectCache;
+
+    /** The memory and files shared with the other snapshots */
+    private ResourceManager.Usage resourceUsage;
     
     private boolean parsedThreads = false;
     HashMapIntObject<IThreadStack> threadId2stack;
@@ -421,6 +553,9 @@ public final class SnapshotImpl implements ISnapshot
 
         this.heapObjectReader.open(this);
 
+        this.resourceUsage = ResourceManager.getInstance().register(snapshotInfo.getPath(), this);
+        indexManager.setResourceUsage(resourceUsage);
+
         Object unreach = snapshotInfo.getProperty(UnreachableObjectsHistogram.class.getName());
         if (unreach instanceof UnreachableObjectsHistogram)
             ((UnreachableObjectsHistogram)unreach).setSnapshot(this);
@@ -601,14 +736,22 @@ public final class SnapshotImpl implements ISnapshot
         int[] sortedObjectIds = Arrays.copyOf(objectIds, objectIds.length);
         Arrays.sort(sortedObjectIds);
 
-        IOne2OneIndex o2class = indexManager.o2class();
+        // the ids are sorted, so read the indexes a page at a time
+        int[] classIds = new int[sortedObjectIds.length];
+        indexManager.o2class().getAll(sortedObjectIds, classIds);
 
         // firstly, arrays we collect the size for each array separately
-        for(int i = 0; i < sortedObjectIds.length; i++) {
+        ArrayInt arrays = new ArrayInt();
+        for (int i = 0; i < sortedObjectIds.length; i++) {
+            if (arrayObjects.get(sortedObjectIds[i]))
+                arrays.add(sortedObjectIds[i]);
+        }
+        long[] arraySizes = new long[arrays.size()];
+        indexManager.a2size().getAllSizes(arrays.toArray(), arraySizes);
+        for (int i = 0, j = 0; i < sortedObjectIds.length; i++) {
             int objectId = sortedObjectIds[i];
             if (arrayObjects.get(objectId)) {
-                int classId = o2class.get(objectId);
-                histogramBuilder.add(classId, objectId, indexManager.a2size().getSize(objectId));
+                histogramBuilder.add(classIds[i], objectId, arraySizes[j++]);
             }
         }
 
@@ -618,7 +761,7 @@ public final class SnapshotImpl implements ISnapshot
         for(int i = 0; i < sortedObjectIds.length; i++) {
             int objectId = sortedObjectIds[i];
             if (!arrayObjects.get(objectId)) {
-                int classId = o2class.get(objectId);
+                int classId = classIds[i];
                 ArrayInt thisClassObjIds = classToObjectIds.computeIfAbsent(classId, (k) -> new ArrayInt());
                 thisClassObjIds.add(objectId);
             }
@@ -697,9 +840,7 @@ public final class SnapshotImpl implements ISnapshot
             {
                 throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
             }
-            int[] referees = inbound.get(objectId);
-            for (int refereeId : referees)
-                result.add(refereeId);
+            inbound.forEach(objectId, result::add);
 
             if (ii % 100 == 0)
             {
@@ -739,9 +880,7 @@ public final class SnapshotImpl implements ISnapshot
             {
                 throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
             }
-            int[] referees = outbound.get(objectId);
-            for (int refereeId : referees)
-                result.add(refereeId);
+            outbound.forEach(objectId, result::add);
 
             if (ii % 100 == 0)
             {
@@ -1058,6 +1197,8 @@ public final class SnapshotImpl implements ISnapshot
                     throws UnsupportedOperationException, SnapshotException
     {
         if (objectIds.length == 1) { return getSingleObjectRetainedSet(objectIds[0]); }
+        if (!isDominatorTreeCalculated(progressMonitor))
+            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
 
         SetInt retainedSet = new SetInt(2 * objectIds.length);
         for (int i : objectIds)
@@ -1081,6 +1222,8 @@ public final class SnapshotImpl implements ISnapshot
 
         IIndexReader.IOne2OneIndex dominatorIdx = indexManager.dominator();
         IIndexReader.IOne2ManyIndex dominated = indexManager.dominated();
+        // reused to read the dominated objects
+        int[] next = new int[1024];
 
         int size = 0;
         int capacity = 10 * 1024;
@@ -1161,9 +1304,15 @@ public final class SnapshotImpl implements ISnapshot
                     current = stack[--size]; // pop
                     retainedSet.add(current);
 
-                    int[] next = dominated.get(current + 1);
-                    for (int i : next)
+                    int count = dominated.get(current + 1, next);
+                    if (count > next.length)
                     {
+                        next = new int[count];
+                        dominated.get(current + 1, next);
+                    }
+                    for (int j = 0; j < count; j++)
+                    {
+                        int i = next[j];
                         // push, check capacity first
                         if (size == capacity)
                         {
@@ -1191,7 +1340,7 @@ public final class SnapshotImpl implements ISnapshot
     public int[] getTopAncestorsInDominatorTree(int[] objectIds, IProgressListener listener) throws SnapshotException
     {
         // Used by the dominator_tree query to allow a missing dominator tree to be built
-        if (!isDominatorTreeCalculated() && listener != null && objectIds.length == 0)
+        if (!isDominatorTreeCalculated(listener) && listener != null && objectIds.length == 0)
             calculateDominatorTree(listener);
         if (!isDominatorTreeCalculated())
             throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
@@ -1422,9 +1571,108 @@ public final class SnapshotImpl implements ISnapshot
 
     private boolean isDominatorTreeCalculated()
     {
+        return isDominatorTreeCalculated(null);
+    }
+
+    /**
+     * Whether the dominator tree is available, first waiting for it if it is
+     * being calculated in the background.
+     * @param listener to show the wait and to cancel it, or null
+     */
+    private boolean isDominatorTreeCalculated(IProgressListener listener)
+    {
+        FutureTask<Void> task = backgroundCalculation;
+        if (task != null && Thread.currentThread() != backgroundThread)
+        {
+            if (listener != null && !task.isDone())
+                listener.subTask(Messages.SnapshotImpl_WaitingForDominatorTree);
+            while (!task.isDone())
+            {
+                if (listener != null && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                try
+                {
+                    task.get(100, TimeUnit.MILLISECONDS);
+                }
+                catch (TimeoutException e)
+                {
+                    // check for cancellation
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IProgressListener.OperationCanceledException();
+                }
+                catch (ExecutionException e)
+                {
+                    // already logged, the dominator tree is not available
+                    break;
+                }
+            }
+        }
         return dominatorTreeCalculated;
     }
 
+    /**
+     * Calculates the dominator tree and the retained sizes of the classes on a
+     * background thread, so the snapshot can be used as soon as it is parsed.
+     * Histograms, object inspection and OQL queries without retained sizes
+     * work straight away; requests for dominators or retained sizes wait
+     * until the calculation is done.
+     * @param listener receives the messages from the calculation, and can cancel it
+     * @param lock released when the calculation ends, as the index files are then all written, or null
+     */
+    public void calculateDominatorTreeInBackground(final IProgressListener listener, final Closeable lock)
+    {
+        FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>()
+        {
+            public Void call() throws SnapshotException
+            {
+                try
+                {
+                    SimpleMonitor monitor = new SimpleMonitor(Messages.SnapshotImpl_CalculatingDominatorTreeInBackground,
+                                    listener, new int[] { 150, 10 });
+                    calculateDominatorTree(monitor.nextMonitor());
+                    calculateMinRetainedHeapSizeForClasses(monitor.nextMonitor());
+                    listener.done();
+                    return null;
+                }
+                catch (SnapshotException e)
+                {
+                    listener.sendUserMessage(IProgressListener.Severity.ERROR, e.getMessage(), e);
+                    throw e;
+                }
+                catch (RuntimeException e)
+                {
+                    if (!listener.isCanceled())
+                        listener.sendUserMessage(IProgressListener.Severity.ERROR, e.getMessage(), e);
+                    throw e;
+                }
+                finally
+                {
+                    backgroundThread = null;
+                    if (lock != null)
+                    {
+                        try
+                        {
+                            lock.close();
+                        }
+                        catch (IOException e)
+                        {
+                            listener.sendUserMessage(IProgressListener.Severity.WARNING, e.getMessage(), e);
+                        }
+                    }
+                }
+            }
+        });
+        Thread thread = new Thread(task, MessageUtil.format(Messages.SnapshotImpl_DominatorTreeThread, snapshotInfo.getPath()));
+        thread.setDaemon(true);
+        backgroundListener = listener;
+        backgroundThread = thread;
+        backgroundCalculation = task;
+        thread.start();
+    }
+
     /**
      * Calculates the dominator tree after a parse
      * @param listener to report progress
@@ -1479,7 +1727,7 @@ public final class SnapshotImpl implements ISnapshot
     public DominatorsSummary getDominatorsOf(int[] objectIds, Pattern excludePattern, IProgressListener progressListener)
                     throws SnapshotException
     {
-        if (!isDominatorTreeCalculated())
+        if (!isDominatorTreeCalculated(progressListener))
             throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
 
         if (progressListener == null)
@@ -1649,6 +1897,19 @@ public final class SnapshotImpl implements ISnapshot
         return indexManager.o2address().get(objectId);
     }
 
+    @Override
+    public long mapIdToAddress(long objectId) throws SnapshotException
+    {
+        // Add a useful error message
+        long nobjs = indexManager.o2address().longSize();
+        if (objectId >= nobjs || objectId < 0)
+        {
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound,
+                            new Object[] { objectId }));
+        }
+        return indexManager.o2address().get(objectId);
+    }
+
     @Override
     public long getHeapSize(int objectId) throws SnapshotException
     {
@@ -1684,6 +1945,22 @@ public final class SnapshotImpl implements ISnapshot
     @Override
     public long getHeapSize(int[] objectIds) throws UnsupportedOperationException, SnapshotException
     {
+        if (isAscending(objectIds))
+        {
+            // retained sets are sorted, so read the indexes a page at a time
+            long total = 0;
+            long[] sizes = new long[Math.min(objectIds.length, BULK_SIZE)];
+            for (int i = 0; i < objectIds.length; i += BULK_SIZE)
+            {
+                int[] ids = objectIds.length <= BULK_SIZE ? objectIds
+                                : Arrays.copyOfRange(objectIds, i, Math.min(objectIds.length, i + BULK_SIZE));
+                getHeapSizesAscending(ids, sizes);
+                for (int j = 0; j < ids.length; j++)
+                    total += sizes[j];
+            }
+            return total;
+        }
+
         long total = 0;
         IOne2OneIndex o2class = indexManager.o2class();
         IOne2SizeIndex a2size = indexManager.a2size();
@@ -1720,6 +1997,101 @@ public final class SnapshotImpl implements ISnapshot
         return total;
     }
 
+    @Override
+    public void getHeapSizes(int[] objectIds, long[] result) throws SnapshotException
+    {
+        if (isAscending(objectIds))
+        {
+            getHeapSizesAscending(objectIds, result);
+        }
+        else
+        {
+            // look up in order, then put the sizes back in the original order
+            int[] sorted = objectIds.clone();
+            Arrays.sort(sorted);
+            long[] sizes = new long[sorted.length];
+            getHeapSizesAscending(sorted, sizes);
+            for (int i = 0; i < objectIds.length; i++)
+                result[i] = sizes[Arrays.binarySearch(sorted, objectIds[i])];
+        }
+    }
+
+    /**
+     * Heap sizes of objects with ids in ascending order, reading the
+     * array size and the class indexes in bulk.
+     */
+    private void getHeapSizesAscending(int[] objectIds, long[] result) throws SnapshotException
+    {
+        if (objectIds.length == 0)
+            return;
+        checkAscendingIds(objectIds);
+
+        // positions of the arrays and of the instances in the id array
+        ArrayInt arrays = new ArrayInt();
+        ArrayInt instances = new ArrayInt();
+        for (int i = 0; i < objectIds.length; i++)
+        {
+            int objectId = objectIds[i];
+            if (arrayObjects.get(objectId))
+            {
+                arrays.add(i);
+            }
+            else
+            {
+                IClass clazz = classCache.get(objectId);
+                if (clazz != null)
+                    result[i] = clazz.getUsedHeapSize();
+                else
+                    instances.add(i);
+            }
+        }
+
+        if (!arrays.isEmpty())
+        {
+            int[] ids = new int[arrays.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = objectIds[arrays.get(i)];
+            long[] sizes = new long[ids.length];
+            indexManager.a2size().getAllSizes(ids, sizes);
+            for (int i = 0; i < ids.length; i++)
+                result[arrays.get(i)] = sizes[i];
+        }
+
+        if (!instances.isEmpty())
+        {
+            int[] ids = new int[instances.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = objectIds[instances.get(i)];
+            // replace the object ids by their class ids
+            indexManager.o2class().getAll(ids, ids);
+            for (int i = 0; i < ids.length; i++)
+                result[instances.get(i)] = classCache.get(ids[i]).getHeapSizePerInstance();
+        }
+    }
+
+    private static boolean isAscending(int[] objectIds)
+    {
+        for (int i = 1; i < objectIds.length; i++)
+        {
+            if (objectIds[i] < objectIds[i - 1])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Only the first and last of ids in ascending order need to be checked.
+     */
+    private void checkAscendingIds(int[] objectIds) throws SnapshotException
+    {
+        int nobjs = indexManager.idx.size();
+        if (objectIds[0] < 0)
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectIds[0]));
+        int last = objectIds[objectIds.length - 1];
+        if (last >= nobjs)
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, last));
+    }
+
     /**
      * Calculate for each class an approximation for the retained size of all instances
      * of that class.
@@ -1764,6 +2136,34 @@ public final class SnapshotImpl implements ISnapshot
             return 0;
     }
 
+    @Override
+    public void getRetainedHeapSizes(int[] objectIds, long[] result) throws SnapshotException
+    {
+        if (objectIds.length == 0)
+            return;
+        if (!this.isDominatorTreeCalculated())
+        {
+            for (int i = 0; i < objectIds.length; i++)
+                result[i] = getRetainedHeapSize(objectIds[i]);
+        }
+        else if (isAscending(objectIds))
+        {
+            checkAscendingIds(objectIds);
+            indexManager.o2retained().getAll(objectIds, result);
+        }
+        else
+        {
+            // look up in order, then put the sizes back in the original order
+            int[] sorted = objectIds.clone();
+            Arrays.sort(sorted);
+            checkAscendingIds(sorted);
+            long[] sizes = new long[sorted.length];
+            indexManager.o2retained().getAll(sorted, sizes);
+            for (int i = 0; i < objectIds.length; i++)
+                result[i] = sizes[Arrays.binarySearch(sorted, objectIds[i])];
+        }
+    }
+
     @Override
     public boolean isArray(int objectId)
     {
@@ -1813,11 +2213,41 @@ public final class SnapshotImpl implements ISnapshot
         return objectId;
     }
 
+    @Override
+    public long mapAddressToLongId(long objectAddress) throws SnapshotException
+    {
+        long objectId = indexManager.o2address().reverseLong(objectAddress);
+        if (objectId < 0)
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound,
+                            new Object[] { "0x" //$NON-NLS-1$
+                                            + Long.toHexString(objectAddress) }));
+        return objectId;
+    }
+
     @Override
     public void dispose()
     {
         IOException error = null;
 
+        // Stop any dominator tree calculation before closing its files
+        FutureTask<Void> task = backgroundCalculation;
+        if (task != null && !task.isDone())
+        {
+            backgroundListener.setCanceled(true);
+            try
+            {
+                task.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                // Expected as canceled
+            }
+        }
+
         try
         {
             heapObjectReader.close();
@@ -1838,6 +2268,12 @@ public final class SnapshotImpl implements ISnapshot
 
         classCacheByName.clear();
 
+        if (resourceUsage != null)
+        {
+            ResourceManager.getInstance().unregister(resourceUsage);
+            resourceUsage = null;
+        }
+
         if (error != null)
             throw new RuntimeException(error);
     }
@@ -1926,6 +2362,8 @@ public final class SnapshotImpl implements ISnapshot
         IIndexReader.IOne2ManyIndex outbound = indexManager.outbound();
 
         IntStack stack = new IntStack();
+        // reused to read the outbound references
+        int[] children = new int[1024];
 
         for (IteratorInt en = roots.keys(); en.hasNext();)
         {
@@ -1955,8 +2393,15 @@ public final class SnapshotImpl implements ISnapshot
                     refs = new ArrayList<NamedReference>(refs);
                     refs.sort(CompObjectReference.INSTANCE);
                 }
-                for (int child : outbound.get(current))
+                int length = outbound.get(current, children);
+                if (length > children.length)
+                {
+                    children = new int[length];
+                    outbound.get(current, children);
+                }
+                for (int j = 0; j < length; j++)
                 {
+                    int child = children[j];
                     if (bits.get(child))
                         continue;
                     long childAddress = mapIdToAddress(child);
@@ -2002,8 +2447,15 @@ public final class SnapshotImpl implements ISnapshot
             }
             else
             {
-                for (int child : outbound.get(current))
+                int length = outbound.get(current, children);
+                if (length > children.length)
                 {
+                    children = new int[length];
+                    outbound.get(current, children);
+                }
+                for (int j = 0; j < length; j++)
+                {
+                    int child = children[j];
                     if (!bits.get(child))
                     {
                         stack.push(child);
@@ -2023,6 +2475,10 @@ public final class SnapshotImpl implements ISnapshot
         ArrayIntBig result = new ArrayIntBig();
         IntStack stack = new IntStack();
 
+        // check the dominator tree and the object id once
+        getImmediateDominatedIds(objectId);
+        IIndexReader.IOne2ManyIndex dominated = indexManager.dominated();
+
         stack.push(objectId);
 
         int current;
@@ -2032,11 +2488,7 @@ public final class SnapshotImpl implements ISnapshot
             current = stack.pop();
             result.add(current);
 
-            int[] next = getImmediateDominatedIds(current);
-            for (int i : next)
-            {
-                stack.push(i);
-            }
+            dominated.forEach(current + 1, stack::push);
         }
         // Clear to make space
         stack = null;
@@ -2098,7 +2550,9 @@ public final class SnapshotImpl implements ISnapshot
 
         int currentId;
         Path currentPath;
+        /** reused for the inbound references of each object in turn */
         int[] currentReferrers;
+        int currentReferrersLength;
         int lastReadReferrer;
 
         int[] referringThreads;
@@ -2258,14 +2712,18 @@ public final class SnapshotImpl implements ISnapshot
                         currentPath = fifo.getFirst();
                         fifo.removeFirst();
                         currentId = currentPath.getIndex();
-                        currentReferrers = inboundIndex.get(currentId);
-
-                        if (currentReferrers != null)
+                        if (currentReferrers == null)
+                            currentReferrers = new int[1024];
+                        currentReferrersLength = inboundIndex.get(currentId, currentReferrers);
+                        if (currentReferrersLength > currentReferrers.length)
                         {
-                            res = processCurrentReferrefs(0);
-                            if (res != null)
-                                return res;
+                            currentReferrers = new int[currentReferrersLength];
+                            inboundIndex.get(currentId, currentReferrers);
                         }
+
+                        res = processCurrentReferrefs(0);
+                        if (res != null)
+                            return res;
                     }
                     return null;
                 }
@@ -2336,7 +2794,7 @@ public final class SnapshotImpl implements ISnapshot
         private int[] processCurrentReferrefs(int fromIndex) throws SnapshotException
         {
             GCRootInfo[] rootInfo = null;
-            for (int i = fromIndex; i < currentReferrers.length; i++)
+            for (int i = fromIndex; i < currentReferrersLength; i++)
             {
                 rootInfo = roots.get(currentReferrers[i]);
                 if (rootInfo != null)
@@ -2368,8 +2826,9 @@ public final class SnapshotImpl implements ISnapshot
                     }
                 }
             }
-            for (int referrer : currentReferrers)
+            for (int i = 0; i < currentReferrersLength; i++)
             {
+                int referrer = currentReferrers[i];
                 if (referrer >= 0 && !visited.get(referrer) && !roots.containsKey(referrer))
                 {
                     if (excludeMap == null)
@@ -2411,6 +2870,39 @@ public final class SnapshotImpl implements ISnapshot
         return heapObjectReader;
     }
 
+    /**
+     * The resources used by the snapshot, shared with the other open snapshots.
+     * @return the usage, or null if the snapshot has been disposed
+     */
+    public ResourceManager.Usage getResourceUsage()
+    {
+        return resourceUsage;
+    }
+
+    /**
+     * Make room for other snapshots by dropping the index pages and objects
+     * held by this snapshot.
+     */
+    @Override
+    public void releaseCaches()
+    {
+        try
+        {
+            indexManager.unload();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        objectCache.clear();
+    }
+
+    @Override
+    public void setObjectCacheSize(int size)
+    {
+        objectCache.setMaxSize(size);
+    }
+
     /**
      * The cache to speed the finding of the retained size for each object.
      * @return the cache
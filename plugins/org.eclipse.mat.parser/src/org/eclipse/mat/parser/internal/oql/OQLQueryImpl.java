@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - bug fixes for instanceof, big changes for tables
+ *    IBM Corporation - group by and aggregate functions, order by and limit
+ *    IBM Corporation - evaluate uncorrelated subqueries once
+ *    IBM Corporation - use the indexes for some WHERE clauses
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql;
 
@@ -22,12 +25,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -36,17 +42,23 @@ import java.util.regex.PatternSyntaxException;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayLong;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.collect.HashMapLongObject;
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.collect.IteratorLong;
 import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.parser.internal.oql.compiler.Aggregate;
 import org.eclipse.mat.parser.internal.oql.compiler.CompilerImpl;
 import org.eclipse.mat.parser.internal.oql.compiler.EvaluationContext;
 import org.eclipse.mat.parser.internal.oql.compiler.Expression;
+import org.eclipse.mat.parser.internal.oql.compiler.IndexPlan;
 import org.eclipse.mat.parser.internal.oql.compiler.Query;
 import org.eclipse.mat.parser.internal.oql.compiler.Query.FromClause;
+import org.eclipse.mat.parser.internal.oql.compiler.Query.OrderItem;
 import org.eclipse.mat.parser.internal.oql.compiler.Query.SelectClause;
 import org.eclipse.mat.parser.internal.oql.compiler.Query.SelectItem;
+import org.eclipse.mat.parser.internal.oql.compiler.QueryExpression;
 import org.eclipse.mat.parser.internal.oql.parser.OQLParser;
 import org.eclipse.mat.parser.internal.oql.parser.ParseException;
 import org.eclipse.mat.parser.internal.oql.parser.TokenMgrError;
@@ -655,10 +667,16 @@ public class OQLQueryImpl implements IOQLQuery
                     // Don't track progress here for reading the cell
                     IProgressListener old = source.ctx.getProgressListener();
                     source.ctx.setProgressListener(new SilentProgressListener(old));
-                    Query.SelectItem column = source.query.getSelectClause().getSelectList().get(columnIndex);
-                    Object v = column.getExpression().compute(source.ctx);
-
-                    source.ctx.setProgressListener(old);
+                    Object v;
+                    try
+                    {
+                        Query.SelectItem column = source.query.getSelectClause().getSelectList().get(columnIndex);
+                        v = column.getExpression().compute(source.ctx);
+                    }
+                    finally
+                    {
+                        source.ctx.setProgressListener(old);
+                    }
                     holder.values[columnIndex] = v == null ? NULL_VALUE : v;
                 }
                 catch (SnapshotException e)
@@ -827,10 +845,16 @@ public class OQLQueryImpl implements IOQLQuery
                     // Don't track progress here for reading the cell
                     IProgressListener old = source.ctx.getProgressListener();
                     source.ctx.setProgressListener(new SilentProgressListener(old));
-                    List<SelectItem> selectList = source.query.getSelectClause().getSelectList();
-                    Object value = selectList.get(columnIndex).getExpression().compute(source.ctx);
-
-                    source.ctx.setProgressListener(old);
+                    Object value;
+                    try
+                    {
+                        List<SelectItem> selectList = source.query.getSelectClause().getSelectList();
+                        value = selectList.get(columnIndex).getExpression().compute(source.ctx);
+                    }
+                    finally
+                    {
+                        source.ctx.setProgressListener(old);
+                    }
                     objects[index].values[columnIndex] = value != null ? value : NULL_VALUE;
                 }
                 catch (SnapshotException e)
@@ -895,6 +919,62 @@ public class OQLQueryImpl implements IOQLQuery
         }
     }
 
+    /**
+     * Result from a select with GROUP BY or aggregate functions.
+     * Each row is a group rather than a heap object, so there is no context for the row,
+     * though columns holding objects, such as the class of a group, have their own context.
+     */
+    private static class GroupResultSet extends AbstractCustomTableResultSet
+    {
+        Object[][] rows;
+
+        public GroupResultSet(OQLQueryImpl source, Object[][] rows)
+        {
+            super(source);
+            this.rows = rows;
+
+            List<SelectItem> selectList = source.query.getSelectClause().getSelectList();
+            columns = new Column[selectList.size()];
+            for (int ii = 0; ii < columns.length; ii++)
+                columns[ii] = buildColumn(selectList.get(ii), rows.length > 0 ? rows[0][ii] : null);
+        }
+
+        public ResultMetaData getResultMetaData()
+        {
+            return getResultMetaData(source);
+        }
+
+        public int getRowCount()
+        {
+            return rows.length;
+        }
+
+        public Object getColumnValue(Object row, int columnIndex)
+        {
+            return rows[(Integer) row][columnIndex];
+        }
+
+        public IContextObject getContext(Object row)
+        {
+            return null;
+        }
+
+        public Object getRow(int index)
+        {
+            return index;
+        }
+
+        public Column[] getColumns()
+        {
+            return columns;
+        }
+
+        public String getOQLQuery()
+        {
+            return source.query.toString();
+        }
+    }
+
     private static Column buildColumn(SelectItem column, Object columnValue)
     {
         String name = column.getName();
@@ -1529,6 +1609,40 @@ public class OQLQueryImpl implements IOQLQuery
         init(parent, query);
     }
 
+    /** Remembers that an uncorrelated subquery returned nothing */
+    private static final Object NO_RESULT = new Object();
+
+    /**
+     * Evaluate a subquery which does not depend on the subjects of the outer queries,
+     * for example <code>classof(o) IN (SELECT * FROM OBJECTS ...)</code>.
+     * The result is kept for the rest of the top level query, and optionally
+     * for later queries on the same snapshot.
+     * @param ctx the context of the outer query
+     * @param query the subquery
+     * @param key identifies the subquery for the top level query
+     * @return the result, as from {@link #execute(ISnapshot, IProgressListener)}
+     * @throws SnapshotException if there is a problem evaluating the subquery
+     */
+    public static Object executeUncorrelated(EvaluationContext ctx, Query query, Object key) throws SnapshotException
+    {
+        Object result = ctx.getResult(key);
+        if (result != null)
+            return result != NO_RESULT ? result : null;
+
+        String text = SubQueryResultCache.isEnabled() ? query.toString() : null;
+        if (text != null)
+            result = SubQueryResultCache.get(ctx.getSnapshot(), text);
+        if (result == null)
+        {
+            OQLQueryImpl q = new OQLQueryImpl(ctx, query);
+            result = q.execute(ctx.getSnapshot(), ctx.getProgressListener());
+            if (text != null && result instanceof int[])
+                SubQueryResultCache.put(ctx.getSnapshot(), text, (int[]) result);
+        }
+        ctx.putResult(key, result != null ? result : NO_RESULT);
+        return result;
+    }
+
     public OQLQueryImpl(String queryString) throws OQLParseException
     {
         try
@@ -1784,6 +1898,48 @@ public class OQLQueryImpl implements IOQLQuery
         return unionResultSet != null ? (unionResultSet.getRowCount() > 0 ? unionResultSet : null) : (unionIntResult != null ? unionIntResult : unionListResult);
     }
 
+    /**
+     * Evaluate the sub-select of the FROM clause.
+     * When this query is itself a subquery evaluated for each row of an outer query
+     * and the sub-select does not depend on the outer subjects then
+     * the object ids are only found once.
+     */
+    private Object subSelect(IProgressListener monitor) throws SnapshotException
+    {
+        Query subSelect = query.getFromClause().getSubSelect();
+        boolean uncorrelated = ctx.isNested() && !new QueryExpression(subSelect).isContextDependent(ctx);
+        String text = null;
+        if (uncorrelated)
+        {
+            Object result = ctx.getResult(query.getFromClause());
+            if (result == null && SubQueryResultCache.isEnabled())
+            {
+                text = subSelect.toString();
+                result = SubQueryResultCache.get(ctx.getSnapshot(), text);
+            }
+            if (result != null)
+            {
+                monitor.done();
+                ctx.putResult(query.getFromClause(), result);
+                return result != NO_RESULT ? new IntArrayResult((int[]) result) : null;
+            }
+        }
+
+        OQLQueryImpl subQuery = new OQLQueryImpl(this.ctx, subSelect);
+        Object result = subQuery.internalExecute(monitor);
+        if (uncorrelated && (result == null || result instanceof IntResult))
+        {
+            // copies, as the object ids are read again by later rows of the outer query
+            int objectIds[] = result != null ? ((IntResult) result).toArray() : null;
+            ctx.putResult(query.getFromClause(), objectIds != null ? objectIds : NO_RESULT);
+            if (text != null && objectIds != null)
+                SubQueryResultCache.put(ctx.getSnapshot(), text, objectIds);
+            if (objectIds != null)
+                result = new IntArrayResult(objectIds);
+        }
+        return result;
+    }
+
     private Object doSubQuery(IProgressListener monitor) throws SnapshotException
     {
         // If there is a WHERE clause then allocate more ticks for processing that
@@ -1791,8 +1947,7 @@ public class OQLQueryImpl implements IOQLQuery
                           new int[] {300,100}
                         : new int[] {200,200};
         SimpleMonitor listener = new SimpleMonitor(query.toString(), monitor, percentages);
-        OQLQueryImpl subQuery = new OQLQueryImpl(this.ctx, query.getFromClause().getSubSelect());
-        Object result = subQuery.internalExecute(listener.nextMonitor());
+        Object result = subSelect(listener.nextMonitor());
         monitor = listener.nextMonitor();
 
         if (query.getFromClause().includeObjects() && !query.getFromClause().includeSubClasses())
@@ -2292,16 +2447,26 @@ public class OQLQueryImpl implements IOQLQuery
         {
             listener.beginTask(Messages.OQLQueryImpl_SelectingObjects, classes.size());
 
-            IntResult filteredSet = createIntResult(classes.size());
+            Ordering ordering = query.isOrdered() && !query.isGrouped() ? new Ordering(listener) : null;
+            IntResult filteredSet = ordering == null ? createIntResult(classes.size()) : null;
             for (IClass clasz : classes)
             {
+                if (ordering != null && ordering.isFull())
+                    break;
                 if (accept(clasz.getObjectId(), listener))
-                    filteredSet.add(clasz.getObjectId());
+                {
+                    if (ordering != null)
+                        ordering.add(clasz.getObjectId());
+                    else
+                        filteredSet.add(clasz.getObjectId());
+                }
 
                 if (listener.isCanceled())
                     throw new IProgressListener.OperationCanceledException();
                 listener.worked(1);
             }
+            if (ordering != null)
+                filteredSet = ordering.result();
             return filteredSet.isEmpty() ? null : select(filteredSet, listener);
 
         }
@@ -2327,17 +2492,36 @@ public class OQLQueryImpl implements IOQLQuery
 
             listener.beginTask(Messages.OQLQueryImpl_CollectingObjects, work);
 
-            IntResult filteredSet = createIntResult(classes.size() * 100);
+            // aggregate as the objects are found rather than collecting them
+            Grouping grouping = query.isGrouped() ? new Grouping(listener) : null;
+            // keep only the rows for ORDER BY and LIMIT
+            Ordering ordering = grouping == null && query.isOrdered() ? new Ordering(listener) : null;
+            IntResult filteredSet = grouping == null && ordering == null ? createIntResult(classes.size() * 100) : null;
+            // only read the objects which could satisfy the WHERE clause
+            IndexPlan plan = indexPlan(listener);
             for (IClass clasz : classes)
             {
+                if (ordering != null && ordering.isFull())
+                    break;
                 listener.subTask(MessageUtil.format(Messages.OQLQueryImpl_CheckingClass,
                                 new Object[] { clasz.getName() }));
 
-                int[] ids = clasz.getObjectIds();
+                int[] ids = plan != null ? plan.getObjectIds(clasz) : clasz.getObjectIds();
+                if (countObjs && ids.length < clasz.getNumberOfObjects())
+                    listener.worked(clasz.getNumberOfObjects() - ids.length);
                 for (int id : ids)
                 {
+                    if (ordering != null && ordering.isFull())
+                        break;
                     if (accept(id, listener))
-                        filteredSet.add(id);
+                    {
+                        if (grouping != null)
+                            grouping.add(id);
+                        else if (ordering != null)
+                            ordering.add(id);
+                        else
+                            filteredSet.add(id);
+                    }
 
                     if (countObjs)
                         listener.worked(1);
@@ -2351,7 +2535,17 @@ public class OQLQueryImpl implements IOQLQuery
                     listener.worked(1);
             }
 
-            Object ret = filteredSet.isEmpty() ? null : select(filteredSet, listener);
+            Object ret;
+            if (grouping != null)
+            {
+                ret = grouping.result();
+            }
+            else
+            {
+                if (ordering != null)
+                    filteredSet = ordering.result();
+                ret = filteredSet.isEmpty() ? null : select(filteredSet, listener);
+            }
             listener.done();
             return ret;
         }
@@ -2382,24 +2576,63 @@ public class OQLQueryImpl implements IOQLQuery
         return result == null ? false : result.booleanValue();
     }
 
+    /**
+     * Find the objects which could satisfy the WHERE clause from the indexes.
+     * @return the plan, or null if every object needs to be tested
+     */
+    private IndexPlan indexPlan(IProgressListener mon)
+    {
+        if (query.getWhereClause() == null)
+            return null;
+        // as for accept(), subqueries in the WHERE clause do not report work
+        IProgressListener old = ctx.getProgressListener();
+        ctx.setProgressListener(new SilentProgressListener(mon));
+        try
+        {
+            return IndexPlan.create(query.getWhereClause(), ctx);
+        }
+        finally
+        {
+            ctx.setProgressListener(old);
+        }
+    }
+
     private Object filterAndSelect(IntResult objectIds, IProgressListener listener) throws SnapshotException
     {
         String task = query.getWhereClause() != null ? "WHERE " + query.getWhereClause() : Messages.OQLQueryImpl_Selecting; //$NON-NLS-1$
         listener.beginTask(task, objectIds.size());
 
-        IntResult filteredSet = createIntResult(objectIds.size());
+        Grouping grouping = query.isGrouped() ? new Grouping(listener) : null;
+        // keep only the rows for ORDER BY and LIMIT
+        Ordering ordering = grouping == null && query.isOrdered() ? new Ordering(listener) : null;
+        IntResult filteredSet = grouping == null && ordering == null ? createIntResult(objectIds.size()) : null;
+        // skip the objects which cannot satisfy the WHERE clause without reading them
+        IndexPlan plan = indexPlan(listener);
 
         for (IntIterator iter = objectIds.iterator(); iter.hasNext();)
         {
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
+            if (ordering != null && ordering.isFull())
+                break;
 
             int id = iter.nextInt();
-            if (accept(id, listener))
-                filteredSet.add(id);
+            if ((plan == null || plan.accept(id)) && accept(id, listener))
+            {
+                if (grouping != null)
+                    grouping.add(id);
+                else if (ordering != null)
+                    ordering.add(id);
+                else
+                    filteredSet.add(id);
+            }
             listener.worked(1);
         }
 
+        if (grouping != null)
+            return grouping.result();
+        if (ordering != null)
+            filteredSet = ordering.result();
         return filteredSet.isEmpty() ? null : select(filteredSet, listener);
     }
 
@@ -2434,6 +2667,14 @@ public class OQLQueryImpl implements IOQLQuery
     {
         Query.SelectClause select = query.getSelectClause();
 
+        if (query.isGrouped())
+        {
+            Grouping grouping = new Grouping(listener);
+            for (IntIterator iter = objectIds.iterator(); iter.hasNext();)
+                grouping.add(iter.nextInt());
+            return grouping.result();
+        }
+
         // calculate retained set
         if (select.isRetainedSet())
         {
@@ -2466,7 +2707,8 @@ public class OQLQueryImpl implements IOQLQuery
                 {
                     aa.set(i, ids[aa.get(i)]);
                 }
-                return new ResultSet(getSelectQuery(), aa.toArray());
+                // OFFSET and LIMIT apply to the distinct rows
+                return new ResultSet(getSelectQuery(), Arrays.copyOfRange(aa.toArray(), pageStart(aa.size()), pageEnd(aa.size())));
             }
             else
             {
@@ -2479,6 +2721,28 @@ public class OQLQueryImpl implements IOQLQuery
     {
         Query.SelectClause select = query.getSelectClause();
 
+        if (query.isGrouped())
+        {
+            Grouping grouping = new Grouping(listener);
+            for (Object object : objects)
+                grouping.add(object);
+            return grouping.result();
+        }
+
+        if (query.isOrdered())
+        {
+            Ordering ordering = new Ordering(listener);
+            for (Object object : objects)
+            {
+                if (ordering.isFull())
+                    break;
+                ordering.add(object);
+            }
+            objects = ordering.resultObjects();
+            if (objects.isEmpty())
+                return null;
+        }
+
         // calculate retained set
         if (select.isRetainedSet()) { return select(convertToObjectIds(objects), listener); }
 
@@ -2506,10 +2770,12 @@ public class OQLQueryImpl implements IOQLQuery
                 so.clear();
                 AbstractCustomTableResultSet s1 = new ObjectResultSet(getSelectQuery(), objs);
                 ArrayInt aa = distinctList(s1, listener);
-                Object objs2[] = new Object[aa.size()];
-                for (int i = 0; i < aa.size(); ++i)
+                // OFFSET and LIMIT apply to the distinct rows
+                int start = pageStart(aa.size());
+                Object objs2[] = new Object[pageEnd(aa.size()) - start];
+                for (int i = 0; i < objs2.length; ++i)
                 {
-                    objs2[i] = objs[aa.get(i)];
+                    objs2[i] = objs[aa.get(start + i)];
                 }
                 return new ObjectResultSet(getSelectQuery(), objs2);
             }
@@ -2630,6 +2896,17 @@ public class OQLQueryImpl implements IOQLQuery
     {
         Query.SelectClause select = query.getSelectClause();
 
+        if (query.isGrouped())
+        {
+            Grouping grouping = new Grouping(listener);
+            grouping.add(object);
+            return grouping.result();
+        }
+
+        // the only row is after the OFFSET or LIMIT
+        if (pageStart(1) == pageEnd(1))
+            return null;
+
         // calculate retained set
         if (select.isRetainedSet()) { return select(convertToObjectIds(Arrays.asList(new Object[] { object })),
                         listener); }
@@ -2663,6 +2940,10 @@ public class OQLQueryImpl implements IOQLQuery
         q2.setSelectClause(query.getSelectClause());
         q2.setFromClause(query.getFromClause());
         q2.setWhereClause(query.getWhereClause());
+        q2.setGroupByClause(query.getGroupByClause());
+        q2.setOrderByClause(query.getOrderByClause());
+        q2.setLimit(query.getLimit());
+        q2.setOffset(query.getOffset());
         OQLQueryImpl qi = new OQLQueryImpl(ctx, q2);
         return qi;
     }
@@ -2887,6 +3168,712 @@ public class OQLQueryImpl implements IOQLQuery
         ctx.setProgressListener(old);
     }
 
+    /**
+     * The accumulated values of one group.
+     * The arrays are indexed by the select item, and only used for aggregate functions.
+     */
+    private static class Group
+    {
+        final Object[] keys;
+        long rows;
+        // number of non-null values
+        final long[] counts;
+        // integral sum, min or max
+        final long[] longs;
+        // floating point sum, min or max
+        final double[] doubles;
+        final boolean[] floating;
+        // min or max of other comparable values
+        final Object[] objects;
+
+        Group(Object[] keys, int columns)
+        {
+            this.keys = keys;
+            counts = new long[columns];
+            longs = new long[columns];
+            doubles = new double[columns];
+            floating = new boolean[columns];
+            objects = new Object[columns];
+        }
+    }
+
+    /**
+     * Streaming hash aggregation for GROUP BY and aggregate functions.
+     * Rows are added one at a time and only the groups are kept, so the memory used
+     * depends on the number of groups, not the number of rows.
+     * A single GROUP BY expression giving heap objects or integral numbers is hashed
+     * on the object id or the number. Shallow and retained sizes of the subject are read
+     * by object id, so if nothing else needs the object it is never read.
+     */
+    private class Grouping
+    {
+        final List<SelectItem> selectList;
+        final List<Expression> keys;
+        // for each select item, the GROUP BY expression, or -1 for an aggregate function
+        final int[] keyIndex;
+        final Aggregate[] aggregates;
+        final Aggregate.HeapSize[] heapSizes;
+        final boolean needsObject;
+        final IProgressListener listener;
+
+        final HashMapIntObject<Group> objectGroups = new HashMapIntObject<Group>();
+        final HashMapLongObject<Group> longGroups = new HashMapLongObject<Group>();
+        final Map<List<Object>, Group> groups = new HashMap<List<Object>, Group>();
+        // in the order first found
+        final List<Group> order = new ArrayList<Group>();
+
+        Grouping(IProgressListener listener) throws SnapshotException
+        {
+            SelectClause select = query.getSelectClause();
+            selectList = select.getSelectList();
+            if (select.isRetainedSet() || select.isAsObjects() || selectList.isEmpty())
+                throw new SnapshotException(MessageUtil.format(Messages.OQLQueryImpl_Error_GroupByNotSupported, query));
+            keys = query.getGroupByClause() != null ? query.getGroupByClause() : Collections.<Expression> emptyList();
+            keyIndex = new int[selectList.size()];
+            aggregates = new Aggregate[selectList.size()];
+            heapSizes = new Aggregate.HeapSize[selectList.size()];
+            boolean needsObject = !keys.isEmpty();
+            for (int ii = 0; ii < selectList.size(); ++ii)
+            {
+                Expression ex = selectList.get(ii).getExpression();
+                keyIndex[ii] = -1;
+                if (ex instanceof Aggregate)
+                {
+                    aggregates[ii] = (Aggregate) ex;
+                    heapSizes[ii] = aggregates[ii].getHeapSize(ctx);
+                    if (aggregates[ii].getArgument() != null && heapSizes[ii] == Aggregate.HeapSize.NONE)
+                        needsObject = true;
+                    continue;
+                }
+                for (int jj = 0; jj < keys.size(); ++jj)
+                {
+                    if (keys.get(jj).toString().equals(ex.toString()))
+                    {
+                        keyIndex[ii] = jj;
+                        break;
+                    }
+                }
+                if (keyIndex[ii] < 0)
+                    throw new SnapshotException(MessageUtil.format(Messages.OQLQueryImpl_Error_NotGroupedSelectItem,
+                                    selectList.get(ii), query));
+            }
+            this.needsObject = needsObject;
+            // We don't track work for the expressions
+            this.listener = new SilentProgressListener(listener);
+        }
+
+        void add(int objectId) throws SnapshotException
+        {
+            IProgressListener old = ctx.getProgressListener();
+            ctx.setProgressListener(listener);
+            try
+            {
+                if (needsObject)
+                    ctx.setSubject(ctx.getSnapshot().getObject(objectId));
+                Group group = group();
+                group.rows++;
+                for (int ii = 0; ii < aggregates.length; ++ii)
+                {
+                    if (aggregates[ii] == null)
+                        continue;
+                    switch (heapSizes[ii])
+                    {
+                        case USED:
+                            accumulate(group, ii, ctx.getSnapshot().getHeapSize(objectId));
+                            break;
+                        case RETAINED:
+                            accumulate(group, ii, ctx.getSnapshot().getRetainedHeapSize(objectId));
+                            break;
+                        default:
+                            accumulate(group, ii);
+                            break;
+                    }
+                }
+            }
+            finally
+            {
+                ctx.setProgressListener(old);
+            }
+        }
+
+        void add(Object subject) throws SnapshotException
+        {
+            IProgressListener old = ctx.getProgressListener();
+            ctx.setProgressListener(listener);
+            try
+            {
+                ctx.setSubject(subject);
+                Group group = group();
+                group.rows++;
+                for (int ii = 0; ii < aggregates.length; ++ii)
+                {
+                    if (aggregates[ii] != null)
+                        accumulate(group, ii);
+                }
+            }
+            finally
+            {
+                ctx.setProgressListener(old);
+            }
+        }
+
+        /**
+         * Find or create the group for the current subject.
+         */
+        private Group group() throws SnapshotException
+        {
+            if (keys.isEmpty())
+            {
+                if (order.isEmpty())
+                    order.add(new Group(new Object[0], selectList.size()));
+                return order.get(0);
+            }
+
+            if (keys.size() == 1)
+            {
+                Object key = keys.get(0).compute(ctx);
+                int objectId = AbstractCustomTableResultSet.getObjectId(key);
+                if (objectId >= 0)
+                {
+                    Group group = objectGroups.get(objectId);
+                    if (group == null)
+                    {
+                        group = newGroup(new Object[] { key });
+                        objectGroups.put(objectId, group);
+                    }
+                    return group;
+                }
+                if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte)
+                {
+                    long value = ((Number) key).longValue();
+                    Group group = longGroups.get(value);
+                    if (group == null)
+                    {
+                        group = newGroup(new Object[] { key });
+                        longGroups.put(value, group);
+                        return group;
+                    }
+                    // Numbers of different types, such as 1 and 1L, are different groups
+                    if (group.keys[0].getClass() == key.getClass())
+                        return group;
+                }
+                return findGroup(new Object[] { key });
+            }
+
+            Object[] values = new Object[keys.size()];
+            for (int ii = 0; ii < values.length; ++ii)
+                values[ii] = keys.get(ii).compute(ctx);
+            return findGroup(values);
+        }
+
+        private Group findGroup(Object[] values)
+        {
+            List<Object> key = Arrays.asList(values);
+            Group group = groups.get(key);
+            if (group == null)
+            {
+                group = newGroup(values);
+                groups.put(key, group);
+            }
+            return group;
+        }
+
+        private Group newGroup(Object[] values)
+        {
+            Group group = new Group(values, selectList.size());
+            order.add(group);
+            return group;
+        }
+
+        private void accumulate(Group group, int column) throws SnapshotException
+        {
+            Aggregate aggregate = aggregates[column];
+            if (aggregate.getArgument() == null)
+                return;
+            Object value = aggregate.getArgument().compute(ctx);
+            if (value == null)
+                return;
+
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+            {
+                accumulate(group, column, ((Number) value).longValue());
+            }
+            else if (aggregate.getKind() == Aggregate.Kind.COUNT)
+            {
+                group.counts[column]++;
+            }
+            else if (value instanceof Number)
+            {
+                accumulate(group, column, ((Number) value).doubleValue());
+            }
+            else if (aggregate.getKind() == Aggregate.Kind.SUM || aggregate.getKind() == Aggregate.Kind.AVG)
+            {
+                throw new SnapshotException(MessageUtil.format(Messages.Function_Error_NeedsNumberAsInput,
+                                aggregate.getArgument(), value, value.getClass().getName(), aggregate.getKind().getSymbol()));
+            }
+            else if (!(value instanceof Comparable) || group.counts[column] > 0 && group.objects[column] == null)
+            {
+                // not comparable, or numbers have already been seen
+                throw new SnapshotException(MessageUtil.format(Messages.Function_ErrorNoFunction,
+                                aggregate.getArgument(), value, value.getClass().getName(), aggregate.getKind().getSymbol()));
+            }
+            else
+            {
+                Object current = group.objects[column];
+                try
+                {
+                    @SuppressWarnings("unchecked")
+                    int cmp = current == null ? 0 : ((Comparable<Object>) value).compareTo(current);
+                    if (current == null || (aggregate.getKind() == Aggregate.Kind.MIN ? cmp < 0 : cmp > 0))
+                        group.objects[column] = value;
+                }
+                catch (ClassCastException e)
+                {
+                    throw new SnapshotException(MessageUtil.format(Messages.Function_ErrorNoFunction,
+                                    aggregate.getArgument(), value, value.getClass().getName(), aggregate.getKind().getSymbol()), e);
+                }
+                group.counts[column]++;
+            }
+        }
+
+        private void accumulate(Group group, int column, long value) throws SnapshotException
+        {
+            if (group.objects[column] != null)
+                throw new SnapshotException(MessageUtil.format(Messages.Function_ErrorNoFunction,
+                                aggregates[column].getArgument(), value, Long.class.getName(), aggregates[column].getKind().getSymbol()));
+            switch (aggregates[column].getKind())
+            {
+                case SUM:
+                case AVG:
+                    group.longs[column] += value;
+                    break;
+                case MIN:
+                    if (group.floating[column])
+                        group.doubles[column] = Math.min(group.doubles[column], value);
+                    else if (group.counts[column] == 0 || value < group.longs[column])
+                        group.longs[column] = value;
+                    break;
+                case MAX:
+                    if (group.floating[column])
+                        group.doubles[column] = Math.max(group.doubles[column], value);
+                    else if (group.counts[column] == 0 || value > group.longs[column])
+                        group.longs[column] = value;
+                    break;
+                default:
+                    break;
+            }
+            group.counts[column]++;
+        }
+
+        private void accumulate(Group group, int column, double value) throws SnapshotException
+        {
+            if (group.objects[column] != null)
+                throw new SnapshotException(MessageUtil.format(Messages.Function_ErrorNoFunction,
+                                aggregates[column].getArgument(), value, Double.class.getName(), aggregates[column].getKind().getSymbol()));
+            switch (aggregates[column].getKind())
+            {
+                case SUM:
+                case AVG:
+                    group.doubles[column] += value;
+                    group.floating[column] = true;
+                    break;
+                case MIN:
+                case MAX:
+                    if (!group.floating[column])
+                    {
+                        // switch the integral values seen so far to floating point
+                        group.doubles[column] = group.counts[column] == 0 ? value : group.longs[column];
+                        group.floating[column] = true;
+                    }
+                    if (aggregates[column].getKind() == Aggregate.Kind.MIN)
+                        group.doubles[column] = Math.min(group.doubles[column], value);
+                    else
+                        group.doubles[column] = Math.max(group.doubles[column], value);
+                    break;
+                default:
+                    break;
+            }
+            group.counts[column]++;
+        }
+
+        private Object value(Group group, int column)
+        {
+            Aggregate aggregate = aggregates[column];
+            long count = group.counts[column];
+            switch (aggregate.getKind())
+            {
+                case COUNT:
+                    return aggregate.getArgument() == null ? group.rows : count;
+                case SUM:
+                    if (count == 0)
+                        return null;
+                    if (group.floating[column])
+                        return group.doubles[column] + group.longs[column];
+                    return group.longs[column];
+                case AVG:
+                    if (count == 0)
+                        return null;
+                    return (group.doubles[column] + group.longs[column]) / count;
+                default:
+                    if (count == 0)
+                        return null;
+                    if (group.objects[column] != null)
+                        return group.objects[column];
+                    if (group.floating[column])
+                        return group.doubles[column];
+                    return group.longs[column];
+            }
+        }
+
+        /**
+         * A table with a row for each group.
+         * @return the table, or null if there were no rows
+         */
+        Object result() throws SnapshotException
+        {
+            if (order.isEmpty())
+                return null;
+            Object[][] rows = new Object[order.size()][];
+            for (int ii = 0; ii < rows.length; ++ii)
+            {
+                Group group = order.get(ii);
+                Object[] row = new Object[selectList.size()];
+                for (int jj = 0; jj < row.length; ++jj)
+                    row[jj] = keyIndex[jj] >= 0 ? group.keys[keyIndex[jj]] : value(group, jj);
+                rows[ii] = row;
+            }
+            if (query.isOrdered())
+            {
+                rows = order(rows);
+                if (rows.length == 0)
+                    return null;
+            }
+            return new GroupResultSet(getSelectQuery(), rows);
+        }
+
+        /**
+         * Sort the groups by the select items named in the ORDER BY clause,
+         * then apply the OFFSET and LIMIT.
+         */
+        private Object[][] order(Object[][] rows) throws SnapshotException
+        {
+            List<OrderItem> items = query.getOrderByClause() != null ? query.getOrderByClause() : Collections.<OrderItem> emptyList();
+            final int[] columns = new int[items.size()];
+            final boolean[] descending = new boolean[items.size()];
+            for (int ii = 0; ii < columns.length; ++ii)
+            {
+                String name = items.get(ii).getExpression().toString();
+                columns[ii] = -1;
+                for (int jj = 0; jj < selectList.size(); ++jj)
+                {
+                    SelectItem item = selectList.get(jj);
+                    if (name.equals(item.getName()) || name.equals(item.getExpression().toString()))
+                    {
+                        columns[ii] = jj;
+                        break;
+                    }
+                }
+                if (columns[ii] < 0)
+                    throw new SnapshotException(MessageUtil.format(Messages.OQLQueryImpl_Error_NotSelectedOrderItem,
+                                    items.get(ii), query));
+                descending[ii] = items.get(ii).isDescending();
+            }
+            // a stable sort, so equal groups stay in the order found
+            Arrays.sort(rows, new Comparator<Object[]>()
+            {
+                public int compare(Object[] row1, Object[] row2)
+                {
+                    for (int ii = 0; ii < columns.length; ++ii)
+                    {
+                        int c = compareValues(row1[columns[ii]], row2[columns[ii]]);
+                        if (c != 0)
+                            return descending[ii] ? -c : c;
+                    }
+                    return 0;
+                }
+            });
+            return Arrays.copyOfRange(rows, pageStart(rows.length), pageEnd(rows.length));
+        }
+    }
+
+    /**
+     * Compares the values of ORDER BY expressions.
+     * Null comes first, numbers are compared by value and heap objects by address.
+     * Values of different types which cannot otherwise be compared are compared by their text.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object v1, Object v2)
+    {
+        if (v1 == v2)
+            return 0;
+        if (v1 == null)
+            return -1;
+        if (v2 == null)
+            return 1;
+        if (v1 instanceof Number && v2 instanceof Number)
+        {
+            if (isIntegral(v1) && isIntegral(v2))
+                return Long.compare(((Number) v1).longValue(), ((Number) v2).longValue());
+            return Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+        }
+        if (v1 instanceof IObject && v2 instanceof IObject)
+            return Long.compare(((IObject) v1).getObjectAddress(), ((IObject) v2).getObjectAddress());
+        if (v1 instanceof Comparable && v1.getClass() == v2.getClass())
+            return ((Comparable<Object>) v1).compareTo(v2);
+        return String.valueOf(v1).compareTo(String.valueOf(v2));
+    }
+
+    private static boolean isIntegral(Object value)
+    {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static int compareKeys(Object[] keys1, Object[] keys2, boolean[] descending)
+    {
+        for (int ii = 0; ii < descending.length; ++ii)
+        {
+            int c = compareValues(keys1[ii], keys2[ii]);
+            if (c != 0)
+                return descending[ii] ? -c : c;
+        }
+        return 0;
+    }
+
+    /**
+     * The index of the first row returned after the OFFSET.
+     */
+    private int pageStart(int size)
+    {
+        return Math.min(query.getOffset(), size);
+    }
+
+    /**
+     * The index after the last row returned with the LIMIT.
+     */
+    private int pageEnd(int size)
+    {
+        if (query.getLimit() < 0)
+            return size;
+        return (int) Math.min((long) pageStart(size) + query.getLimit(), size);
+    }
+
+    /**
+     * A row which might be returned by a query with ORDER BY or LIMIT.
+     */
+    private static class Candidate
+    {
+        final Object[] keys;
+        final int objectId;
+        final Object subject;
+        // the position found, so equal rows stay in order
+        final long position;
+
+        Candidate(Object[] keys, int objectId, Object subject, long position)
+        {
+            this.keys = keys;
+            this.objectId = objectId;
+            this.subject = subject;
+            this.position = position;
+        }
+    }
+
+    /**
+     * ORDER BY and LIMIT for a query without GROUP BY.
+     * Rows are added one at a time with the values of the ORDER BY expressions.
+     * With a LIMIT only the best OFFSET + LIMIT rows are kept in a bounded heap,
+     * so only the rows returned are ever selected, and for a large heap dump
+     * the memory used depends on the limit, not the number of rows.
+     * Shallow and retained sizes of the subject are read by object id.
+     */
+    private class Ordering
+    {
+        final Expression[] expressions;
+        final Aggregate.HeapSize[] heapSizes;
+        final boolean[] descending;
+        final boolean needsObject;
+        // how many rows are kept
+        final int capacity;
+        // the same object is not added twice
+        final SetInt seen;
+        final IProgressListener listener;
+        final Comparator<Candidate> comparator;
+        // the worst of the rows kept is at the head, ready to be dropped
+        final PriorityQueue<Candidate> heap;
+        final List<Candidate> all;
+        long position;
+
+        Ordering(IProgressListener listener)
+        {
+            SelectClause select = query.getSelectClause();
+            List<OrderItem> items = query.getOrderByClause() != null ? query.getOrderByClause() : Collections.<OrderItem> emptyList();
+            expressions = new Expression[items.size()];
+            heapSizes = new Aggregate.HeapSize[items.size()];
+            descending = new boolean[items.size()];
+            boolean needsObject = false;
+            for (int ii = 0; ii < expressions.length; ++ii)
+            {
+                Expression ex = items.get(ii).getExpression();
+                // ORDER BY the name of a select item
+                for (SelectItem item : select.getSelectList())
+                {
+                    if (item.getName() != null && item.getName().equals(ex.toString()))
+                    {
+                        ex = item.getExpression();
+                        break;
+                    }
+                }
+                expressions[ii] = ex;
+                descending[ii] = items.get(ii).isDescending();
+                heapSizes[ii] = Aggregate.getHeapSize(ex, ctx);
+                if (heapSizes[ii] == Aggregate.HeapSize.NONE)
+                    needsObject = true;
+            }
+            this.needsObject = needsObject;
+
+            // DISTINCT on the select items can only be done once all the rows are known
+            boolean distinctRows = select.isDistinct() && !select.getSelectList().isEmpty() && !select.isAsObjects();
+            if (query.getLimit() >= 0 && !distinctRows)
+                capacity = (int) Math.min((long) query.getOffset() + query.getLimit(), Integer.MAX_VALUE);
+            else
+                capacity = Integer.MAX_VALUE;
+            seen = select.isDistinct() || select.isRetainedSet() ? new SetInt() : null;
+            comparator = new Comparator<Candidate>()
+            {
+                public int compare(Candidate c1, Candidate c2)
+                {
+                    int c = compareKeys(c1.keys, c2.keys, descending);
+                    return c != 0 ? c : Long.compare(c1.position, c2.position);
+                }
+            };
+            if (capacity < Integer.MAX_VALUE)
+            {
+                heap = new PriorityQueue<Candidate>(Math.min(capacity, 1024) + 1, Collections.reverseOrder(comparator));
+                all = null;
+            }
+            else
+            {
+                heap = null;
+                all = new ArrayList<Candidate>();
+            }
+            // We don't track work for the expressions
+            this.listener = new SilentProgressListener(listener);
+        }
+
+        /**
+         * Whether any more rows can be ignored, as they would come after the
+         * rows already kept.
+         */
+        boolean isFull()
+        {
+            return expressions.length == 0 && heap != null && heap.size() >= capacity;
+        }
+
+        void add(int objectId) throws SnapshotException
+        {
+            if (seen != null && !seen.add(objectId))
+                return;
+            if (isFull())
+                return;
+            IProgressListener old = ctx.getProgressListener();
+            ctx.setProgressListener(listener);
+            Object[] keys = new Object[expressions.length];
+            try
+            {
+                if (needsObject)
+                    ctx.setSubject(ctx.getSnapshot().getObject(objectId));
+                for (int ii = 0; ii < keys.length; ++ii)
+                {
+                    switch (heapSizes[ii])
+                    {
+                        case USED:
+                            keys[ii] = ctx.getSnapshot().getHeapSize(objectId);
+                            break;
+                        case RETAINED:
+                            keys[ii] = ctx.getSnapshot().getRetainedHeapSize(objectId);
+                            break;
+                        default:
+                            keys[ii] = expressions[ii].compute(ctx);
+                            break;
+                    }
+                }
+            }
+            finally
+            {
+                ctx.setProgressListener(old);
+            }
+            offer(new Candidate(keys, objectId, null, position++));
+        }
+
+        void add(Object subject) throws SnapshotException
+        {
+            if (isFull())
+                return;
+            IProgressListener old = ctx.getProgressListener();
+            ctx.setProgressListener(listener);
+            Object[] keys = new Object[expressions.length];
+            try
+            {
+                ctx.setSubject(subject);
+                for (int ii = 0; ii < keys.length; ++ii)
+                    keys[ii] = expressions[ii].compute(ctx);
+            }
+            finally
+            {
+                ctx.setProgressListener(old);
+            }
+            offer(new Candidate(keys, -1, subject, position++));
+        }
+
+        private void offer(Candidate candidate)
+        {
+            if (heap == null)
+            {
+                all.add(candidate);
+                return;
+            }
+            if (capacity == 0)
+                return;
+            if (heap.size() >= capacity)
+            {
+                // not better than the worst row kept
+                if (comparator.compare(candidate, heap.peek()) > 0)
+                    return;
+                heap.poll();
+            }
+            heap.add(candidate);
+        }
+
+        /**
+         * The rows kept in order, after the offset if only some of the rows were kept.
+         */
+        private List<Candidate> sorted()
+        {
+            List<Candidate> sorted = heap != null ? new ArrayList<Candidate>(heap) : all;
+            Collections.sort(sorted, comparator);
+            if (heap != null)
+                sorted = sorted.subList(Math.min(query.getOffset(), sorted.size()), sorted.size());
+            return sorted;
+        }
+
+        IntResult result()
+        {
+            List<Candidate> sorted = sorted();
+            IntArrayResult result = new IntArrayResult(sorted.size());
+            for (Candidate candidate : sorted)
+                result.add(candidate.objectId);
+            return result;
+        }
+
+        List<Object> resultObjects()
+        {
+            List<Candidate> sorted = sorted();
+            List<Object> result = new ArrayList<Object>(sorted.size());
+            for (Candidate candidate : sorted)
+                result.add(candidate.subject);
+            return result;
+        }
+    }
+
     private IntResult createIntResult(int capacity)
     {
         return query.getSelectClause().isDistinct() || query.getSelectClause().isRetainedSet() ? new IntSetResult(
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.oql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.mat.snapshot.ISnapshot;
+
+/**
+ * A least recently used cache of the object ids returned by uncorrelated
+ * subqueries, kept for each snapshot and keyed by the text of the subquery.
+ * Reports which run the same queries several times against one snapshot
+ * then only evaluate the subqueries once.
+ * <p>
+ * The cache is off unless the system property <code>mat.oql.subqueryCache</code>
+ * gives the number of subquery results to keep for each snapshot.
+ * Only arrays of object ids are kept, as they do not refer to the snapshot
+ * and so do not stop it being garbage collected.
+ */
+final class SubQueryResultCache
+{
+    private static final int SIZE = Integer.getInteger("mat.oql.subqueryCache", 0); //$NON-NLS-1$
+
+    private static final Map<ISnapshot, Map<String, int[]>> caches = new WeakHashMap<ISnapshot, Map<String, int[]>>();
+
+    private SubQueryResultCache()
+    {}
+
+    /* package */static boolean isEnabled()
+    {
+        return SIZE > 0;
+    }
+
+    /**
+     * Find a previous result.
+     * @param snapshot the snapshot the subquery ran against
+     * @param query the text of the subquery
+     * @return the object ids, which must not be modified, or null if not found
+     */
+    /* package */static int[] get(ISnapshot snapshot, String query)
+    {
+        if (SIZE <= 0)
+            return null;
+        synchronized (caches)
+        {
+            Map<String, int[]> cache = caches.get(snapshot);
+            return cache != null ? cache.get(query) : null;
+        }
+    }
+
+    /**
+     * Remember a result, discarding the least recently used result if the cache is full.
+     * @param snapshot the snapshot the subquery ran against
+     * @param query the text of the subquery
+     * @param objectIds the object ids, which are not modified afterwards
+     */
+    /* package */static void put(ISnapshot snapshot, String query, int[] objectIds)
+    {
+        if (SIZE <= 0)
+            return;
+        synchronized (caches)
+        {
+            Map<String, int[]> cache = caches.get(snapshot);
+            if (cache == null)
+            {
+                cache = new LinkedHashMap<String, int[]>(16, 0.75f, true)
+                {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest)
+                    {
+                        return size() > SIZE;
+                    }
+                };
+                caches.put(snapshot, cache);
+            }
+            cache.put(query, objectIds);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.oql.compiler;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * An aggregate function such as <code>count()</code> or <code>sum(s.@usedHeapSize)</code>
+ * in the select list of a query. The value is not computed for a single subject,
+ * instead the query accumulates it over all the rows of a group.
+ */
+public class Aggregate extends Expression
+{
+    public enum Kind
+    {
+        COUNT("count"), //$NON-NLS-1$
+        SUM("sum"), //$NON-NLS-1$
+        MIN("min"), //$NON-NLS-1$
+        MAX("max"), //$NON-NLS-1$
+        AVG("avg"); //$NON-NLS-1$
+
+        private final String symbol;
+
+        private Kind(String symbol)
+        {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol()
+        {
+            return symbol;
+        }
+
+        static Kind of(String name)
+        {
+            for (Kind k : values())
+            {
+                if (k.symbol.equals(name))
+                    return k;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The size of the subject which can be read from the snapshot by object id.
+     */
+    public enum HeapSize
+    {
+        NONE, USED, RETAINED
+    }
+
+    Kind kind;
+    Expression argument;
+
+    public Aggregate(Kind kind, Expression argument)
+    {
+        this.kind = kind;
+        this.argument = argument;
+    }
+
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * @return the argument, or null for <code>count()</code>
+     */
+    public Expression getArgument()
+    {
+        return argument;
+    }
+
+    /**
+     * Whether the argument is just the shallow or retained size of the subject,
+     * for example <code>s.@usedHeapSize</code>, so it can be read from the
+     * indexes by object id without reading the object.
+     * @param ctx the context of the query
+     * @return the size read by the argument
+     */
+    public HeapSize getHeapSize(EvaluationContext ctx)
+    {
+        return getHeapSize(argument, ctx);
+    }
+
+    /**
+     * Whether the expression is just the shallow or retained size of the subject.
+     * @param expression the expression, for example from the select list or the ORDER BY clause
+     * @param ctx the context of the query
+     * @return the size read by the expression
+     */
+    public static HeapSize getHeapSize(Expression expression, EvaluationContext ctx)
+    {
+        if (!(expression instanceof PathExpression))
+            return HeapSize.NONE;
+        String attribute = ((PathExpression) expression).getSubjectAttribute(ctx);
+        if ("usedHeapSize".equals(attribute)) //$NON-NLS-1$
+            return HeapSize.USED;
+        if ("retainedHeapSize".equals(attribute)) //$NON-NLS-1$
+            return HeapSize.RETAINED;
+        return HeapSize.NONE;
+    }
+
+    @Override
+    public Object compute(EvaluationContext ctx) throws SnapshotException
+    {
+        throw new SnapshotException(MessageUtil.format(Messages.Aggregate_Error_OnlyInSelectList, this));
+    }
+
+    @Override
+    public boolean isContextDependent(EvaluationContext ctx)
+    {
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return kind.getSymbol() + "(" + (argument != null ? argument : "") + ")";//$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+    }
+
+    /**
+     * Find the aggregate function with the name.
+     * @param name the name of the function
+     * @param parameters the number of parameters
+     * @return the kind, or null if this is not an aggregate function
+     */
+    static Kind kind(String name, int parameters)
+    {
+        Kind kind = Kind.of(name);
+        if (kind == null)
+            return null;
+        // count() or count(expr), the others need one argument
+        if (parameters == 1 || parameters == 0 && kind == Kind.COUNT)
+            return kind;
+        return null;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2014 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - array indexing
+ *    IBM Corporation - aggregate functions
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql.compiler;
 
@@ -99,11 +100,21 @@ public class CompilerImpl implements ICompiler
 
     public Object path(List<Object> attributes)
     {
+        // an aggregate function is only found by the query as the whole select item
+        if (attributes.size() == 1 && attributes.get(0) instanceof Aggregate)
+            return attributes.get(0);
         return new PathExpression(attributes);
     }
 
     public Object method(String name, List<Expression> parameters, boolean isFirstInPath)
     {
+        if (isFirstInPath)
+        {
+            Aggregate.Kind kind = Aggregate.kind(name, parameters.size());
+            if (kind != null)
+                return new Aggregate(kind, parameters.isEmpty() ? null : parameters.get(0));
+        }
+
         if (isFirstInPath && parameters.size() == 1)
         {
             Function f = function(name, parameters.get(0));
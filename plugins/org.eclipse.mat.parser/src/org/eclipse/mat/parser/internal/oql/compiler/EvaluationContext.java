@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2019 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,13 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation) - progress listener
+ *    IBM Corporation - results of uncorrelated subqueries
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql.compiler;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.util.IProgressListener;
 
@@ -26,6 +30,9 @@ public class EvaluationContext
 
     String alias;
 
+    /** Results of uncorrelated subqueries, only held by the top level context */
+    Map<Object, Object> results;
+
     public EvaluationContext(EvaluationContext parent)
     {
         this.parent = parent;
@@ -40,6 +47,8 @@ public class EvaluationContext
 
     public void setSnapshot(ISnapshot snapshot)
     {
+        if (this.snapshot != snapshot)
+            results = null;
         this.snapshot = snapshot;
     }
 
@@ -96,6 +105,50 @@ public class EvaluationContext
         return this.parent.isAlias(value);
     }
 
+    /**
+     * Get the result of a subquery which does not depend on the subjects
+     * of any of the outer queries.
+     * The results are shared by all the contexts of the top level query,
+     * so the subquery is only evaluated once however many rows of the
+     * outer queries use it.
+     * @param key identifies the subquery
+     * @return the result, or null if not yet evaluated
+     */
+    public Object getResult(Object key)
+    {
+        if (parent != null)
+            return parent.getResult(key);
+        return results != null ? results.get(key) : null;
+    }
+
+    /**
+     * Remember the result of a subquery which does not depend on the subjects
+     * of any of the outer queries.
+     * @param key identifies the subquery
+     * @param result the result, which is not modified afterwards
+     */
+    public void putResult(Object key, Object result)
+    {
+        if (parent != null)
+        {
+            parent.putResult(key, result);
+            return;
+        }
+        if (results == null)
+            results = new HashMap<Object, Object>();
+        results.put(key, result);
+    }
+
+    /**
+     * Whether this is the context of a nested query,
+     * for example a subquery or a UNION query.
+     * @return true if there is an outer context
+     */
+    public boolean isNested()
+    {
+        return parent != null;
+    }
+
     public String toString()
     {
         String val = alias + "=" + getSubject() + ";"; //$NON-NLS-1$ //$NON-NLS-2$
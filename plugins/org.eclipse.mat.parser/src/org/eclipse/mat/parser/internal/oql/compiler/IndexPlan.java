@@ -0,0 +1,459 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.oql.compiler;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.parser.internal.oql.compiler.CompilerImpl.ConstantExpression;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IArray;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IClassLoader;
+import org.eclipse.mat.snapshot.model.IInstance;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IObjectArray;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+
+/**
+ * Uses the indexes to narrow down the objects which could satisfy a WHERE clause,
+ * so that only those objects need to be read and tested.
+ * <p>
+ * These terms of the WHERE clause, or of an AND in the WHERE clause, are recognized
+ * when the other side does not depend on the subject:
+ * <ul>
+ * <li><code>s.@objectId = N</code> and <code>s.@objectId IN (...)</code></li>
+ * <li><code>s.@objectAddress = 0x...</code> and <code>s.@objectAddress IN (...)</code>,
+ * using the address to id index</li>
+ * <li><code>classof(s).@objectId = N</code> and <code>classof(s).@objectAddress = 0x...</code>,
+ * only reading the instances of that class</li>
+ * <li><code>dominatorof(s) = ...</code>, using the objects immediately dominated by the other side</li>
+ * <li><code>s implements ...</code> for the array and instance interfaces of the snapshot model,
+ * only reading the array or non-array classes</li>
+ * </ul>
+ * The whole WHERE clause is still evaluated for the remaining objects,
+ * so the plan only needs to keep every object which could match.
+ */
+public final class IndexPlan
+{
+    private static final int INSTANCES = 1;
+    private static final int PRIMITIVE_ARRAYS = 2;
+    private static final int OBJECT_ARRAYS = 4;
+    private static final int ALL = INSTANCES | PRIMITIVE_ARRAYS | OBJECT_ARRAYS;
+
+    private final ISnapshot snapshot;
+
+    /** sorted possible object ids, or null if not restricted */
+    private int[] objectIds;
+    /** the possible object ids by class */
+    private HashMapIntObject<ArrayInt> objectIdsByClass;
+    /** the only class of the objects, or -1 if not restricted */
+    private int classId = -1;
+    /** the kinds of objects */
+    private int kinds = ALL;
+    /** the terms contradict each other */
+    private boolean empty;
+
+    private IndexPlan(ISnapshot snapshot)
+    {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Find the terms of the WHERE clause which can be answered from the indexes.
+     * @param whereClause the WHERE clause
+     * @param ctx the context of the query, with the alias of the subject
+     * @return the plan, or null if the WHERE clause has no such terms
+     */
+    public static IndexPlan create(Expression whereClause, EvaluationContext ctx)
+    {
+        if (whereClause == null)
+            return null;
+        IndexPlan plan = new IndexPlan(ctx.getSnapshot());
+        return plan.add(whereClause, ctx) ? plan : null;
+    }
+
+    /**
+     * Whether instances of the class could satisfy the WHERE clause.
+     * @param clasz the class of the objects
+     * @return false if none of the instances need to be tested
+     */
+    public boolean acceptClass(IClass clasz)
+    {
+        if (empty)
+            return false;
+        if (classId >= 0 && clasz.getObjectId() != classId)
+            return false;
+        return (kinds & kindOf(clasz)) != 0;
+    }
+
+    /**
+     * Whether the object could satisfy the WHERE clause, without reading the object.
+     * @param objectId the object
+     * @return false if the object does not need to be tested
+     * @throws SnapshotException if there is a problem finding the class of the object
+     */
+    public boolean accept(int objectId) throws SnapshotException
+    {
+        if (empty)
+            return false;
+        if (objectIds != null && Arrays.binarySearch(objectIds, objectId) < 0)
+            return false;
+        if (classId < 0 && kinds == ALL)
+            return true;
+        return acceptClass(snapshot.getClassOf(objectId));
+    }
+
+    /**
+     * The instances of the class which could satisfy the WHERE clause.
+     * @param clasz the class
+     * @return the object ids in ascending order
+     * @throws SnapshotException if there is a problem finding the class of an object
+     */
+    public int[] getObjectIds(IClass clasz) throws SnapshotException
+    {
+        if (!acceptClass(clasz))
+            return new int[0];
+        if (objectIds == null)
+            return clasz.getObjectIds();
+        if (objectIdsByClass == null)
+        {
+            objectIdsByClass = new HashMapIntObject<ArrayInt>();
+            for (int objectId : objectIds)
+            {
+                int clsId = snapshot.getClassOf(objectId).getObjectId();
+                ArrayInt ids = objectIdsByClass.get(clsId);
+                if (ids == null)
+                    objectIdsByClass.put(clsId, ids = new ArrayInt());
+                ids.add(objectId);
+            }
+        }
+        ArrayInt ids = objectIdsByClass.get(clasz.getObjectId());
+        return ids != null ? ids.toArray() : new int[0];
+    }
+
+    /**
+     * @return the number of possible objects, or -1 if only restricted by class
+     */
+    public int size()
+    {
+        return empty ? 0 : objectIds != null ? objectIds.length : -1;
+    }
+
+    private boolean add(Expression expression, EvaluationContext ctx)
+    {
+        try
+        {
+            if (expression instanceof Operation.And)
+            {
+                boolean found = false;
+                for (Expression arg : ((Operation.And) expression).getArguments())
+                    found |= add(arg, ctx);
+                return found;
+            }
+            if (expression instanceof Operation.Equal)
+            {
+                Expression args[] = ((Operation.Equal) expression).getArguments();
+                return addEqual(args[0], args[1], ctx) || addEqual(args[1], args[0], ctx);
+            }
+            if (expression instanceof Operation.In)
+            {
+                Expression args[] = ((Operation.In) expression).getArguments();
+                return addIn(args[0], args[1], ctx);
+            }
+            if (expression instanceof Operation.InstanceOf)
+            {
+                Operation.InstanceOf instanceOf = (Operation.InstanceOf) expression;
+                return isSubject(instanceOf.getArguments()[0], ctx) && addKinds(instanceOf.className);
+            }
+            return false;
+        }
+        catch (SnapshotException e)
+        {
+            // evaluate the term for each object instead
+            return false;
+        }
+        catch (RuntimeException e)
+        {
+            return false;
+        }
+    }
+
+    private boolean addEqual(Expression left, Expression right, EvaluationContext ctx) throws SnapshotException
+    {
+        if (right.isContextDependent(ctx))
+            return false;
+
+        String attribute = left instanceof PathExpression ? ((PathExpression) left).getSubjectAttribute(ctx) : null;
+        if ("objectId".equals(attribute)) //$NON-NLS-1$
+        {
+            Object value = right.compute(ctx);
+            if (!isIntegral(value))
+                return false;
+            long id = ((Number) value).longValue();
+            addObjectIds(id >= 0 && id < snapshot.getSnapshotInfo().getNumberOfObjects() ? new int[] { (int) id } : new int[0]);
+            return true;
+        }
+        if ("objectAddress".equals(attribute)) //$NON-NLS-1$
+        {
+            Object value = right.compute(ctx);
+            if (!isIntegral(value))
+                return false;
+            addObjectIds(mapAddresses(new long[] { ((Number) value).longValue() }));
+            return true;
+        }
+
+        Function function = subjectFunction(left, ctx);
+        String functionAttribute = function != null ? ((PathExpression) left).getFirstExpressionAttribute() : null;
+        if (function instanceof Function.ClassOf)
+        {
+            if (!"objectId".equals(functionAttribute) && !"objectAddress".equals(functionAttribute)) //$NON-NLS-1$ //$NON-NLS-2$
+                return false;
+            Object value = right.compute(ctx);
+            if (!isIntegral(value))
+                return false;
+            long v = ((Number) value).longValue();
+            int id;
+            if ("objectId".equals(functionAttribute)) //$NON-NLS-1$
+            {
+                id = v >= 0 && v < snapshot.getSnapshotInfo().getNumberOfObjects() ? (int) v : -1;
+            }
+            else
+            {
+                int ids[] = mapAddresses(new long[] { v });
+                id = ids.length > 0 ? ids[0] : -1;
+            }
+            if (id < 0 || !snapshot.isClass(id) || classId >= 0 && classId != id)
+                empty = true;
+            else
+                classId = id;
+            return true;
+        }
+        if (function instanceof Function.DominatorOf && "".equals(functionAttribute)) //$NON-NLS-1$
+        {
+            Object value = right.compute(ctx);
+            int dominator;
+            if (value == null || value == ConstantExpression.NULL)
+                dominator = -1;
+            else if (value instanceof IObject && ((IObject) value).getObjectId() >= 0)
+                dominator = ((IObject) value).getObjectId();
+            else
+                return false;
+            addObjectIds(snapshot.getImmediateDominatedIds(dominator).clone());
+            return true;
+        }
+        return false;
+    }
+
+    private boolean addIn(Expression left, Expression right, EvaluationContext ctx) throws SnapshotException
+    {
+        if (right.isContextDependent(ctx))
+            return false;
+        String attribute = left instanceof PathExpression ? ((PathExpression) left).getSubjectAttribute(ctx) : null;
+        boolean byId = "objectId".equals(attribute); //$NON-NLS-1$
+        boolean byAddress = "objectAddress".equals(attribute); //$NON-NLS-1$
+        if (!byId && !byAddress)
+            return false;
+
+        Object value = right.compute(ctx);
+        if (value == null)
+        {
+            // IN nothing is never true
+            addObjectIds(new int[0]);
+            return true;
+        }
+
+        // the values which could be equal to the id or address of the subject
+        Object[] elements;
+        if (value instanceof int[])
+        {
+            if (!byId)
+                return false;
+            addObjectIds(((int[]) value).clone());
+            return true;
+        }
+        else if (value instanceof Collection)
+        {
+            elements = ((Collection<?>) value).toArray();
+        }
+        else if (value instanceof Object[])
+        {
+            elements = (Object[]) value;
+        }
+        else
+        {
+            return false;
+        }
+
+        Class<?> type = byId ? Integer.class : Long.class;
+        long values[] = new long[elements.length];
+        int n = 0;
+        for (Object element : elements)
+        {
+            // IN matches with equals
+            if (element != null && element.getClass() == type)
+                values[n++] = ((Number) element).longValue();
+        }
+        values = Arrays.copyOf(values, n);
+        if (byId)
+        {
+            ArrayInt ids = new ArrayInt(n);
+            int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+            for (long id : values)
+            {
+                if (id >= 0 && id < numberOfObjects)
+                    ids.add((int) id);
+            }
+            addObjectIds(ids.toArray());
+        }
+        else
+        {
+            addObjectIds(mapAddresses(values));
+        }
+        return true;
+    }
+
+    private boolean addKinds(String className)
+    {
+        int k;
+        if (IObject.class.getName().equals(className))
+            k = ALL;
+        else if (IArray.class.getName().equals(className))
+            k = PRIMITIVE_ARRAYS | OBJECT_ARRAYS;
+        else if (IPrimitiveArray.class.getName().equals(className))
+            k = PRIMITIVE_ARRAYS;
+        else if (IObjectArray.class.getName().equals(className))
+            k = OBJECT_ARRAYS;
+        else if (IInstance.class.getName().equals(className) || IClassLoader.class.getName().equals(className)
+                        || IClass.class.getName().equals(className))
+            // class objects are instances of java.lang.Class
+            k = INSTANCES;
+        else
+            return false;
+        kinds &= k;
+        if (kinds == 0)
+            empty = true;
+        return true;
+    }
+
+    private void addObjectIds(int ids[])
+    {
+        Arrays.sort(ids);
+        int n = 0;
+        for (int i = 0; i < ids.length; ++i)
+        {
+            if (n == 0 || ids[i] != ids[n - 1])
+                ids[n++] = ids[i];
+        }
+        ids = n < ids.length ? Arrays.copyOf(ids, n) : ids;
+        if (objectIds == null)
+        {
+            objectIds = ids;
+        }
+        else
+        {
+            // intersect the sorted ids
+            int common[] = new int[Math.min(objectIds.length, ids.length)];
+            int c = 0;
+            for (int i = 0, j = 0; i < objectIds.length && j < ids.length;)
+            {
+                if (objectIds[i] < ids[j])
+                    ++i;
+                else if (objectIds[i] > ids[j])
+                    ++j;
+                else
+                {
+                    common[c++] = objectIds[i];
+                    ++i;
+                    ++j;
+                }
+            }
+            objectIds = Arrays.copyOf(common, c);
+        }
+        objectIdsByClass = null;
+        if (objectIds.length == 0)
+            empty = true;
+    }
+
+    private int[] mapAddresses(long addresses[])
+    {
+        ArrayInt ids = new ArrayInt(addresses.length);
+        for (long address : addresses)
+        {
+            try
+            {
+                ids.add(snapshot.mapAddressToId(address));
+            }
+            catch (SnapshotException e)
+            {
+                // not an indexed object, so cannot be the subject
+            }
+        }
+        return ids.toArray();
+    }
+
+    private static boolean isIntegral(Object value)
+    {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isSubject(Expression expression, EvaluationContext ctx)
+    {
+        return expression instanceof PathExpression && ((PathExpression) expression).isSubject(ctx);
+    }
+
+    /**
+     * The function such as <code>classof(s)</code> applied to the subject
+     * at the start of the path.
+     */
+    private static Function subjectFunction(Expression expression, EvaluationContext ctx)
+    {
+        if (!(expression instanceof PathExpression))
+            return null;
+        Expression first = ((PathExpression) expression).getFirstExpression();
+        if (!(first instanceof Function))
+            return null;
+        Function function = (Function) first;
+        return isSubject(function.argument, ctx) ? function : null;
+    }
+
+    private static int kindOf(IClass clasz)
+    {
+        if (!clasz.isArrayType())
+            return INSTANCES;
+        String name = clasz.getName();
+        for (String type : IPrimitiveArray.TYPE)
+        {
+            if (name.equals(type))
+                return PRIMITIVE_ARRAYS;
+        }
+        return OBJECT_ARRAYS;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder();
+        buf.append("objects=").append(objectIds != null ? String.valueOf(objectIds.length) : "all"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (classId >= 0)
+            buf.append(" class=").append(classId); //$NON-NLS-1$
+        if (kinds != ALL)
+            buf.append(" kinds=").append(kinds); //$NON-NLS-1$
+        if (empty)
+            buf.append(" empty"); //$NON-NLS-1$
+        return buf.toString();
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2022 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - Integer arithmetic as well as Long
+ *    IBM Corporation - set lookups for IN
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql.compiler;
 
@@ -21,6 +22,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.internal.oql.compiler.CompilerImpl.ConstantExpression;
 import org.eclipse.mat.query.IResultTable;
@@ -77,6 +79,42 @@ abstract class Operation extends Expression
         return buf.toString();
     }
 
+    /**
+     * The object ids on the right hand side of IN or NOT IN, as a set.
+     * The set is kept while the same array is supplied, as it is
+     * for an uncorrelated subquery, so each row is a single lookup.
+     */
+    static final class ObjectIdSet
+    {
+        /** Short arrays are just searched */
+        private static final int MIN_SET_SIZE = 8;
+
+        private int[] objectIds;
+        private SetInt set;
+
+        boolean contains(int[] objectIds, int objectId)
+        {
+            if (objectIds.length < MIN_SET_SIZE)
+            {
+                for (int id : objectIds)
+                {
+                    if (id == objectId)
+                        return true;
+                }
+                return false;
+            }
+            if (objectIds != this.objectIds)
+            {
+                SetInt set = new SetInt(objectIds.length);
+                for (int id : objectIds)
+                    set.add(id);
+                this.set = set;
+                this.objectIds = objectIds;
+            }
+            return set.contains(objectId);
+        }
+    }
+
     static abstract class RelationalOperation extends Operation
     {
         public RelationalOperation(Expression arg1, Expression arg2)
@@ -403,6 +441,8 @@ abstract class Operation extends Expression
 
     static class In extends Operation
     {
+        private final ObjectIdSet objectIdSet = new ObjectIdSet();
+
         public In(Expression arg1, Expression arg2)
         {
             super(new Expression[] { arg1, arg2 });
@@ -443,13 +483,7 @@ abstract class Operation extends Expression
                     throw new UnsupportedOperationException(MessageUtil.format(Messages.Operation_Error_CannotCompare,
                                     new Object[] { obj1.getClass().getName() }));
 
-                for (int objectId : (int[]) obj2)
-                {
-                    if (leftId == objectId)
-                        return Boolean.TRUE;
-                }
-
-                return Boolean.FALSE;
+                return objectIdSet.contains((int[]) obj2, leftId);
             }
             else if (obj2 instanceof IResultTable)
             {
@@ -482,6 +516,8 @@ abstract class Operation extends Expression
 
     static class NotIn extends Operation
     {
+        private final ObjectIdSet objectIdSet = new ObjectIdSet();
+
         public NotIn(Expression arg1, Expression arg2)
         {
             super(new Expression[] { arg1, arg2 });
@@ -522,13 +558,7 @@ abstract class Operation extends Expression
                     throw new UnsupportedOperationException(MessageUtil.format(Messages.Operation_Error_NotInCannotCompare, obj1
                                     .getClass().getName()));
 
-                for (int objectId : (int[]) obj2)
-                {
-                    if (leftId == objectId)
-                        return Boolean.FALSE;
-                }
-
-                return Boolean.TRUE;
+                return !objectIdSet.contains((int[]) obj2, leftId);
             }
             else if (obj2 instanceof IResultTable)
             {
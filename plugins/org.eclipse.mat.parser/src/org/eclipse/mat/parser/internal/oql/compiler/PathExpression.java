@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2020 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - array indexing and wrapping
+ *    IBM Corporation - paths recognized by the index plan
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql.compiler;
 
@@ -64,6 +65,75 @@ class PathExpression extends Expression
         this.attributes = attributes;
     }
 
+    /**
+     * The native attribute read directly from the subject of the query,
+     * for example <code>@usedHeapSize</code> or <code>s.@usedHeapSize</code>
+     * where <code>s</code> is the alias of the query.
+     * @param ctx the context of the query
+     * @return the name of the attribute, or null if the path is anything else
+     */
+    String getSubjectAttribute(EvaluationContext ctx)
+    {
+        int index = 0;
+        if (attributes.size() == 2 && attributes.get(0) instanceof Attribute)
+        {
+            Attribute first = (Attribute) attributes.get(0);
+            if (first.isNative() || first.isEnvVar() || ctx.alias == null || !ctx.alias.equals(first.getName()))
+                return null;
+            index = 1;
+        }
+        else if (attributes.size() != 1)
+        {
+            return null;
+        }
+        Object element = attributes.get(index);
+        if (!(element instanceof Attribute) || !((Attribute) element).isNative())
+            return null;
+        return ((Attribute) element).getName();
+    }
+
+    /**
+     * Whether the path is just the subject of the query, for example <code>s</code>
+     * where <code>s</code> is the alias of the query.
+     * @param ctx the context of the query
+     * @return true if the path is the alias
+     */
+    boolean isSubject(EvaluationContext ctx)
+    {
+        if (attributes.size() != 1 || !(attributes.get(0) instanceof Attribute))
+            return false;
+        Attribute first = (Attribute) attributes.get(0);
+        return !first.isNative() && !first.isEnvVar() && ctx.alias != null && ctx.alias.equals(first.getName());
+    }
+
+    /**
+     * The expression at the start of the path, for example <code>classof(s)</code>
+     * in <code>classof(s).@objectId</code>.
+     * @return the expression, or null if the path starts with an attribute
+     */
+    Expression getFirstExpression()
+    {
+        Object first = attributes.get(0);
+        return first instanceof Expression ? (Expression) first : null;
+    }
+
+    /**
+     * The native attribute read from the expression at the start of the path,
+     * for example <code>objectId</code> for <code>classof(s).@objectId</code>.
+     * @return the name of the attribute, an empty string if the path is just the expression,
+     * or null if the path is anything else
+     */
+    String getFirstExpressionAttribute()
+    {
+        if (getFirstExpression() == null)
+            return null;
+        if (attributes.size() == 1)
+            return ""; //$NON-NLS-1$
+        if (attributes.size() != 2 || !(attributes.get(1) instanceof Attribute) || !((Attribute) attributes.get(1)).isNative())
+            return null;
+        return ((Attribute) attributes.get(1)).getName();
+    }
+
     @Override
     public Object compute(EvaluationContext ctx) throws SnapshotException
     {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2019 SAP AG and others.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - bug fix for printing AS clause
+ *    IBM Corporation - group by, order by and limit
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql.compiler;
 
@@ -76,6 +77,43 @@ public class Query
         }
     }
 
+    public static class OrderItem
+    {
+        Expression expression;
+        boolean descending;
+
+        public OrderItem(Expression expression, boolean descending)
+        {
+            this.expression = expression;
+            this.descending = descending;
+        }
+
+        public Expression getExpression()
+        {
+            return expression;
+        }
+
+        public void setExpression(Expression expression)
+        {
+            this.expression = expression;
+        }
+
+        public boolean isDescending()
+        {
+            return descending;
+        }
+
+        public void setDescending(boolean descending)
+        {
+            this.descending = descending;
+        }
+
+        public String toString()
+        {
+            return descending ? expression + " DESC" : String.valueOf(expression);//$NON-NLS-1$
+        }
+    }
+
     public static class SelectClause
     {
         boolean isDistinct;
@@ -340,6 +378,10 @@ public class Query
     private SelectClause selectClause;
     private FromClause fromClause;
     private Expression whereClause;
+    private List<Expression> groupByClause;
+    private List<OrderItem> orderByClause;
+    private int limit = -1;
+    private int offset;
     private List<Query> unionQueries;
 
     public SelectClause getSelectClause()
@@ -372,6 +414,79 @@ public class Query
         this.whereClause = whereClause;
     }
 
+    public List<Expression> getGroupByClause()
+    {
+        return groupByClause;
+    }
+
+    public void setGroupByClause(List<Expression> groupByClause)
+    {
+        this.groupByClause = groupByClause;
+    }
+
+    public List<OrderItem> getOrderByClause()
+    {
+        return orderByClause;
+    }
+
+    public void setOrderByClause(List<OrderItem> orderByClause)
+    {
+        this.orderByClause = orderByClause;
+    }
+
+    /**
+     * @return the maximum number of rows, or -1 for all the rows
+     */
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public void setLimit(int limit)
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * @return the number of rows to skip before the first row returned
+     */
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    public void setOffset(int offset)
+    {
+        this.offset = offset;
+    }
+
+    /**
+     * Whether the rows are sorted or only some of them are returned,
+     * by an ORDER BY or a LIMIT clause.
+     */
+    public boolean isOrdered()
+    {
+        return orderByClause != null || limit >= 0 || offset > 0;
+    }
+
+    /**
+     * Whether the rows are combined into groups,
+     * either by a GROUP BY clause or by aggregate functions in the select list.
+     */
+    public boolean isGrouped()
+    {
+        if (groupByClause != null)
+            return true;
+        if (selectClause == null || selectClause.getSelectList() == null)
+            return false;
+        for (SelectItem item : selectClause.getSelectList())
+        {
+            if (item.getExpression() instanceof Aggregate)
+                return true;
+        }
+        return false;
+    }
+
     public void addUnionQuery(Query query)
     {
         if (unionQueries == null)
@@ -402,6 +517,44 @@ public class Query
         if (whereClause != null)
             buf.append("WHERE ").append(whereClause);//$NON-NLS-1$
 
+        // group by clause
+        if (groupByClause != null)
+        {
+            if (whereClause != null)
+                buf.append(" ");//$NON-NLS-1$
+            buf.append("GROUP BY ");//$NON-NLS-1$
+            for (Iterator<Expression> iter = groupByClause.iterator(); iter.hasNext();)
+            {
+                buf.append(iter.next());
+                if (iter.hasNext())
+                    buf.append(", ");//$NON-NLS-1$
+            }
+        }
+
+        // order by clause
+        if (orderByClause != null)
+        {
+            if (whereClause != null || groupByClause != null)
+                buf.append(" ");//$NON-NLS-1$
+            buf.append("ORDER BY ");//$NON-NLS-1$
+            for (Iterator<OrderItem> iter = orderByClause.iterator(); iter.hasNext();)
+            {
+                buf.append(iter.next());
+                if (iter.hasNext())
+                    buf.append(", ");//$NON-NLS-1$
+            }
+        }
+
+        // limit clause
+        if (limit >= 0)
+        {
+            if (whereClause != null || groupByClause != null || orderByClause != null)
+                buf.append(" ");//$NON-NLS-1$
+            buf.append("LIMIT ").append(limit);//$NON-NLS-1$
+            if (offset > 0)
+                buf.append(" OFFSET ").append(offset);//$NON-NLS-1$
+        }
+
         if (unionQueries != null)
         {
             for (Query q : unionQueries)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2019 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation) - progress listener
+ *    IBM Corporation - keep uncorrelated results for the top level query
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql.compiler;
 
@@ -23,7 +24,6 @@ public class QueryExpression extends Expression
 
     boolean isDependencyCalculated = false;
     boolean isQueryContextDependent;
-    Object queryResult;
 
     public QueryExpression(Query query)
     {
@@ -37,12 +37,6 @@ public class QueryExpression extends Expression
         {
             isQueryContextDependent = this.isContextDependent(ctx);
             isDependencyCalculated = true;
-
-            if (!isQueryContextDependent)
-            {
-                OQLQueryImpl q = new OQLQueryImpl(ctx, query);
-                queryResult = q.execute(ctx.getSnapshot(), ctx.getProgressListener());
-            }
         }
 
         if (isQueryContextDependent)
@@ -52,7 +46,8 @@ public class QueryExpression extends Expression
         }
         else
         {
-            return queryResult;
+            // evaluated once for each run of the top level query
+            return OQLQueryImpl.executeUncorrelated(ctx, query, this);
         }
     }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2014 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -9,7 +9,7 @@
  *
  * Contributors:
  *     SAP AG - initial API and implementation
- *     IBM Corporation - move to JavaCC 5.0
+ *     IBM Corporation - move to JavaCC 5.0, group by, order by and limit
  *******************************************************************************/
 /* Generated By:JavaCC: Do not edit this line. OQLParser.java */
 package org.eclipse.mat.parser.internal.oql.parser;
@@ -153,6 +153,30 @@ public class OQLParser implements OQLParserConstants
         else
         {
 
+        }
+        if (seeUnreservedKeyword("GROUP", "BY"))
+        {
+            GroupByClause(q);
+        }
+        else
+        {
+
+        }
+        if (seeUnreservedKeyword("ORDER", "BY"))
+        {
+            OrderByClause(q);
+        }
+        else
+        {
+
+        }
+        if (seeUnreservedKeyword("LIMIT"))
+        {
+            LimitClause(q);
+        }
+        else
+        {
+
         }
         if (jj_2_2(1))
         {
@@ -596,7 +620,7 @@ public class OQLParser implements OQLParserConstants
                 jj_consume_token(-1);
                 throw new ParseException();
         }
-        if (seeExclude("WHERE", "UNION"))
+        if (seeExclude("WHERE", "GROUP", "ORDER", "LIMIT", "UNION"))
         {
             t2 = jj_consume_token(IDENTIFIER);
         }
@@ -1328,11 +1352,106 @@ public class OQLParser implements OQLParserConstants
         throw new Error(Messages.OQLParser_Missing_return_statement_in_function);
     }
 
+    /* ---------------- group by --------------------- */
+    final public void GroupByClause(Query q) throws ParseException
+    {
+        List<Expression> groupBy = new ArrayList<Expression>();
+        Object ex;
+        jj_consume_token(IDENTIFIER);
+        jj_consume_token(IDENTIFIER);
+        ex = SimpleExpression();
+        groupBy.add((Expression) ex);
+        label_14: while (true)
+        {
+            switch ((jj_ntk == -1) ? jj_ntk() : jj_ntk)
+            {
+                case COMMA:
+
+                    break;
+                default:
+                    jj_la1[37] = jj_gen;
+                    break label_14;
+            }
+            jj_consume_token(COMMA);
+            ex = SimpleExpression();
+            groupBy.add((Expression) ex);
+        }
+        q.setGroupByClause(groupBy);
+    }
+
+    /* ---------------- order by --------------------- */
+    final public void OrderByClause(Query q) throws ParseException
+    {
+        List<Query.OrderItem> orderBy = new ArrayList<Query.OrderItem>();
+        Query.OrderItem item;
+        jj_consume_token(IDENTIFIER);
+        jj_consume_token(IDENTIFIER);
+        item = OrderItem();
+        orderBy.add(item);
+        label_15: while (true)
+        {
+            switch ((jj_ntk == -1) ? jj_ntk() : jj_ntk)
+            {
+                case COMMA:
+
+                    break;
+                default:
+                    jj_la1[38] = jj_gen;
+                    break label_15;
+            }
+            jj_consume_token(COMMA);
+            item = OrderItem();
+            orderBy.add(item);
+        }
+        q.setOrderByClause(orderBy);
+    }
+
+    final public Query.OrderItem OrderItem() throws ParseException
+    {
+        Object ex;
+        Token t = null;
+        ex = SimpleExpression();
+        if (seeUnreservedKeyword("ASC") || seeUnreservedKeyword("DESC"))
+        {
+            t = jj_consume_token(IDENTIFIER);
+        }
+        else
+        {
+
+        }
+        boolean descending = t != null && "DESC".equals(t.image.toUpperCase());
+        {
+            if (true)
+                return new Query.OrderItem((Expression) ex, descending);
+        }
+        throw new Error(Messages.OQLParser_Missing_return_statement_in_function);
+    }
+
+    /* ---------------- limit --------------------- */
+    final public void LimitClause(Query q) throws ParseException
+    {
+        Token t1, t2 = null;
+        jj_consume_token(IDENTIFIER);
+        t1 = jj_consume_token(INTEGER_LITERAL);
+        if (seeUnreservedKeyword("OFFSET"))
+        {
+            jj_consume_token(IDENTIFIER);
+            t2 = jj_consume_token(INTEGER_LITERAL);
+        }
+        else
+        {
+
+        }
+        q.setLimit(Integer.parseInt(t1.image));
+        if (t2 != null)
+            q.setOffset(Integer.parseInt(t2.image));
+    }
+
     /* ---------------- union --------------------- */
     final public void UnionClause(Query q) throws ParseException
     {
         Query unionQuery = null;
-        label_14: while (true)
+        label_16: while (true)
         {
             jj_consume_token(IDENTIFIER);
             jj_consume_token(LPAREN);
@@ -1345,7 +1464,7 @@ public class OQLParser implements OQLParserConstants
             }
             else
             {
-                break label_14;
+                break label_16;
             }
         }
     }
@@ -1739,7 +1858,7 @@ public class OQLParser implements OQLParserConstants
     private boolean jj_lookingAhead = false;
     private boolean jj_semLA;
     private int jj_gen;
-    final private int[] jj_la1 = new int[37];
+    final private int[] jj_la1 = new int[39];
     static private int[] jj_la1_0;
     static private int[] jj_la1_1;
     static
@@ -1753,7 +1872,7 @@ public class OQLParser implements OQLParserConstants
         jj_la1_0 = new int[] { 0x0, 0x0, 0x69b46000, 0x40200000, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x69b46000,
                         0x69b46000, 0x60212000, 0x0, 0x0, 0x60212000, 0x0, 0x0, 0x2000000, 0x4000000, 0x0, 0x0, 0x0,
                         0x10000000, 0x0, 0x0, 0x0, 0x0, 0x69b46000, 0x69b46000, 0x9b46000, 0x0, 0x0, 0x46000,
-                        0x1800000, };
+                        0x1800000, 0x0, 0x0, };
     }
 
     private static void jj_la1_init_1()
@@ -1761,7 +1880,7 @@ public class OQLParser implements OQLParserConstants
         jj_la1_1 = new int[] { 0x200, 0x100, 0x186000, 0x0, 0x20400, 0x400000, 0x20400, 0x20400, 0x400000, 0x20400,
                         0x2000, 0x200, 0x186000, 0x186000, 0x4000, 0x200, 0x200, 0x0, 0x400, 0x10000, 0x0, 0x0, 0x48,
                         0x48, 0x36, 0x0, 0x180000, 0x180000, 0x200100, 0x200100, 0x186000, 0x186000, 0x180000, 0x180000,
-                        0x180000, 0x0, 0x0, };
+                        0x180000, 0x0, 0x0, 0x200, 0x200, };
     }
 
     final private JJCalls[] jj_2_rtns = new JJCalls[7];
@@ -1789,7 +1908,7 @@ public class OQLParser implements OQLParserConstants
         token = new Token();
         jj_ntk = -1;
         jj_gen = 0;
-        for (int i = 0; i < 37; i++)
+        for (int i = 0; i < 39; i++)
             jj_la1[i] = -1;
         for (int i = 0; i < jj_2_rtns.length; i++)
             jj_2_rtns[i] = new JJCalls();
@@ -1816,7 +1935,7 @@ public class OQLParser implements OQLParserConstants
         token = new Token();
         jj_ntk = -1;
         jj_gen = 0;
-        for (int i = 0; i < 37; i++)
+        for (int i = 0; i < 39; i++)
             jj_la1[i] = -1;
         for (int i = 0; i < jj_2_rtns.length; i++)
             jj_2_rtns[i] = new JJCalls();
@@ -1830,7 +1949,7 @@ public class OQLParser implements OQLParserConstants
         token = new Token();
         jj_ntk = -1;
         jj_gen = 0;
-        for (int i = 0; i < 37; i++)
+        for (int i = 0; i < 39; i++)
             jj_la1[i] = -1;
         for (int i = 0; i < jj_2_rtns.length; i++)
             jj_2_rtns[i] = new JJCalls();
@@ -1844,7 +1963,7 @@ public class OQLParser implements OQLParserConstants
         token = new Token();
         jj_ntk = -1;
         jj_gen = 0;
-        for (int i = 0; i < 37; i++)
+        for (int i = 0; i < 39; i++)
             jj_la1[i] = -1;
         for (int i = 0; i < jj_2_rtns.length; i++)
             jj_2_rtns[i] = new JJCalls();
@@ -1857,7 +1976,7 @@ public class OQLParser implements OQLParserConstants
         token = new Token();
         jj_ntk = -1;
         jj_gen = 0;
-        for (int i = 0; i < 37; i++)
+        for (int i = 0; i < 39; i++)
             jj_la1[i] = -1;
         for (int i = 0; i < jj_2_rtns.length; i++)
             jj_2_rtns[i] = new JJCalls();
@@ -1870,7 +1989,7 @@ public class OQLParser implements OQLParserConstants
         token = new Token();
         jj_ntk = -1;
         jj_gen = 0;
-        for (int i = 0; i < 37; i++)
+        for (int i = 0; i < 39; i++)
             jj_la1[i] = -1;
         for (int i = 0; i < jj_2_rtns.length; i++)
             jj_2_rtns[i] = new JJCalls();
@@ -2036,7 +2155,7 @@ public class OQLParser implements OQLParserConstants
             la1tokens[jj_kind] = true;
             jj_kind = -1;
         }
-        for (int i = 0; i < 37; i++)
+        for (int i = 0; i < 39; i++)
         {
             if (jj_la1[i] == jj_gen)
             {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 SAP AG.
+ * Copyright (c) 2008, 2026 SAP AG and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -69,6 +69,23 @@ abstract public class ObjectCache<E>
         this.lfus.clear();
     }
 
+    /**
+     * Change the number of entries kept, dropping the least valuable
+     * entries if there are now too many.
+     * @param maxSize the number of entries to keep
+     */
+    public synchronized void setMaxSize(int maxSize)
+    {
+        this.maxSize = maxSize;
+        while (map.size() > maxSize)
+            removeLeastValuableNode();
+    }
+
+    public synchronized int size()
+    {
+        return map.size();
+    }
+
     protected abstract E load(int key);
 
     protected synchronized void doInsert(final Entry<E> e)
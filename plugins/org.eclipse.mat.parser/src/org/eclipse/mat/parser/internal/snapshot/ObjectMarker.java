@@ -299,6 +299,7 @@ public class ObjectMarker implements IObjectMarker
 
         // Used for performance
         List<NamedReference>refCache = new ArrayList<NamedReference>();
+        int[] children = new int[1024];
         int current;
 
         while (size > 0) // loop until there are elements in the stack
@@ -316,8 +317,15 @@ public class ObjectMarker implements IObjectMarker
             }
 
             refCache.clear();
-            for (int child : outbound.get(current))
+            int length = outbound.get(current, children);
+            if (length > children.length)
             {
+                children = new int[length];
+                outbound.get(current, children);
+            }
+            for (int j = 0; j < length; j++)
+            {
+                int child = children[j];
                 if (!bits[child]) // already visited?
                 {
                     if (!refersOnlyThroughExcluded(current, child, excludeSets, excludeObjectsBF, refCache, snapshot))
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2022 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -57,7 +57,7 @@ public class RetainedSizeCache implements IIndexReader
         readId2Size(snapshotInfo.getPrefix());
     }
 
-    public long get(int key)
+    public synchronized long get(int key)
     {
         try
         {
@@ -70,13 +70,13 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
-    public void put(int key, long value)
+    public synchronized void put(int key, long value)
     {
         id2size.put(key, value);
         isDirty = true;
     }
 
-    public void close()
+    public synchronized void close()
     {
         if (!isDirty)
             return;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2025 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -387,6 +387,19 @@ public class ClassImpl extends AbstractObjectImpl implements IClass, Comparable<
         totalSizeUpdater.getAndAdd(this, -heapSizePerInstance);
     }
 
+    /**
+     * Sets the number and total size of the instances, for example when
+     * restoring the class from the index files of a parsed snapshot.
+     * @param instanceCount the number of instances
+     * @param totalSize the size in bytes of all the instances
+     * @since 1.17
+     */
+    public void setInstances(int instanceCount, long totalSize)
+    {
+        this.instanceCount = instanceCount;
+        this.totalSize = totalSize;
+    }
+
     void removeInstanceBulk(int instanceCount, long heapSize)
     {
         instanceCountUpdater.getAndAdd(this, -instanceCount);
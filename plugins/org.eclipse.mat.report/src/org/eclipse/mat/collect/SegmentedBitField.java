@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2026 SAP AG and IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.collect;
+
+import java.io.Serializable;
+
+/**
+ * A bit field like {@link BitField} but indexed by longs, for snapshots with
+ * 2^31 objects or more. The bits are held in segments of
+ * {@link #SEGMENT_SIZE} bits, each allocated when a bit in it is first set,
+ * so a bit field which is only sparsely used costs little memory. Out of
+ * performance reasons no method does any parameter checking, i.e. only valid
+ * values are expected.
+ *
+ * @since 1.17
+ */
+public final class SegmentedBitField implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int SEGMENT_SHIFT = 27;
+
+    /**
+     * The number of bits in each segment.
+     */
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private final long size;
+    private final int[][] segments;
+
+    /**
+     * Creates a bit field with the given number of bits. Size is expected to be
+     * positive - out of performance reasons no checks are done!
+     * @param size the maximum size of the SegmentedBitField
+     */
+    public SegmentedBitField(long size)
+    {
+        this.size = size;
+        segments = new int[(int) (((size) - 1) >>> SEGMENT_SHIFT) + 1][];
+    }
+
+    /**
+     * Sets the bit on the given index. Index is expected to be in range - out
+     * of performance reasons no checks are done!
+     * @param index The 0-based index into the SegmentedBitField.
+     */
+    public final void set(long index)
+    {
+        int segment = (int) (index >>> SEGMENT_SHIFT);
+        int[] bits = segments[segment];
+        if (bits == null)
+            bits = segments[segment] = new int[segmentLength(segment)];
+        int offset = (int) index & (SEGMENT_SIZE - 1);
+        bits[offset >>> 0x5] |= (1 << (offset & 0x1f));
+    }
+
+    /**
+     * Clears the bit on the given index. Index is expected to be in range - out
+     * of performance reasons no checks are done!
+     * @param index The 0-based index into the SegmentedBitField.
+     */
+    public final void clear(long index)
+    {
+        int[] bits = segments[(int) (index >>> SEGMENT_SHIFT)];
+        if (bits == null)
+            return;
+        int offset = (int) index & (SEGMENT_SIZE - 1);
+        bits[offset >>> 0x5] &= ~(1 << (offset & 0x1f));
+    }
+
+    /**
+     * Gets the bit on the given index. Index is expected to be in range - out
+     * of performance reasons no checks are done!
+     * @param index The 0-based index into the SegmentedBitField.
+     * @return true if the bit was set, false if it was cleared or never set.
+     */
+    public final boolean get(long index)
+    {
+        int[] bits = segments[(int) (index >>> SEGMENT_SHIFT)];
+        if (bits == null)
+            return false;
+        int offset = (int) index & (SEGMENT_SIZE - 1);
+        return (bits[offset >>> 0x5] & (1 << (offset & 0x1f))) != 0;
+    }
+
+    /**
+     * The number of bits in the bit field.
+     * @return the size given when the bit field was created
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    private int segmentLength(int segment)
+    {
+        long bits = Math.min(size - ((long) segment << SEGMENT_SHIFT), SEGMENT_SIZE);
+        return (int) ((bits - 1) >>> 0x5) + 1;
+    }
+}
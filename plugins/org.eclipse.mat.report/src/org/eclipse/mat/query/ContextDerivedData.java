@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2019 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.mat.query;
 
+import java.util.List;
+
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.report.internal.Messages;
 import org.eclipse.mat.util.IProgressListener;
@@ -125,6 +127,20 @@ public abstract class ContextDerivedData
          * @throws SnapshotException if there was a problem with the calculation
          */
         void calculate(DerivedOperation operation, Object row, IProgressListener listener) throws SnapshotException;
+
+        /**
+         * Get ready to do the calculation for several rows, for example by
+         * looking up values for all the rows at once.
+         * {@link #calculate(DerivedOperation, Object, IProgressListener)} is
+         * still called for each row afterwards.
+         * @param operation the operation to do on the rows to get the derived data
+         * @param rows the rows
+         * @param listener to indicate progress and exceptions
+         * @throws SnapshotException if there was a problem with the calculation
+         * @since 1.17
+         */
+        default void prepare(DerivedOperation operation, List<?> rows, IProgressListener listener) throws SnapshotException
+        {}
     }
 
     /**
@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2026 SAP AG and IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.query.refined;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.IStructuredResult;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Helpers working on the values of one column of many rows, fetched once
+ * into arrays. Fetching goes through the result and is done on the calling
+ * thread; the work on the fetched values - ranking for sorting, filtering -
+ * is spread over the common fork join pool for large results.
+ */
+/* package */final class ColumnValues
+{
+    /** below this number of rows everything is done on the calling thread */
+    /* package */static final int PARALLEL_THRESHOLD = 10000;
+
+    /** number of rows given to one task when filtering in parallel */
+    private static final int CHUNK_SIZE = 4096;
+
+    private static final int KIND_NONE = 0;
+    private static final int KIND_INTEGRAL = 1;
+    private static final int KIND_FLOATING = 2;
+    private static final int KIND_BYTES = 3;
+    private static final int KIND_STRING = 4;
+
+    private ColumnValues()
+    {}
+
+    /**
+     * The values of a column for each of the rows.
+     */
+    /* package */static Object[] fetch(IStructuredResult result, Object[] rows, int columnIndex)
+    {
+        Object[] values = new Object[rows.length];
+        for (int ii = 0; ii < rows.length; ii++)
+            values[ii] = result.getColumnValue(rows[ii], columnIndex);
+        return values;
+    }
+
+    /**
+     * The values of a numeric column for each of the rows, as used for
+     * totals: null counts as zero and strings are parsed.
+     *
+     * @return the values, or null if a value is not a number or the operation
+     *         was canceled
+     */
+    /* package */static double[] fetchDoubles(IStructuredResult result, Object[] rows, int columnIndex,
+                    Filter.ValueConverter converter, IProgressListener listener)
+    {
+        double[] values = new double[rows.length];
+        for (int ii = 0; ii < rows.length; ii++)
+        {
+            // check if canceled
+            if ((ii + 1) % 100 == 0 && listener.isCanceled())
+                return null;
+
+            Object o = result.getColumnValue(rows[ii], columnIndex);
+
+            double v;
+            if (o == null)
+                v = 0;
+            else if (o instanceof Number)
+                v = ((Number) o).doubleValue();
+            else if (o instanceof Bytes)
+                v = ((Bytes) o).getValue();
+            else
+            {
+                try
+                {
+                    v = Double.parseDouble(o.toString());
+                }
+                catch (NumberFormatException e)
+                {
+                    // $JL-EXC$
+                    return null;
+                }
+            }
+
+            if (converter != null)
+                v = converter.convert(v);
+            values[ii] = v;
+        }
+        return values;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // sorting
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Ranks the values of a column in the order given by
+     * {@link RefinedStructuredResult.NaturalComparator}: null is ranked 0 and
+     * sorts first, equal values share a rank.
+     *
+     * @return the ranks, or null if the values are of a mix of types which
+     *         can only be ordered by the comparator itself
+     */
+    /* package */static int[] rank(Object[] values, Filter.ValueConverter converter)
+    {
+        int kind = KIND_NONE;
+        for (Object v : values)
+        {
+            if (v == null)
+                continue;
+
+            int k;
+            if (converter != null)
+                k = v instanceof Number || v instanceof Bytes ? KIND_FLOATING : -1;
+            else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte)
+                k = KIND_INTEGRAL;
+            else if (v instanceof Double || v instanceof Float)
+                k = KIND_FLOATING;
+            else if (v instanceof Bytes)
+                k = KIND_BYTES;
+            else if (v instanceof String)
+                k = KIND_STRING;
+            else
+                k = -1;
+
+            if (k < 0 || (kind != KIND_NONE && kind != k))
+                return null;
+            kind = k;
+        }
+
+        if (kind == KIND_NONE)
+            return new int[values.length];
+        else if (kind == KIND_STRING)
+            return rankStrings(values);
+
+        long[] keys = new long[values.length];
+        for (int ii = 0; ii < values.length; ii++)
+        {
+            Object v = values[ii];
+            if (v == null)
+                continue;
+
+            switch (kind)
+            {
+                case KIND_INTEGRAL:
+                    keys[ii] = ((Number) v).longValue();
+                    break;
+                case KIND_BYTES:
+                    keys[ii] = ((Bytes) v).getValue();
+                    break;
+                default:
+                    double d;
+                    if (converter == null)
+                        d = ((Number) v).doubleValue();
+                    else if (v instanceof Bytes)
+                        d = converter.convert(((Bytes) v).getValue());
+                    else
+                        d = converter.convert(((Number) v).doubleValue());
+                    keys[ii] = sortableBits(d);
+                    break;
+            }
+        }
+        return rankLongs(keys, values);
+    }
+
+    /**
+     * Maps a double to a long with the same order as {@link Double#compare},
+     * so -0.0 is before 0.0 and NaN is last.
+     */
+    private static long sortableBits(double d)
+    {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * @param values
+     *            the values the keys were made from, null values rank 0; or
+     *            null if there are no null values
+     */
+    private static int[] rankLongs(long[] keys, Object[] values)
+    {
+        long[] sorted = new long[keys.length];
+        int size = 0;
+        for (int ii = 0; ii < keys.length; ii++)
+            if (values == null || values[ii] != null)
+                sorted[size++] = keys[ii];
+        Arrays.parallelSort(sorted, 0, size);
+        int unique = unique(sorted, size);
+
+        int[] ranks = new int[keys.length];
+        setAll(ranks, ii -> values != null && values[ii] == null ? 0 : Arrays.binarySearch(sorted, 0, unique, keys[ii]) + 1);
+        return ranks;
+    }
+
+    private static int[] rankStrings(Object[] values)
+    {
+        String[] sorted = new String[values.length];
+        int size = 0;
+        for (Object v : values)
+            if (v != null)
+                sorted[size++] = (String) v;
+        Arrays.parallelSort(sorted, 0, size);
+
+        int unique = 0;
+        for (int ii = 0; ii < size; ii++)
+            if (unique == 0 || !sorted[ii].equals(sorted[unique - 1]))
+                sorted[unique++] = sorted[ii];
+        int u = unique;
+
+        int[] ranks = new int[values.length];
+        setAll(ranks, ii -> values[ii] == null ? 0 : Arrays.binarySearch(sorted, 0, u, (String) values[ii]) + 1);
+        return ranks;
+    }
+
+    /**
+     * The order of the rows when sorted by several ranked columns, most
+     * significant first. Rows with equal ranks keep their original order, as
+     * with {@link java.util.Collections#sort(java.util.List, java.util.Comparator)}.
+     *
+     * @param ranks
+     *            the ranks of each column, as returned by
+     *            {@link #rank(Object[], Filter.ValueConverter)}
+     * @param descending
+     *            whether to reverse the order of each column
+     * @return the index of each row in the sorted order
+     */
+    /* package */static int[] order(int[][] ranks, boolean[] descending)
+    {
+        int[] current = ranks[0];
+        if (descending[0])
+            current = reverse(current);
+
+        for (int kk = 1; kk < ranks.length; kk++)
+        {
+            int[] prev = current;
+            int[] next = descending[kk] ? reverse(ranks[kk]) : ranks[kk];
+            long[] combined = new long[prev.length];
+            for (int ii = 0; ii < combined.length; ii++)
+                combined[ii] = ((long) prev[ii] << 32) | next[ii];
+            current = rankLongs(combined, null);
+        }
+
+        long[] packed = new long[current.length];
+        for (int ii = 0; ii < packed.length; ii++)
+            packed[ii] = ((long) current[ii] << 32) | ii;
+        Arrays.parallelSort(packed);
+
+        int[] order = new int[packed.length];
+        for (int ii = 0; ii < order.length; ii++)
+            order[ii] = (int) packed[ii];
+        return order;
+    }
+
+    private static int[] reverse(int[] ranks)
+    {
+        int max = 0;
+        for (int r : ranks)
+            max = Math.max(max, r);
+        int[] reversed = new int[ranks.length];
+        for (int ii = 0; ii < ranks.length; ii++)
+            reversed[ii] = max - ranks[ii];
+        return reversed;
+    }
+
+    private static int unique(long[] sorted, int size)
+    {
+        int unique = 0;
+        for (int ii = 0; ii < size; ii++)
+            if (unique == 0 || sorted[ii] != sorted[unique - 1])
+                sorted[unique++] = sorted[ii];
+        return unique;
+    }
+
+    private static void setAll(int[] array, IntUnaryOperator generator)
+    {
+        if (array.length >= PARALLEL_THRESHOLD)
+            Arrays.parallelSetAll(array, generator);
+        else
+            Arrays.setAll(array, generator);
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // filtering
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Applies a filter to the values of the rows which are still accepted,
+     * clearing the flag of the rejected rows. The values are strings for
+     * filters which do not {@link Filter#acceptObject() accept objects}.
+     */
+    /* package */static void filter(Filter filter, Object[] values, boolean[] accepted)
+    {
+        int chunks = (values.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream stream = IntStream.range(0, chunks);
+        if (values.length >= PARALLEL_THRESHOLD)
+            stream = stream.parallel();
+
+        boolean acceptObject = filter.acceptObject();
+        stream.forEach(chunk -> {
+            int end = Math.min(values.length, (chunk + 1) * CHUNK_SIZE);
+            for (int ii = chunk * CHUNK_SIZE; ii < end; ii++)
+            {
+                if (!accepted[ii])
+                    continue;
+                accepted[ii] = acceptObject ? filter.accept(values[ii]) : filter.accept((String) values[ii]);
+            }
+        });
+    }
+}
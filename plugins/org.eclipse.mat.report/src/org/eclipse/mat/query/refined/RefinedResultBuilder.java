@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2018 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -231,6 +231,7 @@ public final class RefinedResultBuilder
 
             Comparator<Object> cmp = new RefinedStructuredResult.MultiColumnComparator(comparators);
             refinedResult.internalSetSortOrder(indices[0], direction, false, cmp);
+            refinedResult.internalSetSortKeys(indices.clone(), directions.clone());
         }
     }
 
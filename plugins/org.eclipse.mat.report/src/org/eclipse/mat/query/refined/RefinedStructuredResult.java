@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2022 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -13,13 +13,18 @@
  *******************************************************************************/
 package org.eclipse.mat.query.refined;
 
+import java.io.IOException;
 import java.net.URL;
 import java.text.Format;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Objects;
+import java.util.PriorityQueue;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
@@ -90,6 +95,34 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
         Object getValue(Object row);
     }
 
+    /**
+     * Receives the rows of a refined result one at a time.
+     * 
+     * @see RefinedStructuredResult#stream(int, boolean, IRowConsumer,
+     *      IProgressListener)
+     * @since 1.17
+     */
+    public interface IRowConsumer
+    {
+        void accept(Object row) throws IOException;
+    }
+
+    /**
+     * A row together with its position in the wrapped result, so that rows
+     * which compare equal keep their original order as with a stable sort.
+     */
+    private static final class RankedRow
+    {
+        final Object row;
+        final int position;
+
+        RankedRow(Object row, int position)
+        {
+            this.row = row;
+            this.position = position;
+        }
+    }
+
     /* package */static final class FilteredList<E> extends ArrayList<E>
     {
         private static final long serialVersionUID = 1L;
@@ -262,6 +295,9 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
     private int sortColumn = -1;
     private Column.SortDirection sortDirection;
     private Comparator<Object> comparator;
+    /** columns and directions making up {@link #comparator}, if known */
+    private int[] sortKeyColumns;
+    private Column.SortDirection[] sortKeyDirections;
 
     protected boolean inlineJobs = false;
     protected List<DerivedDataJobDefinition> jobs = new ArrayList<DerivedDataJobDefinition>();
@@ -350,11 +386,30 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
         this.resultIsSorted = isPreSorted;
 
         if (cmp == null)
+        {
             cmp = buildComparator(columnIndex, direction);
+            internalSetSortKeys(new int[] { columnIndex }, new SortDirection[] { direction });
+        }
+        else
+        {
+            internalSetSortKeys(null, null);
+        }
 
         this.comparator = cmp;
     }
 
+    /**
+     * Records which columns the comparator sorts by, so that large lists can
+     * be sorted by the column values instead of through the comparator.
+     * The direction of a column is ascending if null, as for
+     * {@link #buildComparator(int, SortDirection)}.
+     */
+    /* package */void internalSetSortKeys(int[] columnIndices, SortDirection[] directions)
+    {
+        this.sortKeyColumns = columnIndices;
+        this.sortKeyDirections = directions;
+    }
+
     @SuppressWarnings("unchecked")
     /* package */Comparator<Object> buildComparator(int columnIndex, Column.SortDirection direction)
     {
@@ -373,10 +428,216 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
 
     public void sort(List<?> elements)
     {
-        if (comparator != null)
+        if (comparator == null)
+            return;
+
+        if (elements.size() < ColumnValues.PARALLEL_THRESHOLD || !sortByKeys(elements))
             Collections.sort(elements, comparator);
     }
 
+    /**
+     * Sorts by fetching the values of the sort columns once, ranking them and
+     * sorting the ranks in parallel. The order is the same as that of the
+     * stable sort with the comparator.
+     * 
+     * @return false if the columns need the comparator
+     */
+    @SuppressWarnings("unchecked")
+    private boolean sortByKeys(List<?> elements)
+    {
+        if (sortKeyColumns == null)
+            return false;
+        for (int columnIndex : sortKeyColumns)
+            if (columns.get(columnIndex).getComparator() != null)
+                return false;
+
+        Object[] rows = elements.toArray();
+        int[][] ranks = new int[sortKeyColumns.length][];
+        boolean[] descending = new boolean[sortKeyColumns.length];
+        for (int ii = 0; ii < sortKeyColumns.length; ii++)
+        {
+            int columnIndex = sortKeyColumns[ii];
+            Filter.ValueConverter converter = (Filter.ValueConverter) columns.get(columnIndex).getData(
+                            Filter.ValueConverter.class);
+            ranks[ii] = ColumnValues.rank(ColumnValues.fetch(this, rows, columnIndex), converter);
+            if (ranks[ii] == null)
+                return false;
+            descending[ii] = sortKeyDirections[ii] == SortDirection.DESC;
+        }
+
+        int[] order = ColumnValues.order(ranks, descending);
+        ListIterator<Object> iter = ((List<Object>) elements).listIterator();
+        for (int index : order)
+        {
+            iter.next();
+            iter.set(rows[index]);
+        }
+        return true;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // streaming
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * The top level rows of the wrapped result, neither filtered nor sorted.
+     * Rows should be fetched as the iterator advances, not all at once.
+     */
+    /* package */abstract Iterator<?> unrefinedIterator();
+
+    /**
+     * The top level rows after filtering and sorting.
+     */
+    /* package */abstract List<?> refinedElements();
+
+    /**
+     * The refined top level rows if they are already available, otherwise
+     * null.
+     */
+    /* package */List<?> cachedElements()
+    {
+        return null;
+    }
+
+    /**
+     * Passes the top level rows to the consumer, with the filters, derived
+     * columns and sort order applied, stopping after <code>limit</code> rows.
+     * Unlike {@link RefinedTable#getRows()} or {@link RefinedTree#getElements()}
+     * the complete list of rows is not built: the rows are pulled one at a
+     * time from the wrapped result, and if the rows are to be sorted then only
+     * the first <code>limit</code> rows are kept in a bounded heap. Sorting
+     * without a limit still needs all the rows.
+     * 
+     * @param limit
+     *            the maximum number of rows to pass on, or a negative number
+     *            for all rows
+     * @param calculateTotals
+     *            if true then all the rows are examined to count and total
+     *            them, even after the limit has been reached
+     * @param consumer
+     *            receives the rows in order
+     * @param listener
+     *            to check for cancellation
+     * @return the totals of all the rows accepted by the filters, or null if
+     *         <code>calculateTotals</code> was false
+     * @throws IOException
+     *             if the consumer fails
+     * @since 1.17
+     */
+    public TotalsRow stream(int limit, boolean calculateTotals, IRowConsumer consumer, IProgressListener listener)
+                    throws IOException
+    {
+        List<?> elements = cachedElements();
+        boolean needsSort = !resultIsSorted && sortColumn != -1 && comparator != null;
+
+        // A complete sort needs all the rows anyway
+        if (elements == null && needsSort && limit < 0)
+            elements = refinedElements();
+
+        if (elements != null)
+        {
+            int size = limit < 0 ? elements.size() : Math.min(limit, elements.size());
+            for (int ii = 0; ii < size; ii++)
+                consumer.accept(elements.get(ii));
+            if (!calculateTotals)
+                return null;
+            TotalsRow totals = buildTotalsRow(elements);
+            calculateTotals(elements, totals, listener);
+            return totals;
+        }
+
+        int[] active = getActiveFilterIndeces();
+        Filter[] filter = new Filter[active.length];
+        for (int ii = 0; ii < active.length; ii++)
+            filter[ii] = filters.get(active[ii]);
+
+        TotalsCalculator.Accumulator totals = calculateTotals ? totalsCalculator.new Accumulator(subject) : null;
+
+        PriorityQueue<RankedRow> heap = null;
+        Comparator<RankedRow> rankedComparator = null;
+        if (needsSort)
+        {
+            final Comparator<Object> cmp = comparator;
+            rankedComparator = (r1, r2) -> {
+                int c = cmp.compare(r1.row, r2.row);
+                return c != 0 ? c : Integer.compare(r1.position, r2.position);
+            };
+            // the worst of the rows kept is at the head, ready to be dropped
+            heap = new PriorityQueue<RankedRow>(Math.min(limit, 1024) + 1,
+                            Collections.reverseOrder(rankedComparator));
+        }
+
+        int position = 0;
+        int accepted = 0;
+        int passed = 0;
+        for (Iterator<?> iter = unrefinedIterator(); iter.hasNext(); position++)
+        {
+            if (position % 1000 == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            if (totals == null && heap == null && limit >= 0 && passed >= limit)
+                break;
+
+            Object row = iter.next();
+
+            if (inlineJobs)
+            {
+                for (DerivedDataJobDefinition job : jobs)
+                    calculateSilently(job, row);
+            }
+
+            if (!accept(row, active, filter))
+                continue;
+
+            accepted++;
+            if (totals != null)
+                totals.add(row);
+
+            if (heap != null)
+            {
+                heap.add(new RankedRow(row, position));
+                if (heap.size() > limit)
+                    heap.poll();
+            }
+            else if (limit < 0 || passed < limit)
+            {
+                consumer.accept(row);
+                passed++;
+            }
+        }
+
+        if (heap != null)
+        {
+            List<RankedRow> sorted = new ArrayList<RankedRow>(heap);
+            heap = null;
+            Collections.sort(sorted, rankedComparator);
+            for (RankedRow ranked : sorted)
+                consumer.accept(ranked.row);
+        }
+
+        if (totals == null)
+            return null;
+
+        TotalsRow row = new TotalsRow();
+        row.setNumberOfItems(accepted);
+        row.setFilteredItems(position - accepted);
+        row.setTotals(totals.finish());
+        return row;
+    }
+
+    private void calculateSilently(DerivedDataJobDefinition job, Object row) throws IOException
+    {
+        try
+        {
+            calculate(job.getContextProvider(), job.getOperation(), Collections.singletonList(row), null,
+                            new VoidProgressListener());
+        }
+        catch (SnapshotException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
     // //////////////////////////////////////////////////////////////
     // totals
     // //////////////////////////////////////////////////////////////
@@ -500,6 +761,9 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
             l2 = new SilentProgressListener(listener);
             sm = null;
         }
+        if (work > 1)
+            accessor.calculator.prepare(operation, elements, new SilentProgressListener(listener));
+
         int index = 0;
         // Don't iterate over the elements in case the order is changed by the user sorting the table.
         // Just index to avoid ConcurrentModificationException.
@@ -646,20 +910,36 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
         for (int ii = 0; ii < active.length; ii++)
             filter[ii] = filters.get(active[ii]);
 
-        for (Object object : elements)
+        if (elements.size() < ColumnValues.PARALLEL_THRESHOLD)
+        {
+            for (Object object : elements)
+            {
+                if (accept(object, active, filter))
+                    answer.add(object);
+            }
+        }
+        else
         {
-            boolean accept = true;
-            for (int ii = 0; accept && ii < active.length; ii++)
+            // fetch and format the values here, test them in parallel
+            Object[] rows = elements.toArray();
+            boolean[] accepted = new boolean[rows.length];
+            Arrays.fill(accepted, true);
+            for (int ii = 0; ii < active.length; ii++)
             {
-                Object v = getColumnValue(object, active[ii]);
-                if (filter[ii].acceptObject())
-                    accept = filter[ii].accept(v);
-                else
-                    accept = filter[ii].accept(format(v, active[ii]));
+                Object[] values = new Object[rows.length];
+                for (int jj = 0; jj < rows.length; jj++)
+                {
+                    if (!accepted[jj])
+                        continue;
+                    Object v = getColumnValue(rows[jj], active[ii]);
+                    values[jj] = filter[ii].acceptObject() ? v : format(v, active[ii]);
+                }
+                ColumnValues.filter(filter[ii], values, accepted);
             }
 
-            if (accept)
-                answer.add(object);
+            for (int jj = 0; jj < rows.length; jj++)
+                if (accepted[jj])
+                    answer.add(rows[jj]);
         }
 
         answer.setFilteredCount(elements.size() - answer.size());
@@ -667,6 +947,20 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
         return answer;
     }
 
+    private boolean accept(Object row, int[] active, Filter[] filter)
+    {
+        boolean accept = true;
+        for (int ii = 0; accept && ii < active.length; ii++)
+        {
+            Object v = getColumnValue(row, active[ii]);
+            if (filter[ii].acceptObject())
+                accept = filter[ii].accept(v);
+            else
+                accept = filter[ii].accept(format(v, active[ii]));
+        }
+        return accept;
+    }
+
     private String format(Object value, int columnIndex)
     {
         if (value == null)
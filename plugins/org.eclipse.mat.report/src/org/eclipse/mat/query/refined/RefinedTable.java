@@ -13,7 +13,9 @@
 package org.eclipse.mat.query.refined;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.query.IResultTable;
@@ -54,6 +56,41 @@ public class RefinedTable extends RefinedStructuredResult implements IResultTabl
         rows = null;
     }
 
+    @Override
+    /* package */Iterator<?> unrefinedIterator()
+    {
+        final IResultTable table = (IResultTable) subject;
+        final int rowCount = table.getRowCount();
+        return new Iterator<Object>()
+        {
+            int ii = 0;
+
+            public boolean hasNext()
+            {
+                return ii < rowCount;
+            }
+
+            public Object next()
+            {
+                if (ii >= rowCount)
+                    throw new NoSuchElementException();
+                return table.getRow(ii++);
+            }
+        };
+    }
+
+    @Override
+    /* package */List<?> refinedElements()
+    {
+        return getRows();
+    }
+
+    @Override
+    /* package */List<?> cachedElements()
+    {
+        return rows;
+    }
+
     // //////////////////////////////////////////////////////////////
     // private parts
     // //////////////////////////////////////////////////////////////
@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.mat.query.refined;
 
+import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.mat.SnapshotException;
@@ -42,6 +43,18 @@ public class RefinedTree extends RefinedStructuredResult implements IResultTree
         }
     }
 
+    @Override
+    /* package */Iterator<?> unrefinedIterator()
+    {
+        return ((IResultTree) subject).getElements().iterator();
+    }
+
+    @Override
+    /* package */List<?> refinedElements()
+    {
+        return getElements();
+    }
+
     public boolean hasChildren(Object element)
     {
         return ((IResultTree) subject).hasChildren(element);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2020 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -63,29 +63,92 @@ import org.eclipse.mat.util.IProgressListener;
         if (!needToCalculate)
             return answer;
 
+        // fetch each numeric column once and sum the values in row order
+        Object[] rows = elements.toArray();
+        for (int ii = 0; ii < numericColumns.size(); ii++)
+        {
+            int columnIndex = numericColumns.get(ii);
+            Column col = columns.get(columnIndex);
+            // the column may have been marked since the result was refined
+            if (!col.getCalculateTotals())
+                continue;
+            Filter.ValueConverter converter = (Filter.ValueConverter) col.getData(Filter.ValueConverter.class);
+            double[] values = ColumnValues.fetchDoubles(result, rows, columnIndex, converter, listener);
+            if (values == null)
+            {
+                if (listener.isCanceled())
+                    return new TotalsResult[noOfColumns];
+                // not a number -> ignore this column
+                continue;
+            }
+
+            double sum = 0;
+            for (double v : values)
+                sum += v;
+            answer[columnIndex] = totalsResult(col, sum);
+        }
+
+        return answer;
+    }
+
+    private static TotalsResult totalsResult(Column col, double sum)
+    {
+        Format formatter = col.getFormatter();
+        Object val;
+        if (formatter instanceof BytesFormat) {
+            // We can assume that if a column's formatter is BytesFormat,
+            // then the value must have been a long, number of bytes.
+            val = new Bytes((long)sum);
+        } else {
+            val = sum;
+        }
+        return new TotalsResult(val, formatter);
+    }
+
+    /**
+     * Sums the numeric columns of rows supplied one at a time, so the totals
+     * can be calculated without a list of all the rows.
+     */
+    /* package */final class Accumulator
+    {
+        private final IStructuredResult result;
+
         // Local copy needed as possibly skip columns if the values turn out
         // not to be numeric. However, we do NOT want to skip this column
         // from now on always.
-        ArrayInt thisNumericColumns = new ArrayInt(numericColumns);
+        private final ArrayInt thisNumericColumns;
+        private final double[] sums;
+        private final Filter.ValueConverter converters[];
+        private boolean active;
 
-        double[] sums = new double[thisNumericColumns.size()];
-
-        Filter.ValueConverter converters[] = new Filter.ValueConverter[thisNumericColumns.size()];
-        for (int ii = 0; ii < thisNumericColumns.size(); ii++)
+        /* package */Accumulator(IStructuredResult result)
         {
-            int columnIndex = thisNumericColumns.get(ii);
-            if (columnIndex < 0)
-                continue;
-            converters[ii] = (Filter.ValueConverter)columns.get(columnIndex).getData(Filter.ValueConverter.class);
+            this.result = result;
+            this.active = needToCalculate;
+            this.thisNumericColumns = new ArrayInt(numericColumns);
+            this.sums = new double[thisNumericColumns.size()];
+            this.converters = new Filter.ValueConverter[thisNumericColumns.size()];
+            for (int ii = 0; ii < thisNumericColumns.size(); ii++)
+            {
+                int columnIndex = thisNumericColumns.get(ii);
+                if (columnIndex < 0)
+                    continue;
+                if (!columns.get(columnIndex).getCalculateTotals())
+                {
+                    thisNumericColumns.set(ii, -1);
+                    continue;
+                }
+                converters[ii] = (Filter.ValueConverter) columns.get(columnIndex).getData(Filter.ValueConverter.class);
+            }
         }
 
-        int counter = 0;
-        ForEachRowLoop: for (Object row : elements)
+        /**
+         * @return false if there is nothing more to sum
+         */
+        /* package */boolean add(Object row)
         {
-            // check if canceled
-            if (++counter % 100 == 0)
-                if (listener.isCanceled())
-                    return answer;
+            if (!active)
+                return false;
 
             for (int ii = 0; ii < thisNumericColumns.size(); ii++)
             {
@@ -121,12 +184,16 @@ import org.eclipse.mat.util.IProgressListener;
                         thisNumericColumns.set(ii, -1);
 
                         // check whether all the columns are non-numeric and
-                        // exit the loop in this case
+                        // stop in this case
                         boolean needToCalculate = false;
                         for (int jj = 0; jj < thisNumericColumns.size(); jj++)
                             needToCalculate = needToCalculate || thisNumericColumns.get(jj) >= 0;
                         if (!needToCalculate)
-                            break ForEachRowLoop;
+                        {
+                            active = false;
+                            return false;
+                        }
+                        continue;
                     }
                 }
 
@@ -134,27 +201,26 @@ import org.eclipse.mat.util.IProgressListener;
                     v = converters[ii].convert(v);
                 sums[ii] += v;
             }
+            return true;
         }
 
-        // prepare result
-        for (int index = 0; index < sums.length; index++)
+        /* package */TotalsResult[] finish()
         {
-            int columnIndex = thisNumericColumns.get(index);
-            if (columnIndex < 0)
-                continue;
-            Column col = columns.get(columnIndex);
-            Format formatter = col.getFormatter();
-            Object val;
-            if (formatter instanceof BytesFormat) {
-                // We can assume that if a column's formatter is BytesFormat,
-                // then the value must have been a long, number of bytes.
-                val = new Bytes((long)sums[index]);
-            } else {
-                val = sums[index];
+            TotalsResult[] answer = new TotalsResult[noOfColumns];
+
+            if (!needToCalculate)
+                return answer;
+
+            // prepare result
+            for (int index = 0; index < sums.length; index++)
+            {
+                int columnIndex = thisNumericColumns.get(index);
+                if (columnIndex < 0)
+                    continue;
+                answer[columnIndex] = totalsResult(columns.get(columnIndex), sums[index]);
             }
-            answer[columnIndex] = new TotalsResult(val, formatter);
-        }
 
-        return answer;
+            return answer;
+        }
     }
 }
@@ -0,0 +1,950 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.query.registry;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.Format;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.BytesFormat;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IContextObjectSet;
+import org.eclipse.mat.query.IDecorator;
+import org.eclipse.mat.query.IIconProvider;
+import org.eclipse.mat.query.IQueryContext;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.query.ISelectionProvider;
+import org.eclipse.mat.query.IStructuredResult;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.query.annotations.Argument;
+import org.eclipse.mat.query.refined.RefinedStructuredResult;
+import org.eclipse.mat.report.ITestResult;
+import org.eclipse.mat.report.internal.Messages;
+import org.eclipse.mat.report.internal.ReportPlugin;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * A copy of a table or tree result holding just what is displayed: the
+ * columns, the values, the context objects, the icons, the decorations and the
+ * selection of each row. It can be saved in a compact form by the
+ * {@link ResultCache} and then shown again without running the query.
+ * <p>
+ * Of a tree, only the rows a report shows are copied: the top level and the
+ * children of expanded rows, together with the children of other rows so
+ * they are still shown as having some. The lazy parts of a tree, which can
+ * go on for ever, are not read.
+ * <p>
+ * The objects of a large context set with an OQL query, such as a row of the
+ * histogram, are not saved: the query finds them again when they are asked
+ * for. A column sorted by a comparator of the result keeps the order of the
+ * rows under that comparator.
+ * <p>
+ * Results which need the query to do more, such as those with context
+ * providers or derived operations in their meta data, values which are not
+ * numbers or strings, or with too many rows, are not copied.
+ */
+abstract class CachedResult implements IStructuredResult, IIconProvider, ISelectionProvider
+{
+    /** The most rows copied, including all the children of a tree */
+    private static final int MAX_ROWS = 100000;
+    /** The most object ids held by the contexts of the rows */
+    private static final int MAX_OBJECTS = 10000000;
+    /** The most object ids saved for a context set with an OQL query */
+    private static final int MAX_SET_OBJECTS = 1000;
+    /** The deepest tree of expanded rows copied */
+    private static final int MAX_DEPTH = 100;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int INTEGER = 2;
+    private static final int LONG = 3;
+    private static final int DOUBLE = 4;
+    private static final int FLOAT = 5;
+    private static final int BOOLEAN = 6;
+    private static final int SHORT = 7;
+    private static final int BYTE = 8;
+    private static final int CHARACTER = 9;
+    private static final int BYTES = 10;
+
+    private static final int CONTEXT_NONE = 0;
+    private static final int CONTEXT_OBJECT = 1;
+    private static final int CONTEXT_SET = 2;
+
+    private static final int FORMAT_NONE = 0;
+    private static final int FORMAT_DEFAULT = 1;
+    private static final int FORMAT_BYTES = 2;
+    private static final int FORMAT_DECIMAL = 3;
+
+    private static final String SELECT = "SELECT"; //$NON-NLS-1$
+
+    private static final Map<String, Class<?>> TYPES = new HashMap<String, Class<?>>();
+    static
+    {
+        for (Class<?> type : new Class<?>[] { Object.class, String.class, Bytes.class, //
+                        int.class, Integer.class, long.class, Long.class, double.class, Double.class, //
+                        float.class, Float.class, boolean.class, Boolean.class, short.class, Short.class, //
+                        byte.class, Byte.class, char.class, Character.class })
+            TYPES.put(type.getName(), type);
+    }
+
+    /** Thrown while copying a result which cannot be cached */
+    private static class NotCacheable extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /* package */static class Row
+    {
+        Object[] values;
+        int[] ranks;
+        IContextObject context;
+        URL icon;
+        String[] prefixes;
+        String[] suffixes;
+        boolean selected;
+        boolean expanded;
+        List<Row> children;
+    }
+
+    private static class ObjectContext implements IContextObject
+    {
+        private final int objectId;
+
+        ObjectContext(int objectId)
+        {
+            this.objectId = objectId;
+        }
+
+        public int getObjectId()
+        {
+            return objectId;
+        }
+    }
+
+    private static class ObjectSetContext extends ObjectContext implements IContextObjectSet
+    {
+        private int[] objectIds;
+        private final String oql;
+        private final IQueryContext queryContext;
+
+        /**
+         * @param objectIds the objects, or null if they are found by the OQL
+         *            query
+         */
+        ObjectSetContext(int objectId, int[] objectIds, String oql, IQueryContext queryContext)
+        {
+            super(objectId);
+            this.objectIds = objectIds;
+            this.oql = oql;
+            this.queryContext = queryContext;
+        }
+
+        public synchronized int[] getObjectIds()
+        {
+            if (objectIds == null)
+            {
+                try
+                {
+                    objectIds = select(queryContext, oql);
+                }
+                catch (SnapshotException | RuntimeException e)
+                {
+                    ReportPlugin.log(IStatus.WARNING, MessageUtil.format(Messages.CachedResult_Error_Selecting, oql));
+                    objectIds = new int[0];
+                }
+            }
+            return objectIds;
+        }
+
+        public String getOQL()
+        {
+            return oql;
+        }
+    }
+
+    private class ColumnDecorator implements IDecorator
+    {
+        private final int columnIndex;
+
+        ColumnDecorator(int columnIndex)
+        {
+            this.columnIndex = columnIndex;
+        }
+
+        public String prefix(Object row)
+        {
+            String[] prefixes = ((Row) row).prefixes;
+            return prefixes != null ? prefixes[columnIndex] : null;
+        }
+
+        public String suffix(Object row)
+        {
+            String[] suffixes = ((Row) row).suffixes;
+            return suffixes != null ? suffixes[columnIndex] : null;
+        }
+    }
+
+    /**
+     * Sorts the rows of a column as the comparator of the result did.
+     */
+    private static class RankComparator implements Comparator<Row>
+    {
+        private final int columnIndex;
+
+        RankComparator(int columnIndex)
+        {
+            this.columnIndex = columnIndex;
+        }
+
+        public int compare(Row o1, Row o2)
+        {
+            return Integer.compare(o1.ranks[columnIndex], o2.ranks[columnIndex]);
+        }
+    }
+
+    /* package */static class Table extends CachedResult implements IResultTable
+    {
+        public int getRowCount()
+        {
+            return rows.size();
+        }
+
+        public Object getRow(int rowId)
+        {
+            return rows.get(rowId);
+        }
+    }
+
+    /* package */static class Tree extends CachedResult implements IResultTree
+    {
+        public List<?> getElements()
+        {
+            return rows;
+        }
+
+        public boolean hasChildren(Object element)
+        {
+            return !((Row) element).children.isEmpty();
+        }
+
+        public List<?> getChildren(Object parent)
+        {
+            return ((Row) parent).children;
+        }
+    }
+
+    Column[] columns;
+    boolean[] decorated;
+    boolean[] ranked;
+    int preSortedColumn = -1;
+    Column.SortDirection preSortedDirection;
+    List<Row> rows = new ArrayList<Row>();
+
+    private int rowCount;
+    private long objectCount;
+
+    // //////////////////////////////////////////////////////////////
+    // result
+    // //////////////////////////////////////////////////////////////
+
+    public ResultMetaData getResultMetaData()
+    {
+        if (preSortedDirection == null)
+            return null;
+        return new ResultMetaData.Builder().setIsPreSortedBy(preSortedColumn, preSortedDirection).build();
+    }
+
+    public Column[] getColumns()
+    {
+        return columns;
+    }
+
+    public Object getColumnValue(Object row, int columnIndex)
+    {
+        return ((Row) row).values[columnIndex];
+    }
+
+    public IContextObject getContext(Object row)
+    {
+        return ((Row) row).context;
+    }
+
+    public URL getIcon(Object row)
+    {
+        return ((Row) row).icon;
+    }
+
+    public boolean isSelected(Object row)
+    {
+        return ((Row) row).selected;
+    }
+
+    public boolean isExpanded(Object row)
+    {
+        return ((Row) row).expanded;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // copying a result
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Copy a query result.
+     * @param result the result of the query
+     * @return the copy, or null if the result cannot be cached
+     */
+    /* package */static CachedResult copy(IResult result)
+    {
+        // refined results and test results are more than what is displayed
+        if (result instanceof RefinedStructuredResult || result instanceof ITestResult)
+            return null;
+
+        try
+        {
+            if (result instanceof IResultTable)
+            {
+                IResultTable table = (IResultTable) result;
+                CachedResult copy = new Table();
+                copy.copyColumns(table);
+                int count = table.getRowCount();
+                List<Object> elements = new ArrayList<Object>(count);
+                for (int ii = 0; ii < count; ii++)
+                {
+                    elements.add(table.getRow(ii));
+                    copy.rows.add(copy.copyRow(table, elements.get(ii)));
+                }
+                copy.rank(table, elements, copy.rows);
+                return copy;
+            }
+            else if (result instanceof IResultTree)
+            {
+                IResultTree tree = (IResultTree) result;
+                CachedResult copy = new Tree();
+                copy.copyColumns(tree);
+                copy.rows = copy.copyRows(tree, tree.getElements(), 0, true);
+                return copy;
+            }
+        }
+        catch (NotCacheable e)
+        {
+            // fall through
+        }
+        return null;
+    }
+
+    private void copyColumns(IStructuredResult result) throws NotCacheable
+    {
+        ResultMetaData metaData = result.getResultMetaData();
+        if (metaData != null)
+        {
+            if (!metaData.getContextProviders().isEmpty() || !metaData.getDetailResultProviders().isEmpty()
+                            || (metaData.getDerivedOperations() != null && !metaData.getDerivedOperations().isEmpty()))
+                throw new NotCacheable();
+            if (metaData.isPreSorted())
+            {
+                preSortedColumn = metaData.getPreSortedColumnIndex();
+                preSortedDirection = metaData.getPreSortedDirection();
+            }
+        }
+
+        Column[] original = result.getColumns();
+        columns = new Column[original.length];
+        decorated = new boolean[original.length];
+        ranked = new boolean[original.length];
+        for (int ii = 0; ii < original.length; ii++)
+        {
+            Column c = original[ii];
+            if (!TYPES.containsKey(c.getType().getName()))
+                throw new NotCacheable();
+            formatTag(c);
+            decorated[ii] = c.getDecorator() != null;
+            ranked[ii] = c.getComparator() != null;
+            columns[ii] = column(c.getLabel(), c.getType(), c.getAlign(), c.getSortDirection(), c.getFormatter(),
+                            c.getCalculateTotals(), ii);
+        }
+    }
+
+    private Column column(String label, Class<?> type, Column.Alignment align, Column.SortDirection direction,
+                    Format formatter, boolean calculateTotals, int columnIndex)
+    {
+        Column c = new Column(label, type).aligning(align).sorting(direction).formatting(formatter);
+        if (!calculateTotals)
+            c.noTotals();
+        if (decorated[columnIndex])
+            c.decorator(new ColumnDecorator(columnIndex));
+        if (ranked[columnIndex])
+            c.comparing(new RankComparator(columnIndex));
+        return c;
+    }
+
+    private static int formatTag(Column c) throws NotCacheable
+    {
+        Format formatter = c.getFormatter();
+        if (formatter == null)
+            return FORMAT_NONE;
+        if (formatter == new Column(c.getLabel(), c.getType()).getFormatter())
+            return FORMAT_DEFAULT;
+        if (formatter.getClass() == BytesFormat.class)
+            return FORMAT_BYTES;
+        if (formatter.getClass() == DecimalFormat.class)
+            return FORMAT_DECIMAL;
+        throw new NotCacheable();
+    }
+
+    /**
+     * Copy some rows of a tree.
+     * @param tree the result
+     * @param elements the rows
+     * @param depth the level in the tree
+     * @param shown whether the rows are shown, so their children are needed
+     * @return the copied rows
+     * @throws NotCacheable
+     */
+    private List<Row> copyRows(IResultTree tree, List<?> elements, int depth, boolean shown) throws NotCacheable
+    {
+        if (depth > MAX_DEPTH)
+            throw new NotCacheable();
+        List<Row> answer = new ArrayList<Row>(elements != null ? elements.size() : 0);
+        if (elements == null)
+            return answer;
+        for (Object element : elements)
+        {
+            Row row = copyRow(tree, element);
+            if (shown && tree.hasChildren(element))
+                row.children = copyRows(tree, tree.getChildren(element), depth + 1, row.expanded);
+            answer.add(row);
+        }
+        rank(tree, elements, answer);
+        return answer;
+    }
+
+    /**
+     * Keep the order of the rows under the comparators of the columns. Only
+     * rows with the same parent are sorted together, so each row is ranked
+     * among those.
+     * @param result the result
+     * @param elements the rows of the result
+     * @param copies the copies of the rows
+     */
+    @SuppressWarnings("unchecked")
+    private void rank(IStructuredResult result, List<?> elements, List<Row> copies)
+    {
+        final Object[] rows = elements.toArray();
+        Integer[] order = new Integer[rows.length];
+        for (int ii = 0; ii < columns.length; ii++)
+        {
+            if (!ranked[ii])
+                continue;
+            final Comparator<Object> comparator = (Comparator<Object>) result.getColumns()[ii].getComparator();
+            for (int rr = 0; rr < order.length; rr++)
+                order[rr] = rr;
+            Arrays.sort(order, (r1, r2) -> comparator.compare(rows[r1], rows[r2]));
+            int rank = 0;
+            for (int rr = 0; rr < order.length; rr++)
+            {
+                if (rr > 0 && comparator.compare(rows[order[rr - 1]], rows[order[rr]]) != 0)
+                    rank = rr;
+                copies.get(order[rr]).ranks[ii] = rank;
+            }
+        }
+    }
+
+    private Row copyRow(IStructuredResult result, Object row) throws NotCacheable
+    {
+        if (++rowCount > MAX_ROWS)
+            throw new NotCacheable();
+
+        Row copy = new Row();
+        copy.children = new ArrayList<Row>(0);
+        copy.values = new Object[columns.length];
+        copy.ranks = new int[columns.length];
+        for (int ii = 0; ii < columns.length; ii++)
+        {
+            Object value = result.getColumnValue(row, ii);
+            valueTag(value);
+            copy.values[ii] = value;
+
+            if (decorated[ii])
+            {
+                if (copy.prefixes == null)
+                {
+                    copy.prefixes = new String[columns.length];
+                    copy.suffixes = new String[columns.length];
+                }
+                IDecorator decorator = result.getColumns()[ii].getDecorator();
+                copy.prefixes[ii] = decorator.prefix(row);
+                copy.suffixes[ii] = decorator.suffix(row);
+            }
+        }
+
+        IContextObject context = result.getContext(row);
+        if (context instanceof IContextObjectSet)
+        {
+            IContextObjectSet set = (IContextObjectSet) context;
+            int[] objectIds = set.getObjectIds();
+            if (objectIds == null)
+                throw new NotCacheable();
+            String oql = set.getOQL();
+            if (objectIds.length > MAX_SET_OBJECTS && selects(oql))
+            {
+                // found again by the query
+                objectIds = null;
+            }
+            else
+            {
+                objectCount += objectIds.length;
+                if (objectCount > MAX_OBJECTS)
+                    throw new NotCacheable();
+            }
+            copy.context = new ObjectSetContext(set.getObjectId(), objectIds, oql, null);
+        }
+        else if (context != null)
+        {
+            copy.context = new ObjectContext(context.getObjectId());
+        }
+
+        if (result instanceof IIconProvider)
+            copy.icon = ((IIconProvider) result).getIcon(row);
+        if (result instanceof ISelectionProvider)
+        {
+            copy.selected = ((ISelectionProvider) result).isSelected(row);
+            copy.expanded = ((ISelectionProvider) result).isExpanded(row);
+        }
+        return copy;
+    }
+
+    private static int valueTag(Object value) throws NotCacheable
+    {
+        if (value == null)
+            return NULL;
+        else if (value instanceof String)
+            return STRING;
+        else if (value instanceof Integer)
+            return INTEGER;
+        else if (value instanceof Long)
+            return LONG;
+        else if (value instanceof Double)
+            return DOUBLE;
+        else if (value instanceof Float)
+            return FLOAT;
+        else if (value instanceof Boolean)
+            return BOOLEAN;
+        else if (value instanceof Short)
+            return SHORT;
+        else if (value instanceof Byte)
+            return BYTE;
+        else if (value instanceof Character)
+            return CHARACTER;
+        else if (value instanceof Bytes)
+            return BYTES;
+        throw new NotCacheable();
+    }
+
+    /**
+     * Whether the objects of the OQL query can be found by {@link #select}.
+     */
+    private static boolean selects(String oql)
+    {
+        if (oql == null || oql.length() <= SELECT.length() || !oql.regionMatches(true, 0, SELECT, 0, SELECT.length())
+                        || !Character.isWhitespace(oql.charAt(SELECT.length())))
+            return false;
+        String query = oql.substring(SELECT.length()).trim();
+        return !query.isEmpty() && query.charAt(0) != '-';
+    }
+
+    /**
+     * Find the objects of an OQL query as for a query argument of heap objects
+     * given on the command line.
+     * @param context the snapshot
+     * @param oql the query, starting with SELECT
+     * @return the objects
+     * @throws SnapshotException
+     */
+    private static int[] select(IQueryContext context, String oql) throws SnapshotException
+    {
+        String[] args = new String[] { oql.substring(0, SELECT.length()), oql.substring(SELECT.length()).trim(), ";" }; //$NON-NLS-1$
+        ArgumentDescriptor descriptor = new ArgumentDescriptor();
+        descriptor.setName("objects"); //$NON-NLS-1$
+        descriptor.setType(int.class);
+        descriptor.setArray(true);
+        descriptor.setAdvice(Argument.Advice.HEAP_OBJECT);
+        Object value = context.parse(descriptor.getType(), descriptor.getAdvice(), args, new ParsePosition(0));
+        if (value instanceof ArgumentFactory)
+            value = ((ArgumentFactory) value).build(descriptor);
+        if (!(value instanceof int[]))
+            throw new SnapshotException(MessageUtil.format(Messages.CachedResult_Error_Selecting, oql));
+        return (int[]) value;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // saving and reading
+    // //////////////////////////////////////////////////////////////
+
+    /* package */void write(DataOutputStream out) throws IOException
+    {
+        out.writeBoolean(this instanceof Tree);
+        out.writeInt(preSortedColumn);
+        out.writeInt(preSortedDirection != null ? preSortedDirection.ordinal() : -1);
+
+        out.writeInt(columns.length);
+        for (int ii = 0; ii < columns.length; ii++)
+        {
+            Column c = columns[ii];
+            writeString(out, c.getLabel());
+            writeString(out, c.getType().getName());
+            out.writeInt(c.getAlign().ordinal());
+            out.writeInt(c.getSortDirection() != null ? c.getSortDirection().ordinal() : -1);
+            int format;
+            try
+            {
+                format = formatTag(c);
+            }
+            catch (NotCacheable e)
+            {
+                // checked when copied
+                throw new IOException(e);
+            }
+            out.writeInt(format);
+            if (format == FORMAT_DECIMAL)
+                writeString(out, ((DecimalFormat) c.getFormatter()).toPattern());
+            out.writeBoolean(c.getCalculateTotals());
+            out.writeBoolean(decorated[ii]);
+            out.writeBoolean(ranked[ii]);
+        }
+
+        Map<URL, Integer> icons = new HashMap<URL, Integer>();
+        writeRows(out, rows, icons);
+    }
+
+    private void writeRows(DataOutputStream out, List<Row> rows, Map<URL, Integer> icons) throws IOException
+    {
+        out.writeInt(rows.size());
+        for (Row row : rows)
+        {
+            for (int ii = 0; ii < columns.length; ii++)
+            {
+                writeValue(out, row.values[ii]);
+                if (decorated[ii])
+                {
+                    writeString(out, row.prefixes[ii]);
+                    writeString(out, row.suffixes[ii]);
+                }
+                if (ranked[ii])
+                    out.writeInt(row.ranks[ii]);
+            }
+
+            if (row.context instanceof ObjectSetContext)
+            {
+                ObjectSetContext set = (ObjectSetContext) row.context;
+                out.writeInt(CONTEXT_SET);
+                out.writeInt(set.getObjectId());
+                if (set.objectIds != null)
+                {
+                    out.writeInt(set.objectIds.length);
+                    for (int objectId : set.objectIds)
+                        out.writeInt(objectId);
+                }
+                else
+                {
+                    out.writeInt(-1);
+                }
+                writeString(out, set.oql);
+            }
+            else if (row.context != null)
+            {
+                out.writeInt(CONTEXT_OBJECT);
+                out.writeInt(row.context.getObjectId());
+            }
+            else
+            {
+                out.writeInt(CONTEXT_NONE);
+            }
+
+            // each icon is written once, and then referred to by number
+            if (row.icon == null)
+            {
+                out.writeInt(-1);
+            }
+            else
+            {
+                Integer index = icons.get(row.icon);
+                if (index != null)
+                {
+                    out.writeInt(index);
+                }
+                else
+                {
+                    out.writeInt(icons.size());
+                    icons.put(row.icon, icons.size());
+                    writeString(out, row.icon.toExternalForm());
+                }
+            }
+
+            out.writeBoolean(row.selected);
+            out.writeBoolean(row.expanded);
+            if (this instanceof Tree)
+                writeRows(out, row.children, icons);
+        }
+    }
+
+    /**
+     * Read a saved copy.
+     * @param in the stream
+     * @param queryContext the snapshot, to find the objects of OQL queries
+     * @return the copy
+     * @throws IOException
+     */
+    /* package */static CachedResult read(DataInputStream in, IQueryContext queryContext) throws IOException
+    {
+        CachedResult result = in.readBoolean() ? new Tree() : new Table();
+        result.preSortedColumn = in.readInt();
+        int direction = in.readInt();
+        result.preSortedDirection = direction >= 0 ? Column.SortDirection.values()[direction] : null;
+
+        int length = in.readInt();
+        result.columns = new Column[length];
+        result.decorated = new boolean[length];
+        result.ranked = new boolean[length];
+        for (int ii = 0; ii < length; ii++)
+        {
+            String label = readString(in);
+            Class<?> type = TYPES.get(readString(in));
+            if (type == null)
+                throw new IOException();
+            Column.Alignment align = Column.Alignment.values()[in.readInt()];
+            int sort = in.readInt();
+            Column.SortDirection sortDirection = sort >= 0 ? Column.SortDirection.values()[sort] : null;
+            Format formatter;
+            switch (in.readInt())
+            {
+                case FORMAT_NONE:
+                    formatter = null;
+                    break;
+                case FORMAT_DEFAULT:
+                    formatter = new Column(label, type).getFormatter();
+                    break;
+                case FORMAT_BYTES:
+                    formatter = BytesFormat.getInstance();
+                    break;
+                case FORMAT_DECIMAL:
+                    formatter = new DecimalFormat(readString(in));
+                    break;
+                default:
+                    throw new IOException();
+            }
+            boolean calculateTotals = in.readBoolean();
+            result.decorated[ii] = in.readBoolean();
+            result.ranked[ii] = in.readBoolean();
+            result.columns[ii] = result.column(label, type, align, sortDirection, formatter, calculateTotals, ii);
+        }
+
+        result.rows = result.readRows(in, new ArrayList<URL>(), queryContext);
+        return result;
+    }
+
+    private List<Row> readRows(DataInputStream in, List<URL> icons, IQueryContext queryContext) throws IOException
+    {
+        int size = in.readInt();
+        List<Row> rows = new ArrayList<Row>(size);
+        for (int rr = 0; rr < size; rr++)
+        {
+            Row row = new Row();
+            row.values = new Object[columns.length];
+            row.ranks = new int[columns.length];
+            for (int ii = 0; ii < columns.length; ii++)
+            {
+                row.values[ii] = readValue(in);
+                if (decorated[ii])
+                {
+                    if (row.prefixes == null)
+                    {
+                        row.prefixes = new String[columns.length];
+                        row.suffixes = new String[columns.length];
+                    }
+                    row.prefixes[ii] = readString(in);
+                    row.suffixes[ii] = readString(in);
+                }
+                if (ranked[ii])
+                    row.ranks[ii] = in.readInt();
+            }
+
+            switch (in.readInt())
+            {
+                case CONTEXT_NONE:
+                    break;
+                case CONTEXT_OBJECT:
+                    row.context = new ObjectContext(in.readInt());
+                    break;
+                case CONTEXT_SET:
+                    int objectId = in.readInt();
+                    int count = in.readInt();
+                    int[] objectIds = count >= 0 ? new int[count] : null;
+                    for (int ii = 0; ii < count; ii++)
+                        objectIds[ii] = in.readInt();
+                    String oql = readString(in);
+                    if (objectIds == null && !selects(oql))
+                        throw new IOException();
+                    row.context = new ObjectSetContext(objectId, objectIds, oql, queryContext);
+                    break;
+                default:
+                    throw new IOException();
+            }
+
+            int icon = in.readInt();
+            if (icon == icons.size())
+            {
+                URL url;
+                try
+                {
+                    url = URI.create(readString(in)).toURL();
+                }
+                catch (IllegalArgumentException e)
+                {
+                    url = null;
+                }
+                icons.add(url);
+            }
+            row.icon = icon >= 0 ? icons.get(icon) : null;
+
+            row.selected = in.readBoolean();
+            row.expanded = in.readBoolean();
+            row.children = this instanceof Tree ? readRows(in, icons, queryContext) : new ArrayList<Row>(0);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException
+    {
+        int tag;
+        try
+        {
+            tag = valueTag(value);
+        }
+        catch (NotCacheable e)
+        {
+            // checked when copied
+            throw new IOException(e);
+        }
+        out.writeByte(tag);
+        switch (tag)
+        {
+            case STRING:
+                writeString(out, (String) value);
+                break;
+            case INTEGER:
+                out.writeInt((Integer) value);
+                break;
+            case LONG:
+                out.writeLong((Long) value);
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case SHORT:
+                out.writeShort((Short) value);
+                break;
+            case BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case CHARACTER:
+                out.writeChar((Character) value);
+                break;
+            case BYTES:
+                out.writeLong(((Bytes) value).getValue());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException
+    {
+        switch (in.readByte())
+        {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHARACTER:
+                return in.readChar();
+            case BYTES:
+                return new Bytes(in.readLong());
+            default:
+                throw new IOException();
+        }
+    }
+
+    /**
+     * Strings of any length, and null.
+     */
+    /* package */static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        if (s == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    /* package */static String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
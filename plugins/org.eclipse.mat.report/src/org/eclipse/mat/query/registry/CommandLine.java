@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    IBM Corporation - cache of query results
  *******************************************************************************/
 package org.eclipse.mat.query.registry;
 
@@ -92,8 +93,19 @@ public class CommandLine
     {
         ArgumentSet set = parse(context, commandLine);
 
+        ResultCache cache = ResultCache.isEnabled() ? ResultCache.of(set) : null;
+        if (cache != null)
+        {
+            IResult cached = cache.read();
+            if (cached != null)
+                return cached;
+        }
+
         QueryResult result = set.execute(listener);
 
+        if (cache != null && result != null && !listener.isCanceled())
+            cache.write(result.getSubject());
+
         return result != null ? result.getSubject() : null;
     }
 
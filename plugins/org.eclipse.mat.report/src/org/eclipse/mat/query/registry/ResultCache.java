@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.query.registry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.mat.query.IQueryContext;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IStructuredResult;
+import org.eclipse.mat.query.annotations.Argument;
+import org.eclipse.mat.report.internal.Messages;
+import org.eclipse.mat.report.internal.ReportPlugin;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * Keeps the results of queries run from a command line in files next to the
+ * index files of the snapshot, so running the same command line again, for
+ * example for another report, just reads the result.
+ * <p>
+ * This is switched on with the system property
+ * <code>-Dmat.query.resultCache=true</code>. A result is found by the query,
+ * the command line and the dump file, and is no longer used once the dump
+ * file changes or the snapshot is parsed again, which deletes the files.
+ * Only the results which {@link CachedResult} can copy are saved.
+ */
+public class ResultCache
+{
+    private static final boolean ENABLED = Boolean.getBoolean("mat.query.resultCache"); //$NON-NLS-1$
+
+    /** Marks the version of the file */
+    private static final int VERSION = 0x4d415202;
+
+    private final IQueryContext context;
+    private final File file;
+    private final String key;
+    private final String commandLine;
+
+    private ResultCache(IQueryContext context, File file, String key, String commandLine)
+    {
+        this.context = context;
+        this.file = file;
+        this.key = key;
+        this.commandLine = commandLine;
+    }
+
+    /**
+     * @return whether the results of command lines are cached
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * The cache for the query with these arguments, whether or not caching is
+     * switched on.
+     * @param set the query and arguments
+     * @return the cache, or null if the arguments are not all given by the
+     *         command line and the snapshot
+     */
+    public static ResultCache of(ArgumentSet set)
+    {
+        IQueryContext context = set.getQueryContext();
+        String prefix = context.getPrefix();
+        File primaryFile = context.getPrimaryFile();
+        if (prefix == null || primaryFile == null || !primaryFile.isFile())
+            return null;
+
+        // Another snapshot or an earlier result would not be in the key
+        for (ArgumentDescriptor arg : set.getQueryDescriptor().getArguments())
+        {
+            if (arg.getAdvice() == Argument.Advice.SECONDARY_SNAPSHOT
+                            || IStructuredResult.class.isAssignableFrom(arg.getType()))
+                return null;
+        }
+
+        String commandLine = set.writeToLine();
+        File index = new File(prefix + "index"); //$NON-NLS-1$
+        String key = set.getQueryDescriptor().getCommandType().getName() + '\n' + commandLine + '\n'
+                        + primaryFile.getAbsolutePath() + '\n' + primaryFile.length() + '\n'
+                        + primaryFile.lastModified() + '\n' + index.lastModified();
+
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+            StringBuilder name = new StringBuilder(prefix).append('q');
+            for (int ii = 0; ii < 8; ii++)
+                name.append(String.format("%02x", digest[ii] & 0xff)); //$NON-NLS-1$
+            // Named like an index file so it is deleted when the dump is parsed again
+            name.append(".index"); //$NON-NLS-1$
+            return new ResultCache(context, new File(name.toString()), key, commandLine);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Read the result saved by an earlier run.
+     * @return the result, or null if there is none
+     */
+    public IResult read()
+    {
+        if (!file.canRead())
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != VERSION || !key.equals(CachedResult.readString(in)))
+                return null;
+            return CachedResult.read(in, context);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            ReportPlugin.log(IStatus.WARNING,
+                            MessageUtil.format(Messages.ResultCache_Error_Reading, file, commandLine));
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Save the result, if it can be copied.
+     * @param result the result of the query
+     */
+    public void write(IResult result)
+    {
+        CachedResult copy = CachedResult.copy(result);
+        if (copy == null)
+            return;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(VERSION);
+            CachedResult.writeString(out, key);
+            copy.write(out);
+        }
+        catch (IOException e)
+        {
+            ReportPlugin.log(IStatus.WARNING,
+                            MessageUtil.format(Messages.ResultCache_Error_Writing, file, commandLine));
+            file.delete();
+        }
+    }
+}
@@ -155,6 +155,23 @@ public interface Params
          * _default_=PRECISE {@link org.eclipse.mat.snapshot.query.RetainedSizeDerivedData#PRECISE}
          */
         String DERIVED_DATA_COLUMN = "derived_data_column";
+
+        /**
+         * Run the queries of a section concurrently.
+         * The value is the maximum number of queries to run at once, or "true"
+         * for one per available processor. The results are still written
+         * in the order given by the report definition.
+         * @since 1.17
+         */
+        String PARALLEL = "rendering.parallel";
+
+        /**
+         * Free heap, in megabytes, which must be available before another query of a
+         * section is started concurrently when {@link #PARALLEL} is set.
+         * If there is less, the query is run on its own when its output is written.
+         * @since 1.17
+         */
+        String PARALLEL_MIN_FREE_MEMORY = "rendering.parallel_min_free_memory";
     }
 
 }
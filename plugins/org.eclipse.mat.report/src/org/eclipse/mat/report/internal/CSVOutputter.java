@@ -22,8 +22,11 @@ import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.IResult;
 import org.eclipse.mat.query.IResultTable;
 import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.query.IStructuredResult;
 import org.eclipse.mat.query.refined.Filter;
+import org.eclipse.mat.query.refined.RefinedStructuredResult;
 import org.eclipse.mat.report.Renderer;
+import org.eclipse.mat.util.VoidProgressListener;
 
 @Renderer(target = "csv", result = { IResultTree.class, IResultTable.class })
 public class CSVOutputter extends OutputterBase
@@ -57,26 +60,21 @@ public class CSVOutputter extends OutputterBase
         writer.append("\n"); //$NON-NLS-1$
 
         // add data records
-        if (result instanceof IResultTable)
+        if (result instanceof RefinedStructuredResult)
+        {
+            // pull the rows one at a time rather than refining the whole result
+            final RefinedStructuredResult refined = (RefinedStructuredResult) result;
+            int limit = context.hasLimit() ? context.getLimit() : -1;
+            refined.stream(limit, false, row -> writeRow(context, refined, row, columns.length, filter, writer),
+                            new VoidProgressListener());
+        }
+        else if (result instanceof IResultTable)
         {
             IResultTable table = ((IResultTable) result);
             int limit = context.hasLimit() ? Math.min(table.getRowCount(), context.getLimit()) : table.getRowCount();
 
             for (int row = 0; row < limit; row++)
-            {
-                for (int column = 0; column < columns.length; column++)
-                {
-                    if (context.isColumnVisible(column))
-                    {
-                        Object columnValue = table.getColumnValue(table.getRow(row), column);
-                        if (columnValue != null)
-                            escape(writer, getStringValue(columnValue, filter[column]));
-
-                        writer.append(SEPARATOR);
-                    }
-                }
-                writer.append("\n"); //$NON-NLS-1$
-            }
+                writeRow(context, table, table.getRow(row), columns.length, filter, writer);
         }
         else if (result instanceof IResultTree)
         {
@@ -86,21 +84,25 @@ public class CSVOutputter extends OutputterBase
             int limit = context.hasLimit() ? Math.min(elements.size(), context.getLimit()) : elements.size();
 
             for (int row = 0; row < limit; row++)
+                writeRow(context, tree, elements.get(row), columns.length, filter, writer);
+        }
+    }
+
+    private static void writeRow(Context context, IStructuredResult result, Object row, int columnCount,
+                    Filter.ValueConverter[] filter, Writer writer) throws IOException
+    {
+        for (int column = 0; column < columnCount; column++)
+        {
+            if (context.isColumnVisible(column))
             {
-                for (int column = 0; column < columns.length; column++)
-                {
-                    if (context.isColumnVisible(column))
-                    {
-                        Object columnValue = tree.getColumnValue(elements.get(row), column);
-                        if (columnValue != null)
-                            escape(writer, getStringValue(columnValue, filter[column]));
-
-                        writer.append(SEPARATOR);
-                    }
-                }
-                writer.append("\n"); //$NON-NLS-1$
+                Object columnValue = result.getColumnValue(row, column);
+                if (columnValue != null)
+                    escape(writer, getStringValue(columnValue, filter[column]));
+
+                writer.append(SEPARATOR);
             }
         }
+        writer.append("\n"); //$NON-NLS-1$
     }
 
     /**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2022 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -124,43 +124,51 @@ public class HtmlOutputter implements IOutputter
         // render filter row
         renderFilterRow(context, artefact, table, hasDetailsLink);
 
-        int numberOfRowsToDisplay = (context.hasLimit() && context.getLimit() < table.getRowCount()) ? context
-                        .getLimit() : table.getRowCount();
-        for (int rowIndex = 0; rowIndex < numberOfRowsToDisplay; rowIndex++)
-        {
-            Object row = table.getRow(rowIndex);
+        // pull the rows one at a time rather than refining the whole table
+        final int[] numberOfRowsDisplayed = new int[1];
+        int limit = context.hasLimit() ? context.getLimit() : -1;
+        // only go on past the limit if there is a totals row to show
+        final TotalsRow totalsRow = table.stream(limit, context.isTotalsRowVisible(), row -> {
+            renderTableRow(context, table, artefact, columns, row, hasDetailsLink);
+            numberOfRowsDisplayed[0]++;
+        }, new VoidProgressListener());
 
-            artefact.append("<tr");
+        // append totals row
+        if (totalsRow != null)
+            totalsRow.setVisibleItems(numberOfRowsDisplayed[0]);
+        if (totalsRow != null && totalsRow.isVisible())
+            renderTotalsRow(context, artefact, table, null, totalsRow, columns, new int[0], hasDetailsLink);
+        artefact.append("</tbody></table>");
+    }
 
-            if (table.isSelected(row))
-                artefact.append(" class=\"selected\"");
+    @SuppressWarnings("nls")
+    private void renderTableRow(Context context, RefinedTable table, Writer artefact, Column[] columns, Object row,
+                    boolean hasDetailsLink) throws IOException
+    {
+        artefact.append("<tr");
 
-            artefact.append(">");
+        if (table.isSelected(row))
+            artefact.append(" class=\"selected\"");
 
-            if (context.isColumnVisible(0))
-            {
-                artefact.append("<td>");
+        artefact.append(">");
 
-                URL url = table.getIcon(row);
-                String iconUrl = context.addIcon(url);
-                if (iconUrl != null)
-                {
-                    String alt = altText(url);
-                    artefact.append("<img src=\"").append(iconUrl).append("\" alt=\""+alt+"\">");
-                }
-                renderColumnValue(context, artefact, table, columns, row, 0);
+        if (context.isColumnVisible(0))
+        {
+            artefact.append("<td>");
 
-                artefact.append("</td>");
+            URL url = table.getIcon(row);
+            String iconUrl = context.addIcon(url);
+            if (iconUrl != null)
+            {
+                String alt = altText(url);
+                artefact.append("<img src=\"").append(iconUrl).append("\" alt=\""+alt+"\">");
             }
-            renderDataColumns(context, artefact, table, columns, row, hasDetailsLink);
-            artefact.append("</tr>");
+            renderColumnValue(context, artefact, table, columns, row, 0);
+
+            artefact.append("</td>");
         }
-        // append totals row
-        final TotalsRow totalsRow = table.buildTotalsRow(table.getRows());
-        totalsRow.setVisibleItems(+numberOfRowsToDisplay);
-        if (totalsRow.isVisible())
-            renderTotalsRow(context, artefact, table, table.getRows(), totalsRow, columns, new int[0], hasDetailsLink);
-        artefact.append("</tbody></table>");
+        renderDataColumns(context, artefact, table, columns, row, hasDetailsLink);
+        artefact.append("</tr>");
     }
 
     @SuppressWarnings("nls")
@@ -216,7 +224,9 @@ public class HtmlOutputter implements IOutputter
     {
         if (context.isTotalsRowVisible())
         {
-            result.calculateTotals(elements, totalsRow, new VoidProgressListener());
+            // the totals of streamed rows are already known
+            if (elements != null)
+                result.calculateTotals(elements, totalsRow, new VoidProgressListener());
             URL url = totalsRow.getIcon();
             String iconUrl = context.addIcon(url);
             artefact.append("<tr class=\"totals\">");
@@ -32,6 +32,7 @@ public final class Messages extends NLS
     public static String BytesFormat_GB;
     public static String BytesFormat_KB;
     public static String BytesFormat_MB;
+    public static String CachedResult_Error_Selecting;
     public static String CategoryDescriptor_Label_NoCategory;
     public static String CommandLine_Error_AssignmentFailed;
     public static String CommandLine_Error_InvalidCommand;
@@ -112,10 +113,13 @@ public final class Messages extends NLS
     public static String RegistryReader_Error_Registry;
     public static String RendererRegistry_Error_MissingAnnotation;
     public static String ReportPlugin_InternalError;
+    public static String ResultCache_Error_Reading;
+    public static String ResultCache_Error_Writing;
     public static String ResultRenderer_Error_OutputterNotFound;
     public static String ResultRenderer_Label_Details;
     public static String ResultRenderer_Label_TableOfContents;
     public static String RunRegisterdReport_Error_UnknownReport;
+    public static String SectionPart_Error_InvalidParallelism;
     public static String SpecFactory_Error_MissingTemplate;
     public static String SpecFactory_ReportDefinitionError;
     public static String SpecFactory_ReportDefinitionSevereError;
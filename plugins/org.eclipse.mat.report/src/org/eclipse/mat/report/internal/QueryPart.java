@@ -60,6 +60,9 @@ public class QueryPart extends AbstractPart
 {
     /* package */PartsFactory factory;
 
+    /** result computed by {@link #prepare} ahead of rendering */
+    private IResult prepared;
+
     public QueryPart(String id, AbstractPart parent, DataFile artefact, QuerySpec spec)
     {
         super(id, parent, artefact, spec);
@@ -94,7 +97,13 @@ public class QueryPart extends AbstractPart
         IResult result = spec().getResult();
 
         SimpleMonitor monitor = new SimpleMonitor(subTaskName, listener, new int[] { 80, 20 });
-        if (result == null)
+        if (result == null && prepared != null)
+        {
+            // already computed by the section, possibly on another thread
+            result = prepared;
+            prepared = null;
+        }
+        else if (result == null)
         {
             if (getCommand() == null)
             {
@@ -103,20 +112,7 @@ public class QueryPart extends AbstractPart
             }
             else
             {
-                try
-                {
-                    result = CommandLine.execute(context, getCommand(), monitor.nextMonitor());
-                }
-                catch (Exception e)
-                {
-                    String msg = e.getMessage();
-                    if (msg == null)
-                        msg = e.getClass().getName();
-
-                    ReportPlugin.log(e, MessageUtil.format(Messages.QueryPart_Error_IgnoringResult, spec().getName(),
-                                    msg));
-                    result = new TextResult(e.getLocalizedMessage());
-                }
+                result = runCommand(context, monitor.nextMonitor());
             }
         }
 
@@ -183,6 +179,39 @@ public class QueryPart extends AbstractPart
         return this;
     }
 
+    /**
+     * Run the command of this part without rendering the result. This allows
+     * the (possibly expensive) query to be evaluated on another thread while
+     * the renderer works through the preceding parts in order.
+     * 
+     * @return true if a result is now waiting for {@link #execute}
+     */
+    /* package */boolean prepare(IQueryContext context, IProgressListener listener)
+    {
+        if (spec().getResult() != null || getCommand() == null)
+            return false;
+
+        prepared = runCommand(context, listener);
+        return true;
+    }
+
+    private IResult runCommand(IQueryContext context, IProgressListener listener)
+    {
+        try
+        {
+            return CommandLine.execute(context, getCommand(), listener);
+        }
+        catch (Exception e)
+        {
+            String msg = e.getMessage();
+            if (msg == null)
+                msg = e.getClass().getName();
+
+            ReportPlugin.log(e, MessageUtil.format(Messages.QueryPart_Error_IgnoringResult, spec().getName(), msg));
+            return new TextResult(e.getLocalizedMessage());
+        }
+    }
+
     private boolean hasParameterThatNeedRefining()
     {
         String[] providers = params().getStringArray(Params.Rendering.DERIVED_DATA_COLUMN);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -14,7 +14,6 @@
 package org.eclipse.mat.report.internal;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -22,8 +21,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -308,9 +307,7 @@ public class ResultRenderer
         {
             cs = StandardCharsets.UTF_8;
         }
-        try (FileOutputStream fos = new FileOutputStream(new File(this.directory, filename));
-             OutputStreamWriter osw = new OutputStreamWriter(fos, cs);
-             BufferedWriter writer = new BufferedWriter(osw))
+        try (Writer writer = FileUtils.openExportWriter(new File(this.directory, filename), cs))
         {
             outputter.process(info, result, writer);
         }
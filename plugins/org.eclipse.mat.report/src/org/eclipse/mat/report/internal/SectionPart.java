@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2020 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -14,8 +14,18 @@
 package org.eclipse.mat.report.internal;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.query.IQueryContext;
 import org.eclipse.mat.report.ITestResult.Status;
@@ -23,12 +33,17 @@ import org.eclipse.mat.report.Params;
 import org.eclipse.mat.report.SectionSpec;
 import org.eclipse.mat.report.Spec;
 import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SimpleMonitor;
+import org.eclipse.mat.util.SynchronizedProgressListener;
 
 public class SectionPart extends AbstractPart
 {
     String command;
 
+    /** the threads running queries for this section and the sections within it */
+    private QueryPool pool;
+
     /* package */SectionPart(String id, AbstractPart parent, DataFile artefact, SectionSpec spec, String command)
     {
         super(id, parent, artefact, spec);
@@ -63,14 +78,46 @@ public class SectionPart extends AbstractPart
 
         int perc[] = new int[this.children.size()];
         Arrays.fill(perc, 100);
-        SimpleMonitor sm = new SimpleMonitor(spec.getName(), listener, perc);
-        for (int ii = 0; ii < this.children.size(); ii++)
+
+        // nested sections share the threads of the enclosing section
+        QueryPool pool = inheritedPool();
+        boolean owner = false;
+        if (pool == null)
         {
-            IProgressListener mon = sm.nextMonitor();
-            AbstractPart part = this.children.get(ii).execute(context, renderer, mon);
-            this.status = Status.max(this.status, part.status);
-            this.children.set(ii, part);
-            mon.done();
+            int threads = getParallelism();
+            int queries = countQueryParts(this);
+            if (threads > 1 && queries > 1)
+            {
+                pool = new QueryPool(spec.getName(), Math.min(threads, queries), getMinFreeMemory(threads));
+                owner = true;
+            }
+        }
+
+        this.pool = pool;
+        try
+        {
+            if (pool != null && countQueryParts() > 0)
+            {
+                executeConcurrently(context, renderer, listener, perc, pool);
+            }
+            else
+            {
+                SimpleMonitor sm = new SimpleMonitor(spec.getName(), listener, perc);
+                for (int ii = 0; ii < this.children.size(); ii++)
+                {
+                    IProgressListener mon = sm.nextMonitor();
+                    AbstractPart part = this.children.get(ii).execute(context, renderer, mon);
+                    this.status = Status.max(this.status, part.status);
+                    this.children.set(ii, part);
+                    mon.done();
+                }
+            }
+        }
+        finally
+        {
+            this.pool = null;
+            if (owner)
+                pool.shutdown();
         }
 
         renderer.endSection(this);
@@ -78,4 +125,267 @@ public class SectionPart extends AbstractPart
         return this;
     }
 
+    /**
+     * Evaluates the queries of the children on the pool of threads, while
+     * the children are rendered one after another in their original order on
+     * the calling thread. A child whose query could not be started because of
+     * low memory is run when its turn to be rendered comes.
+     */
+    private void executeConcurrently(final IQueryContext context, ResultRenderer renderer,
+                    IProgressListener listener, int[] perc, final QueryPool pool) throws SnapshotException, IOException
+    {
+        // the progress listener is shared by all the running queries
+        SimpleMonitor sm = new SimpleMonitor(spec.getName(), new SynchronizedProgressListener(listener), perc);
+        IProgressListener[] monitors = new IProgressListener[this.children.size()];
+        // a query part has one monitor to run the query and one to render it
+        IProgressListener[] prepareMonitors = new IProgressListener[monitors.length];
+        IProgressListener[] executeMonitors = new IProgressListener[monitors.length];
+        for (int ii = 0; ii < monitors.length; ii++)
+        {
+            monitors[ii] = sm.nextMonitor();
+            AbstractPart child = this.children.get(ii);
+            if (child instanceof QueryPart)
+            {
+                SimpleMonitor phases = new SimpleMonitor(child.spec().getName(), monitors[ii], new int[] { 80, 20 });
+                prepareMonitors[ii] = phases.nextMonitor();
+                executeMonitors[ii] = phases.nextMonitor();
+            }
+            else
+            {
+                executeMonitors[ii] = monitors[ii];
+            }
+        }
+
+        List<Future<Boolean>> prepared = new ArrayList<Future<Boolean>>(monitors.length);
+        try
+        {
+            for (int ii = 0; ii < monitors.length; ii++)
+            {
+                if (prepareMonitors[ii] == null)
+                {
+                    prepared.add(null);
+                    continue;
+                }
+                final QueryPart part = (QueryPart) this.children.get(ii);
+                final IProgressListener mon = prepareMonitors[ii];
+                prepared.add(pool.submit(() -> {
+                    try
+                    {
+                        if (mon.isCanceled() || !pool.reserve())
+                            return Boolean.FALSE;
+                        try
+                        {
+                            return part.prepare(context, mon);
+                        }
+                        catch (OutOfMemoryError e)
+                        {
+                            // leave it to be run on its own
+                            return Boolean.FALSE;
+                        }
+                        finally
+                        {
+                            pool.release();
+                        }
+                    }
+                    finally
+                    {
+                        mon.done();
+                    }
+                }));
+            }
+
+            for (int ii = 0; ii < monitors.length; ii++)
+            {
+                Future<Boolean> future = prepared.get(ii);
+                if (future != null)
+                {
+                    waitFor(future);
+                    prepared.set(ii, null);
+                }
+                AbstractPart part = this.children.get(ii).execute(context, renderer, executeMonitors[ii]);
+                this.status = Status.max(this.status, part.status);
+                this.children.set(ii, part);
+                executeMonitors[ii].done();
+                monitors[ii].done();
+            }
+        }
+        finally
+        {
+            // the pool may be shared, so just drop the queries of this section
+            for (Future<Boolean> future : prepared)
+            {
+                if (future != null)
+                    future.cancel(true);
+            }
+        }
+    }
+
+    private static void waitFor(Future<Boolean> future) throws SnapshotException
+    {
+        try
+        {
+            future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SnapshotException(e);
+        }
+        catch (ExecutionException e)
+        {
+            // the part will run its query again when rendered
+            ReportPlugin.log(e.getCause());
+        }
+    }
+
+    private int countQueryParts()
+    {
+        int count = 0;
+        for (AbstractPart child : this.children)
+        {
+            if (child instanceof QueryPart)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of query parts in this section and the sections
+     *         within it
+     */
+    private static int countQueryParts(SectionPart section)
+    {
+        int count = 0;
+        for (AbstractPart child : section.children)
+        {
+            if (child instanceof QueryPart)
+                count++;
+            else if (child instanceof SectionPart)
+                count += countQueryParts((SectionPart) child);
+        }
+        return count;
+    }
+
+    /**
+     * @return the pool of an enclosing section which is running its queries
+     *         concurrently, if any
+     */
+    private QueryPool inheritedPool()
+    {
+        for (AbstractPart p = parent; p != null; p = p.parent)
+        {
+            if (p instanceof SectionPart && ((SectionPart) p).pool != null)
+                return ((SectionPart) p).pool;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of threads to use for the queries of this section, 1
+     *         if the queries are to be run in sequence
+     */
+    private int getParallelism()
+    {
+        String value = params().get(Params.Rendering.PARALLEL);
+        if (value == null)
+            return 1;
+        if (Boolean.TRUE.toString().equalsIgnoreCase(value))
+            return Runtime.getRuntime().availableProcessors();
+        if (Boolean.FALSE.toString().equalsIgnoreCase(value))
+            return 1;
+        try
+        {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        }
+        catch (NumberFormatException e)
+        {
+            ReportPlugin.log(IStatus.WARNING,
+                            MessageUtil.format(Messages.SectionPart_Error_InvalidParallelism, value));
+            return 1;
+        }
+    }
+
+    /**
+     * The memory which must be free before starting another query, in
+     * addition to that reserved by the queries already running. If not
+     * configured then an equal share of the heap for each thread is used.
+     */
+    private long getMinFreeMemory(int threads)
+    {
+        int mb = params().getInt(Params.Rendering.PARALLEL_MIN_FREE_MEMORY, -1);
+        if (mb >= 0)
+            return mb * 1024L * 1024L;
+        return Runtime.getRuntime().maxMemory() / (threads + 1);
+    }
+
+    private static long availableMemory()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+    }
+
+    /**
+     * The threads running the queries of a section and of the sections
+     * within it, so nested sections do not start more threads. Each running
+     * query reserves the minimum free memory until it finishes, so queries are
+     * only started while there is room for all of those running to grow.
+     */
+    private static class QueryPool
+    {
+        private final ExecutorService executor;
+        private final long minFree;
+        private long reserved;
+
+        QueryPool(String name, int threads, long minFree)
+        {
+            this.executor = Executors.newFixedThreadPool(threads, new PartThreadFactory(name));
+            this.minFree = minFree;
+        }
+
+        Future<Boolean> submit(Callable<Boolean> task)
+        {
+            return executor.submit(task);
+        }
+
+        /**
+         * @return true if there is enough memory to start another query, which
+         *         must then call {@link #release()}
+         */
+        synchronized boolean reserve()
+        {
+            if (availableMemory() - reserved < minFree)
+                return false;
+            reserved += minFree;
+            return true;
+        }
+
+        synchronized void release()
+        {
+            reserved -= minFree;
+        }
+
+        void shutdown()
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class PartThreadFactory implements ThreadFactory
+    {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        PartThreadFactory(String name)
+        {
+            this.name = name;
+        }
+
+        public Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r, "MAT report " + name + " " + count.incrementAndGet()); //$NON-NLS-1$ //$NON-NLS-2$
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2021 SAP AG and IBM Corporation
+ * Copyright (c) 2021, 2026 SAP AG and IBM Corporation
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.mat.report.internal;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,8 +34,9 @@ public abstract class TextEmitter
      * their own storage - buffer, file, etc...
      * 
      * @param string
+     * @throws IOException if the content cannot be written
      */
-    protected abstract void append(String string);
+    protected abstract void append(String string) throws IOException;
 
     /**
      * The method is called at the end of the copy procedure. It can be used by
@@ -42,7 +44,7 @@ public abstract class TextEmitter
      */
     protected abstract void done();
 
-    protected abstract Object[] getItems();
+    protected abstract Object[] getItems() throws IOException;
 
     protected abstract Object[] getColumns();
 
@@ -90,7 +92,7 @@ public abstract class TextEmitter
 
     protected abstract boolean isAlignmentCenter(int alignment);
 
-    public void doCopy()
+    public void doCopy() throws IOException
     {
         Object[] items = getItems();
 
@@ -198,7 +200,7 @@ public abstract class TextEmitter
         return level;
     }
 
-    private void addNextLine(StringBuilder level, Object item, int numberOfColumns, int length)
+    private void addNextLine(StringBuilder level, Object item, int numberOfColumns, int length) throws IOException
     {
         Object[] children = getChildren(item);
         if (children != null)
@@ -245,7 +247,7 @@ public abstract class TextEmitter
         }
     }
 
-    protected void copySimpleStructure(Object[] items)
+    protected void copySimpleStructure(Object[] items) throws IOException
     {
         for (Object item : items)
         {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2021, 2022 SAP AG and IBM Corporation
+ * Copyright (c) 2021, 2026 SAP AG and IBM Corporation
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ package org.eclipse.mat.report.internal;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -121,16 +122,9 @@ public class TextOutputter extends OutputterBase
         protected abstract void initialize(IResult result);
 
         @Override
-        protected void append(String string)
+        protected void append(String string) throws IOException
         {
-            try
-            {
-                writer.append(string);
-            }
-            catch (IOException e)
-            {
-                throw new RuntimeException(e);
-            }
+            writer.append(string);
         }
 
         @Override
@@ -261,9 +255,19 @@ public class TextOutputter extends OutputterBase
         }
 
         @Override
-        protected Object[] getItems()
+        protected Object[] getItems() throws IOException
         {
-            int rows = context.hasLimit() ? Math.min(table.getRowCount(), context.getLimit()) : table.getRowCount();
+            List<Object> shown = null;
+            if (table instanceof RefinedStructuredResult)
+            {
+                // only pull the rows which will be shown
+                shown = new ArrayList<Object>();
+                ((RefinedStructuredResult) table).stream(context.hasLimit() ? context.getLimit() : -1, false,
+                                shown::add, new VoidProgressListener());
+            }
+            int rows = shown != null ? shown.size()
+                            : context.hasLimit() ? Math.min(table.getRowCount(), context.getLimit())
+                                            : table.getRowCount();
             int rows1 = context.isTotalsRowVisible() && table instanceof RefinedStructuredResult ? rows + 1 : rows;
             int rows0 = 0;
             if (table instanceof RefinedStructuredResult && ((RefinedStructuredResult) table).hasActiveFilter())
@@ -274,7 +278,7 @@ public class TextOutputter extends OutputterBase
             Object[] result = new Object[rows1];
             for (int i = 0; i < rows; i++)
             {
-                result[rows0 + i] = table.getRow(i);
+                result[rows0 + i] = shown != null ? shown.get(i) : table.getRow(i);
             }
             if (table instanceof RefinedStructuredResult)
             {
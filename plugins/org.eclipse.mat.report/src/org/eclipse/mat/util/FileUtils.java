@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2025 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.mat.util;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -20,10 +21,15 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -36,6 +42,9 @@ import org.eclipse.mat.report.internal.ReportPlugin;
  */
 public final class FileUtils
 {
+    /** buffer size for exporting large results */
+    private static final int EXPORT_BUFFER_SIZE = 1024 * 1024;
+
     private static DirDeleter deleterThread;
 
     static
@@ -285,4 +294,36 @@ public final class FileUtils
             }
         }
     }
+
+    /**
+     * Open a writer for exporting a possibly large result to a file. The
+     * output is buffered in large blocks, and is compressed with GZIP if the
+     * name of the file ends with <code>.gz</code>.
+     * 
+     * @param file
+     *            the file to write
+     * @param cs
+     *            the character set for the file
+     * @return a buffered writer, to be closed by the caller
+     * @throws IOException
+     *             if the file cannot be opened
+     * @since 1.17
+     */
+    public static Writer openExportWriter(File file, Charset cs) throws IOException
+    {
+        OutputStream os = new FileOutputStream(file);
+        try
+        {
+            if (file.getName().toLowerCase(Locale.ENGLISH).endsWith(".gz")) //$NON-NLS-1$
+                os = new GZIPOutputStream(os, EXPORT_BUFFER_SIZE);
+            else
+                os = new BufferedOutputStream(os, EXPORT_BUFFER_SIZE);
+        }
+        catch (IOException e)
+        {
+            os.close();
+            throw e;
+        }
+        return new BufferedWriter(new OutputStreamWriter(os, cs), EXPORT_BUFFER_SIZE);
+    }
 }
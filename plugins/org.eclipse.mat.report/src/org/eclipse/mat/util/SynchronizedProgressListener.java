@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.util;
+
+/**
+ * A progress listener which can be shared by several threads, passing on
+ * their progress and messages to the delegate one at a time.
+ * @since 1.17
+ */
+public class SynchronizedProgressListener implements IProgressListener
+{
+    private final IProgressListener delegate;
+
+    public SynchronizedProgressListener(IProgressListener delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    public synchronized void beginTask(String name, int totalWork)
+    {
+        delegate.beginTask(name, totalWork);
+    }
+
+    public synchronized void done()
+    {
+        delegate.done();
+    }
+
+    public boolean isCanceled()
+    {
+        return delegate.isCanceled();
+    }
+
+    public synchronized void setCanceled(boolean value)
+    {
+        delegate.setCanceled(value);
+    }
+
+    public synchronized void subTask(String name)
+    {
+        delegate.subTask(name);
+    }
+
+    public synchronized void worked(int work)
+    {
+        delegate.worked(work);
+    }
+
+    public synchronized void sendUserMessage(Severity severity, String message, Throwable exception)
+    {
+        delegate.sendUserMessage(severity, message, exception);
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2025 IBM Corporation.
+ * Copyright (c) 2025, 2026 IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -33,10 +33,29 @@ public class WrappedLoggingProgressListener implements IProgressListener
     protected StringBuilder buffer = new StringBuilder();
     protected int maxBuffer = 10 * 1024 * 1024;
     private boolean wroteIOError = false;
+    private final WrappedLoggingProgressListener log;
 
     public WrappedLoggingProgressListener(IProgressListener wrappedListener)
     {
         this.wrappedListener = wrappedListener;
+        this.log = this;
+    }
+
+    /**
+     * Wraps a listener but writes the messages to the log file of another
+     * listener, so that two tasks running at the same time, for example the
+     * parsing of a dump and work continuing in the background, share one
+     * writer.
+     * 
+     * @param wrappedListener
+     *            the listener for progress, cancellation and messages
+     * @param log
+     *            the listener owning the log file
+     */
+    public WrappedLoggingProgressListener(IProgressListener wrappedListener, WrappedLoggingProgressListener log)
+    {
+        this.wrappedListener = wrappedListener;
+        this.log = log.log;
     }
 
     public void beginTask(String name, int totalWork)
@@ -78,7 +97,10 @@ public class WrappedLoggingProgressListener implements IProgressListener
      */
     public void setFile(File file)
     {
-        this.file = file;
+        synchronized (log)
+        {
+            log.file = file;
+        }
     }
 
     public void sendUserMessage(Severity severity, String message, Throwable exception)
@@ -98,6 +120,11 @@ public class WrappedLoggingProgressListener implements IProgressListener
             finalMessage += System.lineSeparator() + exceptionDetails;
         }
 
+        log.write(finalMessage);
+    }
+
+    private synchronized void write(String finalMessage)
+    {
         // If there are continous I/O errors writing to the file, then make sure
         // we don't buffer indefinitely
         if (buffer.length() > maxBuffer)
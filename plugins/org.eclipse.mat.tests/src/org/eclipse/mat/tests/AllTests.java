@@ -30,14 +30,25 @@ import org.junit.runners.Suite.SuiteClasses;
                 org.eclipse.mat.tests.collect.CommandTests.class, //
                 org.eclipse.mat.tests.collect.SortTest.class, //
                 org.eclipse.mat.tests.collect.ExtractCollectionEntriesTest.class, //
+                org.eclipse.mat.tests.collect.CollectionRatioTest.class, //
                 org.eclipse.mat.tests.collect.ConcurrentBitFieldTest.class, //
+                org.eclipse.mat.tests.collect.SegmentedBitFieldTest.class, //
                 org.eclipse.mat.tests.parser.GzipTests.class, //
                 org.eclipse.mat.tests.parser.TestIndex.class, //
                 org.eclipse.mat.tests.parser.TestIndex1to1.class, //
+                org.eclipse.mat.tests.parser.TestIndexEncoding.class, //
+                org.eclipse.mat.tests.parser.TestResourceManager.class, //
+                org.eclipse.mat.tests.parser.TestDTFJHeapScan.class, //
                 org.eclipse.mat.tests.snapshot.DominatorTreeTest.class, //
                 org.eclipse.mat.tests.snapshot.TestUnreachableObjects.class, //
                 org.eclipse.mat.tests.snapshot.GeneralSnapshotTests.class, //
                 org.eclipse.mat.tests.snapshot.TestInstanceSizes.class, //
+                org.eclipse.mat.tests.snapshot.TestTriage.class, //
+                org.eclipse.mat.tests.snapshot.TestReorderObjects.class, //
+                org.eclipse.mat.tests.snapshot.TestEarlyOpen.class, //
+                org.eclipse.mat.tests.snapshot.TestMasterIndex.class, //
+                org.eclipse.mat.tests.snapshot.TestDominatorSummary.class, //
+                org.eclipse.mat.tests.snapshot.TestHeapObjectScan.class, //
                 org.eclipse.mat.tests.snapshot.QueryLookupTest.class, //
                 org.eclipse.mat.tests.snapshot.QueriesTest.class, //
                 org.eclipse.mat.tests.snapshot.AllQueries.class, //
@@ -48,7 +59,9 @@ import org.junit.runners.Suite.SuiteClasses;
                 org.eclipse.mat.tests.collect.ExtractCollectionEntriesTest4.class, //
                 org.eclipse.mat.tests.ui.snapshot.panes.textPartitioning.TestClassNameExtractor.class,
                 org.eclipse.mat.tests.ui.snapshot.panes.textPartitioning.TestOQLPartitionScanner.class, //
-                org.eclipse.mat.tests.report.ParametersExpandTest.class })
+                org.eclipse.mat.tests.report.ParametersExpandTest.class, //
+                org.eclipse.mat.tests.report.ParallelSectionTest.class, //
+                org.eclipse.mat.tests.report.ResultCacheTest.class })
 public class AllTests
 {
 
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.collect;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.query.SnapshotQuery;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+/**
+ * Fill ratios and collision ratios of all the objects in a dump, which
+ * should not change when the collections are read differently.
+ * The expected numbers are from reading each collection in turn
+ * on one thread.
+ * collection_fill_ratio
+ * map_collision_ratio
+ */
+public class CollectionRatioTest
+{
+    /**
+     * Check the rows of a quantize table.
+     * @param query the name of the query
+     * @param table the result
+     * @param expected for each row the number of objects, the shallow heap
+     * and any other byte columns
+     */
+    private static void checkRows(String query, IResultTable table, long expected[][])
+    {
+        assertEquals(query + " rows", expected.length, table.getRowCount()); //$NON-NLS-1$
+        for (int i = 0; i < expected.length; ++i)
+        {
+            Object row = table.getRow(i);
+            assertEquals(query + " objects row " + i, expected[i][0], //$NON-NLS-1$
+                            ((Number) table.getColumnValue(row, 1)).longValue());
+            for (int j = 1; j < expected[i].length; ++j)
+            {
+                assertEquals(query + " bytes row " + i + " column " + (j + 1), expected[i][j], //$NON-NLS-1$ //$NON-NLS-2$
+                                ((Bytes) table.getColumnValue(row, j + 1)).getValue());
+            }
+        }
+    }
+
+    private static void check(String snapshotName, long fill[][], long collision[][]) throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(snapshotName, false);
+        SnapshotQuery query = SnapshotQuery.parse("collection_fill_ratio .*", snapshot); //$NON-NLS-1$
+        checkRows("collection_fill_ratio", (IResultTable) query.execute(new VoidProgressListener()), fill); //$NON-NLS-1$
+        query = SnapshotQuery.parse("map_collision_ratio .*", snapshot); //$NON-NLS-1$
+        checkRows("map_collision_ratio", (IResultTable) query.execute(new VoidProgressListener()), collision); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testSun_JDK6() throws SnapshotException
+    {
+        check(TestSnapshots.SUN_JDK6_18_32BIT, new long[][] {
+                        { 1249, 52104, 45440 },
+                        { 384, 23344, 22168 },
+                        { 67, 6896, 5152 },
+                        { 243, 8824, 4328 },
+                        { 94, 3176, 1158 },
+                        { 1190, 29616, 87 } },
+                        new long[][] {
+                        { 716, 24144 },
+                        { 19, 808 },
+                        { 47, 1688 },
+                        { 4, 152 },
+                        { 1, 40 } });
+    }
+
+    @Test
+    public void testOracle_JDK8() throws SnapshotException
+    {
+        check(TestSnapshots.ORACLE_JDK8_05_64BIT, new long[][] {
+                        { 35, 1880, 1584 },
+                        { 37, 8896, 10560 },
+                        { 27, 2456, 1500 },
+                        { 65, 5088, 3668 },
+                        { 29, 1576, 410 },
+                        { 408, 13320, 106 } },
+                        new long[][] {
+                        { 65, 2968 },
+                        { 5, 208 },
+                        { 10, 384 },
+                        { 2, 96 } });
+    }
+}
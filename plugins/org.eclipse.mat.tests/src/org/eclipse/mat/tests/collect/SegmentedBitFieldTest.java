@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.mat.collect.SegmentedBitField;
+import org.junit.Test;
+
+public class SegmentedBitFieldTest
+{
+    /**
+     * Bits either side of the segment boundaries, beyond the range of an int,
+     * only allocating the segments which are used.
+     */
+    @Test
+    public void beyondIntRange()
+    {
+        long size = 5L << 30;
+        SegmentedBitField bf = new SegmentedBitField(size);
+        assertEquals(size, bf.size());
+        long[] bits = { 0, 31, 32, SegmentedBitField.SEGMENT_SIZE - 1, SegmentedBitField.SEGMENT_SIZE,
+                        Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, size - 1 };
+        for (long i : bits)
+            bf.set(i);
+        for (long i : bits)
+            assertTrue("bit " + i, bf.get(i));
+        assertFalse(bf.get(1));
+        assertFalse(bf.get(33));
+        assertFalse(bf.get(SegmentedBitField.SEGMENT_SIZE + 1L));
+        assertFalse(bf.get(4L << 30));
+
+        bf.clear(31);
+        assertFalse(bf.get(31));
+        assertTrue(bf.get(0));
+        assertTrue(bf.get(32));
+        // clearing in an unused segment
+        bf.clear(3L << 30);
+        assertFalse(bf.get(3L << 30));
+    }
+
+    @Test
+    public void smallField()
+    {
+        SegmentedBitField bf = new SegmentedBitField(100);
+        for (int i = 0; i < 100; i += 3)
+            bf.set(i);
+        for (int i = 0; i < 100; i++)
+            assertEquals("bit " + i, i % 3 == 0, bf.get(i));
+    }
+}
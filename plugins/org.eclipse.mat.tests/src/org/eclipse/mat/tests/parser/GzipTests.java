@@ -10,6 +10,7 @@
  * Contributors:
  *    IBM Corporation - initial API and implementation
  *    Jason Koch (Netflix, Inc) - fixes
+ *    IBM Corporation - parallel compression
  *******************************************************************************/
 package org.eclipse.mat.tests.parser;
 
@@ -17,15 +18,20 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.core.IsEqual.equalTo;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Random;
@@ -163,6 +169,23 @@ public class GzipTests
         }
     }
 
+    byte[] chunkedGzip(byte b[], File original, int chunkSize, int threads) throws IOException
+    {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream())
+        {
+            try (ChunkedGZIPRandomAccessFile.ChunkedGZIPOutputStream gos = new ChunkedGZIPRandomAccessFile.ChunkedGZIPOutputStream(out, original, chunkSize, threads))
+            {
+                // Single bytes, then blocks which do not fit the chunks
+                int start = Math.min(1000, b.length);
+                for (int i = 0; i < start; ++i)
+                    gos.write(b[i]);
+                for (int i = start; i < b.length; i += 70001)
+                    gos.write(b, i, Math.min(70001, b.length - i));
+            }
+            return out.toByteArray();
+        }
+    }
+
     static byte[] readAllBytes(InputStream s) throws IOException
     {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -316,6 +339,85 @@ public class GzipTests
         }
     }
 
+    /**
+     * Compressing the chunks in parallel should give the same file.
+     */
+    @Test
+    public void testParallelChunkedGZip() throws IOException
+    {
+        byte b[] = randomText(216962);
+
+        b = extendData(b, 13);
+
+        File original = File.createTempFile("parallel", ".hprof"); //$NON-NLS-1$ //$NON-NLS-2$
+        try
+        {
+            for (int chunkSize : new int[] { ChunkedGZIPRandomAccessFile.ChunkedGZIPOutputStream.DEFAULT_CHUNK_SIZE, 100000 })
+            {
+                byte serial[] = chunkedGzip(b, original, chunkSize, 1);
+                try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(serial)))
+                {
+                    assertThat(readAllBytes(is), equalTo(b));
+                }
+                for (int threads : new int[] { 2, 4 })
+                {
+                    byte parallel[] = chunkedGzip(b, original, chunkSize, threads);
+                    assertThat(parallel, equalTo(serial));
+                }
+            }
+            // Empty files are still a gzip
+            byte empty[] = chunkedGzip(new byte[0], original, 100000, 4);
+            assertThat(empty, equalTo(chunkedGzip(new byte[0], original, 100000, 1)));
+            try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(empty)))
+            {
+                assertThat(readAllBytes(is), equalTo(new byte[0]));
+            }
+        }
+        finally
+        {
+            assertThat(original.delete(), equalTo(true));
+        }
+    }
+
+    /**
+     * Compressing a file in parallel should give a chunked gzip file.
+     */
+    @Test
+    public void testCompressFileChunked() throws IOException
+    {
+        byte b[] = randomText(216962);
+
+        b = extendData(b, 13);
+
+        File original = File.createTempFile("parallel", ".hprof"); //$NON-NLS-1$ //$NON-NLS-2$
+        File compressed = File.createTempFile("parallel", ".hprof.gz"); //$NON-NLS-1$ //$NON-NLS-2$
+        File compressed2 = File.createTempFile("parallel2", ".hprof.gz"); //$NON-NLS-1$ //$NON-NLS-2$
+        try
+        {
+            Files.write(original.toPath(), b);
+            ChunkedGZIPRandomAccessFile.compressFileChunked(original, compressed);
+            ChunkedGZIPRandomAccessFile.compressFileChunked2(original, compressed2);
+            for (File f : new File[] { compressed, compressed2 })
+            {
+                try (InputStream is = new GZIPInputStream(new FileInputStream(f)))
+                {
+                    assertThat(readAllBytes(is), equalTo(b));
+                }
+                try (RandomAccessFile raf = new RandomAccessFile(f, "r")) //$NON-NLS-1$
+                {
+                    assertThat(ChunkedGZIPRandomAccessFile.isChunkedGZIPFile(raf), equalTo(true));
+                }
+            }
+            assertThat(Files.readAllBytes(compressed.toPath()), not(equalTo(Files.readAllBytes(compressed2.toPath()))));
+        }
+        finally
+        {
+            assertThat(compressed2.delete(), equalTo(true));
+            assertThat(compressed.delete(), equalTo(true));
+            assertThat(original.delete(), equalTo(true));
+        }
+    }
+
     @Test
     public void testSeekableGZip() throws IOException
     {
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+/**
+ * The outbound references of DTFJ heap objects are found on several threads.
+ * Parsing with several threads should give the same references and report
+ * the same number of problems as parsing with one thread.
+ */
+public class TestDTFJHeapScan
+{
+    private static final String SCAN_THREADS_PROPERTY = "org.eclipse.mat.dtfj.scanThreads"; //$NON-NLS-1$
+
+    /**
+     * Collects the problems reported by the parser.
+     */
+    private static class MessageListener extends VoidProgressListener
+    {
+        List<String> messages = new ArrayList<String>();
+
+        @Override
+        public synchronized void sendUserMessage(Severity severity, String message, Throwable exception)
+        {
+            if (severity != Severity.INFO)
+                messages.add(message);
+        }
+    }
+
+    /**
+     * Parse a copy of a dump.
+     * @param threads the number of threads to find the references
+     */
+    private static ISnapshot parse(String dump, int threads, MessageListener listener)
+                    throws IOException, SnapshotException
+    {
+        File source = TestSnapshots.getResourceFile(dump);
+        File directory = TestSnapshots.createGeneratedName("junit", null); //$NON-NLS-1$
+        File file = new File(directory, source.getName());
+        Files.copy(source.toPath(), file.toPath());
+        String old = System.setProperty(SCAN_THREADS_PROPERTY, String.valueOf(threads));
+        try
+        {
+            return SnapshotFactory.openSnapshot(file, new HashMap<String, String>(), listener);
+        }
+        finally
+        {
+            if (old != null)
+                System.setProperty(SCAN_THREADS_PROPERTY, old);
+            else
+                System.clearProperty(SCAN_THREADS_PROPERTY);
+        }
+    }
+
+    private static void check(String dump) throws IOException, SnapshotException
+    {
+        MessageListener serialMessages = new MessageListener();
+        ISnapshot serial = parse(dump, 1, serialMessages);
+        try
+        {
+            MessageListener parallelMessages = new MessageListener();
+            ISnapshot parallel = parse(dump, 4, parallelMessages);
+            try
+            {
+                int objects = serial.getSnapshotInfo().getNumberOfObjects();
+                assertEquals(objects, parallel.getSnapshotInfo().getNumberOfObjects());
+                for (int i = 0; i < objects; ++i)
+                {
+                    assertEquals(serial.mapIdToAddress(i), parallel.mapIdToAddress(i));
+                    int expected[] = serial.getOutboundReferentIds(i);
+                    int actual[] = parallel.getOutboundReferentIds(i);
+                    Arrays.sort(expected);
+                    Arrays.sort(actual);
+                    assertArrayEquals("object " + i, expected, actual); //$NON-NLS-1$
+                }
+                // each kind of repeated message is limited whichever thread reports it
+                assertEquals(serialMessages.messages.size(), parallelMessages.messages.size());
+            }
+            finally
+            {
+                SnapshotFactory.dispose(parallel);
+            }
+        }
+        finally
+        {
+            SnapshotFactory.dispose(serial);
+        }
+    }
+
+    @Test
+    public void testIBM_JDK6_Heap() throws IOException, SnapshotException
+    {
+        check(TestSnapshots.IBM_JDK6_32BIT_HEAP);
+    }
+
+    @Test
+    public void testIBM_JDK8_Heap() throws IOException, SnapshotException
+    {
+        check(TestSnapshots.IBM_JDK8_64BIT_HEAP);
+    }
+}
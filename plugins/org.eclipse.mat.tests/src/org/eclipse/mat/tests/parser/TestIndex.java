@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.mat.tests.parser;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -23,7 +24,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.ArrayLong;
+import org.eclipse.mat.collect.SetInt;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2ManyIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2ManyObjectsIndex;
 import org.eclipse.mat.parser.index.IndexReader;
@@ -367,4 +373,249 @@ public class TestIndex
             assertTrue(indexFile.delete());
         }
     }
+
+    /**
+     * The sorted 1:N index with delta encoding, read from the writer
+     * and from the file, with big jumps between the first values.
+     */
+    @Test
+    public void test1ToNSortedDelta() throws IOException
+    {
+        assumeTrue((long) M * N < MAXELEMENTS2);
+        int ii[][] = new int[P + 1][];
+        for (int p = 0; p < P + 1; p++)
+        {
+            int nn = N + p;
+            ii[p] = new int[nn];
+            for (int i = 0; i < nn; ++i)
+            {
+                if (i == 0)
+                    ii[p][i] = Integer.MAX_VALUE - p;
+                else if (i == 1)
+                    ii[p][i] = Integer.MIN_VALUE + p;
+                else
+                    ii[p][i] = i * (p + 1);
+            }
+        }
+        File indexFile = File.createTempFile("1toN", ".index");
+        try
+        {
+            IndexWriter.IntArray1NSortedWriter f = new IndexWriter.IntArray1NSortedWriter(M, indexFile, true);
+            for (int j = 0; j < M; ++j)
+                f.log(j, ii[j % (P + 1)]);
+            IOne2ManyIndex i2 = f.flush();
+            for (int pass = 0; pass < 2; ++pass)
+            {
+                if (pass == 1)
+                    i2 = new IndexReader.IntIndex1NSortedReader(indexFile);
+                try
+                {
+                    assertEquals(M, i2.size());
+                    int buffer[] = new int[0];
+                    for (int j = 0; j < M; ++j)
+                    {
+                        int p = j % (P + 1);
+                        int i3[] = i2.get(j);
+                        if (!Arrays.equals(ii[p], i3))
+                            Assert.assertArrayEquals(ii[p], i3);
+                        int length = i2.get(j, buffer);
+                        assertEquals(ii[p].length, length);
+                        if (length > buffer.length)
+                        {
+                            buffer = new int[length];
+                            assertEquals(length, i2.get(j, buffer));
+                        }
+                        if (!Arrays.equals(ii[p], Arrays.copyOf(buffer, length)))
+                            Assert.assertArrayEquals(ii[p], Arrays.copyOf(buffer, length));
+                        ArrayInt seen = new ArrayInt();
+                        i2.forEach(j, seen::add);
+                        if (!Arrays.equals(ii[p], seen.toArray()))
+                            Assert.assertArrayEquals(ii[p], seen.toArray());
+                    }
+                }
+                finally
+                {
+                    i2.close();
+                }
+            }
+        }
+        finally
+        {
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    /**
+     * Read into a reused buffer and through a consumer, for the plain and
+     * the sorted 1:N index.
+     */
+    @Test
+    public void test1ToNBufferAndForEach() throws IOException
+    {
+        assumeTrue((long) M * N < MAXELEMENTS2);
+        int ii[][] = new int[P + 1][];
+        for (int p = 0; p < P + 1; p++)
+        {
+            int nn = N + p;
+            ii[p] = new int[nn];
+            for (int i = 0; i < nn; ++i)
+            {
+                ii[p][i] = i;
+            }
+        }
+        for (boolean sorted : new boolean[] { false, true })
+        {
+            File indexFile = File.createTempFile("1toN", ".index");
+            try
+            {
+                IOne2ManyIndex i2;
+                if (sorted)
+                {
+                    IndexWriter.IntArray1NSortedWriter f = new IndexWriter.IntArray1NSortedWriter(M, indexFile);
+                    for (int j = 0; j < M; ++j)
+                        f.log(j, ii[j % (P + 1)]);
+                    i2 = f.flush();
+                }
+                else
+                {
+                    IndexWriter.IntArray1NWriter f = new IndexWriter.IntArray1NWriter(M, indexFile);
+                    for (int j = 0; j < M; ++j)
+                        f.log(j, ii[j % (P + 1)]);
+                    i2 = f.flush();
+                }
+                try
+                {
+                    // Start small so the buffer has to grow
+                    int buffer[] = new int[1];
+                    for (int j = 0; j < M; ++j)
+                    {
+                        int p = j % (P + 1);
+                        int length = i2.get(j, buffer);
+                        assertEquals(ii[p].length, length);
+                        if (length > buffer.length)
+                        {
+                            buffer = new int[length];
+                            assertEquals(length, i2.get(j, buffer));
+                        }
+                        if (!Arrays.equals(ii[p], Arrays.copyOf(buffer, length)))
+                            Assert.assertArrayEquals(ii[p], Arrays.copyOf(buffer, length));
+
+                        ArrayInt seen = new ArrayInt();
+                        i2.forEach(j, seen::add);
+                        if (!Arrays.equals(ii[p], seen.toArray()))
+                            Assert.assertArrayEquals(ii[p], seen.toArray());
+                    }
+                }
+                finally
+                {
+                    i2.close();
+                }
+            }
+            finally
+            {
+                assertTrue(indexFile.delete());
+            }
+        }
+    }
+
+    /**
+     * Log references by address from several threads, as the HPROF parser does,
+     * and check they are converted to the object ids with the pseudo reference first.
+     */
+    @Test
+    public void test1ToNAddresses() throws Exception
+    {
+        assumeTrue((long) M * N < MAXELEMENTS2);
+        assumeTrue(M > 0);
+        // addresses of objects are 16 + 8 * id, odd addresses are not objects
+        long addresses[] = new long[M];
+        for (int i = 0; i < M; ++i)
+            addresses[i] = 16 + 8L * i;
+        File identifierFile = File.createTempFile("identifiers", ".index");
+        File indexFile = File.createTempFile("1toN", ".index");
+        IOne2LongIndex identifiers = new IndexWriter.LongIndexStreamer().writeTo(identifierFile, addresses);
+        try
+        {
+            for (boolean sorted : new boolean[] { false, true })
+            {
+                IndexWriter.IntArray1NWriter f = sorted ? new IndexWriter.IntArray1NSortedWriter(M, indexFile)
+                                : new IndexWriter.IntArray1NWriter(M, indexFile);
+                IntStream range = IntStream.range(0, M);
+                if (!sorted)
+                    range = range.parallel();
+                range.forEach(j -> {
+                    try
+                    {
+                        f.log(identifiers, j, addressReferences(j));
+                    }
+                    catch (IOException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+                IOne2ManyIndex i2 = f.flush();
+                try
+                {
+                    for (int j = 0; j < M; ++j)
+                    {
+                        int expected[] = expectedReferences(j);
+                        int i3[] = i2.get(j);
+                        if (!Arrays.equals(expected, i3))
+                            Assert.assertArrayEquals("object " + j, expected, i3);
+                    }
+                }
+                finally
+                {
+                    i2.close();
+                }
+            }
+        }
+        finally
+        {
+            identifiers.close();
+            assertTrue(identifierFile.delete());
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    private int referenceCount(int j)
+    {
+        return Math.min(N, 20) + j % (P + 1);
+    }
+
+    /**
+     * The pseudo reference first, then references which are out of order,
+     * duplicated or not to objects.
+     */
+    private ArrayLong addressReferences(int j)
+    {
+        ArrayLong references = new ArrayLong();
+        references.add(16 + 8L * ((j * 7L) % M));
+        for (int k = 0; k < referenceCount(j); ++k)
+        {
+            int id = (int) ((j + (long) k * k) % M);
+            references.add(16 + 8L * id);
+            if (k % 3 == 0)
+                references.add(17 + 8L * id);
+        }
+        return references;
+    }
+
+    private int[] expectedReferences(int j)
+    {
+        int pseudo = (int) ((j * 7L) % M);
+        SetInt ids = new SetInt();
+        for (int k = 0; k < referenceCount(j); ++k)
+        {
+            int id = (int) ((j + (long) k * k) % M);
+            if (id != pseudo)
+                ids.add(id);
+        }
+        int others[] = ids.toArray();
+        Arrays.sort(others);
+        int expected[] = new int[others.length + 1];
+        expected[0] = pseudo;
+        System.arraycopy(others, 0, expected, 1, others.length);
+        return expected;
+    }
 }
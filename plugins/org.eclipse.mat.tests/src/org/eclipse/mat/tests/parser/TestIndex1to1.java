@@ -641,4 +641,157 @@ public class TestIndex1to1
             assertTrue(f.delete());
         }
     }
+
+    /**
+     * Long keyed access, as used for indexes with 2^31 entries or more,
+     * on an index reopened from its file.
+     * @throws IOException if there is a problem with the index file
+     */
+    @Test
+    public void longIndexLongKeys() throws IOException
+    {
+        assumeTrue(N < MAXELEMENTS2);
+        assumeTrue(N > 0);
+        final Identifier id = new Identifier();
+        Random r = new Random(N);
+        // Create in ascending order
+        long l1 = 0;
+        for (int i = 0; 0 <= i && i < N; ++i)
+        {
+            l1 += r.nextInt(Integer.MAX_VALUE) + 1L;
+            id.add(l1);
+        }
+        id.sort();
+        File f = File.createTempFile("longIndexLongKeys", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+        (new LongIndexStreamer()).writeTo(f, id.iterator()).close();
+        IOne2LongIndex lis = new IndexReader.LongIndexReader(f);
+        try
+        {
+            assertEquals(N, lis.longSize());
+            for (long i = 0; i < N; ++i)
+            {
+                l1 = id.get((int) i);
+                assertEquals(l1, lis.get(i));
+                assertEquals(i, lis.reverseLong(l1));
+            }
+            // beyond the last entry
+            assertTrue(lis.reverseLong(l1 + 1) < 0);
+        }
+        finally
+        {
+            lis.close();
+            assertTrue(f.delete());
+        }
+    }
+
+    /**
+     * Some sorted ids, skipping whole pages now and then.
+     */
+    private int[] sortedIds(int n)
+    {
+        Random r = new Random(n);
+        int[] ids = new int[n];
+        int j = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            if (r.nextInt(4) == 0)
+                i += r.nextInt(IndexWriter.PAGE_SIZE_INT * 2);
+            if (i < n && r.nextBoolean())
+                ids[j++] = i;
+        }
+        return Arrays.copyOf(ids, j);
+    }
+
+    /**
+     * Bulk lookups of sorted ids should give the same as single lookups,
+     * including when reading the pages ahead from the file.
+     * @throws IOException if there is a problem with the index file
+     */
+    @Test
+    public void intIndexGetAll() throws IOException
+    {
+        assumeTrue(N < MAXELEMENTS2);
+        File indexFile = File.createTempFile("int1_", ".index");
+        int n2 = (int) N;
+        Random r = new Random(N);
+        IndexWriter.IntIndexCollector ic = new IndexWriter.IntIndexCollector(n2, 31);
+        for (int i = 0; i < n2; ++i)
+        {
+            ic.set(i, r.nextInt(Integer.MAX_VALUE));
+        }
+
+        try
+        {
+            IndexReader.SizeIndexReader i2 = new IndexReader.SizeIndexReader(ic.writeTo(indexFile));
+            try
+            {
+                int[] ids = sortedIds(n2);
+                i2.unload();
+                int[] result = new int[ids.length];
+                i2.getAll(ids, result);
+                for (int i = 0; i < ids.length; ++i)
+                {
+                    if (result[i] != ic.get(ids[i]))
+                        assertEquals(ic.get(ids[i]), result[i]);
+                }
+                assertTrue(Arrays.equals(result, i2.getAll(ids)));
+                long[] sizes = new long[ids.length];
+                i2.unload();
+                i2.getAllSizes(ids, sizes);
+                for (int i = 0; i < ids.length; ++i)
+                {
+                    if (sizes[i] != i2.getSize(ids[i]))
+                        assertEquals(i2.getSize(ids[i]), sizes[i]);
+                }
+                // in place
+                i2.getAll(ids, ids);
+                assertTrue(Arrays.equals(result, ids));
+            }
+            finally
+            {
+                i2.close();
+            }
+        }
+        finally
+        {
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    /**
+     * Bulk lookups of sorted keys should give the same as single lookups,
+     * including when reading the pages ahead from the file.
+     * @throws IOException if there is a problem with the index file
+     */
+    @Test
+    public void longIndexGetAll() throws IOException
+    {
+        assumeTrue(N < MAXELEMENTS2);
+        int n2 = (int) N;
+        LongIndexCollector id = new LongIndexCollector(n2, 63);
+        Random r = new Random(N);
+        for (int i = 0; i < n2; ++i)
+        {
+            id.set(i, r.nextLong());
+        }
+        File f = File.createTempFile("longIndexGetAll", ".index"); //$NON-NLS-1$ //$NON-NLS-2$
+        IOne2LongIndex lis = id.writeTo(f);
+        try
+        {
+            int[] ids = sortedIds(n2);
+            lis.unload();
+            long[] result = new long[ids.length];
+            lis.getAll(ids, result);
+            for (int i = 0; i < ids.length; ++i)
+            {
+                if (result[i] != id.get(ids[i]))
+                    assertEquals(id.get(ids[i]), result[i]);
+            }
+        }
+        finally
+        {
+            lis.close();
+            assertTrue(f.delete());
+        }
+    }
 }
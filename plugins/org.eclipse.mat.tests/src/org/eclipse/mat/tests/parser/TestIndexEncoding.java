@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.mat.parser.index.IIndexReader.IOne2ManyIndex;
+import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.junit.Test;
+
+/**
+ * Compare the packed and the delta encoding of a sorted 1:N index
+ * holding references like those of a heap dump.
+ */
+public class TestIndexEncoding
+{
+    // Number of objects, enough for the ids to need many bits when packed
+    static final int OBJECTS = 50000;
+    // Number of classes, which have the lowest ids
+    static final int CLASSES = 500;
+
+    /**
+     * Outbound references: the class first, then the sorted references,
+     * mostly to objects allocated just after, as seen in the test dumps.
+     */
+    private int[][] references()
+    {
+        Random r = new Random(1);
+        int refs[][] = new int[OBJECTS][];
+        for (int i = 0; i < OBJECTS; ++i)
+        {
+            int n = r.nextInt(7);
+            int a[] = new int[n + 1];
+            a[0] = r.nextInt(CLASSES);
+            for (int j = 1; j <= n; ++j)
+            {
+                if (r.nextInt(10) < 7)
+                    a[j] = Math.min(OBJECTS - 1, i + 1 + (int) (-Math.log(1.0 - r.nextDouble()) * 8));
+                else
+                    a[j] = r.nextInt(OBJECTS);
+            }
+            Arrays.sort(a, 1, a.length);
+            refs[i] = a;
+        }
+        return refs;
+    }
+
+    private IOne2ManyIndex write(File indexFile, int[][] refs, boolean delta) throws IOException
+    {
+        IndexWriter.IntArray1NSortedWriter f = new IndexWriter.IntArray1NSortedWriter(refs.length, indexFile, delta);
+        for (int i = 0; i < refs.length; ++i)
+            f.log(i, refs[i]);
+        f.flush().close();
+        return new IndexReader.IntIndex1NSortedReader(indexFile);
+    }
+
+    /**
+     * Both encodings should give back the references as they were written.
+     */
+    private void check(IOne2ManyIndex index, int[][] refs)
+    {
+        int buffer[] = new int[16];
+        for (int i = 0; i < refs.length; ++i)
+        {
+            assertArrayEquals(refs[i], index.get(i));
+            int n = index.get(i, buffer);
+            assertArrayEquals(refs[i], Arrays.copyOf(buffer, n));
+        }
+    }
+
+    /**
+     * The delta encoding should be smaller.
+     */
+    @Test
+    public void testSize() throws IOException
+    {
+        int refs[][] = references();
+        File packedFile = File.createTempFile("packed", ".index");
+        File deltaFile = File.createTempFile("delta", ".index");
+        try
+        {
+            IOne2ManyIndex packed = write(packedFile, refs, false);
+            IOne2ManyIndex delta = write(deltaFile, refs, true);
+            try
+            {
+                check(packed, refs);
+                check(delta, refs);
+                assertThat(deltaFile.length(), lessThan(packedFile.length()));
+            }
+            finally
+            {
+                packed.close();
+                delta.close();
+            }
+        }
+        finally
+        {
+            assertTrue(packedFile.delete());
+            assertTrue(deltaFile.delete());
+        }
+    }
+}
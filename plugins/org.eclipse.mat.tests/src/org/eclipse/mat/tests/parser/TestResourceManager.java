@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.mat.parser.index.ResourceManager;
+import org.junit.Test;
+
+/**
+ * The sharing of the index page budget and object caches between snapshots.
+ */
+public class TestResourceManager
+{
+    static class Snapshot implements ResourceManager.Owner
+    {
+        int released;
+        int objectCacheSize;
+        /** Strongly held so the garbage collector does not clear them */
+        final List<Object> pages = new ArrayList<Object>();
+        final List<SoftReference<Object>> refs = new ArrayList<SoftReference<Object>>();
+
+        /**
+         * Read a page as an index reader does.
+         */
+        SoftReference<Object> read(ResourceManager.Usage usage, long bytes)
+        {
+            Object page = new Object();
+            pages.add(page);
+            SoftReference<Object> ref = usage.hold(page, bytes);
+            refs.add(ref);
+            usage.pageRead();
+            return ref;
+        }
+
+        public void releaseCaches()
+        {
+            ++released;
+            for (SoftReference<Object> ref : refs)
+                ResourceManager.release(ref);
+            refs.clear();
+            pages.clear();
+        }
+
+        public void setObjectCacheSize(int size)
+        {
+            objectCacheSize = size;
+        }
+    }
+
+    /**
+     * Going over the budget should release the least recently used
+     * of the other snapshots, but not the one reading.
+     */
+    @Test
+    public void testRelease()
+    {
+        ResourceManager manager = new ResourceManager(1000);
+        Snapshot s1 = new Snapshot();
+        Snapshot s2 = new Snapshot();
+        Snapshot s3 = new Snapshot();
+        ResourceManager.Usage u1 = manager.register("s1", s1);
+        ResourceManager.Usage u2 = manager.register("s2", s2);
+        ResourceManager.Usage u3 = manager.register("s3", s3);
+        s1.read(u1, 400);
+        s2.read(u2, 100);
+        s3.read(u3, 400);
+        assertEquals(900, manager.getUsed());
+        assertEquals(0, s1.released + s2.released + s3.released);
+
+        // over the budget, so the oldest other snapshot goes
+        s3.read(u3, 200);
+        assertEquals(1, s1.released);
+        assertEquals(0, s2.released);
+        assertEquals(0, s3.released);
+        assertEquals(0, u1.getPageBytes());
+        assertEquals(1, u1.getReleases());
+        assertEquals(700, manager.getUsed());
+        assertEquals(2, u3.getPagesRead());
+
+        // the only snapshot over the budget keeps its pages
+        s3.read(u3, 2000);
+        assertEquals(1, s2.released);
+        assertEquals(0, s3.released);
+        assertEquals(2600, manager.getUsed());
+
+        // nothing more to release
+        s3.read(u3, 100);
+        assertEquals(1, s1.released);
+        assertEquals(1, s2.released);
+        assertEquals(2700, manager.getUsed());
+
+        manager.unregister(u1);
+        manager.unregister(u2);
+        manager.unregister(u3);
+        assertEquals(0, manager.getUsed());
+        assertTrue(manager.getUsages().isEmpty());
+    }
+
+    /**
+     * Pages are only charged while held, so until unloaded or cleared by the
+     * garbage collector, and each page is only released once.
+     */
+    @Test
+    public void testReleasedPages()
+    {
+        ResourceManager manager = new ResourceManager(1000);
+        Snapshot s1 = new Snapshot();
+        ResourceManager.Usage u1 = manager.register("s1", s1);
+        ConcurrentHashMap<Integer, SoftReference<Object>> cache = new ConcurrentHashMap<Integer, SoftReference<Object>>();
+        for (int i = 0; i < 4; ++i)
+            cache.put(i, s1.read(u1, 100));
+        assertEquals(400, manager.getUsed());
+        assertEquals(400, u1.getPageBytes());
+
+        // as if cleared by the garbage collector
+        cache.get(0).enqueue();
+        assertEquals(300, manager.getUsed());
+        assertEquals(300, u1.getPageBytes());
+
+        // unloading the cache releases the rest
+        ResourceManager.unload(cache);
+        assertTrue(cache.isEmpty());
+        assertEquals(0, manager.getUsed());
+        assertEquals(0, u1.getPageBytes());
+        s1.releaseCaches();
+        assertEquals(0, manager.getUsed());
+        assertEquals(4, u1.getPagesRead());
+
+        manager.unregister(u1);
+        assertEquals(0, manager.getUsed());
+    }
+
+    /**
+     * A snapshot on its own should read pages without taking the lock,
+     * even when over the budget.
+     */
+    @Test
+    public void testSingleSnapshotFastPath() throws InterruptedException, ExecutionException
+    {
+        final ResourceManager manager = new ResourceManager(1000);
+        final Snapshot s1 = new Snapshot();
+        final ResourceManager.Usage u1 = manager.register("s1", s1);
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (manager)
+            {
+                locked.countDown();
+                try
+                {
+                    done.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        try
+        {
+            locked.await();
+            CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 10; ++i)
+                    s1.read(u1, 500);
+            }).get(30, TimeUnit.SECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            throw new AssertionError("Reading a page waited for the lock", e);
+        }
+        finally
+        {
+            done.countDown();
+            holder.join();
+        }
+        assertEquals(5000, manager.getUsed());
+        assertEquals(10, u1.getPagesRead());
+        assertEquals(0, s1.released);
+        manager.unregister(u1);
+    }
+
+    /**
+     * The object cache entries are shared out as more snapshots are opened.
+     */
+    @Test
+    public void testObjectCaches()
+    {
+        ResourceManager manager = new ResourceManager(1000);
+        Snapshot s[] = new Snapshot[10];
+        ResourceManager.Usage u[] = new ResourceManager.Usage[s.length];
+        for (int i = 0; i < s.length; ++i)
+        {
+            s[i] = new Snapshot();
+            u[i] = manager.register("s" + i, s[i]);
+        }
+        assertEquals(s.length, manager.getUsages().size());
+        int first = s[0].objectCacheSize;
+        for (int i = 0; i < s.length; ++i)
+        {
+            assertEquals(first, s[i].objectCacheSize);
+            assertEquals(first, u[i].getObjectCacheSize());
+        }
+        for (int i = 1; i < s.length; ++i)
+            manager.unregister(u[i]);
+        assertTrue(s[0].objectCacheSize > first);
+    }
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
+import org.eclipse.mat.report.ITestResult.Status;
+import org.eclipse.mat.report.Params;
+import org.eclipse.mat.report.QuerySpec;
+import org.eclipse.mat.report.SectionSpec;
+import org.eclipse.mat.report.TestSuite;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.FileUtils;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+/**
+ * The queries of a section run with {@link Params.Rendering#PARALLEL} should
+ * give the same report, in the same order, as when they are run one after
+ * another.
+ */
+public class ParallelSectionTest
+{
+    private static final String COMMANDS[] = { "histogram", //$NON-NLS-1$
+                    "histogram -groupBy BY_CLASSLOADER", //$NON-NLS-1$
+                    "dominator_tree", //$NON-NLS-1$
+                    "system_properties", //$NON-NLS-1$
+                    "thread_overview" }; //$NON-NLS-1$
+
+    private static SectionSpec section(String parallel, String minFreeMemory)
+    {
+        SectionSpec section = new SectionSpec("Parallel section"); //$NON-NLS-1$
+        if (parallel != null)
+            section.set(Params.Rendering.PARALLEL, parallel);
+        if (minFreeMemory != null)
+            section.set(Params.Rendering.PARALLEL_MIN_FREE_MEMORY, minFreeMemory);
+        for (int i = 0; i < COMMANDS.length; ++i)
+        {
+            QuerySpec query = new QuerySpec("Query " + i); //$NON-NLS-1$
+            query.setCommand(COMMANDS[i]);
+            query.set(Params.FORMAT, "csv"); //$NON-NLS-1$
+            query.set(Params.FILENAME, "query" + i + ".csv"); //$NON-NLS-1$ //$NON-NLS-2$
+            section.add(query);
+        }
+        return section;
+    }
+
+    /**
+     * Run the section and read the report.
+     * @param files filled with the contents of each file of the report
+     * @return the status of the section
+     */
+    private static Status run(ISnapshot snapshot, SectionSpec section, Map<String, String> files)
+                    throws IOException, SnapshotException
+    {
+        File output = File.createTempFile("report", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(output.delete());
+        Status status;
+        try
+        {
+            TestSuite suite = new TestSuite.Builder(section).output(output).build(new SnapshotQueryContext(snapshot));
+            status = suite.execute(new VoidProgressListener());
+            readZip(output, files);
+        }
+        finally
+        {
+            output.delete();
+        }
+        return status;
+    }
+
+    private static void readZip(File output, Map<String, String> files) throws IOException
+    {
+        try (ZipFile zip = new ZipFile(output))
+        {
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();)
+            {
+                ZipEntry entry = e.nextElement();
+                if (entry.isDirectory())
+                    continue;
+                try (InputStream is = zip.getInputStream(entry))
+                {
+                    ByteArrayOutputStream os = new ByteArrayOutputStream();
+                    FileUtils.copy(is, os);
+                    files.put(entry.getName().replace('\\', '/'), new String(os.toByteArray(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    private static void check(String parallel, String minFreeMemory) throws IOException, SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        Map<String, String> serial = new HashMap<String, String>();
+        Status serialStatus = run(snapshot, section(null, null), serial);
+        Map<String, String> concurrent = new HashMap<String, String>();
+        Status status = run(snapshot, section(parallel, minFreeMemory), concurrent);
+        assertEquals(serialStatus, status);
+
+        for (int i = 0; i < COMMANDS.length; ++i)
+        {
+            String name = "query" + i + ".csv"; //$NON-NLS-1$ //$NON-NLS-2$
+            assertNotNull(name, serial.get(name));
+            assertTrue(name, serial.get(name).length() > 0);
+            assertEquals(COMMANDS[i], serial.get(name), concurrent.get(name));
+        }
+
+        // the parts are rendered in the order of the section
+        String index = concurrent.get("index.html"); //$NON-NLS-1$
+        assertNotNull(index);
+        int last = -1;
+        for (int i = 0; i < COMMANDS.length; ++i)
+        {
+            int pos = index.indexOf("query" + i + ".csv"); //$NON-NLS-1$ //$NON-NLS-2$
+            assertTrue(COMMANDS[i], pos > last);
+            last = pos;
+        }
+    }
+
+    @Test
+    public void testParallel() throws IOException, SnapshotException
+    {
+        check("4", null); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testAllProcessors() throws IOException, SnapshotException
+    {
+        check(Boolean.TRUE.toString(), null);
+    }
+
+    /**
+     * With no memory to spare none of the queries are started on the pool,
+     * so each is run when its turn to be rendered comes.
+     */
+    @Test
+    public void testMemoryGuard() throws IOException, SnapshotException
+    {
+        check("4", String.valueOf(Integer.MAX_VALUE)); //$NON-NLS-1$
+    }
+}
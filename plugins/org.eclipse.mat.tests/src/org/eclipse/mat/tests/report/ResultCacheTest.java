@@ -0,0 +1,489 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.report;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.ContextProvider;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IContextObjectSet;
+import org.eclipse.mat.query.IDecorator;
+import org.eclipse.mat.query.IIconProvider;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.query.ISelectionProvider;
+import org.eclipse.mat.query.IStructuredResult;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.query.registry.ArgumentSet;
+import org.eclipse.mat.query.registry.CommandLine;
+import org.eclipse.mat.query.registry.ResultCache;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+/**
+ * Results of command lines saved by the {@link ResultCache} should be read
+ * back as they were shown, and only while the dump and its index are the same.
+ */
+public class ResultCacheTest
+{
+    /**
+     * A row of the test results.
+     */
+    private static class Node
+    {
+        final String name;
+        final long size;
+        final int objectId;
+        final List<Node> children = new ArrayList<Node>();
+        boolean expanded;
+        boolean selected;
+        int childrenRead;
+
+        Node(String name, long size, int objectId, Node... children)
+        {
+            this.name = name;
+            this.size = size;
+            this.objectId = objectId;
+            this.children.addAll(Arrays.asList(children));
+        }
+    }
+
+    /**
+     * A table or tree of nodes, with icons, decorations, contexts and a
+     * selection.
+     */
+    private static abstract class NodeResult implements IStructuredResult, IIconProvider, ISelectionProvider
+    {
+        final List<Node> nodes;
+        Column[] columns;
+
+        NodeResult(Node... nodes)
+        {
+            this.nodes = Arrays.asList(nodes);
+            IDecorator decorator = new IDecorator()
+            {
+                public String prefix(Object row)
+                {
+                    return ((Node) row).selected ? "*" : null; //$NON-NLS-1$
+                }
+
+                public String suffix(Object row)
+                {
+                    return "(" + ((Node) row).children.size() + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            };
+            columns = new Column[] { new Column("Name").decorator(decorator), //$NON-NLS-1$
+                            new Column("Size", Bytes.class), //$NON-NLS-1$
+                            new Column("Children", int.class) }; //$NON-NLS-1$
+        }
+
+        public ResultMetaData getResultMetaData()
+        {
+            return null;
+        }
+
+        public Column[] getColumns()
+        {
+            return columns;
+        }
+
+        public Object getColumnValue(Object row, int columnIndex)
+        {
+            Node node = (Node) row;
+            switch (columnIndex)
+            {
+                case 0:
+                    return node.name;
+                case 1:
+                    return new Bytes(node.size);
+                default:
+                    return node.children.size();
+            }
+        }
+
+        public IContextObject getContext(final Object row)
+        {
+            final Node node = (Node) row;
+            if (node.objectId < 0)
+                return null;
+            if (node.children.isEmpty())
+            {
+                return new IContextObject()
+                {
+                    public int getObjectId()
+                    {
+                        return node.objectId;
+                    }
+                };
+            }
+            return new IContextObjectSet()
+            {
+                public int getObjectId()
+                {
+                    return node.objectId;
+                }
+
+                public int[] getObjectIds()
+                {
+                    int[] ids = new int[node.children.size()];
+                    for (int ii = 0; ii < ids.length; ii++)
+                        ids[ii] = node.children.get(ii).objectId;
+                    return ids;
+                }
+
+                public String getOQL()
+                {
+                    return "SELECT * FROM OBJECTS " + node.objectId; //$NON-NLS-1$
+                }
+            };
+        }
+
+        public URL getIcon(Object row)
+        {
+            return icon((Node) row);
+        }
+
+        public boolean isSelected(Object row)
+        {
+            return ((Node) row).selected;
+        }
+
+        public boolean isExpanded(Object row)
+        {
+            return ((Node) row).expanded;
+        }
+    }
+
+    private static class NodeTable extends NodeResult implements IResultTable
+    {
+        NodeTable(Node... nodes)
+        {
+            super(nodes);
+        }
+
+        public int getRowCount()
+        {
+            return nodes.size();
+        }
+
+        public Object getRow(int rowId)
+        {
+            return nodes.get(rowId);
+        }
+    }
+
+    private static class NodeTree extends NodeResult implements IResultTree
+    {
+        NodeTree(Node... nodes)
+        {
+            super(nodes);
+        }
+
+        public List<?> getElements()
+        {
+            return nodes;
+        }
+
+        public boolean hasChildren(Object element)
+        {
+            return !((Node) element).children.isEmpty();
+        }
+
+        public List<?> getChildren(Object parent)
+        {
+            Node node = (Node) parent;
+            node.childrenRead++;
+            return node.children;
+        }
+    }
+
+    private static URL icon(Node node)
+    {
+        try
+        {
+            return node.objectId % 2 == 0 ? new URL("file:/icons/" + node.name + ".gif") : null; //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ArgumentSet arguments(ISnapshot snapshot) throws SnapshotException
+    {
+        return CommandLine.parse(new SnapshotQueryContext(snapshot), "histogram"); //$NON-NLS-1$
+    }
+
+    /**
+     * Save a result and read it back.
+     */
+    private static IResult roundTrip(ISnapshot snapshot, IResult result) throws SnapshotException
+    {
+        ResultCache cache = ResultCache.of(arguments(snapshot));
+        assertNotNull(cache);
+        cache.write(result);
+        return ResultCache.of(arguments(snapshot)).read();
+    }
+
+    private static void assertSameRow(IStructuredResult expected, IStructuredResult actual, Object expectedRow,
+                    Object actualRow)
+    {
+        String name = (String) expected.getColumnValue(expectedRow, 0);
+        for (int ii = 0; ii < expected.getColumns().length; ii++)
+            assertEquals(name, expected.getColumnValue(expectedRow, ii), actual.getColumnValue(actualRow, ii));
+
+        IDecorator expectedDecorator = expected.getColumns()[0].getDecorator();
+        IDecorator actualDecorator = actual.getColumns()[0].getDecorator();
+        assertEquals(name, expectedDecorator.prefix(expectedRow), actualDecorator.prefix(actualRow));
+        assertEquals(name, expectedDecorator.suffix(expectedRow), actualDecorator.suffix(actualRow));
+        assertNull(name, actual.getColumns()[1].getDecorator());
+
+        IContextObject expectedContext = expected.getContext(expectedRow);
+        IContextObject actualContext = actual.getContext(actualRow);
+        if (expectedContext == null)
+        {
+            assertNull(name, actualContext);
+        }
+        else
+        {
+            assertEquals(name, expectedContext.getObjectId(), actualContext.getObjectId());
+            assertEquals(name, expectedContext instanceof IContextObjectSet, actualContext instanceof IContextObjectSet);
+            if (expectedContext instanceof IContextObjectSet)
+            {
+                assertArrayEquals(name, ((IContextObjectSet) expectedContext).getObjectIds(),
+                                ((IContextObjectSet) actualContext).getObjectIds());
+                assertEquals(name, ((IContextObjectSet) expectedContext).getOQL(),
+                                ((IContextObjectSet) actualContext).getOQL());
+            }
+        }
+
+        assertEquals(name, ((IIconProvider) expected).getIcon(expectedRow), ((IIconProvider) actual).getIcon(actualRow));
+        assertEquals(name, ((ISelectionProvider) expected).isSelected(expectedRow),
+                        ((ISelectionProvider) actual).isSelected(actualRow));
+        assertEquals(name, ((ISelectionProvider) expected).isExpanded(expectedRow),
+                        ((ISelectionProvider) actual).isExpanded(actualRow));
+    }
+
+    private static void assertSameColumns(IStructuredResult expected, IStructuredResult actual)
+    {
+        assertEquals(expected.getColumns().length, actual.getColumns().length);
+        for (int ii = 0; ii < expected.getColumns().length; ii++)
+        {
+            assertEquals(expected.getColumns()[ii].getLabel(), actual.getColumns()[ii].getLabel());
+            assertEquals(expected.getColumns()[ii].getType(), actual.getColumns()[ii].getType());
+            assertEquals(expected.getColumns()[ii].getAlign(), actual.getColumns()[ii].getAlign());
+        }
+    }
+
+    @Test
+    public void testTable() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+        Node selected = new Node("b", 200, 2); //$NON-NLS-1$
+        selected.selected = true;
+        NodeTable table = new NodeTable(new Node("a", 100, 1, new Node("a1", 10, 11), new Node("a2", 20, 12)), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        selected, new Node("c", 0, -1)); //$NON-NLS-1$
+
+        IResult result = roundTrip(snapshot, table);
+        assertTrue(result instanceof IResultTable);
+        IResultTable copy = (IResultTable) result;
+        assertSameColumns(table, copy);
+        assertEquals(table.getRowCount(), copy.getRowCount());
+        for (int ii = 0; ii < table.getRowCount(); ii++)
+            assertSameRow(table, copy, table.getRow(ii), copy.getRow(ii));
+    }
+
+    @Test
+    public void testTree() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+        Node hidden = new Node("b1x", 1, 211); //$NON-NLS-1$
+        Node collapsedChild = new Node("b1", 5, 21, hidden); //$NON-NLS-1$
+        Node collapsed = new Node("b", 50, 2, collapsedChild); //$NON-NLS-1$
+        Node shownChild = new Node("a1", 10, 11, new Node("a1a", 3, 111)); //$NON-NLS-1$ //$NON-NLS-2$
+        Node expanded = new Node("a", 100, 1, shownChild, new Node("a2", 20, 12)); //$NON-NLS-1$ //$NON-NLS-2$
+        expanded.expanded = true;
+        shownChild.selected = true;
+        NodeTree tree = new NodeTree(expanded, collapsed);
+
+        IResult result = roundTrip(snapshot, tree);
+        assertTrue(result instanceof IResultTree);
+        IResultTree copy = (IResultTree) result;
+        assertSameColumns(tree, copy);
+
+        List<?> elements = copy.getElements();
+        assertEquals(2, elements.size());
+        assertSameRow(tree, copy, expanded, elements.get(0));
+        assertSameRow(tree, copy, collapsed, elements.get(1));
+
+        // the children of an expanded row
+        List<?> children = copy.getChildren(elements.get(0));
+        assertEquals(2, children.size());
+        assertSameRow(tree, copy, shownChild, children.get(0));
+        assertTrue(copy.hasChildren(children.get(0)));
+        assertEquals(1, copy.getChildren(children.get(0)).size());
+        assertSameRow(tree, copy, shownChild.children.get(0), copy.getChildren(children.get(0)).get(0));
+        assertFalse(copy.hasChildren(children.get(1)));
+
+        // a collapsed row still has children, but theirs are not read
+        assertTrue(copy.hasChildren(elements.get(1)));
+        children = copy.getChildren(elements.get(1));
+        assertEquals(1, children.size());
+        assertSameRow(tree, copy, collapsedChild, children.get(0));
+        assertFalse(copy.hasChildren(children.get(0)));
+        assertEquals(0, collapsedChild.childrenRead);
+        assertEquals(0, hidden.childrenRead);
+    }
+
+    /**
+     * A histogram is read back with its contexts and the order of its
+     * columns, without saving all the objects of the classes.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testHistogram() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+        Histogram histogram = snapshot.getHistogram(new VoidProgressListener());
+
+        IResult result = roundTrip(snapshot, histogram);
+        assertTrue(result instanceof IResultTable);
+        final IResultTable copy = (IResultTable) result;
+        assertSameColumns(histogram, copy);
+        assertEquals(histogram.getRowCount(), copy.getRowCount());
+        int largest = 0;
+        for (int ii = 0; ii < histogram.getRowCount(); ii++)
+        {
+            Object expectedRow = histogram.getRow(ii);
+            Object actualRow = copy.getRow(ii);
+            String name = (String) histogram.getColumnValue(expectedRow, 0);
+            for (int jj = 0; jj < histogram.getColumns().length; jj++)
+                assertEquals(name, histogram.getColumnValue(expectedRow, jj), copy.getColumnValue(actualRow, jj));
+
+            IContextObjectSet expected = (IContextObjectSet) histogram.getContext(expectedRow);
+            IContextObjectSet actual = (IContextObjectSet) copy.getContext(actualRow);
+            assertEquals(name, expected.getObjectId(), actual.getObjectId());
+            assertEquals(name, expected.getOQL(), actual.getOQL());
+            int[] expectedIds = expected.getObjectIds().clone();
+            int[] actualIds = actual.getObjectIds().clone();
+            Arrays.sort(expectedIds);
+            Arrays.sort(actualIds);
+            assertArrayEquals(name, expectedIds, actualIds);
+            largest = Math.max(largest, expectedIds.length);
+        }
+
+        // sorting the copy by a column gives the order of the histogram
+        for (int ii = 0; ii < histogram.getColumns().length; ii++)
+        {
+            Comparator<Object> expected = (Comparator<Object>) histogram.getColumns()[ii].getComparator();
+            final Comparator<Object> actual = (Comparator<Object>) copy.getColumns()[ii].getComparator();
+            assertNotNull(actual);
+            List<Integer> order = new ArrayList<Integer>();
+            for (int rr = 0; rr < copy.getRowCount(); rr++)
+                order.add(rr);
+            Collections.sort(order, (r1, r2) -> actual.compare(copy.getRow(r1), copy.getRow(r2)));
+            for (int rr = 1; rr < order.size(); rr++)
+                assertTrue(copy.getColumns()[ii].getLabel(), expected.compare(histogram.getRow(order.get(rr - 1)),
+                                histogram.getRow(order.get(rr))) <= 0);
+        }
+
+        // the objects of the largest classes are not saved but found by the OQL
+        assertTrue(largest > 1000);
+    }
+
+    /**
+     * A saved result is not used once the dump or the index changes.
+     */
+    @Test
+    public void testKey() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+        NodeTable table = new NodeTable(new Node("a", 100, 1)); //$NON-NLS-1$
+        assertNotNull(roundTrip(snapshot, table));
+
+        File dump = new File(snapshot.getSnapshotInfo().getPath());
+        assertTrue(dump.setLastModified(dump.lastModified() + 10000));
+        assertNull(ResultCache.of(arguments(snapshot)).read());
+
+        assertNotNull(roundTrip(snapshot, table));
+        File index = new File(snapshot.getSnapshotInfo().getPrefix() + "index"); //$NON-NLS-1$
+        assertTrue(index.setLastModified(index.lastModified() + 10000));
+        assertNull(ResultCache.of(arguments(snapshot)).read());
+    }
+
+    /**
+     * Results the copy cannot show as they were are not saved.
+     */
+    @Test
+    public void testNotCacheable() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+
+        // a column type which cannot be saved
+        NodeTable table = new NodeTable(new Node("a", 100, 1)); //$NON-NLS-1$
+        table.columns = new Column[] { new Column("Date", Date.class) }; //$NON-NLS-1$
+        assertNull(roundTrip(snapshot, table));
+
+        // a value which cannot be saved
+        table = new NodeTable(new Node("a", 100, 1)) //$NON-NLS-1$
+        {
+            @Override
+            public Object getColumnValue(Object row, int columnIndex)
+            {
+                return columnIndex == 0 ? new Date() : super.getColumnValue(row, columnIndex);
+            }
+        };
+        assertNull(roundTrip(snapshot, table));
+
+        // a context provider needs the query
+        table = new NodeTable(new Node("a", 100, 1)) //$NON-NLS-1$
+        {
+            @Override
+            public ResultMetaData getResultMetaData()
+            {
+                return new ResultMetaData.Builder().addContext(new ContextProvider("Children") //$NON-NLS-1$
+                {
+                    @Override
+                    public IContextObject getContext(Object row)
+                    {
+                        return null;
+                    }
+                }).build();
+            }
+        };
+        assertNull(roundTrip(snapshot, table));
+    }
+}
@@ -45,9 +45,11 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -1707,6 +1709,80 @@ public class GeneralSnapshotTests
         exportHPROF(false, false, false, 1000000);
     }
 
+    /**
+     * Test exporting as HPROF with one thread and with several threads
+     * generating the object records gives the same file, apart from the times.
+     * Small segments so that the objects are split between segments.
+     * @throws SnapshotException
+     * @throws IOException
+     */
+    @Test
+    public void exportHPROFThreads() throws SnapshotException, IOException
+    {
+        // Currently can't export PHD
+        assumeThat(snapshot.getSnapshotInfo().getProperty("$heapFormat"), not(equalTo((Serializable)"DTFJ-PHD")));
+        File fn = new File(snapshot.getSnapshotInfo().getPrefix());
+        File tmpdir = TestSnapshots.createGeneratedName(fn.getName(), null);
+        File one = new File(tmpdir, fn.getName() + "threads1.hprof");
+        File several = new File(tmpdir, fn.getName() + "threads4.hprof");
+        try
+        {
+            for (File f : new File[] { one, several })
+            {
+                SnapshotQuery query = SnapshotQuery.parse("export_hprof -output " + f.getPath() + " -segsize 100000"
+                                + " -threads " + (f == one ? 1 : 4), snapshot);
+                IResult t = query.execute(new CheckedWorkProgressListener(collector));
+                assertNotNull(t);
+            }
+            assertSameRecords(one, several);
+        }
+        finally
+        {
+            if (one.exists() && !one.delete())
+                System.err.println("Unable to delete " + one);
+            if (several.exists() && !several.delete())
+                System.err.println("Unable to delete " + several);
+        }
+    }
+
+    /**
+     * Compare two HPROF files record by record, ignoring the time of the dump
+     * and of each record.
+     */
+    private void assertSameRecords(File expected, File actual) throws IOException
+    {
+        byte[] b1 = Files.readAllBytes(expected.toPath());
+        byte[] b2 = Files.readAllBytes(actual.toPath());
+        assertEquals("File length", b1.length, b2.length);
+        ByteBuffer buf = ByteBuffer.wrap(b1);
+        // The version, a null terminated string, then the identifier size and the time
+        int pos = 0;
+        while (b1[pos] != 0)
+            ++pos;
+        assertSameBytes(b1, b2, 0, pos + 5);
+        pos += 5 + 8;
+        int records = 0;
+        while (pos < b1.length)
+        {
+            // The tag, the time in microseconds, then the length and the body
+            long length = buf.getInt(pos + 5) & 0xffffffffL;
+            assertSameBytes(b1, b2, pos, pos + 1);
+            assertSameBytes(b1, b2, pos + 5, (int) (pos + 9 + length));
+            pos += 9 + length;
+            ++records;
+        }
+        assertThat("Records", records, greaterThan(0));
+    }
+
+    private void assertSameBytes(byte[] b1, byte[] b2, int start, int end)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            if (b1[i] != b2[i])
+                assertEquals("Byte at 0x" + Integer.toHexString(i), b1[i], b2[i]);
+        }
+    }
+
     /**
      * Test value of {@link java.lang.String}
      */
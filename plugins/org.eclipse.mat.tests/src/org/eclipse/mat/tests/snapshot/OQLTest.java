@@ -11,6 +11,8 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - test AS clause
  *    IBM Corporation - test instanceof with object id/address
+ *    IBM Corporation - test group by and aggregate functions, order by and limit
+ *    IBM Corporation - test uncorrelated subqueries and index plans
  *******************************************************************************/
 package org.eclipse.mat.tests.snapshot;
 
@@ -72,11 +74,15 @@ public class OQLTest
         SnapshotFactory.createQuery("SELECT * FROM something.as.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.distinct.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.from.Object");
+        SnapshotFactory.createQuery("SELECT * FROM something.group.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.in.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.is.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.like.Object");
+        SnapshotFactory.createQuery("SELECT * FROM something.limit.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.not.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.objects.Object");
+        SnapshotFactory.createQuery("SELECT * FROM something.offset.Object");
+        SnapshotFactory.createQuery("SELECT * FROM something.order.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.union.Object");
         SnapshotFactory.createQuery("SELECT * FROM something.where.Object");
     }
@@ -748,6 +754,128 @@ public class OQLTest
         assertThat(objectIds2.length, equalTo(objectIds1.length));
     }
 
+    /**
+     * An uncorrelated subquery in IN and NOT IN, evaluated once.
+     * @throws SnapshotException
+     */
+    @Test
+    public void testUncorrelatedSubQueryIn() throws SnapshotException
+    {
+        int[] all = (int[]) execute("SELECT OBJECTS o FROM OBJECTS (dominators(-1)) o");
+        String classes = "(SELECT * FROM OBJECTS \"java\\.(lang|util)\\..*\")";
+        int[] in = (int[]) execute("SELECT OBJECTS o FROM OBJECTS (dominators(-1)) o WHERE classof(o) IN " + classes);
+        int[] notIn = (int[]) execute("SELECT OBJECTS o FROM OBJECTS (dominators(-1)) o WHERE classof(o) NOT IN " + classes);
+        assertThat(in.length, greaterThan(0));
+        assertThat(notIn.length, greaterThan(0));
+        assertThat(in.length + notIn.length, equalTo(all.length));
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false);
+        for (int objectId : in)
+        {
+            assertThat(snapshot.getClassOf(objectId).getName(), anyOf(containsString("java.lang."), containsString("java.util.")));
+        }
+    }
+
+    /**
+     * An uncorrelated FROM sub-select inside a correlated subquery,
+     * so the sub-select result is reused for each outer row.
+     * @throws SnapshotException
+     */
+    @Test
+    public void testUncorrelatedFromSubSelect() throws SnapshotException
+    {
+        int[] threads = (int[]) execute("SELECT * FROM java.lang.Thread t");
+        assertThat(threads.length, greaterThan(1));
+        IResultTable table = (IResultTable) execute("SELECT s.@objectId AS id, "
+                        + "(SELECT OBJECTS x.@objectId FROM OBJECTS (SELECT * FROM java.lang.Thread t) x WHERE x.@objectId < s.@objectId) AS threads "
+                        + "FROM java.lang.String s");
+        assertThat(table.getRowCount(), greaterThan(1));
+        for (int i = 0; i < table.getRowCount(); ++i)
+        {
+            Object row = table.getRow(i);
+            int id = (Integer) table.getColumnValue(row, 0);
+            int expected = 0;
+            for (int t : threads)
+            {
+                if (t < id)
+                    ++expected;
+            }
+            Object found = table.getColumnValue(row, 1);
+            int count = found instanceof int[] ? ((int[]) found).length : found instanceof Collection ? ((Collection<?>) found).size() : 0;
+            assertThat(String.valueOf(id), count, equalTo(expected));
+        }
+    }
+
+    /**
+     * WHERE clauses answered from the indexes should give the same result
+     * as when every object is tested, which an OR with a false term forces.
+     * @throws SnapshotException
+     */
+    @Test
+    public void testIndexPlan() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false);
+        IClass stringClass = snapshot.getClassesByName("java.lang.String", false).iterator().next();
+        int stringId = stringClass.getObjectIds()[stringClass.getObjectIds().length / 2];
+        long stringAddress = snapshot.mapIdToAddress(stringId);
+        String[] whereClauses = {
+            "s.@objectId = " + stringId,
+            stringId + " = @objectId",
+            "s.@objectAddress = " + stringAddress + "L",
+            "s.@objectId IN (SELECT * FROM java.lang.String t WHERE t.count = 7)",
+            "s.@objectAddress IN (SELECT t.@objectAddress FROM java.lang.String t WHERE t.count = 7)",
+            "classof(s).@objectId = " + stringClass.getObjectId(),
+            "classof(s).@objectAddress = " + stringClass.getObjectAddress() + "L",
+            "dominatorof(s) = null",
+            "s implements org.eclipse.mat.snapshot.model.IArray",
+            "s implements org.eclipse.mat.snapshot.model.IPrimitiveArray AND dominatorof(s) = null",
+            "s implements org.eclipse.mat.snapshot.model.IInstance AND classof(s).@objectId = " + stringClass.getObjectId(),
+            "classof(s).@objectId = " + stringClass.getObjectId() + " AND s.@objectId = " + stringId,
+        };
+        for (String where : whereClauses)
+        {
+            for (String from : new String[] { "INSTANCEOF java.lang.Object s", "OBJECTS (SELECT * FROM INSTANCEOF java.lang.Object t) s" })
+            {
+                int[] planned = (int[]) execute("SELECT * FROM " + from + " WHERE " + where);
+                int[] tested = (int[]) execute("SELECT * FROM " + from + " WHERE (" + where + " OR 1 = 0)");
+                assertArrayEquals(where, tested, planned);
+            }
+        }
+        assertThat((int[]) execute("SELECT * FROM INSTANCEOF java.lang.Object s WHERE s.@objectId = " + stringId), equalTo(new int[] { stringId }));
+    }
+
+    /**
+     * Terms of the WHERE clause which cannot both be true.
+     * @throws SnapshotException
+     */
+    @Test
+    public void testIndexPlanEmpty() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false);
+        IClass stringClass = snapshot.getClassesByName("java.lang.String", false).iterator().next();
+        int stringId = stringClass.getObjectIds()[0];
+        assertThat(execute("SELECT * FROM INSTANCEOF java.lang.Object s WHERE s.@objectId = " + stringId + " AND s.@objectId = " + (stringId + 1)), nullValue());
+        assertThat(execute("SELECT * FROM INSTANCEOF java.lang.Object s WHERE s.@objectId = -1"), nullValue());
+        assertThat(execute("SELECT * FROM INSTANCEOF java.lang.Object s WHERE s.@objectAddress = 1L"), nullValue());
+        assertThat(execute("SELECT * FROM INSTANCEOF java.lang.Object s WHERE s implements org.eclipse.mat.snapshot.model.IObjectArray AND classof(s).@objectId = " + stringClass.getObjectId()), nullValue());
+    }
+
+    /**
+     * Running the same query against another snapshot must not reuse the subquery results.
+     * @throws SnapshotException
+     */
+    @Test
+    public void testUncorrelatedSubQuerySnapshots() throws SnapshotException
+    {
+        String oql = "SELECT * FROM java.lang.String s WHERE s.value IN (SELECT * FROM char[] c WHERE c.@length < 4)";
+        IOQLQuery query = SnapshotFactory.createQuery(oql);
+        ISnapshot snapshot1 = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false);
+        ISnapshot snapshot2 = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        int[] objectIds1 = (int[]) query.execute(snapshot1, new VoidProgressListener());
+        int[] objectIds2 = (int[]) query.execute(snapshot2, new VoidProgressListener());
+        assertArrayEquals((int[]) execute(oql, TestSnapshots.SUN_JDK6_18_32BIT), objectIds2);
+        assertArrayEquals((int[]) execute(oql), objectIds1);
+    }
+
     @Test
     public void testImplements() throws SnapshotException
     {
@@ -3249,6 +3377,206 @@ public class OQLTest
         //System.out.println(sb.toString());
         checkGetOQL(result);
     }
+
+    /**
+     * Aggregate functions without GROUP BY give a single row.
+     */
+    @Test
+    public void testAggregateCount() throws SnapshotException
+    {
+        IResultTable table = (IResultTable) execute("select count(), count(s.value) from java.lang.String s");
+        assertThat(table.getRowCount(), equalTo(1));
+        assertThat(table.getColumnValue(table.getRow(0), 0), equalTo((Object) 492L));
+        assertThat(table.getColumnValue(table.getRow(0), 1), equalTo((Object) 492L));
+        checkGetOQL(table);
+    }
+
+    /**
+     * The sizes read by object id should match the snapshot.
+     */
+    @Test
+    public void testAggregateHeapSize() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false);
+        int objs[] = (int[]) execute("select * from java.lang.String");
+        long used = 0, retained = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int o : objs)
+        {
+            long r = snapshot.getRetainedHeapSize(o);
+            used += snapshot.getHeapSize(o);
+            retained += r;
+            min = Math.min(min, r);
+            max = Math.max(max, r);
+        }
+        IResultTable table = (IResultTable) execute("select sum(s.@usedHeapSize), sum(@retainedHeapSize), "
+                        + "min(s.@retainedHeapSize), max(s.@retainedHeapSize), avg(s.@usedHeapSize) from java.lang.String s");
+        assertThat(table.getRowCount(), equalTo(1));
+        Object row = table.getRow(0);
+        assertThat(table.getColumnValue(row, 0), equalTo((Object) used));
+        assertThat(table.getColumnValue(row, 1), equalTo((Object) retained));
+        assertThat(table.getColumnValue(row, 2), equalTo((Object) min));
+        assertThat(table.getColumnValue(row, 3), equalTo((Object) max));
+        assertThat(table.getColumnValue(row, 4), equalTo((Object) ((double) used / objs.length)));
+    }
+
+    /**
+     * One row per group, and the counts add up to all the objects.
+     */
+    @Test
+    public void testGroupByClass() throws SnapshotException
+    {
+        int objs[] = (int[]) execute("select * from instanceof java.lang.Number");
+        IResultTable table = (IResultTable) execute("select classof(n), count() as c from instanceof java.lang.Number n group by classof(n)");
+        Set<Object> classes = new HashSet<Object>();
+        long total = 0;
+        for (int i = 0; i < table.getRowCount(); ++i)
+        {
+            Object row = table.getRow(i);
+            assertThat(table.getColumnValue(row, 0), instanceOf(IClass.class));
+            assertTrue(classes.add(table.getColumnValue(row, 0)));
+            total += (Long) table.getColumnValue(row, 1);
+        }
+        assertThat(table.getRowCount(), greaterThan(1));
+        assertEquals(objs.length, total);
+        checkGetOQL(table);
+    }
+
+    /**
+     * Group by a field with a where clause.
+     */
+    @Test
+    public void testGroupByField() throws SnapshotException
+    {
+        IResultTable table = (IResultTable) execute("select s.count, count() from java.lang.String s where s.count < 3 group by s.count");
+        int objs[] = (int[]) execute("select * from java.lang.String s where s.count < 3");
+        long total = 0;
+        for (int i = 0; i < table.getRowCount(); ++i)
+        {
+            Object row = table.getRow(i);
+            assertThat((Integer) table.getColumnValue(row, 0), lessThan(3));
+            total += (Long) table.getColumnValue(row, 1);
+        }
+        assertEquals(objs.length, total);
+    }
+
+    @Test
+    public void testGroupByCommand() throws SnapshotException
+    {
+        String oql = "select s.count, sum(s.@usedHeapSize) as size from java.lang.String s where s.count > 1 group by s.count, s.offset";
+        IOQLQuery q1 = SnapshotFactory.createQuery(oql);
+        String oql2 = q1.toString();
+        assertThat(oql2, containsString("GROUP BY s.count, s.offset"));
+        IOQLQuery q2 = SnapshotFactory.createQuery(oql2);
+        String oql3 = q2.toString();
+        assertEquals(oql2, oql3);
+    }
+
+    /**
+     * A select item which is not grouped has no single value.
+     */
+    @Test(expected = SnapshotException.class)
+    public void testGroupByNotGrouped() throws SnapshotException
+    {
+        execute("select s.value, count() from java.lang.String s group by s.count");
+    }
+
+    @Test(expected = SnapshotException.class)
+    public void testGroupByAggregateInWhere() throws SnapshotException
+    {
+        execute("select s from java.lang.String s where count() > 1");
+    }
+
+    /**
+     * The biggest objects, without building rows for the others.
+     */
+    @Test
+    public void testOrderByLimit() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false);
+        long max = 0;
+        for (int o : (int[]) execute("select * from char[]"))
+            max = Math.max(max, snapshot.getHeapSize(o));
+        IResultTable table = (IResultTable) execute("select s, s.@usedHeapSize from char[] s order by s.@usedHeapSize desc limit 5");
+        assertThat(table.getRowCount(), equalTo(5));
+        assertThat(table.getColumnValue(table.getRow(0), 1), equalTo((Object) max));
+        for (int i = 1; i < table.getRowCount(); ++i)
+        {
+            long prev = (Long) table.getColumnValue(table.getRow(i - 1), 1);
+            assertThat((Long) table.getColumnValue(table.getRow(i), 1), lessThanOrEqualTo(prev));
+        }
+        checkGetOQL(table);
+    }
+
+    @Test
+    public void testOrderByOffset() throws SnapshotException
+    {
+        IResultTable all = (IResultTable) execute("select s.count as len from java.lang.String s order by len desc, s.@objectId limit 5");
+        IResultTable page = (IResultTable) execute("select s.count as len from java.lang.String s order by len desc, s.@objectId limit 3 offset 2");
+        assertThat(page.getRowCount(), equalTo(3));
+        for (int i = 0; i < page.getRowCount(); ++i)
+            assertThat(page.getColumnValue(page.getRow(i), 0), equalTo(all.getColumnValue(all.getRow(i + 2), 0)));
+    }
+
+    @Test
+    public void testOrderBySelectStar() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK5_64BIT, false);
+        int objs[] = (int[]) execute("select * from java.lang.String s order by s.@retainedHeapSize");
+        assertThat(objs.length, equalTo(492));
+        for (int i = 1; i < objs.length; ++i)
+            assertThat(snapshot.getRetainedHeapSize(objs[i]), greaterThanOrEqualTo(snapshot.getRetainedHeapSize(objs[i - 1])));
+        objs = (int[]) execute("select * from java.lang.String limit 3");
+        assertThat(objs.length, equalTo(3));
+    }
+
+    @Test
+    public void testOrderByDistinct() throws SnapshotException
+    {
+        IResultTable table = (IResultTable) execute("select distinct s.count from java.lang.String s order by s.count limit 4");
+        assertThat(table.getRowCount(), equalTo(4));
+        Set<Object> values = new HashSet<Object>();
+        for (int i = 0; i < table.getRowCount(); ++i)
+            assertTrue(values.add(table.getColumnValue(table.getRow(i), 0)));
+    }
+
+    @Test
+    public void testOrderByGroup() throws SnapshotException
+    {
+        IResultTable table = (IResultTable) execute("select classof(s), count() as n from instanceof java.lang.Object s group by classof(s) order by n desc limit 3");
+        assertThat(table.getRowCount(), equalTo(3));
+        for (int i = 1; i < table.getRowCount(); ++i)
+        {
+            long prev = (Long) table.getColumnValue(table.getRow(i - 1), 1);
+            assertThat((Long) table.getColumnValue(table.getRow(i), 1), lessThanOrEqualTo(prev));
+        }
+    }
+
+    @Test
+    public void testLimitZero() throws SnapshotException
+    {
+        assertNull(execute("select s from java.lang.String s limit 0"));
+    }
+
+    @Test
+    public void testOrderByCommand() throws SnapshotException
+    {
+        String oql = "select s from java.lang.String s where s.count > 1 order by s.count desc, s.offset limit 10 offset 5";
+        IOQLQuery q1 = SnapshotFactory.createQuery(oql);
+        String oql2 = q1.toString();
+        assertThat(oql2, containsString("ORDER BY s.count DESC, s.offset LIMIT 10 OFFSET 5"));
+        IOQLQuery q2 = SnapshotFactory.createQuery(oql2);
+        String oql3 = q2.toString();
+        assertEquals(oql2, oql3);
+    }
+
+    /**
+     * With GROUP BY the rows can only be sorted by what is selected.
+     */
+    @Test(expected = SnapshotException.class)
+    public void testOrderByNotSelected() throws SnapshotException
+    {
+        execute("select s.count, count() from java.lang.String s group by s.count order by s.offset");
+    }
     // //////////////////////////////////////////////////////////////
     // internal helpers
     // //////////////////////////////////////////////////////////////
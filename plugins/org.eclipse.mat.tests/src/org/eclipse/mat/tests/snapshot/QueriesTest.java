@@ -28,6 +28,7 @@ import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -37,9 +38,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 import org.eclipse.core.runtime.Platform;
@@ -47,6 +50,7 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.query.Bytes;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IContextObjectSet;
 import org.eclipse.mat.query.IResult;
 import org.eclipse.mat.query.IResultTable;
 import org.eclipse.mat.query.IResultTree;
@@ -54,6 +58,7 @@ import org.eclipse.mat.query.IStructuredResult;
 import org.eclipse.mat.query.refined.RefinedResultBuilder;
 import org.eclipse.mat.query.refined.RefinedTable;
 import org.eclipse.mat.query.refined.RefinedTree;
+import org.eclipse.mat.query.refined.TotalsRow;
 import org.eclipse.mat.query.results.CompositeResult;
 import org.eclipse.mat.query.results.DisplayFileResult;
 import org.eclipse.mat.query.results.TextResult;
@@ -71,6 +76,7 @@ import org.eclipse.mat.snapshot.query.SnapshotQuery;
 import org.eclipse.mat.tests.TestSnapshots;
 import org.eclipse.mat.util.VoidProgressListener;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -180,6 +186,35 @@ public class QueriesTest
             }
         }
     }
+
+    /**
+     * Test for grouping the top level of the dominator tree by class
+     * @throws SnapshotException
+     */
+    @Test
+    public void testDominatorByClass() throws SnapshotException
+    {
+        SnapshotQuery query = SnapshotQuery.parse("dominator_tree -groupby BY_CLASS", snapshot);
+        IResultTree t = (IResultTree) query.execute(new CheckedWorkProgressListener(collector));
+        int objects = 0;
+        // classes
+        for (Object o : t.getElements())
+        {
+            IContextObjectSet co = (IContextObjectSet) t.getContext(o);
+            long retained = 0;
+            int dominated = 0;
+            for (int objectId : co.getObjectIds())
+            {
+                assertEquals(co.getObjectId(), snapshot.getClassOf(objectId).getObjectId());
+                retained += snapshot.getRetainedHeapSize(objectId);
+                dominated += snapshot.getImmediateDominatedIds(objectId).length;
+            }
+            assertEquals(retained, ((Bytes) t.getColumnValue(o, 3)).getValue());
+            assertEquals(dominated > 0, t.hasChildren(o));
+            objects += co.getObjectIds().length;
+        }
+        assertEquals(snapshot.getImmediateDominatedIds(-1).length, objects);
+    }
     
     /**
      * Test for formatting of incompatible items
@@ -1643,4 +1678,104 @@ public class QueriesTest
         assertThat("col 2 (count) must be Integer",
                         table.getColumnValue(row, 2), instanceOf(Integer.class));
     }
+
+    /**
+     * Streaming a sorted, limited table should keep only the top rows
+     * but give the same rows as refining the whole table.
+     */
+    @Test
+    public void testStreamSortedWithLimit() throws SnapshotException, IOException
+    {
+        RefinedResultBuilder builder = SnapshotQuery.parse("histogram", snapshot).refine(new VoidProgressListener());
+        builder.setSortOrder(2, Column.SortDirection.DESC);
+        RefinedTable full = (RefinedTable) builder.build();
+
+        builder = SnapshotQuery.parse("histogram", snapshot).refine(new VoidProgressListener());
+        builder.setSortOrder(2, Column.SortDirection.DESC);
+        RefinedTable streamed = (RefinedTable) builder.build();
+
+        final List<Object> rows = new ArrayList<Object>();
+        TotalsRow totals = streamed.stream(25, true, rows::add, new VoidProgressListener());
+
+        assertEquals(25, rows.size());
+        for (int i = 0; i < rows.size(); ++i)
+            assertEquals(full.getColumnValue(full.getRow(i), 0), streamed.getColumnValue(rows.get(i), 0));
+        assertEquals(full.getRowCount(), totals.getNumberOfItems());
+    }
+
+    /**
+     * Streaming a filtered table without sorting should stop at the limit and count
+     * the filtered rows.
+     */
+    @Test
+    public void testStreamFiltered() throws SnapshotException, IOException
+    {
+        RefinedResultBuilder builder = SnapshotQuery.parse("histogram", snapshot).refine(new VoidProgressListener());
+        builder.setFilter(0, "java\\.lang\\..*");
+        RefinedTable full = (RefinedTable) builder.build();
+        int expected = full.getRowCount();
+        assertThat(expected, greaterThan(10));
+
+        builder = SnapshotQuery.parse("histogram", snapshot).refine(new VoidProgressListener());
+        builder.setFilter(0, "java\\.lang\\..*");
+        RefinedTable streamed = (RefinedTable) builder.build();
+        final List<Object> rows = new ArrayList<Object>();
+        assertNull(streamed.stream(10, false, rows::add, new VoidProgressListener()));
+        assertEquals(10, rows.size());
+
+        rows.clear();
+        TotalsRow totals = streamed.stream(-1, true, rows::add, new VoidProgressListener());
+        assertEquals(expected, rows.size());
+        assertEquals(expected, totals.getNumberOfItems());
+        assertEquals(full.getFilteredCount(full.getRows()), totals.getFilteredItems());
+    }
+
+    /**
+     * A column marked as not to be totalled should have no total, even when
+     * marked after the table was refined.
+     */
+    @Test
+    public void testStreamNoTotalsColumn() throws SnapshotException, IOException
+    {
+        RefinedTable table = (RefinedTable) SnapshotQuery.parse("histogram", snapshot).refine(new VoidProgressListener()).build();
+        TotalsRow totals = table.stream(-1, true, row -> {}, new VoidProgressListener());
+        assertThat(totals.getLabel(1), not(equalTo("")));
+        assertThat(totals.getLabel(2), not(equalTo("")));
+
+        table.getColumns()[1].noTotals();
+        totals = table.stream(-1, true, row -> {}, new VoidProgressListener());
+        assertEquals("", totals.getLabel(1));
+        assertThat(totals.getLabel(2), not(equalTo("")));
+
+        table.calculateTotals(table.getRows(), totals, new VoidProgressListener());
+        assertEquals("", totals.getLabel(1));
+        assertThat(totals.getLabel(2), not(equalTo("")));
+    }
+
+    /**
+     * A large table sorted by two columns is sorted by extracted column keys
+     * rather than with the comparator, and should give the same order.
+     */
+    @Test
+    public void testSortLargeTableByTwoColumns() throws SnapshotException
+    {
+        RefinedResultBuilder builder = SnapshotQuery.parse("oql \"SELECT s.@objectId, s.@usedHeapSize FROM java.lang.String s\"", snapshot)
+                        .refine(new VoidProgressListener());
+        builder.setSortOrder(new int[] { 1, 0 }, new Column.SortDirection[] { Column.SortDirection.DESC, Column.SortDirection.ASC });
+        RefinedTable table = (RefinedTable) builder.build();
+        Assume.assumeThat(table.getRowCount(), greaterThanOrEqualTo(10000));
+
+        for (int i = 1; i < table.getRowCount(); ++i)
+        {
+            long size1 = ((Number) table.getColumnValue(table.getRow(i - 1), 1)).longValue();
+            long size2 = ((Number) table.getColumnValue(table.getRow(i), 1)).longValue();
+            assertThat(size2, lessThanOrEqualTo(size1));
+            if (size1 == size2)
+            {
+                int id1 = ((Number) table.getColumnValue(table.getRow(i - 1), 0)).intValue();
+                int id2 = ((Number) table.getColumnValue(table.getRow(i), 0)).intValue();
+                assertThat(id2, greaterThan(id1));
+            }
+        }
+    }
 }
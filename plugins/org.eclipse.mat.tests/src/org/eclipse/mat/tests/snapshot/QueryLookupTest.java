@@ -1104,6 +1104,32 @@ public class QueryLookupTest
      * char[] present
      * @throws SnapshotException
      */
+    /**
+     * Retained sizes calculated for many rows at once should be those of the snapshot.
+     */
+    @Test
+    public void testRetainedSizeManyRows() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        SnapshotQuery query = SnapshotQuery.parse("oql \"SELECT * FROM java.util.HashMap\"", snapshot);
+        RefinedResultBuilder rb = query.refine(new VoidProgressListener());
+        rb.addDefaultContextDerivedColumn(RetainedSizeDerivedData.APPROXIMATE);
+        RefinedTable result = (RefinedTable) rb.build();
+        List<Object> elements = new ArrayList<Object>();
+        for (int i = 0; i < result.getRowCount(); ++i)
+            elements.add(result.getRow(i));
+        assertThat(elements.size(), greaterThan(1));
+
+        ContextProvider provider = result.getJobs().get(0).getContextProvider();
+        result.calculate(provider, RetainedSizeDerivedData.APPROXIMATE, elements, null, new VoidProgressListener());
+        int column = result.getColumns().length - 1;
+        for (Object row : elements)
+        {
+            long expected = snapshot.getRetainedHeapSize(provider.getContext(row).getObjectId());
+            assertThat(result.getColumnValue(row, column), equalTo((Object) expected));
+        }
+    }
+
     @Test()
     public void testSubjectsAnnotation4() throws SnapshotException
     {
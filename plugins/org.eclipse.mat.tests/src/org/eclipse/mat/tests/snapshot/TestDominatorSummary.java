@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.snapshot.DominatorSummary;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+/**
+ * The summary of the top level dominators is saved in the domsum.index file
+ * and read again when the snapshot is reopened, unless the dominator tree
+ * has been calculated since.
+ */
+public class TestDominatorSummary
+{
+    /**
+     * Counts the calculations of the summary.
+     */
+    private static class CountingListener extends VoidProgressListener
+    {
+        int tasks;
+
+        @Override
+        public void beginTask(String name, int totalWork)
+        {
+            ++tasks;
+        }
+    }
+
+    private static ISnapshot reopen(ISnapshot snapshot) throws SnapshotException
+    {
+        File dumpFile = new File(snapshot.getSnapshotInfo().getPath());
+        SnapshotFactory.dispose(snapshot);
+        return SnapshotFactory.openSnapshot(dumpFile, new HashMap<String, String>(), new VoidProgressListener());
+    }
+
+    private static void assertSameSummary(DominatorSummary expected, DominatorSummary actual)
+    {
+        assertArrayEquals(expected.getObjectIds(), actual.getObjectIds());
+        for (int ii = 0; ii < expected.size(); ii++)
+        {
+            assertEquals(expected.getClassId(ii), actual.getClassId(ii));
+            assertEquals(expected.getClassLoaderId(ii), actual.getClassLoaderId(ii));
+            assertEquals(expected.getNamedClassId(ii), actual.getNamedClassId(ii));
+            assertEquals(expected.getUsedHeapSize(ii), actual.getUsedHeapSize(ii));
+            assertEquals(expected.getRetainedHeapSize(ii), actual.getRetainedHeapSize(ii));
+            int classId = expected.getClassId(ii);
+            assertEquals(expected.getClassSummary(classId).getNumberOfObjects(),
+                            actual.getClassSummary(classId).getNumberOfObjects());
+            assertEquals(expected.getClassSummary(classId).getRetainedHeapSize(),
+                            actual.getClassSummary(classId).getRetainedHeapSize());
+            assertEquals(expected.getClassSummary(classId).getNumberOfDominated(),
+                            actual.getClassSummary(classId).getNumberOfDominated());
+        }
+    }
+
+    /**
+     * The saved summary is read when the snapshot is reopened.
+     */
+    @Test
+    public void testReused() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+        File file = new File(snapshot.getSnapshotInfo().getPrefix() + "domsum.index"); //$NON-NLS-1$
+        CountingListener listener = new CountingListener();
+        DominatorSummary expected = DominatorSummary.get(snapshot, listener);
+        assertTrue(listener.tasks > 0);
+        assertTrue(file.exists());
+        long saved = file.lastModified();
+
+        snapshot = reopen(snapshot);
+        try
+        {
+            listener = new CountingListener();
+            DominatorSummary summary = DominatorSummary.get(snapshot, listener);
+            assertEquals("calculated again", 0, listener.tasks); //$NON-NLS-1$
+            assertEquals(saved, file.lastModified());
+            assertSameSummary(expected, summary);
+        }
+        finally
+        {
+            SnapshotFactory.dispose(snapshot);
+        }
+    }
+
+    /**
+     * Threads asking for the summary of a new snapshot at the same time
+     * share one calculation, and the file is written in one piece.
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException, ExecutionException
+    {
+        final ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+        final File file = new File(snapshot.getSnapshotInfo().getPrefix() + "domsum.index"); //$NON-NLS-1$
+        final int threads = 4;
+        List<CountingListener> listeners = new ArrayList<CountingListener>();
+        List<Future<DominatorSummary>> summaries = new ArrayList<Future<DominatorSummary>>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            for (int i = 0; i < threads; ++i)
+            {
+                final CountingListener listener = new CountingListener();
+                listeners.add(listener);
+                summaries.add(executor.submit(() -> DominatorSummary.get(snapshot, listener)));
+            }
+            for (Future<DominatorSummary> summary : summaries)
+                assertSame(summaries.get(0).get(), summary.get());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        int calculated = 0;
+        for (CountingListener listener : listeners)
+        {
+            if (listener.tasks > 0)
+                ++calculated;
+        }
+        assertEquals("calculations", 1, calculated); //$NON-NLS-1$
+        assertTrue(file.exists());
+        // no temporary files left behind
+        for (File f : file.getAbsoluteFile().getParentFile().listFiles())
+            assertTrue(f.getName(), f.equals(file.getAbsoluteFile()) || !f.getName().startsWith(file.getName()));
+    }
+
+    /**
+     * The saved summary is calculated again if the dominator tree is newer.
+     */
+    @Test
+    public void testDominatorTreeNewer() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, true);
+        File file = new File(snapshot.getSnapshotInfo().getPrefix() + "domsum.index"); //$NON-NLS-1$
+        File dominated = new File(snapshot.getSnapshotInfo().getPrefix() + "domOut.index"); //$NON-NLS-1$
+        DominatorSummary expected = DominatorSummary.get(snapshot, new VoidProgressListener());
+        assertTrue(file.exists());
+        assertTrue(file.setLastModified(dominated.lastModified() - 10000));
+
+        snapshot = reopen(snapshot);
+        try
+        {
+            CountingListener listener = new CountingListener();
+            DominatorSummary summary = DominatorSummary.get(snapshot, listener);
+            assertTrue("calculated again", listener.tasks > 0); //$NON-NLS-1$
+            assertTrue("saved again", file.lastModified() >= dominated.lastModified()); //$NON-NLS-1$
+            assertSameSummary(expected, summary);
+        }
+        finally
+        {
+            SnapshotFactory.dispose(snapshot);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.junit.Test;
+
+/**
+ * Opening a snapshot with <code>-early_open=true</code>, so the dominator
+ * tree is calculated in the background.
+ */
+public class TestEarlyOpen
+{
+    private static final String DUMP = TestSnapshots.SUN_JDK6_18_32BIT;
+
+    private ISnapshot openEarly()
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("early_open", "true");
+        return TestSnapshots.getSnapshot(DUMP, options, true);
+    }
+
+    /**
+     * The dominators and retained sizes should be the same as from a
+     * normal parse once the background calculation is done.
+     */
+    @Test
+    public void testSameDominatorTree() throws SnapshotException
+    {
+        ISnapshot expected = TestSnapshots.getSnapshot(DUMP, false);
+        ISnapshot actual = openEarly();
+        int n = expected.getSnapshotInfo().getNumberOfObjects();
+        assertEquals(n, actual.getSnapshotInfo().getNumberOfObjects());
+        for (int i = 0; i < n; ++i)
+        {
+            assertEquals("dominator of " + i, expected.getImmediateDominatorId(i), actual.getImmediateDominatorId(i));
+            assertEquals("retained size of " + i, expected.getRetainedHeapSize(i), actual.getRetainedHeapSize(i));
+        }
+    }
+
+    /**
+     * The parse lock should be held until the dominator tree is written,
+     * then released.
+     */
+    @Test
+    public void testLockHeldUntilWritten() throws SnapshotException
+    {
+        ISnapshot snapshot = openEarly();
+        String prefix = snapshot.getSnapshotInfo().getPrefix();
+        File lockFile = new File(prefix + "lock.index");
+        File dominated = new File(prefix + "domOut.index");
+
+        // Check the lock first, as it is released after the index is written
+        boolean locked = lockFile.exists();
+        assertTrue("lock released before the dominator tree was written", locked || dominated.exists());
+
+        // Wait for the background calculation
+        snapshot.getImmediateDominatorId(0);
+        assertTrue(dominated.exists());
+        assertFalse(lockFile.exists());
+    }
+
+    /**
+     * Disposing the snapshot straight away should stop the calculation and
+     * release the lock.
+     */
+    @Test
+    public void testDisposeWhileCalculating()
+    {
+        ISnapshot snapshot = openEarly();
+        String prefix = snapshot.getSnapshotInfo().getPrefix();
+        SnapshotFactory.dispose(snapshot);
+        assertFalse(new File(prefix + "lock.index").exists());
+    }
+}
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.inspections.util.HeapObjectScan;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+/**
+ * Scanning the objects of a query argument on several threads should
+ * give the same values in the same order as a simple loop.
+ */
+public class TestHeapObjectScan
+{
+    private static List<int[]> objects(ISnapshot snapshot, boolean reverse) throws SnapshotException
+    {
+        List<int[]> objects = new ArrayList<int[]>();
+        for (IClass cls : snapshot.getClasses())
+        {
+            int ids[] = cls.getObjectIds();
+            if (reverse)
+            {
+                for (int i = 0; i < ids.length / 2; ++i)
+                {
+                    int t = ids[i];
+                    ids[i] = ids[ids.length - 1 - i];
+                    ids[ids.length - 1 - i] = t;
+                }
+            }
+            objects.add(ids);
+        }
+        return objects;
+    }
+
+    private static class SizeScan extends HeapObjectScan<Long>
+    {
+        ArrayInt added = new ArrayInt();
+
+        SizeScan(ISnapshot snapshot, VoidProgressListener listener)
+        {
+            super(snapshot, listener, "sizes"); //$NON-NLS-1$
+        }
+
+        @Override
+        protected Long extract(int objectId) throws SnapshotException
+        {
+            // skip some objects
+            if (objectId % 3 == 0)
+                return null;
+            return snapshot.getHeapSize(objectId);
+        }
+
+        @Override
+        protected void add(int objectId, Long size) throws SnapshotException
+        {
+            assertEquals(snapshot.getHeapSize(objectId), size.longValue());
+            added.add(objectId);
+        }
+    }
+
+    /**
+     * The values should be added in the order of the argument,
+     * even when the blocks of ids are not sorted.
+     */
+    @Test
+    public void testOrder() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        for (boolean reverse : new boolean[] { false, true })
+        {
+            List<int[]> objects = objects(snapshot, reverse);
+            ArrayInt expected = new ArrayInt();
+            for (int ids[] : objects)
+            {
+                for (int id : ids)
+                {
+                    if (id % 3 != 0)
+                        expected.add(id);
+                }
+            }
+            SizeScan scan = new SizeScan(snapshot, new VoidProgressListener());
+            scan.run(objects);
+            assertEquals(expected.size(), scan.added.size());
+            for (int i = 0; i < expected.size(); ++i)
+                assertEquals(expected.get(i), scan.added.get(i));
+        }
+    }
+
+    /**
+     * Canceling should stop the scan and keep the values so far.
+     */
+    @Test
+    public void testCancel() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        final VoidProgressListener listener = new VoidProgressListener();
+        SizeScan scan = new SizeScan(snapshot, listener)
+        {
+            @Override
+            protected void add(int objectId, Long size) throws SnapshotException
+            {
+                super.add(objectId, size);
+                if (added.size() == 10)
+                    listener.setCanceled(true);
+            }
+        };
+        scan.run(objects(snapshot, false));
+        assertEquals(10, scan.added.size());
+    }
+
+    /**
+     * Exceptions are reported and the object skipped only if the scan has a
+     * message for them.
+     */
+    @Test
+    public void testIgnore() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        final int messages[] = new int[1];
+        VoidProgressListener listener = new VoidProgressListener()
+        {
+            @Override
+            public void sendUserMessage(Severity severity, String message, Throwable exception)
+            {
+                assertTrue(message, message.startsWith("ignoring ")); //$NON-NLS-1$
+                ++messages[0];
+            }
+        };
+        final IClass string = snapshot.getClassesByName("java.lang.String", false).iterator().next(); //$NON-NLS-1$
+        List<int[]> objects = new ArrayList<int[]>();
+        objects.add(string.getObjectIds());
+        final int total[] = new int[1];
+        new HeapObjectScan<Integer>(snapshot, listener, "strings", "ignoring {0}") //$NON-NLS-1$ //$NON-NLS-2$
+        {
+            @Override
+            protected Integer extract(int objectId) throws SnapshotException
+            {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            protected void add(int objectId, Integer result)
+            {
+                ++total[0];
+            }
+        }.run(objects);
+        assertEquals(0, total[0]);
+        // limited for each class
+        assertEquals(Math.min(20, string.getNumberOfObjects()), messages[0]);
+
+        try
+        {
+            new HeapObjectScan<Integer>(snapshot, listener, "strings") //$NON-NLS-1$
+            {
+                @Override
+                protected Integer extract(int objectId) throws SnapshotException
+                {
+                    throw new IllegalStateException();
+                }
+
+                @Override
+                protected void add(int objectId, Integer result)
+                {}
+            }.run(objects);
+            fail("Expected an exception"); //$NON-NLS-1$
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * The limit on reported exceptions applies to each class separately.
+     */
+    @Test
+    public void testIgnoreLimitPerClass() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        final int messages[] = new int[1];
+        VoidProgressListener listener = new VoidProgressListener()
+        {
+            @Override
+            public void sendUserMessage(Severity severity, String message, Throwable exception)
+            {
+                ++messages[0];
+            }
+        };
+        List<int[]> objects = new ArrayList<int[]>();
+        int expected = 0;
+        for (String name : new String[] { "java.lang.String", "char[]", "java.util.HashMap" }) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        {
+            IClass cls = snapshot.getClassesByName(name, false).iterator().next();
+            objects.add(cls.getObjectIds());
+            expected += Math.min(20, cls.getNumberOfObjects());
+        }
+        new HeapObjectScan<Integer>(snapshot, listener, "objects", "ignoring {0}") //$NON-NLS-1$ //$NON-NLS-2$
+        {
+            @Override
+            protected Integer extract(int objectId) throws SnapshotException
+            {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            protected void add(int objectId, Integer result)
+            {}
+        }.run(objects);
+        assertEquals(expected, messages[0]);
+    }
+
+    /**
+     * Canceling part way through a block of several batches should keep the
+     * values added so far in the order of the argument, with no gaps.
+     */
+    @Test
+    public void testCancelInBlock() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        IClass largest = null;
+        for (IClass cls : snapshot.getClasses())
+        {
+            if (largest == null || cls.getNumberOfObjects() > largest.getNumberOfObjects())
+                largest = cls;
+        }
+        // more than one batch
+        assertTrue(largest.getName(), largest.getNumberOfObjects() > 1000);
+        for (boolean reverse : new boolean[] { false, true })
+        {
+            int ids[] = largest.getObjectIds();
+            if (reverse)
+            {
+                int rev[] = new int[ids.length];
+                for (int i = 0; i < ids.length; ++i)
+                    rev[i] = ids[ids.length - 1 - i];
+                ids = rev;
+            }
+            List<int[]> objects = new ArrayList<int[]>();
+            objects.add(ids);
+            objects.addAll(objects(snapshot, reverse));
+            // cancel once the first batch has been used
+            VoidProgressListener listener = new VoidProgressListener()
+            {
+                @Override
+                public void worked(int work)
+                {
+                    setCanceled(true);
+                }
+            };
+            SizeScan scan = new SizeScan(snapshot, listener);
+            scan.run(objects);
+            assertTrue(scan.added.size() < ids.length);
+            int k = 0;
+            for (int id : ids)
+            {
+                if (id % 3 != 0 && k < scan.added.size())
+                    assertEquals(id, scan.added.get(k++));
+            }
+            assertEquals(scan.added.size(), k);
+        }
+    }
+}
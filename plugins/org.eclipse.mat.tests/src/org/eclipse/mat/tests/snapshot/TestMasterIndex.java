@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.ObjectReference;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The master index of a parsed snapshot, the &lt;prefix&gt;index file,
+ * should give the same snapshot when it is reopened, and a missing or
+ * corrupt file should mean the dump is parsed again.
+ */
+@RunWith(value = Parameterized.class)
+public class TestMasterIndex
+{
+    /** The magic number of the binary master index */
+    private static final int MAGIC = 0x4D415432;
+    /** The offset of the class section in the header */
+    private static final int CLASSES_OFFSET = 8 + 8 * 2;
+    /** The offset of the GC roots section in the header */
+    private static final int ROOTS_OFFSET = 8 + 8 * 3;
+
+    @Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] {
+                        { TestSnapshots.SUN_JDK6_18_32BIT },
+                        { TestSnapshots.ORACLE_JDK8_05_64BIT },
+        });
+    }
+
+    private final String dump;
+
+    public TestMasterIndex(String dump)
+    {
+        this.dump = dump;
+    }
+
+    /**
+     * Reading the index written by the parse gives the same classes, GC
+     * roots, class loader labels and arrays.
+     */
+    @Test
+    public void testRoundTrip() throws SnapshotException, IOException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dump, true);
+        File indexFile = new File(snapshot.getSnapshotInfo().getPrefix() + "index");
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile)))
+        {
+            assertEquals("binary master index", MAGIC, in.readInt());
+        }
+        List<String> expected = describe(snapshot);
+
+        ISnapshot reopened = reopen(snapshot);
+        try
+        {
+            assertEquals(Boolean.TRUE, reopened.getSnapshotInfo().getProperty("$reopened"));
+            assertEquals(expected, describe(reopened));
+        }
+        finally
+        {
+            SnapshotFactory.dispose(reopened);
+        }
+    }
+
+    /**
+     * Without the master index the dump is parsed again.
+     */
+    @Test
+    public void testMissing() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dump, true);
+        File indexFile = new File(snapshot.getSnapshotInfo().getPrefix() + "index");
+        List<String> expected = describe(snapshot);
+        File dumpFile = new File(snapshot.getSnapshotInfo().getPath());
+        SnapshotFactory.dispose(snapshot);
+        assertTrue(indexFile.delete());
+
+        ISnapshot reparsed = SnapshotFactory.openSnapshot(dumpFile, new HashMap<String, String>(), new VoidProgressListener());
+        try
+        {
+            assertNull(reparsed.getSnapshotInfo().getProperty("$reopened"));
+            assertEquals(expected, describe(reparsed));
+            assertTrue(indexFile.exists());
+        }
+        finally
+        {
+            SnapshotFactory.dispose(reparsed);
+        }
+    }
+
+    /**
+     * A class table with an impossible size is found to be corrupt, and the
+     * dump is parsed again.
+     */
+    @Test
+    public void testCorruptClasses() throws SnapshotException, IOException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dump, true);
+        File indexFile = new File(snapshot.getSnapshotInfo().getPrefix() + "index");
+        List<String> expected = describe(snapshot);
+        File dumpFile = new File(snapshot.getSnapshotInfo().getPath());
+        SnapshotFactory.dispose(snapshot);
+
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw"))
+        {
+            raf.seek(CLASSES_OFFSET);
+            long classes = raf.readLong();
+            raf.seek(classes);
+            byte[] garbage = new byte[256];
+            Arrays.fill(garbage, (byte) 0x7f);
+            raf.write(garbage);
+        }
+
+        ISnapshot reparsed = SnapshotFactory.openSnapshot(dumpFile, new HashMap<String, String>(), new VoidProgressListener());
+        try
+        {
+            assertNull(reparsed.getSnapshotInfo().getProperty("$reopened"));
+            assertEquals(expected, describe(reparsed));
+        }
+        finally
+        {
+            SnapshotFactory.dispose(reparsed);
+        }
+    }
+
+    /**
+     * A GC root table whose size is less than the file but more than the
+     * entries left in it is found to be corrupt when the snapshot is opened,
+     * and the dump is parsed again.
+     */
+    @Test
+    public void testCorruptRoots() throws SnapshotException, IOException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dump, true);
+        File indexFile = new File(snapshot.getSnapshotInfo().getPrefix() + "index");
+        List<String> expected = describe(snapshot);
+        File dumpFile = new File(snapshot.getSnapshotInfo().getPath());
+        SnapshotFactory.dispose(snapshot);
+
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw"))
+        {
+            raf.seek(ROOTS_OFFSET);
+            long roots = raf.readLong();
+            raf.seek(roots);
+            raf.writeInt((int) (raf.length() / 2));
+        }
+
+        ISnapshot reparsed = SnapshotFactory.openSnapshot(dumpFile, new HashMap<String, String>(), new VoidProgressListener());
+        try
+        {
+            assertNull(reparsed.getSnapshotInfo().getProperty("$reopened"));
+            assertEquals(expected, describe(reparsed));
+        }
+        finally
+        {
+            SnapshotFactory.dispose(reparsed);
+        }
+    }
+
+    /**
+     * A truncated master index has sections beyond the end of the file, and
+     * the dump is parsed again.
+     */
+    @Test
+    public void testTruncated() throws SnapshotException, IOException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dump, true);
+        File indexFile = new File(snapshot.getSnapshotInfo().getPrefix() + "index");
+        List<String> expected = describe(snapshot);
+        File dumpFile = new File(snapshot.getSnapshotInfo().getPath());
+        SnapshotFactory.dispose(snapshot);
+
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw"))
+        {
+            raf.setLength(raf.length() / 2);
+        }
+
+        ISnapshot reparsed = SnapshotFactory.openSnapshot(dumpFile, new HashMap<String, String>(), new VoidProgressListener());
+        try
+        {
+            assertNull(reparsed.getSnapshotInfo().getProperty("$reopened"));
+            assertEquals(expected, describe(reparsed));
+        }
+        finally
+        {
+            SnapshotFactory.dispose(reparsed);
+        }
+    }
+
+    private static ISnapshot reopen(ISnapshot snapshot) throws SnapshotException
+    {
+        File dumpFile = new File(snapshot.getSnapshotInfo().getPath());
+        SnapshotFactory.dispose(snapshot);
+        return SnapshotFactory.openSnapshot(dumpFile, new HashMap<String, String>(), new VoidProgressListener());
+    }
+
+    /**
+     * The contents of the master index, as text to compare.
+     */
+    private static List<String> describe(ISnapshot snapshot) throws SnapshotException
+    {
+        List<String> lines = new ArrayList<String>();
+        lines.add("objects " + snapshot.getSnapshotInfo().getNumberOfObjects() + " heap "
+                        + snapshot.getSnapshotInfo().getUsedHeapSize() + " id size "
+                        + snapshot.getSnapshotInfo().getIdentifierSize());
+
+        List<IClass> classes = new ArrayList<IClass>(snapshot.getClasses());
+        classes.sort((c1, c2) -> Integer.compare(c1.getObjectId(), c2.getObjectId()));
+        for (IClass cls : classes)
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(cls.getObjectId()).append(' ').append(cls.getName());
+            sb.append(" @").append(Long.toHexString(cls.getObjectAddress()));
+            sb.append(" super ").append(cls.getSuperClassId());
+            sb.append(" loader ").append(cls.getClassLoaderId());
+            sb.append(" class ").append(cls.getClazz().getObjectId());
+            sb.append(" size ").append(cls.getUsedHeapSize());
+            sb.append(" instance ").append(cls.getHeapSizePerInstance());
+            sb.append(" count ").append(cls.getNumberOfObjects());
+            for (FieldDescriptor fd : cls.getFieldDescriptors())
+                sb.append(" field ").append(fd.getName()).append(':').append(fd.getType());
+            for (Field f : cls.getStaticFields())
+            {
+                Object value = f.getValue();
+                if (value instanceof ObjectReference)
+                    value = Long.toHexString(((ObjectReference) value).getObjectAddress());
+                sb.append(" static ").append(f.getName()).append(':').append(f.getType()).append('=').append(value);
+            }
+            List<IClass> subclasses = new ArrayList<IClass>(cls.getSubclasses());
+            subclasses.sort((c1, c2) -> Integer.compare(c1.getObjectId(), c2.getObjectId()));
+            for (IClass sub : subclasses)
+                sb.append(" sub ").append(sub.getObjectId());
+            lines.add(sb.toString());
+        }
+
+        int[] roots = snapshot.getGCRoots().clone();
+        Arrays.sort(roots);
+        for (int root : roots)
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append("root ").append(root);
+            GCRootInfo[] infos = snapshot.getGCRootInfo(root);
+            String[] descriptions = new String[infos.length];
+            for (int ii = 0; ii < infos.length; ii++)
+                descriptions[ii] = infos[ii].getType() + "/" + Long.toHexString(infos[ii].getContextAddress());
+            Arrays.sort(descriptions);
+            for (String d : descriptions)
+                sb.append(' ').append(d);
+            lines.add(sb.toString());
+        }
+
+        for (IClass loaderClass : snapshot.getClassesByName("java.lang.ClassLoader", true))
+        {
+            int[] loaders = loaderClass.getObjectIds();
+            Arrays.sort(loaders);
+            for (int loader : loaders)
+                lines.add("loader " + loader + " " + snapshot.getObject(loader).getClassSpecificName());
+        }
+
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        List<Integer> arrays = new ArrayList<Integer>();
+        for (int ii = 0; ii < n; ii++)
+        {
+            if (snapshot.isArray(ii))
+                arrays.add(ii);
+        }
+        lines.add("arrays " + arrays.size() + " " + arrays.hashCode());
+        return lines;
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Reordering the object ids for locality should not change anything
+ * other than the ids.
+ */
+@RunWith(value = Parameterized.class)
+public class TestReorderObjects
+{
+    @Parameters(name = "{index}: {0} {1}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] {
+                        { TestSnapshots.SUN_JDK6_18_32BIT, "dfs" },
+                        { TestSnapshots.SUN_JDK6_18_64BIT, "bfs" },
+                        { TestSnapshots.ORACLE_JDK8_05_64BIT, "dfs" },
+                        { TestSnapshots.IBM_JDK6_32BIT_SYSTEM, "dfs" },
+        });
+    }
+
+    private String dump;
+    private String order;
+
+    public TestReorderObjects(String dump, String order)
+    {
+        this.dump = dump;
+        this.order = order;
+    }
+
+    private ISnapshot reordered()
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("reorder_objects", order);
+        return TestSnapshots.getSnapshot(dump, options, true);
+    }
+
+    /**
+     * Each object should have the same class, references, sizes and dominator,
+     * found by address.
+     */
+    @Test
+    public void testSameObjects() throws SnapshotException
+    {
+        ISnapshot expected = TestSnapshots.getSnapshot(dump, false);
+        ISnapshot actual = reordered();
+        int n = expected.getSnapshotInfo().getNumberOfObjects();
+        assertEquals(n, actual.getSnapshotInfo().getNumberOfObjects());
+        assertEquals(expected.getSnapshotInfo().getUsedHeapSize(), actual.getSnapshotInfo().getUsedHeapSize());
+        assertEquals(expected.getGCRoots().length, actual.getGCRoots().length);
+        int moved = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            long address = expected.mapIdToAddress(i);
+            int j = actual.mapAddressToId(address);
+            assertEquals(address, actual.mapIdToAddress(j));
+            if (i != j)
+                ++moved;
+            assertEquals(expected.getClassOf(i).getObjectAddress(), actual.getClassOf(j).getObjectAddress());
+            assertEquals(expected.getHeapSize(i), actual.getHeapSize(j));
+            assertEquals(expected.getRetainedHeapSize(i), actual.getRetainedHeapSize(j));
+            assertEquals(expected.isGCRoot(i), actual.isGCRoot(j));
+            assertEquals(addresses(expected, expected.getOutboundReferentIds(i)),
+                            addresses(actual, actual.getOutboundReferentIds(j)));
+            assertEquals(addresses(expected, expected.getInboundRefererIds(i)),
+                            addresses(actual, actual.getInboundRefererIds(j)));
+            int d1 = expected.getImmediateDominatorId(i);
+            int d2 = actual.getImmediateDominatorId(j);
+            assertEquals(d1 < 0 ? d1 : expected.mapIdToAddress(d1), d2 < 0 ? d2 : actual.mapIdToAddress(d2));
+        }
+        assertTrue("No objects reordered", moved > 0);
+    }
+
+    private String addresses(ISnapshot snapshot, int[] ids) throws SnapshotException
+    {
+        long[] answer = new long[ids.length];
+        for (int i = 0; i < ids.length; ++i)
+            answer[i] = snapshot.mapIdToAddress(ids[i]);
+        Arrays.sort(answer);
+        return Arrays.toString(answer);
+    }
+
+    /**
+     * Addresses should still be found after reopening the snapshot from the index files,
+     * and addresses of no object should not be found.
+     */
+    @Test
+    public void testReopen() throws SnapshotException
+    {
+        ISnapshot actual = reordered();
+        int n = actual.getSnapshotInfo().getNumberOfObjects();
+        long[] all = new long[n];
+        for (int i = 0; i < n; ++i)
+            all[i] = actual.mapIdToAddress(i);
+        File file = new File(actual.getSnapshotInfo().getPath());
+        SnapshotFactory.dispose(actual);
+        ISnapshot reopened = SnapshotFactory.openSnapshot(file, new HashMap<String, String>(),
+                        new VoidProgressListener());
+        try
+        {
+            for (int i = 0; i < n; ++i)
+                assertEquals(i, reopened.mapAddressToId(all[i]));
+            Arrays.sort(all);
+            for (int i = 1; i < n; ++i)
+            {
+                if (all[i] - all[i - 1] > 1)
+                {
+                    try
+                    {
+                        reopened.mapAddressToId(all[i - 1] + 1);
+                        fail("Found 0x" + Long.toHexString(all[i - 1] + 1));
+                    }
+                    catch (SnapshotException e)
+                    {
+                        // expected
+                    }
+                }
+            }
+        }
+        finally
+        {
+            SnapshotFactory.dispose(reopened);
+        }
+    }
+}
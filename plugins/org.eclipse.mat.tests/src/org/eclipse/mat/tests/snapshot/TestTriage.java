@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.ClassLoaderHistogramRecord;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.snapshot.TriageResult;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Compare the triage of a dump with the full snapshot.
+ */
+@RunWith(value = Parameterized.class)
+public class TestTriage
+{
+    @Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] {
+                        { TestSnapshots.SUN_JDK6_18_32BIT },
+                        { TestSnapshots.SUN_JDK6_18_64BIT },
+                        { TestSnapshots.SUN_JDK6_30_64BIT_COMPRESSED_OOPS },
+                        { TestSnapshots.ORACLE_JDK8_05_64BIT },
+        });
+    }
+
+    private String dump;
+
+    public TestTriage(String dump)
+    {
+        this.dump = dump;
+    }
+
+    private TriageResult triage(int top) throws SnapshotException
+    {
+        return triage(TestSnapshots.getResourceFile(dump), top, null);
+    }
+
+    private TriageResult triage(File file, int top, String followTimeout) throws SnapshotException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("triage_top", Integer.toString(top));
+        if (followTimeout != null)
+            options.put("follow_timeout", followTimeout);
+        return SnapshotFactory.triage(file, options, new VoidProgressListener());
+    }
+
+    private ISnapshot snapshot()
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("keep_unreachable_objects", "true");
+        return TestSnapshots.getSnapshot(dump, options, false);
+    }
+
+    /**
+     * The objects of each class should have the same count and shallow size as
+     * in the snapshot with the unreachable objects.
+     * Class objects are sized differently as the full parse knows more about them.
+     */
+    @Test
+    public void testHistogram() throws SnapshotException
+    {
+        Histogram triage = triage(0).getHistogram();
+        Histogram full = snapshot().getHistogram(new VoidProgressListener());
+
+        Map<String, long[]> expected = byName(full.getClassHistogramRecords());
+        Map<String, long[]> actual = byName(triage.getClassHistogramRecords());
+        for (Map.Entry<String, long[]> e : expected.entrySet())
+        {
+            if (e.getKey().equals(IClass.JAVA_LANG_CLASS))
+                continue;
+            long[] found = actual.get(e.getKey());
+            assertNotNull(e.getKey(), found);
+            assertEquals(e.getKey() + " objects", e.getValue()[0], found[0]);
+            assertEquals(e.getKey() + " shallow size", e.getValue()[1], found[1]);
+        }
+    }
+
+    private Map<String, long[]> byName(Collection<ClassHistogramRecord> records)
+    {
+        Map<String, long[]> answer = new HashMap<String, long[]>();
+        for (ClassHistogramRecord r : records)
+        {
+            long[] totals = answer.get(r.getLabel());
+            if (totals == null)
+                answer.put(r.getLabel(), totals = new long[2]);
+            totals[0] += r.getNumberOfObjects();
+            totals[1] += r.getUsedHeapSize();
+        }
+        return answer;
+    }
+
+    /**
+     * The class loader totals should add up to the whole histogram.
+     */
+    @Test
+    public void testClassLoaders() throws SnapshotException
+    {
+        Histogram triage = triage(0).getHistogram();
+        long objects = 0;
+        long size = 0;
+        for (ClassLoaderHistogramRecord r : triage.getClassLoaderHistogramRecords())
+        {
+            objects += r.getNumberOfObjects();
+            size += r.getUsedHeapSize();
+        }
+        assertEquals(triage.getNumberOfObjects(), objects);
+        assertEquals(triage.getUsedHeapSize(), size);
+    }
+
+    /**
+     * The biggest objects should be the biggest objects in the snapshot.
+     */
+    @Test
+    public void testBiggestObjects() throws SnapshotException
+    {
+        List<TriageResult.BigObject> biggest = triage(5).getBiggestObjects();
+        assertEquals(5, biggest.size());
+        ISnapshot snapshot = snapshot();
+        long[] sizes = new long[snapshot.getSnapshotInfo().getNumberOfObjects()];
+        for (int i = 0; i < sizes.length; ++i)
+            sizes[i] = snapshot.getHeapSize(i);
+        Arrays.sort(sizes);
+        for (int i = 0; i < biggest.size(); ++i)
+        {
+            TriageResult.BigObject big = biggest.get(i);
+            IObject obj = snapshot.getObject(snapshot.mapAddressToId(big.getObjectAddress()));
+            assertEquals(obj.getClazz().getName(), big.getClassName());
+            assertEquals(obj.getUsedHeapSize(), big.getUsedHeapSize());
+            assertEquals(sizes[sizes.length - 1 - i], big.getUsedHeapSize());
+            if (i > 0)
+                assertThat(big.getUsedHeapSize(), lessThanOrEqualTo(biggest.get(i - 1).getUsedHeapSize()));
+        }
+    }
+
+    /**
+     * The GC roots of each type should be counted as in the snapshot.
+     * The triage cannot tell which roots have no object in the dump, so
+     * may count more.
+     */
+    @Test
+    public void testGCRoots() throws SnapshotException
+    {
+        Map<Integer, Integer> triage = triage(0).getGCRoots();
+        ISnapshot snapshot = snapshot();
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        for (int id : snapshot.getGCRoots())
+        {
+            Set<Integer> types = new HashSet<Integer>();
+            for (GCRootInfo root : snapshot.getGCRootInfo(id))
+                types.add(root.getType());
+            for (int type : types)
+                expected.merge(type, 1, Integer::sum);
+        }
+        // Only from a full parse
+        expected.remove(GCRootInfo.Type.UNREACHABLE);
+
+        assertEquals(expected.keySet(), triage.keySet());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet())
+            assertThat(GCRootInfo.getTypeAsString(e.getKey()), triage.get(e.getKey()),
+                            greaterThanOrEqualTo(e.getValue()));
+    }
+
+    /**
+     * Following a dump while it is still being copied should give the same
+     * answer as the complete dump, and should finish at the end of the dump
+     * rather than waiting for the timeout.
+     */
+    @Test
+    public void testFollow() throws SnapshotException, IOException, InterruptedException
+    {
+        final byte[] bytes = Files.readAllBytes(TestSnapshots.getResourceFile(dump).toPath());
+        File copy = File.createTempFile("follow", ".hprof");
+        try
+        {
+            final OutputStream os = new FileOutputStream(copy);
+            // Enough for the header
+            os.write(bytes, 0, 32);
+            os.flush();
+            Thread copier = new Thread(() -> {
+                try
+                {
+                    for (int i = 32; i < bytes.length; i += 65536)
+                    {
+                        os.write(bytes, i, Math.min(65536, bytes.length - i));
+                        os.flush();
+                        Thread.sleep(10);
+                    }
+                    os.close();
+                }
+                catch (IOException | InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            });
+            copier.start();
+            long start = System.currentTimeMillis();
+            Histogram followed = triage(copy, 0, "60").getHistogram();
+            assertTrue("Waited for the timeout", System.currentTimeMillis() - start < 60000);
+            copier.join();
+
+            Histogram complete = triage(0).getHistogram();
+            assertEquals(complete.getNumberOfObjects(), followed.getNumberOfObjects());
+            assertEquals(complete.getUsedHeapSize(), followed.getUsedHeapSize());
+            assertEquals(byName(complete.getClassHistogramRecords()).keySet(),
+                            byName(followed.getClassHistogramRecords()).keySet());
+        }
+        finally
+        {
+            assertTrue(copy.toString(), copy.delete());
+        }
+    }
+
+    /**
+     * Canceling should stop the wait for a dump which has stopped growing,
+     * without waiting for the timeout.
+     */
+    @Test
+    public void testFollowCanceled() throws SnapshotException, IOException
+    {
+        byte[] bytes = Files.readAllBytes(TestSnapshots.getResourceFile(dump).toPath());
+        File copy = File.createTempFile("follow", ".hprof");
+        try
+        {
+            try (OutputStream os = new FileOutputStream(copy))
+            {
+                os.write(bytes, 0, 32);
+            }
+            final long start = System.currentTimeMillis();
+            Map<String, String> options = new HashMap<String, String>();
+            options.put("follow_timeout", "60");
+            try
+            {
+                SnapshotFactory.triage(copy, options, new VoidProgressListener()
+                {
+                    @Override
+                    public boolean isCanceled()
+                    {
+                        return System.currentTimeMillis() - start > 500;
+                    }
+                });
+                fail("Expected the triage to be canceled");
+            }
+            catch (IProgressListener.OperationCanceledException e)
+            {
+                assertTrue("Waited for the timeout", System.currentTimeMillis() - start < 60000);
+            }
+        }
+        finally
+        {
+            assertTrue(copy.toString(), copy.delete());
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,7 @@ package org.eclipse.mat.ui.internal.viewer;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -48,6 +48,7 @@ import org.eclipse.mat.ui.internal.viewer.RefinedResultViewer.ControlItem;
 import org.eclipse.mat.ui.internal.viewer.RefinedResultViewer.Key;
 import org.eclipse.mat.ui.util.ErrorHelper;
 import org.eclipse.mat.ui.util.ProgressMonitorWrapper;
+import org.eclipse.mat.util.FileUtils;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Control;
@@ -261,7 +262,7 @@ import org.eclipse.swt.widgets.TreeItem;
                         {
                             cs = StandardCharsets.UTF_8;
                         }
-                        try (PrintWriter writer = new PrintWriter(fileName, cs.name()))
+                        try (Writer writer = FileUtils.openExportWriter(new File(fileName), cs))
                         {
                             outputter.process(new ContextImpl(queryContext, //
                                             new File(fileName).getParentFile()), result, writer);
@@ -334,7 +335,7 @@ import org.eclipse.swt.widgets.TreeItem;
                         {
                             cs = StandardCharsets.UTF_8;
                         }
-                        try (PrintWriter writer = new PrintWriter(fileName, cs.name()))
+                        try (Writer writer = FileUtils.openExportWriter(new File(fileName), cs))
                         {
                             outputter.process(new ContextImpl(queryContext, //
                                             new File(fileName).getParentFile()), result, writer);